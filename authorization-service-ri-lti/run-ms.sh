@@ -1 +1 @@
-mvn spring-boot:run
\ No newline at end of file
+PLATFORM_NODE_ID=${PLATFORM_NODE_ID:-2} mvn spring-boot:run
\ No newline at end of file
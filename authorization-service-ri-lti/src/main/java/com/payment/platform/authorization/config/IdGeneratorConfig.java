@@ -0,0 +1,20 @@
+package com.payment.platform.authorization.config;
+
+import com.payment.platform.core.id.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the shared time-ordered id generator for this service instance.
+ * platform.node-id must be set to a value (0-1023) unique to each instance, e.g. with the
+ * PLATFORM_NODE_ID environment variable; startup fails without it.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    SnowflakeIdGenerator snowflakeIdGenerator(@Value("${platform.node-id:}") String nodeId) {
+        return SnowflakeIdGenerator.forNode(nodeId);
+    }
+}
@@ -0,0 +1,31 @@
+package com.payment.platform.authorization.config;
+
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.TrackingEventProcessorConfiguration;
+import org.axonframework.eventhandling.tokenstore.inmemory.InMemoryTokenStore;
+import org.axonframework.messaging.StreamableMessageSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs the "risk-features" processing group (RiskFeatureEventHandler) as a tracking processor
+ * that replays the event store from the start on every restart.
+ *
+ * RiskFeatureStore is in memory only, so its tokens are kept in memory too: a restart has no
+ * stored position and the processor starts again at the tail, rebuilding the features from
+ * the full history. A persisted token would resume mid-stream against an empty store.
+ */
+@Configuration
+public class RiskFeatureProcessingConfig {
+
+    public static final String PROCESSING_GROUP = "risk-features";
+
+    @Autowired
+    public void configure(EventProcessingConfigurer configurer) {
+        configurer.registerTokenStore(PROCESSING_GROUP, configuration -> new InMemoryTokenStore());
+        configurer.registerTrackingEventProcessor(PROCESSING_GROUP,
+                configuration -> configuration.eventStore(),
+                configuration -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andInitialTrackingToken(StreamableMessageSource::createTailToken));
+    }
+}
@@ -22,6 +22,7 @@ package com.payment.platform.authorization.handler;
 import com.payment.platform.authorization.service.AuthorizationResult;
 import com.payment.platform.authorization.service.AuthorizationRulesEngine;
 import com.payment.platform.core.events.*;
+import com.payment.platform.core.id.SnowflakeIdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.gateway.CommandGateway;
 import org.axonframework.eventhandling.EventHandler;
@@ -30,8 +31,6 @@ import org.axonframework.eventhandling.GenericEventMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
-
 @Component
 @Slf4j
 public class AuthorizationEventHandler {
@@ -45,6 +44,9 @@ public class AuthorizationEventHandler {
     @Autowired
     private EventBus eventBus;
     
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+    
     @EventHandler
     public void on(PaymentInitiatedEvent event) {
         log.info("1. Processing payment authorization for paymentId: {}", event.getPaymentId());
@@ -58,7 +60,9 @@ public class AuthorizationEventHandler {
                     event.getOrderId(),
                     generateAuthCode(),
                     result.getRiskScore(),
-                    event.getAmount()
+                    event.getAmount(),
+                    event.getMerchantId(),
+                    event.getCurrency()
                 );
                 
                 eventBus.publish(GenericEventMessage.asEventMessage(authorizedEvent));
@@ -91,6 +95,6 @@ public class AuthorizationEventHandler {
     }
     
     private String generateAuthCode() {
-        return "AUTH_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return "AUTH_" + idGenerator.nextIdString();
     }
 }
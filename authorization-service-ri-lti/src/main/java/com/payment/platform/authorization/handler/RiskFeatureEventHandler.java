@@ -0,0 +1,61 @@
+/**
+ * Event handler that keeps the RiskFeatureStore up to date with the payment lifecycle.
+ * 
+ * This handler only maintains read-side state for risk scoring:
+ * - PaymentInitiatedEvent: Registers the user (first-seen) and the pending payment
+ * - PaymentAuthorizedEvent: Adds decayed spend and the merchant to the user's history
+ * - PaymentRejectedEvent: Counts towards the user's rejection rate
+ * - PaymentSettledEvent: Counts completed payments and releases the pending entry
+ * 
+ * Runs in its own tracking processor (RiskFeatureProcessingConfig), which replays the event
+ * stream from the start on every restart; the events' own timestamps are passed on, so a
+ * replay does not stamp history with the current time.
+ * 
+ * Used by: AuthorizationRulesEngine (via RiskFeatureStore) for history-based risk factors
+ */
+package com.payment.platform.authorization.handler;
+
+import com.payment.platform.authorization.config.RiskFeatureProcessingConfig;
+import com.payment.platform.authorization.service.RiskFeatureStore;
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.events.PaymentInitiatedEvent;
+import com.payment.platform.core.events.PaymentRejectedEvent;
+import com.payment.platform.core.events.PaymentSettledEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.Timestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+@ProcessingGroup(RiskFeatureProcessingConfig.PROCESSING_GROUP)
+@Slf4j
+public class RiskFeatureEventHandler {
+    
+    @Autowired
+    private RiskFeatureStore riskFeatureStore;
+    
+    @EventHandler
+    public void on(PaymentInitiatedEvent event, @Timestamp Instant timestamp) {
+        log.debug("Recording risk features for initiated payment: {}", event.getPaymentId());
+        riskFeatureStore.recordInitiated(event, timestamp.toEpochMilli());
+    }
+    
+    @EventHandler
+    public void on(PaymentAuthorizedEvent event, @Timestamp Instant timestamp) {
+        riskFeatureStore.recordAuthorized(event, timestamp.toEpochMilli());
+    }
+    
+    @EventHandler
+    public void on(PaymentRejectedEvent event) {
+        riskFeatureStore.recordRejected(event);
+    }
+    
+    @EventHandler
+    public void on(PaymentSettledEvent event) {
+        riskFeatureStore.recordSettled(event);
+    }
+}
@@ -22,6 +22,7 @@ package com.payment.platform.authorization.service;
 
 import com.payment.platform.core.events.PaymentInitiatedEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -32,6 +33,14 @@ import java.util.List;
 @Slf4j
 public class AuthorizationRulesEngine {
     
+    private static final long NEW_USER_AGE_MILLIS = 60 * 60 * 1000L;
+    private static final int MIN_DECISIONS_FOR_REJECTION_RATE = 3;
+    private static final BigDecimal HIGH_SPEND_THRESHOLD = new BigDecimal("20000");
+    private static final int MANY_MERCHANTS_THRESHOLD = 10;
+    
+    @Autowired
+    private RiskFeatureStore riskFeatureStore;
+    
     public AuthorizationResult evaluate(PaymentInitiatedEvent event) {
         log.info("2. Evaluating authorization rules for payment: {}", event.getPaymentId());
         
@@ -75,9 +84,22 @@ public class AuthorizationRulesEngine {
         if (amount.compareTo(new BigDecimal("5000")) > 0) score += 30;
         if (amount.compareTo(new BigDecimal("1000")) > 0) score += 10;
         
-        // Add more risk factors based on user history, location, etc.
-        // For demo, using simple logic
-        if (event.getPaymentMethod().contains("crypto")) score += 20;
+        // History-based risk factors from the in-memory feature store (O(1) lookup)
+        RiskFeatures features = riskFeatureStore.snapshot(event.getUserId(), event.getMerchantId());
+        long ageMillis = features.getAgeMillis(System.currentTimeMillis());
+        if (!features.isKnownUser() || ageMillis < NEW_USER_AGE_MILLIS) score += 10;
+        
+        if (features.getDecisionCount() >= MIN_DECISIONS_FOR_REJECTION_RATE) {
+            if (features.getRejectionRate() > 0.5) score += 25;
+            else if (features.getRejectionRate() > 0.2) score += 10;
+        }
+        
+        BigDecimal projectedSpend = BigDecimal.valueOf(features.getDecayedSpend()).add(amount);
+        if (projectedSpend.compareTo(HIGH_SPEND_THRESHOLD) > 0) score += 20;
+        
+        if (!features.isKnownMerchant() && features.getDistinctMerchants() >= MANY_MERCHANTS_THRESHOLD) score += 10;
+        
+        if (event.getPaymentMethod() != null && event.getPaymentMethod().contains("crypto")) score += 20;
         
         return Math.min(score, 100);
     }
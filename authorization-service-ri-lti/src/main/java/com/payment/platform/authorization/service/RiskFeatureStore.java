@@ -0,0 +1,247 @@
+/**
+ * In-memory store of per-user risk features, kept up to date from payment lifecycle events.
+ *
+ * Features are held in primitive arrays indexed by a per-user slot, so a lookup is one
+ * hash probe for the slot followed by array reads (no boxing, no per-feature objects):
+ * - decayedSpend / spendUpdatedAt: Authorized spend decayed with a configurable half-life
+ * - authorizedCount / rejectedCount / settledCount: Outcome counters (rejection rate)
+ * - firstSeenAt: First time the user initiated a payment (account age proxy)
+ * - merchantSets: Small open-addressing hash set of merchant id hashes (distinct merchants)
+ *
+ * PaymentAuthorizedEvent, PaymentRejectedEvent and PaymentSettledEvent do not carry the user
+ * or merchant, so PaymentInitiatedEvent registers the paymentId in a bounded pending table
+ * that later events resolve against.
+ *
+ * Initiations and authorizations are recorded with the time the event occurred, and first-seen
+ * and spend decay are computed from those times rather than the clock, so replaying history
+ * gives the same features as processing it live: old spend has already decayed when a
+ * snapshot is taken.
+ *
+ * Used by: RiskFeatureEventHandler (writes) and AuthorizationRulesEngine (reads)
+ * Scope: Single node, rebuilt on restart by replaying the event stream from the start
+ *        (RiskFeatureProcessingConfig); until the replay catches up, users look newer
+ */
+package com.payment.platform.authorization.service;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.events.PaymentInitiatedEvent;
+import com.payment.platform.core.events.PaymentRejectedEvent;
+import com.payment.platform.core.events.PaymentSettledEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Slf4j
+public class RiskFeatureStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MERCHANT_SET_CAPACITY = 128;
+    private static final int MAX_TRACKED_MERCHANTS = MERCHANT_SET_CAPACITY / 2;
+    private static final long EMPTY_MERCHANT = 0L;
+
+    private final double decayPerMillis;
+    private final int maxPendingPayments;
+
+    private final Map<String, Integer> userSlots = new HashMap<>();
+    private final Map<String, PendingPayment> pendingPayments;
+
+    private int size = 0;
+    private double[] decayedSpend = new double[INITIAL_CAPACITY];
+    private long[] spendUpdatedAt = new long[INITIAL_CAPACITY];
+    private int[] authorizedCount = new int[INITIAL_CAPACITY];
+    private int[] rejectedCount = new int[INITIAL_CAPACITY];
+    private int[] settledCount = new int[INITIAL_CAPACITY];
+    private long[] firstSeenAt = new long[INITIAL_CAPACITY];
+    private int[] merchantCount = new int[INITIAL_CAPACITY];
+    private long[][] merchantSets = new long[INITIAL_CAPACITY][];
+
+    public RiskFeatureStore(@Value("${authorization.risk.spend-half-life-hours:24}") double spendHalfLifeHours,
+                            @Value("${authorization.risk.max-pending-payments:100000}") int maxPendingPayments) {
+        this.decayPerMillis = Math.log(2) / (spendHalfLifeHours * 3_600_000d);
+        this.maxPendingPayments = maxPendingPayments;
+        this.pendingPayments = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PendingPayment> eldest) {
+                return size() > RiskFeatureStore.this.maxPendingPayments;
+            }
+        };
+    }
+
+    public synchronized void recordInitiated(PaymentInitiatedEvent event, long occurredAt) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        int slot = slotFor(event.getUserId(), occurredAt);
+        pendingPayments.put(event.getPaymentId(), new PendingPayment(slot, merchantHash(event.getMerchantId())));
+    }
+
+    public synchronized void recordAuthorized(PaymentAuthorizedEvent event, long occurredAt) {
+        PendingPayment pending = pendingPayments.get(event.getPaymentId());
+        if (pending == null) {
+            log.debug("No pending risk entry for authorized payment: {}", event.getPaymentId());
+            return;
+        }
+        int slot = pending.slot;
+        double amount = parseAmount(event.getAmount());
+        if (occurredAt >= spendUpdatedAt[slot]) {
+            decayedSpend[slot] = decayedSpendAt(slot, occurredAt) + amount;
+            spendUpdatedAt[slot] = occurredAt;
+        } else {
+            // Older than the last spend: decay the amount up to it instead
+            decayedSpend[slot] += amount * Math.exp(-decayPerMillis * (spendUpdatedAt[slot] - occurredAt));
+        }
+        authorizedCount[slot]++;
+        addMerchant(slot, pending.merchantHash);
+    }
+
+    public synchronized void recordRejected(PaymentRejectedEvent event) {
+        PendingPayment pending = pendingPayments.remove(event.getPaymentId());
+        if (pending == null) {
+            log.debug("No pending risk entry for rejected payment: {}", event.getPaymentId());
+            return;
+        }
+        rejectedCount[pending.slot]++;
+    }
+
+    public synchronized void recordSettled(PaymentSettledEvent event) {
+        PendingPayment pending = pendingPayments.remove(event.getPaymentId());
+        if (pending == null) {
+            log.debug("No pending risk entry for settled payment: {}", event.getPaymentId());
+            return;
+        }
+        settledCount[pending.slot]++;
+    }
+
+    /**
+     * Returns the current features for a user, with the merchant membership evaluated
+     * against the given merchant. Never returns null.
+     */
+    public synchronized RiskFeatures snapshot(String userId, String merchantId) {
+        Integer slot = userId == null ? null : userSlots.get(userId);
+        if (slot == null) {
+            return RiskFeatures.UNKNOWN_USER;
+        }
+        int s = slot;
+        return new RiskFeatures(
+            decayedSpendAt(s, System.currentTimeMillis()),
+            authorizedCount[s],
+            rejectedCount[s],
+            settledCount[s],
+            firstSeenAt[s],
+            merchantCount[s],
+            containsMerchant(s, merchantHash(merchantId))
+        );
+    }
+
+    public synchronized int getTrackedUsers() {
+        return size;
+    }
+
+    private int slotFor(String userId, long occurredAt) {
+        Integer existing = userSlots.get(userId);
+        if (existing != null) {
+            firstSeenAt[existing] = Math.min(firstSeenAt[existing], occurredAt);
+            return existing;
+        }
+        if (size == decayedSpend.length) {
+            grow();
+        }
+        int slot = size++;
+        firstSeenAt[slot] = occurredAt;
+        spendUpdatedAt[slot] = occurredAt;
+        userSlots.put(userId, slot);
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = decayedSpend.length * 2;
+        decayedSpend = Arrays.copyOf(decayedSpend, capacity);
+        spendUpdatedAt = Arrays.copyOf(spendUpdatedAt, capacity);
+        authorizedCount = Arrays.copyOf(authorizedCount, capacity);
+        rejectedCount = Arrays.copyOf(rejectedCount, capacity);
+        settledCount = Arrays.copyOf(settledCount, capacity);
+        firstSeenAt = Arrays.copyOf(firstSeenAt, capacity);
+        merchantCount = Arrays.copyOf(merchantCount, capacity);
+        merchantSets = Arrays.copyOf(merchantSets, capacity);
+    }
+
+    private double decayedSpendAt(int slot, long now) {
+        long elapsed = Math.max(0L, now - spendUpdatedAt[slot]);
+        return decayedSpend[slot] * Math.exp(-decayPerMillis * elapsed);
+    }
+
+    private void addMerchant(int slot, long hash) {
+        if (hash == EMPTY_MERCHANT || merchantCount[slot] >= MAX_TRACKED_MERCHANTS) {
+            return;
+        }
+        long[] set = merchantSets[slot];
+        if (set == null) {
+            set = new long[MERCHANT_SET_CAPACITY];
+            merchantSets[slot] = set;
+        }
+        int mask = MERCHANT_SET_CAPACITY - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (set[i] != EMPTY_MERCHANT) {
+            if (set[i] == hash) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        set[i] = hash;
+        merchantCount[slot]++;
+    }
+
+    private boolean containsMerchant(int slot, long hash) {
+        long[] set = merchantSets[slot];
+        if (set == null || hash == EMPTY_MERCHANT) {
+            return false;
+        }
+        int mask = MERCHANT_SET_CAPACITY - 1;
+        int i = (int) (hash ^ (hash >>> 32)) & mask;
+        while (set[i] != EMPTY_MERCHANT) {
+            if (set[i] == hash) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private static long merchantHash(String merchantId) {
+        if (merchantId == null || merchantId.isEmpty()) {
+            return EMPTY_MERCHANT;
+        }
+        // 64-bit FNV-1a; collisions only under-count distinct merchants
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < merchantId.length(); i++) {
+            hash ^= merchantId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == EMPTY_MERCHANT ? 1L : hash;
+    }
+
+    private static double parseAmount(String amount) {
+        try {
+            return amount == null ? 0.0 : new BigDecimal(amount).doubleValue();
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private static final class PendingPayment {
+        private final int slot;
+        private final long merchantHash;
+
+        private PendingPayment(int slot, long merchantHash) {
+            this.slot = slot;
+            this.merchantHash = merchantHash;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Point-in-time snapshot of the history-based risk features held for one user.
+ * 
+ * This class is produced by RiskFeatureStore and consumed by AuthorizationRulesEngine:
+ * - decayedSpend: Authorized spend with exponential time decay (recent spend weighs more)
+ * - authorizedCount / rejectedCount: Authorization outcomes seen for the user
+ * - settledCount: Payments that reached settlement
+ * - firstSeenMillis: When the user was first observed (0 if never seen)
+ * - distinctMerchants: Number of distinct merchants the user has been authorized with
+ * 
+ * Purpose: Gives the risk scorer O(1) access to user history without touching a database
+ */
+package com.payment.platform.authorization.service;
+
+public class RiskFeatures {
+    
+    public static final RiskFeatures UNKNOWN_USER = new RiskFeatures(0.0, 0, 0, 0, 0L, 0, false);
+    
+    private final double decayedSpend;
+    private final int authorizedCount;
+    private final int rejectedCount;
+    private final int settledCount;
+    private final long firstSeenMillis;
+    private final int distinctMerchants;
+    private final boolean knownMerchant;
+    
+    public RiskFeatures(double decayedSpend, int authorizedCount, int rejectedCount, int settledCount,
+                        long firstSeenMillis, int distinctMerchants, boolean knownMerchant) {
+        this.decayedSpend = decayedSpend;
+        this.authorizedCount = authorizedCount;
+        this.rejectedCount = rejectedCount;
+        this.settledCount = settledCount;
+        this.firstSeenMillis = firstSeenMillis;
+        this.distinctMerchants = distinctMerchants;
+        this.knownMerchant = knownMerchant;
+    }
+    
+    public boolean isKnownUser() { return firstSeenMillis > 0; }
+    
+    public int getDecisionCount() { return authorizedCount + rejectedCount; }
+    
+    public double getRejectionRate() {
+        int decisions = getDecisionCount();
+        return decisions == 0 ? 0.0 : (double) rejectedCount / decisions;
+    }
+    
+    public long getAgeMillis(long nowMillis) {
+        return isKnownUser() ? Math.max(0L, nowMillis - firstSeenMillis) : 0L;
+    }
+    
+    // Manual getters
+    public double getDecayedSpend() { return decayedSpend; }
+    public int getAuthorizedCount() { return authorizedCount; }
+    public int getRejectedCount() { return rejectedCount; }
+    public int getSettledCount() { return settledCount; }
+    public long getFirstSeenMillis() { return firstSeenMillis; }
+    public int getDistinctMerchants() { return distinctMerchants; }
+    public boolean isKnownMerchant() { return knownMerchant; }
+}
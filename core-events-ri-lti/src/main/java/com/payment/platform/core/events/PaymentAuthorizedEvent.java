@@ -4,6 +4,7 @@
  * This event indicates that the payment has passed all validation rules and is approved:
  * - authorizationCode: Unique code generated for this successful authorization
  * - riskScore: Calculated risk assessment score from the authorization engine
+ * - merchantId and currency: Carried over from the initiated payment so settlement can batch per merchant
  * 
  * Used by: SettlementService to process the actual payment settlement
  * Triggers: Payment settlement workflow and order processing continuation
@@ -15,6 +16,8 @@ public class PaymentAuthorizedEvent extends PaymentEvent {
     private String authorizationCode;
     private String riskScore;
     private String amount;
+    private String merchantId;
+    private String currency;
     
     public PaymentAuthorizedEvent() {}
     
@@ -27,6 +30,13 @@ public class PaymentAuthorizedEvent extends PaymentEvent {
         this.setTimestamp(java.time.LocalDateTime.now());
     }
     
+    public PaymentAuthorizedEvent(String paymentId, String orderId, String authorizationCode, String riskScore, String amount,
+                                  String merchantId, String currency) {
+        this(paymentId, orderId, authorizationCode, riskScore, amount);
+        this.setMerchantId(merchantId);
+        this.setCurrency(currency);
+    }
+    
     // Manual getters and setters
     public String getAuthorizationCode() { return authorizationCode; }
     public void setAuthorizationCode(String authorizationCode) { this.authorizationCode = authorizationCode; }
@@ -36,4 +46,10 @@ public class PaymentAuthorizedEvent extends PaymentEvent {
     
     public String getAmount() { return amount; }
     public void setAmount(String amount) { this.amount = amount; }
+    
+    public String getMerchantId() { return merchantId; }
+    public void setMerchantId(String merchantId) { this.merchantId = merchantId; }
+    
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
 }
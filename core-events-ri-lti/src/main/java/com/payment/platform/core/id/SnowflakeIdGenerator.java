@@ -0,0 +1,113 @@
+/**
+ * Time-ordered, node-aware 64-bit id generator (Snowflake layout) shared by the payment services.
+ * 
+ * Bit layout (most significant first):
+ * - 1 bit: always 0 so ids are positive
+ * - 41 bits: milliseconds since EPOCH_MILLIS (about 69 years)
+ * - 10 bits: node id (0-1023), unique per running service instance; it must be assigned
+ *   explicitly (platform.node-id), since a derived one can collide and break uniqueness
+ * - 12 bits: per-millisecond sequence (4096 ids per ms per node)
+ * 
+ * The last issued (timestamp, sequence) pair lives in one AtomicLong and is advanced with
+ * compare-and-set, so concurrent callers never block. When a millisecond's sequence is
+ * exhausted, or the wall clock moves backwards, the generator borrows the next logical
+ * millisecond instead of waiting; ids stay unique and monotonic per node.
+ * 
+ * Encoding: nextId() returns the raw long; nextIdString() returns 13 Crockford base32
+ * characters whose lexical order matches numeric (and therefore time) order.
+ * 
+ * Used by: SettlementProcessor (settlement ids), AuthorizationEventHandler (authorization codes)
+ */
+package com.payment.platform.core.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SnowflakeIdGenerator {
+    
+    /** 2024-01-01T00:00:00Z */
+    public static final long EPOCH_MILLIS = 1704067200000L;
+    
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] CROCKFORD_BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    
+    private final long nodeId;
+    
+    /** (logical millis since epoch << SEQUENCE_BITS) | sequence of the last issued id. */
+    private final AtomicLong lastState = new AtomicLong(0L);
+    
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+    
+    /**
+     * Creates a generator for the configured node id. Fails when none is configured: ids are
+     * only unique if every running instance has its own node id.
+     */
+    public static SnowflakeIdGenerator forNode(String configuredNodeId) {
+        if (configuredNodeId == null || configuredNodeId.isBlank()) {
+            throw new IllegalStateException("No node id configured; set platform.node-id (0-" + MAX_NODE_ID
+                    + ") to a value unique to this instance, e.g. with the PLATFORM_NODE_ID environment variable");
+        }
+        try {
+            return new SnowflakeIdGenerator(Long.parseLong(configuredNodeId.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("platform.node-id must be a number between 0 and " + MAX_NODE_ID
+                    + ": " + configuredNodeId, e);
+        }
+    }
+    
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        while (true) {
+            long last = lastState.get();
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same millisecond, clock moved back, or sequence exhausted: the increment
+                // carries into the millisecond bits, borrowing the next logical millisecond
+                next = last + 1;
+            }
+            if (lastState.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+    
+    public String nextIdString() {
+        return encode(nextId());
+    }
+    
+    public long getNodeId() { return nodeId; }
+    
+    /**
+     * Fixed-width (13 char) Crockford base32 encoding; lexical order equals numeric order.
+     */
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD_BASE32[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+    
+    public static long timestampMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+    
+    public static long nodeId(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
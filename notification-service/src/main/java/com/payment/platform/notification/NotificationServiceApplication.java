@@ -2,10 +2,12 @@ package com.payment.platform.notification;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 //import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 
 @SpringBootApplication
+@EnableScheduling
 //@EnableDiscoveryClient
 public class NotificationServiceApplication {
     
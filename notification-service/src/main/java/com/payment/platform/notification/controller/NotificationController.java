@@ -4,13 +4,20 @@ import com.payment.platform.notification.model.NotificationEntity;
 import com.payment.platform.notification.model.NotificationRequest;
 import com.payment.platform.notification.model.NotificationChannel;
 import com.payment.platform.notification.model.NotificationStatus;
+import com.payment.platform.notification.model.WebhookSubscription;
+import com.payment.platform.notification.service.FileNotificationService;
 import com.payment.platform.notification.service.NotificationService;
 import com.payment.platform.notification.service.NotificationStatistics;
 import com.payment.platform.notification.service.UiNotificationService;
+import com.payment.platform.notification.service.WebhookService;
+import com.payment.platform.notification.webhook.WebhookDeliveryEngine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -27,6 +34,12 @@ public class NotificationController {
     @Autowired
     private UiNotificationService uiNotificationService;
     
+    @Autowired
+    private FileNotificationService fileNotificationService;
+    
+    @Autowired
+    private WebhookService webhookService;
+    
     @PostMapping
     public ResponseEntity<NotificationEntity> sendNotification(@Valid @RequestBody NotificationRequest request) {
         log.info("REST request to send notification: {}", request.getCorrelationId());
@@ -67,6 +80,12 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
     
+    @GetMapping("/logs/correlation/{correlationId}")
+    public ResponseEntity<List<String>> getLogEntriesByCorrelationId(@PathVariable String correlationId) {
+        List<String> entries = fileNotificationService.searchLogEntries(correlationId);
+        return ResponseEntity.ok(entries);
+    }
+    
     @GetMapping("/status/{status}")
     public ResponseEntity<List<NotificationEntity>> getNotificationsByStatus(@PathVariable NotificationStatus status) {
         List<NotificationEntity> notifications = notificationService.getNotificationsByStatus(status);
@@ -121,6 +140,18 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
     
+    @GetMapping(value = "/ui/{recipient}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUiNotifications(
+            @PathVariable String recipient,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        SseEmitter emitter = uiNotificationService.subscribe(recipient, lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
     @GetMapping("/ui/notification/{id}")
     public ResponseEntity<Map<String, Object>> getUiNotification(@PathVariable String id) {
         Map<String, Object> notification = uiNotificationService.getUiNotification(id);
@@ -131,6 +162,45 @@ public class NotificationController {
         }
     }
     
+    // Webhook endpoints
+    @GetMapping("/webhooks")
+    public ResponseEntity<List<WebhookDeliveryEngine.EndpointStatus>> getWebhookEndpoints() {
+        return ResponseEntity.ok(webhookService.getEndpointStatuses());
+    }
+    
+    // Changing endpoints needs notification.webhook.admin-token; without one they come from configuration only
+    @PutMapping("/webhooks/{name}")
+    public ResponseEntity<Void> subscribeWebhook(@PathVariable String name,
+                                                 @RequestHeader(value = "X-Webhook-Admin-Token", required = false) String token,
+                                                 @Valid @RequestBody WebhookSubscription subscription) {
+        if (!webhookService.isManagementAllowed(token)) {
+            log.warn("Rejected unauthorized request to subscribe webhook endpoint {}", name);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        log.info("REST request to subscribe webhook endpoint {}: {}", name, subscription.getUrl());
+        
+        try {
+            webhookService.subscribeAtRuntime(subscription.toBuilder().name(name).build());
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @DeleteMapping("/webhooks/{name}")
+    public ResponseEntity<Void> unsubscribeWebhook(@PathVariable String name,
+                                                   @RequestHeader(value = "X-Webhook-Admin-Token", required = false) String token) {
+        if (!webhookService.isManagementAllowed(token)) {
+            log.warn("Rejected unauthorized request to unsubscribe webhook endpoint {}", name);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (webhookService.unsubscribe(name)) {
+            return ResponseEntity.ok().build();
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     // Test endpoints
     @GetMapping("/test")
     public ResponseEntity<String> testNotification() {
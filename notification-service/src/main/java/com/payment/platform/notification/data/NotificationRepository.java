@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +29,9 @@ public interface NotificationRepository extends JpaRepository<NotificationEntity
     @Query("SELECT n FROM NotificationEntity n WHERE n.status = :status AND n.retryCount < :maxRetries")
     List<NotificationEntity> findFailedNotificationsForRetry(@Param("status") NotificationStatus status, @Param("maxRetries") Integer maxRetries);
     
+    // Oldest undelivered notifications, re-queued by NotificationDispatcher
+    List<NotificationEntity> findTop500ByStatusInAndCreatedAtBeforeOrderByCreatedAtAsc(Collection<NotificationStatus> statuses, LocalDateTime before);
+    
     @Query("SELECT n FROM NotificationEntity n WHERE n.createdAt >= :since")
     List<NotificationEntity> findNotificationsSince(@Param("since") LocalDateTime since);
     
@@ -0,0 +1,40 @@
+package com.payment.platform.notification.filelog;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Names of notification log segments.
+ *
+ * - Active file: {prefix}-yyyy-MM-dd.log (email-2024-01-31.log, daily-summary-2024-01-31.log)
+ * - Rolled segment: {prefix}-yyyy-MM-dd.HHmmssSSS.log, the time it was rolled at, so the
+ *   segments of a day sort in the order they were written, before the day's last file
+ * - Archived segment: archive/yyyy-MM-dd/{segment}.gz with its correlationId index {segment}.idx
+ */
+final class LogSegments {
+
+    static final Pattern LOG_FILE =
+        Pattern.compile("(?<base>.+-(?<date>\\d{4}-\\d{2}-\\d{2}))(?:\\.(?<rolledAt>\\d{9}))?\\.log");
+
+    static final String ARCHIVE_DIR = "archive";
+    static final String COMPRESSED_SUFFIX = ".gz";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final DateTimeFormatter ROLLED_AT_FORMATTER = DateTimeFormatter.ofPattern("HHmmssSSS");
+
+    private LogSegments() {
+    }
+
+    /**
+     * Name a log file gets when it is rolled at the given time; fileName must match LOG_FILE.
+     */
+    static String rolledName(String fileName, LocalTime rolledAt) {
+        Matcher matcher = LOG_FILE.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a notification log file: " + fileName);
+        }
+        return matcher.group("base") + "." + rolledAt.format(ROLLED_AT_FORMATTER) + ".log";
+    }
+}
@@ -0,0 +1,343 @@
+package com.payment.platform.notification.filelog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+/**
+ * File count and byte totals of the notification log directory, kept up to date as files
+ * change instead of being computed by listing the directory.
+ *
+ * - NotificationLogWriter and NotificationLogRotator report every file they create, grow,
+ *   rename or delete, so the totals follow our own writes without touching the disk
+ * - A WatchService thread picks up changes made by anything else (an operator deleting or
+ *   copying files) and re-reads the size of the files it reports
+ * - Every reconcileMs, and whenever the watch service overflows, the whole tree is walked once
+ *   and the totals corrected
+ * - Totals are also kept per channel (the file name prefix: email, sms, daily-summary, ...)
+ *   and per day, so reading them never depends on the number of files
+ *
+ * Used by: NotificationLogWriter, NotificationLogRotator, FileNotificationService
+ */
+@Slf4j
+public class NotificationLogCatalog implements AutoCloseable {
+
+    private static final long WATCH_POLL_MS = 1000;
+    // Changes arriving together are handled together, so busy files are re-read a few times a second at most
+    private static final long WATCH_SETTLE_MS = 250;
+
+    private final Path directory;
+    private final long reconcileMs;
+
+    private final Map<Path, Long> sizes = new ConcurrentHashMap<>();
+    private final AtomicLong totalFiles = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Map<String, LogFileTotals> channelTotals = new ConcurrentHashMap<>();
+    private final Map<String, LogFileTotals> dayTotals = new ConcurrentHashMap<>();
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Thread watcher;
+    private volatile boolean closing;
+
+    /**
+     * Files and bytes of one group of log files.
+     */
+    public static final class LogFileTotals {
+        private final long files;
+        private final long bytes;
+
+        LogFileTotals(long files, long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+
+        public long getFiles() { return files; }
+
+        public long getBytes() { return bytes; }
+    }
+
+    public NotificationLogCatalog(Path directory, boolean watch, long reconcileMs) {
+        this.directory = directory;
+        this.reconcileMs = reconcileMs;
+        reconcile();
+
+        WatchService service = null;
+        if (watch) {
+            try {
+                service = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                log.warn("No file watch service for {}, relying on periodic reconciliation", directory, e);
+            }
+        }
+        this.watchService = service;
+        this.watcher = new Thread(this::run, "notification-log-watcher");
+        this.watcher.setDaemon(true);
+        this.watcher.setPriority(Thread.MIN_PRIORITY);
+        this.watcher.start();
+    }
+
+    public long getTotalFiles() { return totalFiles.get(); }
+
+    public long getTotalBytes() { return totalBytes.get(); }
+
+    public long getReconciliations() { return reconciliations.get(); }
+
+    /**
+     * Files found by reconciliation or the watcher that had not been reported, or had changed.
+     */
+    public long getCorrections() { return corrections.get(); }
+
+    /**
+     * Totals per channel prefix (email, sms, daily-summary, ...), including archived files.
+     */
+    public Map<String, LogFileTotals> getChannelTotals() { return new TreeMap<>(channelTotals); }
+
+    /**
+     * Totals per day of the file names (yyyy-MM-dd), including archived files.
+     */
+    public Map<String, LogFileTotals> getDayTotals() { return new TreeMap<>(dayTotals); }
+
+    @Override
+    public void close() throws InterruptedException {
+        closing = true;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close notification log watch service", e);
+            }
+        }
+        watcher.interrupt();
+        watcher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Records the current size of a file; a file not seen before is counted as a new file.
+     */
+    void update(Path file, long size) {
+        sizes.compute(file, (path, previous) -> {
+            adjust(path, previous == null ? 1 : 0, size - (previous == null ? 0 : previous));
+            return size;
+        });
+    }
+
+    /**
+     * Records that a file no longer exists.
+     */
+    void remove(Path file) {
+        sizes.computeIfPresent(file, (path, previous) -> {
+            adjust(path, -1, -previous);
+            return null;
+        });
+    }
+
+    void moved(Path from, Path to) {
+        Long size = sizes.get(from);
+        remove(from);
+        if (size != null) {
+            update(to, size);
+        } else {
+            correct(to, sizeOnDisk(to));
+        }
+    }
+
+    /**
+     * Walks the whole tree and corrects every file whose recorded size is wrong or missing.
+     */
+    void reconcile() {
+        Map<Path, Long> onDisk = new HashMap<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.filter(Files::isRegularFile)
+                    .filter(file -> !isTemporary(file))
+                    .forEach(file -> onDisk.put(file, sizeOnDisk(file)));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to reconcile notification log statistics", e);
+                return;
+            }
+        }
+        for (Path file : sizes.keySet()) {
+            if (!onDisk.containsKey(file)) {
+                corrections.incrementAndGet();
+                remove(file);
+            }
+        }
+        onDisk.forEach(this::correct);
+        reconciliations.incrementAndGet();
+    }
+
+    // size < 0: the file is gone
+    private void correct(Path file, long size) {
+        Long recorded = sizes.get(file);
+        if (size < 0) {
+            if (recorded != null) {
+                corrections.incrementAndGet();
+                remove(file);
+            }
+        } else if (recorded == null || recorded != size) {
+            corrections.incrementAndGet();
+            update(file, size);
+        }
+    }
+
+    private void adjust(Path file, long files, long bytes) {
+        totalFiles.addAndGet(files);
+        totalBytes.addAndGet(bytes);
+
+        String name = file.getFileName().toString();
+        if (name.endsWith(LogSegments.COMPRESSED_SUFFIX)) {
+            name = name.substring(0, name.length() - LogSegments.COMPRESSED_SUFFIX.length());
+        } else if (name.endsWith(LogSegments.INDEX_SUFFIX)) {
+            name = name.substring(0, name.length() - LogSegments.INDEX_SUFFIX.length());
+        }
+        Matcher matcher = LogSegments.LOG_FILE.matcher(name);
+        if (matcher.matches()) {
+            String date = matcher.group("date");
+            String base = matcher.group("base");
+            add(channelTotals, base.substring(0, base.length() - date.length() - 1), files, bytes);
+            add(dayTotals, date, files, bytes);
+        }
+    }
+
+    private static void add(Map<String, LogFileTotals> totals, String key, long files, long bytes) {
+        totals.compute(key, (k, current) -> {
+            long newFiles = (current != null ? current.files : 0) + files;
+            long newBytes = (current != null ? current.bytes : 0) + bytes;
+            return newFiles == 0 && newBytes == 0 ? null : new LogFileTotals(newFiles, newBytes);
+        });
+    }
+
+    private void run() {
+        if (watchService != null) {
+            // Registers the archive and its day directories too; later ones when they are created
+            watch(directory);
+        }
+
+        long nextReconcile = System.currentTimeMillis() + reconcileMs;
+        while (!closing) {
+            try {
+                if (watchService != null) {
+                    processEvents();
+                } else {
+                    Thread.sleep(WATCH_POLL_MS);
+                }
+                if (reconcileMs > 0 && System.currentTimeMillis() >= nextReconcile) {
+                    reconcile();
+                    nextReconcile = System.currentTimeMillis() + reconcileMs;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Notification log watcher failed", e);
+            }
+        }
+    }
+
+    // Waits for the first event, then re-reads each path reported once
+    private void processEvents() throws InterruptedException {
+        WatchKey key = watchService.poll(WATCH_POLL_MS, TimeUnit.MILLISECONDS);
+        if (key == null) {
+            return;
+        }
+        Thread.sleep(WATCH_SETTLE_MS);
+        Set<Path> changed = new LinkedHashSet<>();
+        boolean overflow = false;
+        for (; key != null; key = watchService.poll()) {
+            Path dir = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                } else if (dir != null) {
+                    changed.add(dir.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+
+        if (overflow) {
+            reconcile();
+            return;
+        }
+        for (Path path : changed) {
+            if (Files.isDirectory(path)) {
+                if (!watchedDirectories.containsValue(path)) {
+                    watch(path);
+                }
+            } else if (!isTemporary(path)) {
+                correct(path, sizeOnDisk(path));
+            }
+        }
+    }
+
+    private void watch(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(key, dir);
+            // Changes made before the directory was registered
+            Set<Path> files = new HashSet<>();
+            try (Stream<Path> entries = Files.list(dir)) {
+                entries.forEach(entry -> {
+                    if (Files.isDirectory(entry)) {
+                        if (!watchedDirectories.containsValue(entry)) {
+                            watch(entry);
+                        }
+                    } else if (!isTemporary(entry)) {
+                        files.add(entry);
+                        correct(entry, sizeOnDisk(entry));
+                    }
+                });
+            }
+            for (Path recorded : sizes.keySet()) {
+                if (dir.equals(recorded.getParent()) && !files.contains(recorded)) {
+                    correct(recorded, sizeOnDisk(recorded));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to watch notification log directory {}", dir, e);
+        }
+    }
+
+    private static boolean isTemporary(Path file) {
+        return file.getFileName().toString().endsWith(".tmp");
+    }
+
+    // -1 when the file does not exist
+    private static long sizeOnDisk(Path file) {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return -1;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
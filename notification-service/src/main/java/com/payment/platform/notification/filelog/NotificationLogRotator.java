@@ -0,0 +1,401 @@
+package com.payment.platform.notification.filelog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses closed notification log segments and applies retention, on one low-priority
+ * background thread.
+ *
+ * - A segment is closed once NotificationLogWriter has rolled it, or once its day is over and
+ *   it has not been modified for closedGraceMs
+ * - Closed segments are moved to archive/yyyy-MM-dd/ as gzip files made of independent gzip
+ *   members of about blockSize uncompressed bytes, each starting at an entry boundary; the
+ *   result is still a plain .gz file for zcat/zgrep
+ * - Next to each archived segment a small .idx file lists, per member, the correlationIds in
+ *   it with the member's offset and length, so a search decompresses only the members that
+ *   hold the correlationId
+ * - Retention: archived days older than retentionDays are deleted, then the oldest archived
+ *   segments until the archive is below maxArchiveBytes
+ *
+ * The log directory itself only holds the files still being written, and the archive one
+ * directory per retained day, so directory listings stay short. Every file archived or
+ * deleted is reported to the NotificationLogCatalog.
+ *
+ * Used by: FileNotificationService
+ */
+@Slf4j
+public class NotificationLogRotator implements AutoCloseable {
+
+    private static final String CORRELATION_ID_PREFIX = "  CorrelationID: ";
+    private static final String SUMMARY_MARKER = "] SUMMARY: ";
+    private static final String SUMMARY_SEPARATOR = " | ";
+
+    private final Path directory;
+    private final Path archiveDirectory;
+    private final long closedGraceMs;
+    private final int blockSize;
+    private final int retentionDays;
+    private final long maxArchiveBytes;
+    private final NotificationLogCatalog catalog;
+
+    private final AtomicLong compressedSegments = new AtomicLong();
+    private final AtomicLong deletedSegments = new AtomicLong();
+    private final AtomicLong bytesBeforeCompression = new AtomicLong();
+    private final AtomicLong bytesAfterCompression = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler;
+
+    public NotificationLogRotator(Path directory, long checkIntervalMs, long closedGraceMs, int blockSize,
+                                  int retentionDays, long maxArchiveBytes, NotificationLogCatalog catalog) {
+        this.directory = directory;
+        this.archiveDirectory = directory.resolve(LogSegments.ARCHIVE_DIR);
+        this.closedGraceMs = closedGraceMs;
+        this.blockSize = Math.max(4096, blockSize);
+        this.retentionDays = retentionDays;
+        this.maxArchiveBytes = maxArchiveBytes;
+        this.catalog = catalog;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-log-rotator");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        long interval = Math.max(1000, checkIntervalMs);
+        this.scheduler.scheduleWithFixedDelay(this::rotate, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public long getCompressedSegments() { return compressedSegments.get(); }
+
+    public long getDeletedSegments() { return deletedSegments.get(); }
+
+    public long getBytesBeforeCompression() { return bytesBeforeCompression.get(); }
+
+    public long getBytesAfterCompression() { return bytesAfterCompression.get(); }
+
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * One rotation pass: compress closed segments, then apply retention.
+     */
+    void rotate() {
+        try {
+            compressClosedSegments();
+            applyRetention();
+        } catch (IOException | RuntimeException e) {
+            log.error("Notification log rotation failed", e);
+        }
+    }
+
+    /**
+     * Entries with the given correlationId, oldest first: archived segments through their
+     * index, then the files still being written. Stops after maxResults entries.
+     */
+    public List<String> search(String correlationId, int maxResults) {
+        List<String> results = new ArrayList<>();
+        for (Path day : sortedEntries(archiveDirectory, "*")) {
+            for (Path index : sortedEntries(day, "*" + LogSegments.INDEX_SUFFIX)) {
+                if (results.size() >= maxResults) {
+                    return results;
+                }
+                searchArchivedSegment(index, correlationId, results, maxResults);
+            }
+        }
+        for (Path file : sortedEntries(directory, "*.log")) {
+            if (results.size() >= maxResults) {
+                break;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                collectEntries(reader, correlationId, results, maxResults);
+            } catch (IOException e) {
+                // Rolled or archived while we were looking; it is found in the archive next time
+                log.debug("Skipped notification log {} in search: {}", file, e.toString());
+            }
+        }
+        return results;
+    }
+
+    private void compressClosedSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        long closedBefore = System.currentTimeMillis() - closedGraceMs;
+        for (Path file : sortedEntries(directory, "*.log")) {
+            Matcher matcher = LogSegments.LOG_FILE.matcher(file.getFileName().toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            LocalDate date;
+            try {
+                date = LocalDate.parse(matcher.group("date"));
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            boolean rolled = matcher.group("rolledAt") != null;
+            boolean dayOver = date.isBefore(today) && Files.getLastModifiedTime(file).toMillis() < closedBefore;
+            if (rolled || dayOver) {
+                compress(file, date);
+            }
+        }
+    }
+
+    private void compress(Path source, LocalDate date) throws IOException {
+        Path day = archiveDirectory.resolve(date.toString());
+        Files.createDirectories(day);
+
+        String segmentName = source.getFileName().toString();
+        if (Files.exists(day.resolve(segmentName + LogSegments.COMPRESSED_SUFFIX))) {
+            // The day's file was written again after it had been archived
+            segmentName = LogSegments.rolledName(segmentName, LocalTime.now());
+        }
+        Path target = day.resolve(segmentName + LogSegments.COMPRESSED_SUFFIX);
+        Path index = day.resolve(segmentName + LogSegments.INDEX_SUFFIX);
+        Path targetTmp = day.resolve(target.getFileName() + ".tmp");
+        Path indexTmp = day.resolve(index.getFileName() + ".tmp");
+
+        long sourceSize = Files.size(source);
+        long compressedSize;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             OutputStream out = Files.newOutputStream(targetTmp);
+             Writer indexOut = Files.newBufferedWriter(indexTmp, StandardCharsets.UTF_8)) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize + blockSize / 4);
+            Set<String> blockIds = new LinkedHashSet<>();
+            long offset = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("[") && block.size() >= blockSize) {
+                    offset += writeMember(block, blockIds, offset, out, indexOut);
+                }
+                block.write(line.getBytes(StandardCharsets.UTF_8));
+                block.write('\n');
+                String correlationId = correlationIdOf(line);
+                if (correlationId != null) {
+                    blockIds.add(correlationId);
+                }
+            }
+            if (block.size() > 0) {
+                offset += writeMember(block, blockIds, offset, out, indexOut);
+            }
+            compressedSize = offset;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(targetTmp);
+            Files.deleteIfExists(indexTmp);
+            throw e;
+        }
+
+        Files.move(targetTmp, target, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTmp, index, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(source);
+        catalog.update(target, compressedSize);
+        catalog.update(index, Files.size(index));
+        catalog.remove(source);
+
+        compressedSegments.incrementAndGet();
+        bytesBeforeCompression.addAndGet(sourceSize);
+        bytesAfterCompression.addAndGet(compressedSize);
+        log.info("Archived notification log {} ({} -> {} bytes)", source.getFileName(), sourceSize, compressedSize);
+    }
+
+    // Writes one gzip member and its index lines; returns the member's compressed length
+    private static long writeMember(ByteArrayOutputStream block, Set<String> blockIds, long offset,
+                                    OutputStream out, Writer indexOut) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(block.size() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+            block.writeTo(gzip);
+        }
+        member.writeTo(out);
+        for (String correlationId : blockIds) {
+            indexOut.write(correlationId + "\t" + offset + "\t" + member.size() + "\n");
+        }
+        block.reset();
+        blockIds.clear();
+        return member.size();
+    }
+
+    private void searchArchivedSegment(Path index, String correlationId, List<String> results, int maxResults) {
+        String indexName = index.getFileName().toString();
+        Path segment = index.resolveSibling(
+            indexName.substring(0, indexName.length() - LogSegments.INDEX_SUFFIX.length()) + LogSegments.COMPRESSED_SUFFIX);
+        String key = correlationId + "\t";
+        try (BufferedReader indexReader = Files.newBufferedReader(index, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            String line;
+            while ((line = indexReader.readLine()) != null && results.size() < maxResults) {
+                if (!line.startsWith(key)) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                long offset = Long.parseLong(fields[1]);
+                ByteBuffer member = ByteBuffer.allocate(Integer.parseInt(fields[2]));
+                while (member.hasRemaining() && channel.read(member, offset + member.position()) >= 0) {
+                    // keep reading until the member is complete
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(new ByteArrayInputStream(member.array(), 0, member.position())),
+                        StandardCharsets.UTF_8))) {
+                    collectEntries(reader, correlationId, results, maxResults);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Deleted by retention while we were looking, or damaged
+            log.debug("Skipped archived notification log {} in search: {}", segment, e.toString());
+        }
+    }
+
+    /**
+     * Adds the entries of the reader that belong to correlationId. An entry starts with a
+     * "[timestamp]" line: a SUMMARY line on its own, or a detail entry with its indented fields.
+     */
+    private static void collectEntries(BufferedReader reader, String correlationId,
+                                       List<String> results, int maxResults) throws IOException {
+        StringBuilder entry = new StringBuilder();
+        String entryId = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("[")) {
+                if (correlationId.equals(entryId) && results.size() < maxResults) {
+                    results.add(entry.toString());
+                }
+                entry.setLength(0);
+                entryId = null;
+            }
+            entry.append(line).append('\n');
+            String id = correlationIdOf(line);
+            if (id != null) {
+                entryId = id;
+            }
+        }
+        if (correlationId.equals(entryId) && results.size() < maxResults) {
+            results.add(entry.toString());
+        }
+    }
+
+    private static String correlationIdOf(String line) {
+        if (line.startsWith(CORRELATION_ID_PREFIX)) {
+            return line.substring(CORRELATION_ID_PREFIX.length()).trim();
+        }
+        if (line.startsWith("[") && line.contains(SUMMARY_MARKER)) {
+            int separator = line.lastIndexOf(SUMMARY_SEPARATOR);
+            return separator >= 0 ? line.substring(separator + SUMMARY_SEPARATOR.length()).trim() : null;
+        }
+        return null;
+    }
+
+    private void applyRetention() throws IOException {
+        if (!Files.isDirectory(archiveDirectory)) {
+            return;
+        }
+        LocalDate oldestKept = LocalDate.now().minusDays(retentionDays);
+        List<Path> segments = new ArrayList<>();
+        long archiveBytes = 0;
+        for (Path day : sortedEntries(archiveDirectory, "*")) {
+            LocalDate date;
+            try {
+                date = LocalDate.parse(day.getFileName().toString());
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            boolean expired = retentionDays > 0 && date.isBefore(oldestKept);
+            for (Path segment : sortedEntries(day, "*" + LogSegments.COMPRESSED_SUFFIX)) {
+                if (expired) {
+                    deleteSegment(segment);
+                } else {
+                    segments.add(segment);
+                    archiveBytes += sizeOf(segment) + sizeOf(indexOf(segment));
+                }
+            }
+            if (expired) {
+                deleteDayIfEmpty(day);
+            }
+        }
+
+        // Oldest first, until the archive fits
+        for (int i = 0; maxArchiveBytes > 0 && archiveBytes > maxArchiveBytes && i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            archiveBytes -= sizeOf(segment) + sizeOf(indexOf(segment));
+            deleteSegment(segment);
+            deleteDayIfEmpty(segment.getParent());
+        }
+    }
+
+    private void deleteSegment(Path segment) throws IOException {
+        Files.deleteIfExists(indexOf(segment));
+        catalog.remove(indexOf(segment));
+        if (Files.deleteIfExists(segment)) {
+            catalog.remove(segment);
+            deletedSegments.incrementAndGet();
+            log.info("Deleted archived notification log {}", archiveDirectory.relativize(segment));
+        }
+    }
+
+    private static void deleteDayIfEmpty(Path day) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(day)) {
+            if (!entries.iterator().hasNext()) {
+                Files.delete(day);
+            }
+        }
+    }
+
+    private static Path indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(
+            name.substring(0, name.length() - LogSegments.COMPRESSED_SUFFIX.length()) + LogSegments.INDEX_SUFFIX);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static List<Path> sortedEntries(Path dir, String glob) {
+        List<Path> entries = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            stream.forEach(entries::add);
+        } catch (IOException e) {
+            log.warn("Failed to list {}", dir, e);
+        }
+        entries.sort(null);
+        return entries;
+    }
+}
@@ -0,0 +1,340 @@
+package com.payment.platform.notification.filelog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only log files written by a single background thread.
+ *
+ * - append() only encodes the entry and puts it on a lock-free multi-producer queue, so
+ *   callers never wait for the disk; when maxPendingEntries are already queued the entry is
+ *   refused instead of blocking
+ * - The writer thread drains everything queued, copies it into a buffer per file and writes
+ *   each buffer to the file's long-lived FileChannel, so one write call carries many entries
+ * - Group commit: with fsyncIntervalMs = 0 every drained batch is forced to disk with one
+ *   fsync per file; with a positive interval at most one fsync per interval; with a negative
+ *   interval the OS decides when to flush
+ * - Channels not written for idleCloseMs are closed, so yesterday's files do not stay open
+ * - A file that has grown past maxFileBytes is closed and renamed to a rolled segment
+ *   (see LogSegments); the next entry starts a new file under the original name, and the
+ *   closed segment is left for NotificationLogRotator to compress
+ * - File sizes are reported to the NotificationLogCatalog after every written batch
+ *
+ * Used by: FileNotificationService
+ */
+@Slf4j
+public class NotificationLogWriter implements AutoCloseable {
+
+    private static final int MAX_BATCH = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Path directory;
+    private final int maxPendingEntries;
+    private final long fsyncIntervalMs;
+    private final int bufferSize;
+    private final long idleCloseMs;
+    private final long maxFileBytes;
+    private final NotificationLogCatalog catalog;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicLong rolls = new AtomicLong();
+
+    // Only touched by the writer thread
+    private final Map<String, OpenFile> openFiles = new HashMap<>();
+    private long lastFsyncAt = System.currentTimeMillis();
+
+    private final Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closing;
+
+    private static final class Entry {
+        private final String fileName;
+        private final byte[] bytes;
+
+        private Entry(String fileName, byte[] bytes) {
+            this.fileName = fileName;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class OpenFile {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private boolean unsynced;
+        private long lastWriteAt;
+        private long size;
+
+        private OpenFile(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+    }
+
+    public NotificationLogWriter(Path directory, int maxPendingEntries, long fsyncIntervalMs,
+                                 int bufferSize, long idleCloseMs, long maxFileBytes,
+                                 NotificationLogCatalog catalog) {
+        this.directory = directory;
+        this.maxPendingEntries = Math.max(1, maxPendingEntries);
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.bufferSize = Math.max(4096, bufferSize);
+        this.idleCloseMs = idleCloseMs;
+        this.maxFileBytes = maxFileBytes;
+        this.catalog = catalog;
+
+        this.writer = new Thread(this::run, "notification-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues text to be appended to the named file; false when the queue is full or closed.
+     */
+    public boolean append(String fileName, String text) {
+        if (closing) {
+            return false;
+        }
+        if (pending.incrementAndGet() > maxPendingEntries) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.offer(new Entry(fileName, text.getBytes(StandardCharsets.UTF_8)));
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    public int getPendingEntries() { return pending.get(); }
+
+    public long getWrittenEntries() { return written.get(); }
+
+    public long getDroppedEntries() { return dropped.get(); }
+
+    public long getFailedEntries() { return failed.get(); }
+
+    public long getFsyncCount() { return fsyncs.get(); }
+
+    public long getRolledSegments() { return rolls.get(); }
+
+    /**
+     * Writes and forces everything queued so far, then stops the writer thread.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closing = true;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        while (true) {
+            Entry first = queue.poll();
+            if (first == null) {
+                if (closing) {
+                    break;
+                }
+                fsyncIfDue(false);
+                closeIdleFiles();
+                writerParked = true;
+                if (queue.isEmpty() && !closing) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerParked = false;
+                continue;
+            }
+            writeBatch(first);
+            fsyncIfDue(fsyncIntervalMs == 0);
+        }
+
+        fsyncIfDue(fsyncIntervalMs >= 0);
+        for (OpenFile file : openFiles.values()) {
+            closeQuietly(file);
+        }
+        openFiles.clear();
+        log.info("Notification log writer stopped: {} entries written, {} dropped, {} failed",
+            written.get(), dropped.get(), failed.get());
+    }
+
+    private void writeBatch(Entry first) {
+        int count = 0;
+        Map<String, OpenFile> touched = new HashMap<>();
+        for (Entry entry = first; entry != null; entry = count < MAX_BATCH ? queue.poll() : null) {
+            count++;
+            OpenFile file = touched.get(entry.fileName);
+            try {
+                if (file == null) {
+                    file = open(entry.fileName);
+                    touched.put(entry.fileName, file);
+                }
+                put(file, entry.bytes);
+                written.incrementAndGet();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                log.error("Failed to append to notification log {}", entry.fileName, e);
+                if (file != null) {
+                    discard(entry.fileName, file);
+                    touched.remove(entry.fileName);
+                }
+            }
+        }
+        pending.addAndGet(-count);
+
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, OpenFile>> it = touched.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, OpenFile> touchedFile = it.next();
+            try {
+                drain(touchedFile.getValue());
+                touchedFile.getValue().lastWriteAt = now;
+                catalog.update(directory.resolve(touchedFile.getKey()), touchedFile.getValue().size);
+                if (maxFileBytes > 0 && touchedFile.getValue().size >= maxFileBytes
+                        && LogSegments.LOG_FILE.matcher(touchedFile.getKey()).matches()) {
+                    roll(touchedFile.getKey(), touchedFile.getValue());
+                }
+            } catch (IOException e) {
+                log.error("Failed to write notification log {}", touchedFile.getKey(), e);
+                discard(touchedFile.getKey(), touchedFile.getValue());
+            }
+        }
+    }
+
+    private OpenFile open(String fileName) throws IOException {
+        OpenFile file = openFiles.get(fileName);
+        if (file == null) {
+            Files.createDirectories(directory);
+            FileChannel channel = FileChannel.open(directory.resolve(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            file = new OpenFile(channel, bufferSize);
+            file.size = channel.size();
+            openFiles.put(fileName, file);
+        }
+        return file;
+    }
+
+    private void put(OpenFile file, byte[] bytes) throws IOException {
+        file.size += bytes.length;
+        if (bytes.length > file.buffer.remaining()) {
+            drain(file);
+        }
+        if (bytes.length > file.buffer.capacity()) {
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while (large.hasRemaining()) {
+                file.channel.write(large);
+            }
+            file.unsynced = true;
+            return;
+        }
+        file.buffer.put(bytes);
+    }
+
+    private void drain(OpenFile file) throws IOException {
+        file.buffer.flip();
+        while (file.buffer.hasRemaining()) {
+            file.channel.write(file.buffer);
+        }
+        file.buffer.clear();
+        file.unsynced = true;
+    }
+
+    private void fsyncIfDue(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && (fsyncIntervalMs < 0 || now - lastFsyncAt < fsyncIntervalMs)) {
+            return;
+        }
+        lastFsyncAt = now;
+        for (Iterator<Map.Entry<String, OpenFile>> it = openFiles.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, OpenFile> openFile = it.next();
+            OpenFile file = openFile.getValue();
+            if (!file.unsynced) {
+                continue;
+            }
+            try {
+                file.channel.force(false);
+                file.unsynced = false;
+                fsyncs.incrementAndGet();
+            } catch (IOException e) {
+                log.error("Failed to sync notification log {}", openFile.getKey(), e);
+                closeQuietly(file);
+                it.remove();
+            }
+        }
+    }
+
+    private void closeIdleFiles() {
+        if (idleCloseMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Iterator<OpenFile> it = openFiles.values().iterator(); it.hasNext(); ) {
+            OpenFile file = it.next();
+            if (now - file.lastWriteAt <= idleCloseMs) {
+                continue;
+            }
+            try {
+                if (file.unsynced && fsyncIntervalMs >= 0) {
+                    file.channel.force(false);
+                    fsyncs.incrementAndGet();
+                }
+            } catch (IOException e) {
+                log.error("Failed to sync idle notification log", e);
+            }
+            closeQuietly(file);
+            it.remove();
+        }
+    }
+
+    // Closes a full file and renames it out of the way; its entries are all written already
+    private void roll(String fileName, OpenFile file) throws IOException {
+        if (file.unsynced && fsyncIntervalMs >= 0) {
+            file.channel.force(false);
+            fsyncs.incrementAndGet();
+        }
+        openFiles.remove(fileName);
+        closeQuietly(file);
+
+        LocalTime rolledAt = LocalTime.now();
+        Path rolled = directory.resolve(LogSegments.rolledName(fileName, rolledAt));
+        while (Files.exists(rolled)) {
+            rolledAt = rolledAt.plusNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            rolled = directory.resolve(LogSegments.rolledName(fileName, rolledAt));
+        }
+        Files.move(directory.resolve(fileName), rolled);
+        catalog.moved(directory.resolve(fileName), rolled);
+        rolls.incrementAndGet();
+        log.info("Rolled notification log {} at {} bytes to {}", fileName, file.size, rolled.getFileName());
+    }
+
+    private void discard(String fileName, OpenFile file) {
+        openFiles.remove(fileName);
+        closeQuietly(file);
+    }
+
+    private static void closeQuietly(OpenFile file) {
+        try {
+            file.channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close notification log channel", e);
+        }
+    }
+}
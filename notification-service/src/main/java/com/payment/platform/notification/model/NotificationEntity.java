@@ -3,6 +3,7 @@ package com.payment.platform.notification.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 @Entity
 @Table(name = "notifications")
 public class NotificationEntity {
@@ -56,6 +58,10 @@ public class NotificationEntity {
     @Column(name = "delivered_at")
     private LocalDateTime deliveredAt;
     
+    // When a dispatcher claimed it for delivery (status PROCESSING)
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
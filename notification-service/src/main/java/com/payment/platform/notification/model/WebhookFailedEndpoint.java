@@ -0,0 +1,37 @@
+package com.payment.platform.notification.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * A webhook endpoint that gave up on a notification; a retry of the notification only goes to
+ * its failed endpoints. One row per (notification, endpoint), written by WebhookService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(WebhookFailedEndpoint.Key.class)
+@Table(name = "notification_failed_endpoints")
+public class WebhookFailedEndpoint {
+
+    @Id
+    @Column(name = "notification_id")
+    private String notificationId;
+
+    @Id
+    @Column(name = "endpoint_name")
+    private String endpointName;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String notificationId;
+        private String endpointName;
+    }
+}
@@ -0,0 +1,41 @@
+package com.payment.platform.notification.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import jakarta.validation.constraints.NotBlank;
+import java.util.Set;
+
+/**
+ * A webhook endpoint and the notifications it receives.
+ *
+ * Empty eventTypes / recipients match every notification. Delivery settings left null use
+ * the notification.webhook.* defaults.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class WebhookSubscription {
+
+    private String name;
+
+    @NotBlank(message = "URL is required")
+    private String url;
+
+    private Set<String> eventTypes;
+    private Set<String> recipients;
+
+    // Signs each request body with HMAC-SHA256 (X-Webhook-Signature) when set
+    private String secret;
+
+    // More than 1 sends up to batchSize notifications as one JSON array
+    private Integer batchSize;
+    private Long batchWindowMs;
+
+    private Integer maxAttempts;
+    private Long timeoutMs;
+    private Integer maxInFlight;
+}
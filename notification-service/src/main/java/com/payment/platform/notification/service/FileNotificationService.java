@@ -1,24 +1,35 @@
 package com.payment.platform.notification.service;
 
+import com.payment.platform.notification.filelog.NotificationLogCatalog;
+import com.payment.platform.notification.filelog.NotificationLogRotator;
+import com.payment.platform.notification.filelog.NotificationLogWriter;
 import com.payment.platform.notification.model.NotificationEntity;
 import com.payment.platform.notification.model.NotificationChannel;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.FileWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Simplified file-based notification service for sample assignment implementation.
  * Writes all notifications to structured log files instead of real notification systems.
+ * 
+ * Entries are handed to a NotificationLogWriter, which appends them from a single background
+ * thread; writing a notification only queues it and never waits for the disk. Files are rolled
+ * at notification.file-log.max-file-size-mb, and a NotificationLogRotator compresses closed
+ * files into notification-logs/archive and applies the retention settings. File statistics
+ * come from a NotificationLogCatalog that both of them keep up to date, so reading them does
+ * not touch the disk.
  */
 @Service
 @Slf4j
@@ -28,12 +39,66 @@ public class FileNotificationService {
     private static final DateTimeFormatter FILE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     
-    private final ConcurrentHashMap<String, ReentrantLock> fileLocks = new ConcurrentHashMap<>();
-    private final Path logDirectory;
+    private final Path logDirectory = Paths.get(NOTIFICATION_LOG_DIR);
     
-    public FileNotificationService() {
-        this.logDirectory = Paths.get(NOTIFICATION_LOG_DIR);
+    @Value("${notification.file-log.max-pending-entries:100000}")
+    private int maxPendingEntries;
+    
+    @Value("${notification.file-log.fsync-interval-ms:1000}")
+    private long fsyncIntervalMs;
+    
+    @Value("${notification.file-log.buffer-size:65536}")
+    private int bufferSize;
+    
+    @Value("${notification.file-log.idle-close-ms:60000}")
+    private long idleCloseMs;
+    
+    @Value("${notification.file-log.max-file-size-mb:64}")
+    private long maxFileSizeMb;
+    
+    @Value("${notification.file-log.rotation.check-ms:60000}")
+    private long rotationCheckMs;
+    
+    @Value("${notification.file-log.rotation.closed-grace-ms:300000}")
+    private long closedGraceMs;
+    
+    @Value("${notification.file-log.rotation.block-size:65536}")
+    private int compressionBlockSize;
+    
+    @Value("${notification.file-log.retention.days:30}")
+    private int retentionDays;
+    
+    @Value("${notification.file-log.retention.max-archive-size-mb:1024}")
+    private long maxArchiveSizeMb;
+    
+    @Value("${notification.file-log.search.max-results:500}")
+    private int maxSearchResults;
+    
+    @Value("${notification.file-log.statistics.watch:true}")
+    private boolean watchLogDirectory;
+    
+    @Value("${notification.file-log.statistics.reconcile-ms:600000}")
+    private long statisticsReconcileMs;
+    
+    private NotificationLogCatalog logCatalog;
+    private NotificationLogWriter logWriter;
+    private NotificationLogRotator logRotator;
+    
+    @PostConstruct
+    public void init() {
         createLogDirectory();
+        logCatalog = new NotificationLogCatalog(logDirectory, watchLogDirectory, statisticsReconcileMs);
+        logWriter = new NotificationLogWriter(logDirectory, maxPendingEntries, fsyncIntervalMs, bufferSize,
+            idleCloseMs, maxFileSizeMb * 1024 * 1024, logCatalog);
+        logRotator = new NotificationLogRotator(logDirectory, rotationCheckMs, closedGraceMs, compressionBlockSize,
+            retentionDays, maxArchiveSizeMb * 1024 * 1024, logCatalog);
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        logWriter.close();
+        logRotator.close();
+        logCatalog.close();
     }
     
     /**
@@ -44,9 +109,12 @@ public class FileNotificationService {
             String fileName = getLogFileName(notification.getChannel());
             String logEntry = formatLogEntry(notification);
             
-            writeToFile(fileName, logEntry);
+            if (!logWriter.append(fileName, logEntry)) {
+                log.warn("Notification log queue full, not writing {} -> {}", fileName, notification.getId());
+                return false;
+            }
             
-            log.info("Notification written to file: {} -> {}", fileName, notification.getId());
+            log.debug("Notification queued for file: {} -> {}", fileName, notification.getId());
             return true;
             
         } catch (Exception e) {
@@ -63,7 +131,9 @@ public class FileNotificationService {
             String summaryEntry = formatSummaryEntry(notification);
             String fileName = "daily-summary-" + LocalDateTime.now().format(FILE_FORMATTER) + ".log";
             
-            writeToFile(fileName, summaryEntry);
+            if (!logWriter.append(fileName, summaryEntry)) {
+                log.warn("Notification log queue full, summary of {} not written", notification.getId());
+            }
             
         } catch (Exception e) {
             log.error("Failed to write notification summary: {}", notification.getId(), e);
@@ -71,31 +141,33 @@ public class FileNotificationService {
     }
     
     /**
-     * Get notification statistics from log files
+     * Log entries (current and archived) for a correlation ID, oldest first
+     */
+    public List<String> searchLogEntries(String correlationId) {
+        return logRotator.search(correlationId, maxSearchResults);
+    }
+    
+    /**
+     * Get notification statistics from log files (kept up to date in memory, cheap to poll)
      */
     public NotificationFileStatistics getFileStatistics() {
         try {
-            if (!Files.exists(logDirectory)) {
-                return new NotificationFileStatistics();
-            }
-            
-            long totalFiles = Files.list(logDirectory).count();
-            long totalSize = Files.walk(logDirectory)
-                .filter(Files::isRegularFile)
-                .mapToLong(file -> {
-                    try {
-                        return Files.size(file);
-                    } catch (IOException e) {
-                        return 0;
-                    }
-                })
-                .sum();
-            
             NotificationFileStatistics stats = new NotificationFileStatistics();
-            stats.setTotalFiles(totalFiles);
-            stats.setTotalSizeBytes(totalSize);
+            stats.setTotalFiles(logCatalog.getTotalFiles());
+            stats.setTotalSizeBytes(logCatalog.getTotalBytes());
+            stats.setChannels(logCatalog.getChannelTotals());
+            stats.setDays(logCatalog.getDayTotals());
             stats.setLogDirectory(logDirectory.toString());
             stats.setGeneratedAt(LocalDateTime.now());
+            stats.setPendingEntries(logWriter.getPendingEntries());
+            stats.setWrittenEntries(logWriter.getWrittenEntries());
+            stats.setDroppedEntries(logWriter.getDroppedEntries());
+            stats.setFsyncCount(logWriter.getFsyncCount());
+            stats.setRolledSegments(logWriter.getRolledSegments());
+            stats.setCompressedSegments(logRotator.getCompressedSegments());
+            stats.setDeletedSegments(logRotator.getDeletedSegments());
+            stats.setBytesBeforeCompression(logRotator.getBytesBeforeCompression());
+            stats.setBytesAfterCompression(logRotator.getBytesAfterCompression());
             
             return stats;
             
@@ -179,23 +251,6 @@ public class FileNotificationService {
         return entry.toString();
     }
     
-    private void writeToFile(String fileName, String content) throws IOException {
-        Path filePath = logDirectory.resolve(fileName);
-        ReentrantLock lock = fileLocks.computeIfAbsent(fileName, k -> new ReentrantLock());
-        
-        lock.lock();
-        try {
-            // Append to file (create if doesn't exist)
-            try (FileWriter fw = new FileWriter(filePath.toFile(), true);
-                 PrintWriter pw = new PrintWriter(fw)) {
-                pw.write(content);
-                pw.flush();
-            }
-        } finally {
-            lock.unlock();
-        }
-    }
-    
     /**
      * Statistics for file-based notifications
      */
@@ -204,6 +259,17 @@ public class FileNotificationService {
         private Long totalFiles;
         private Long totalSizeBytes;
         private String logDirectory;
+        private Integer pendingEntries;
+        private Long writtenEntries;
+        private Long droppedEntries;
+        private Long fsyncCount;
+        private Long rolledSegments;
+        private Long compressedSegments;
+        private Long deletedSegments;
+        private Long bytesBeforeCompression;
+        private Long bytesAfterCompression;
+        private Map<String, NotificationLogCatalog.LogFileTotals> channels;
+        private Map<String, NotificationLogCatalog.LogFileTotals> days;
         
         // Getters and setters
         public LocalDateTime getGeneratedAt() { return generatedAt; }
@@ -218,6 +284,39 @@ public class FileNotificationService {
         public String getLogDirectory() { return logDirectory; }
         public void setLogDirectory(String logDirectory) { this.logDirectory = logDirectory; }
         
+        public Integer getPendingEntries() { return pendingEntries; }
+        public void setPendingEntries(Integer pendingEntries) { this.pendingEntries = pendingEntries; }
+        
+        public Long getWrittenEntries() { return writtenEntries; }
+        public void setWrittenEntries(Long writtenEntries) { this.writtenEntries = writtenEntries; }
+        
+        public Long getDroppedEntries() { return droppedEntries; }
+        public void setDroppedEntries(Long droppedEntries) { this.droppedEntries = droppedEntries; }
+        
+        public Long getFsyncCount() { return fsyncCount; }
+        public void setFsyncCount(Long fsyncCount) { this.fsyncCount = fsyncCount; }
+        
+        public Long getRolledSegments() { return rolledSegments; }
+        public void setRolledSegments(Long rolledSegments) { this.rolledSegments = rolledSegments; }
+        
+        public Long getCompressedSegments() { return compressedSegments; }
+        public void setCompressedSegments(Long compressedSegments) { this.compressedSegments = compressedSegments; }
+        
+        public Long getDeletedSegments() { return deletedSegments; }
+        public void setDeletedSegments(Long deletedSegments) { this.deletedSegments = deletedSegments; }
+        
+        public Long getBytesBeforeCompression() { return bytesBeforeCompression; }
+        public void setBytesBeforeCompression(Long bytesBeforeCompression) { this.bytesBeforeCompression = bytesBeforeCompression; }
+        
+        public Long getBytesAfterCompression() { return bytesAfterCompression; }
+        public void setBytesAfterCompression(Long bytesAfterCompression) { this.bytesAfterCompression = bytesAfterCompression; }
+        
+        public Map<String, NotificationLogCatalog.LogFileTotals> getChannels() { return channels; }
+        public void setChannels(Map<String, NotificationLogCatalog.LogFileTotals> channels) { this.channels = channels; }
+        
+        public Map<String, NotificationLogCatalog.LogFileTotals> getDays() { return days; }
+        public void setDays(Map<String, NotificationLogCatalog.LogFileTotals> days) { this.days = days; }
+        
         public String getFormattedSize() {
             if (totalSizeBytes == null) return "0 B";
             
@@ -0,0 +1,321 @@
+package com.payment.platform.notification.service;
+
+import com.payment.platform.notification.data.NotificationRepository;
+import com.payment.platform.notification.model.NotificationChannel;
+import com.payment.platform.notification.model.NotificationEntity;
+import com.payment.platform.notification.model.NotificationStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers persisted notifications asynchronously, one bounded pipeline per channel.
+ *
+ * - Callers save the notification as PENDING and call dispatchAfterCommit; it is queued only
+ *   once the transaction has committed, so delivery never runs inside a DB transaction or on
+ *   the Axon handler thread
+ * - Every NotificationChannel has its own worker pool and bounded queue
+ *   (notification.dispatch.{channel}.threads / .queue-capacity), so a slow channel only
+ *   backs up its own queue
+ * - A notification is claimed before it is queued by moving its row from PENDING/RETRYING to
+ *   PROCESSING with a conditional update, so the sweep (on this node or another) can never
+ *   queue a notification whose delivery is still running or has just finished
+ * - When a queue is full the claim is released and the notification stays PENDING/RETRYING in
+ *   the database; the sweep picks it up again once there is room, so producers never block
+ * - A claim older than notification.dispatch.claim-timeout-ms (a node that stopped mid-delivery)
+ *   is released by the sweep
+ * - Delivery results are written back by one writer thread in JDBC batches; a row already
+ *   FAILED is left as it is, since channels that deliver in the background (webhooks) mark
+ *   a notification FAILED themselves and may do so before its SENT result is written
+ *
+ * Used by: NotificationServiceImpl
+ */
+@Service
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final String UPDATE_STATUS_SQL =
+        "UPDATE notifications SET status = ?, sent_at = ?, error_message = ?, retry_count = ? WHERE id = ? AND status <> 'FAILED'";
+
+    private static final String CLAIM_SQL =
+        "UPDATE notifications SET status = 'PROCESSING', claimed_at = ? WHERE id = ? AND status IN ('PENDING', 'RETRYING')";
+
+    // Back to PENDING before the first attempt, RETRYING after it
+    private static final String RELEASE_SQL =
+        "UPDATE notifications SET status = CASE WHEN COALESCE(retry_count, 0) = 0 THEN 'PENDING' ELSE 'RETRYING' END " +
+        "WHERE id = ? AND status = 'PROCESSING'";
+
+    private static final String STALE_CLAIMS_SQL =
+        "SELECT id FROM notifications WHERE status = 'PROCESSING' AND claimed_at < ?";
+
+    private static final Set<NotificationStatus> UNDELIVERED = EnumSet.of(NotificationStatus.PENDING, NotificationStatus.RETRYING);
+
+    private final NotificationProcessor notificationProcessor;
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Environment environment;
+    private final TransactionTemplate claimTransaction;
+
+    @Value("${notification.dispatch.threads:2}")
+    private int defaultThreads;
+
+    @Value("${notification.dispatch.queue-capacity:1000}")
+    private int defaultQueueCapacity;
+
+    @Value("${notification.dispatch.status-batch-size:200}")
+    private int statusBatchSize;
+
+    @Value("${notification.dispatch.sweep-ms:5000}")
+    private long sweepMs;
+
+    @Value("${notification.dispatch.claim-timeout-ms:600000}")
+    private long claimTimeoutMs;
+
+    private final Map<NotificationChannel, ThreadPoolExecutor> channelPools = new EnumMap<>(NotificationChannel.class);
+
+    // Notifications queued or being delivered, until their result is written
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final BlockingQueue<StatusUpdate> statusUpdates = new LinkedBlockingQueue<>();
+
+    private Thread statusWriter;
+
+    private volatile boolean running = true;
+
+    /**
+     * Outcome of one delivery attempt, waiting to be written.
+     */
+    private static final class StatusUpdate {
+        private final String id;
+        private final NotificationStatus status;
+        private final LocalDateTime sentAt;
+        private final String errorMessage;
+        private final Integer retryCount;
+
+        private StatusUpdate(NotificationEntity notification) {
+            this.id = notification.getId();
+            this.status = notification.getStatus();
+            this.sentAt = notification.getSentAt();
+            this.errorMessage = notification.getErrorMessage();
+            this.retryCount = notification.getRetryCount();
+        }
+    }
+
+    public NotificationDispatcher(NotificationProcessor notificationProcessor,
+                                  NotificationRepository notificationRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  Environment environment,
+                                  PlatformTransactionManager transactionManager) {
+        this.notificationProcessor = notificationProcessor;
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.environment = environment;
+        // Claims run from afterCommit, where the finished transaction's connection is still bound
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            String prefix = "notification.dispatch." + channel.name().toLowerCase() + ".";
+            int threads = Math.max(1, environment.getProperty(prefix + "threads", Integer.class, defaultThreads));
+            int capacity = Math.max(1, environment.getProperty(prefix + "queue-capacity", Integer.class, defaultQueueCapacity));
+
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notify-" + channel.name().toLowerCase() + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            channelPools.put(channel, pool);
+            log.info("Notification channel {}: {} workers, queue capacity {}", channel, threads, capacity);
+        }
+
+        statusWriter = new Thread(this::writeStatusUpdates, "notify-status-writer");
+        statusWriter.setDaemon(true);
+        statusWriter.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        channelPools.values().forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor pool : channelPools.values()) {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        running = false;
+        statusWriter.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Queues the notification once the current transaction commits, or right away outside one.
+     */
+    public void dispatchAfterCommit(NotificationEntity notification) {
+        NotificationEntity snapshot = notification.toBuilder().build();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(snapshot);
+                }
+            });
+        } else {
+            dispatch(snapshot);
+        }
+    }
+
+    /**
+     * Queue depth per channel, for monitoring.
+     */
+    public Map<NotificationChannel, Integer> getQueueDepths() {
+        Map<NotificationChannel, Integer> depths = new EnumMap<>(NotificationChannel.class);
+        channelPools.forEach((channel, pool) -> depths.put(channel, pool.getQueue().size()));
+        return depths;
+    }
+
+    /**
+     * Re-queues notifications left PENDING or RETRYING because their queue was full (or
+     * because the service stopped before delivering them), after releasing stale claims.
+     */
+    @Scheduled(fixedDelayString = "${notification.dispatch.sweep-ms:5000}")
+    public void redispatchUndelivered() {
+        releaseStaleClaims();
+
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(sweepMs));
+        int queued = 0;
+        for (NotificationEntity notification : notificationRepository.findTop500ByStatusInAndCreatedAtBeforeOrderByCreatedAtAsc(UNDELIVERED, before)) {
+            if (dispatch(notification)) {
+                queued++;
+            }
+        }
+        if (queued > 0) {
+            log.info("Re-queued {} undelivered notifications", queued);
+        }
+    }
+
+    private void releaseStaleClaims() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(Duration.ofMillis(claimTimeoutMs)));
+        for (String id : jdbcTemplate.queryForList(STALE_CLAIMS_SQL, String.class, cutoff)) {
+            if (!inFlight.contains(id) && jdbcTemplate.update(RELEASE_SQL, id) > 0) {
+                log.warn("Released notification {} claimed more than {} ms ago", id, claimTimeoutMs);
+            }
+        }
+    }
+
+    private boolean dispatch(NotificationEntity notification) {
+        if (!inFlight.add(notification.getId())) {
+            return false;
+        }
+        try {
+            // Lost the claim: delivered meanwhile or claimed by another node
+            Integer claimed = claimTransaction.execute(status ->
+                jdbcTemplate.update(CLAIM_SQL, Timestamp.valueOf(LocalDateTime.now()), notification.getId()));
+            if (claimed == null || claimed == 0) {
+                inFlight.remove(notification.getId());
+                return false;
+            }
+        } catch (RuntimeException e) {
+            inFlight.remove(notification.getId());
+            log.warn("Failed to claim notification {}, the sweep retries it: {}", notification.getId(), e.getMessage());
+            return false;
+        }
+        try {
+            channelPools.get(notification.getChannel()).execute(() -> deliver(notification));
+            return true;
+        } catch (RejectedExecutionException e) {
+            release(notification.getId());
+            log.warn("{} queue full, notification {} stays {} until the next sweep",
+                notification.getChannel(), notification.getId(), notification.getStatus());
+            return false;
+        }
+    }
+
+    private void release(String id) {
+        try {
+            claimTransaction.executeWithoutResult(status -> jdbcTemplate.update(RELEASE_SQL, id));
+        } catch (RuntimeException e) {
+            log.warn("Failed to release notification {}, it is retried after the claim timeout: {}", id, e.getMessage());
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    private void deliver(NotificationEntity notification) {
+        boolean firstAttempt = notification.getStatus() == NotificationStatus.PENDING;
+        notification.setStatus(NotificationStatus.PROCESSING);
+
+        // The processor sets SENT / FAILED, sentAt and errorMessage on the notification
+        boolean success = notificationProcessor.processNotification(notification);
+        if (!success && firstAttempt) {
+            notification.setRetryCount(Math.max(1, notification.getRetryCount() != null ? notification.getRetryCount() : 0));
+        }
+        statusUpdates.add(new StatusUpdate(notification));
+    }
+
+    // Single writer: waits for the first update, then writes everything queued so far in one batch
+    private void writeStatusUpdates() {
+        List<StatusUpdate> batch = new ArrayList<>(statusBatchSize);
+        while (running || !statusUpdates.isEmpty()) {
+            try {
+                StatusUpdate first = statusUpdates.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                statusUpdates.drainTo(batch, Math.max(1, statusBatchSize) - 1);
+
+                List<Object[]> rows = new ArrayList<>(batch.size());
+                for (StatusUpdate update : batch) {
+                    rows.add(new Object[] {
+                        update.status.name(),
+                        update.sentAt != null ? Timestamp.valueOf(update.sentAt) : null,
+                        update.errorMessage,
+                        update.retryCount,
+                        update.id
+                    });
+                }
+                jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, rows);
+                log.debug("Wrote {} notification status updates", rows.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // The rows stay PROCESSING; the sweep releases and delivers them again after the claim timeout
+                log.error("Failed to write {} notification status updates", batch.size(), e);
+            } finally {
+                batch.forEach(update -> inFlight.remove(update.id));
+                batch.clear();
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,12 +24,18 @@ public class NotificationServiceImpl implements NotificationService {
     
     private final NotificationRepository notificationRepository;
     private final NotificationProcessor notificationProcessor;
+    private final NotificationDispatcher notificationDispatcher;
+    private final UiNotificationService uiNotificationService;
     
     @Autowired
     public NotificationServiceImpl(NotificationRepository notificationRepository,
-                                 NotificationProcessor notificationProcessor) {
+                                 NotificationProcessor notificationProcessor,
+                                 NotificationDispatcher notificationDispatcher,
+                                 UiNotificationService uiNotificationService) {
         this.notificationRepository = notificationRepository;
         this.notificationProcessor = notificationProcessor;
+        this.notificationDispatcher = notificationDispatcher;
+        this.uiNotificationService = uiNotificationService;
     }
     
     @Override
@@ -51,20 +58,10 @@ public class NotificationServiceImpl implements NotificationService {
         // Save notification
         notification = notificationRepository.save(notification);
         
-        // Process notification
-        notification.setStatus(NotificationStatus.PROCESSING);
-        boolean success = notificationProcessor.processNotification(notification);
-        
-        // Update status based on processing result
-        if (success) {
-            notification.setStatus(NotificationStatus.SENT);
-            notification.setSentAt(LocalDateTime.now());
-        } else {
-            notification.setStatus(NotificationStatus.FAILED);
-            notification.setRetryCount(1);
-        }
+        // Delivered asynchronously on the channel's worker pool once this transaction commits
+        notificationDispatcher.dispatchAfterCommit(notification);
         
-        return notificationRepository.save(notification);
+        return notification;
     }
     
     @Override
@@ -98,7 +95,6 @@ public class NotificationServiceImpl implements NotificationService {
             notificationRepository.findFailedNotificationsForRetry(NotificationStatus.FAILED, 3);
         
         int retryCount = 0;
-        int successCount = 0;
         
         for (NotificationEntity notification : failedNotifications) {
             retryCount++;
@@ -109,22 +105,11 @@ public class NotificationServiceImpl implements NotificationService {
             notification.setRetryCount(notification.getRetryCount() + 1);
             notificationRepository.save(notification);
             
-            boolean success = notificationProcessor.processNotification(notification);
-            
-            if (success) {
-                notification.setStatus(NotificationStatus.SENT);
-                notification.setSentAt(LocalDateTime.now());
-                successCount++;
-                log.info("Retry successful for notification: {}", notification.getId());
-            } else {
-                notification.setStatus(NotificationStatus.FAILED);
-                log.warn("Retry failed for notification: {}", notification.getId());
-            }
-            
-            notificationRepository.save(notification);
+            // A webhook notification goes only to its failed endpoints (WebhookService)
+            notificationDispatcher.dispatchAfterCommit(notification);
         }
         
-        log.info("Retry process completed: {} retried, {} successful", retryCount, successCount);
+        log.info("Retry process completed: {} notifications queued for retry", retryCount);
     }
     
     @Override
@@ -165,6 +150,11 @@ public class NotificationServiceImpl implements NotificationService {
         statistics.setNotificationsInLastHour(notificationsInLastHour);
         statistics.setNotificationsInLast24Hours(notificationsInLast24Hours);
         
+        Map<String, Integer> queueDepths = new LinkedHashMap<>();
+        notificationDispatcher.getQueueDepths().forEach((channel, depth) -> queueDepths.put(channel.name(), depth));
+        statistics.setDispatchQueueDepths(queueDepths);
+        statistics.setUiInbox(uiNotificationService.getInboxStatistics());
+        
         // TODO: Add more detailed statistics by channel, event type, etc.
         
         return statistics;
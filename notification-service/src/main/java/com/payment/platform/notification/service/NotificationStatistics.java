@@ -24,6 +24,12 @@ public class NotificationStatistics {
     private Long notificationsInLastHour;
     private Long notificationsInLast24Hours;
     
+    // Notifications waiting in each channel's dispatch queue
+    private Map<String, Integer> dispatchQueueDepths;
+    
+    // Size of the in-memory UI inbox store
+    private Map<String, Object> uiInbox;
+    
     // File-based statistics for sample implementation
     private FileNotificationService.NotificationFileStatistics fileStatistics;
     
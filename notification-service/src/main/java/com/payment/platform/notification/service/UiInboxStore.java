@@ -0,0 +1,284 @@
+package com.payment.platform.notification.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded in-memory store of UI notifications, one inbox per recipient.
+ *
+ * - Each inbox is a ring buffer of inboxCapacity notifications; a new one overwrites the
+ *   recipient's oldest. The ring starts small and doubles up to inboxCapacity, so the many
+ *   recipients with a few notifications do not each hold a full-size array
+ * - Notifications are also indexed by id, so a lookup by id does not scan any inbox
+ * - Every stored notification gets the next sequence number; since() returns an inbox's
+ *   notifications after a given event id, for clients resuming a push stream. Event ids are
+ *   "<epoch>-<sequence>", where the epoch identifies this store instance: sequences restart
+ *   with the service, so an id from an earlier instance says nothing about what was missed
+ * - The estimated size of all stored notifications is kept under memoryBudgetBytes by
+ *   dropping the inboxes of the recipients that were least recently written or read
+ *
+ * All operations take one lock and are O(1), except reading an inbox, which is O(inbox size).
+ *
+ * Used by: UiNotificationService
+ */
+final class UiInboxStore {
+
+    // Rough per-notification cost of the map, entry objects and boxed values
+    private static final long ENTRY_OVERHEAD_BYTES = 512;
+    // Rough cost of an inbox and its map entry, plus one reference per slot
+    private static final long INBOX_OVERHEAD_BYTES = 128;
+    private static final long SLOT_BYTES = 8;
+    private static final int INITIAL_SLOTS = 4;
+
+    private final int inboxCapacity;
+    private final long memoryBudgetBytes;
+
+    // Access order: the first recipient is the one idle longest
+    private final LinkedHashMap<String, Inbox> inboxes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entry> byId = new HashMap<>();
+    private long usedBytes;
+    private long evictedRecipients;
+    private long lastSequence;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private static final class Entry {
+        private final String id;
+        private final String recipient;
+        private Map<String, Object> notification;
+        private long bytes;
+        private long sequence;
+
+        private Entry(String id, String recipient) {
+            this.id = id;
+            this.recipient = recipient;
+        }
+    }
+
+    private static final class Inbox {
+        private Entry[] slots;
+        private int next;
+        private int size;
+        // Notifications up to this sequence may be missing: overwritten, or sent before the inbox existed
+        private long missingUpTo;
+
+        private Inbox(int slots, long missingUpTo) {
+            this.slots = new Entry[slots];
+            this.missingUpTo = missingUpTo;
+        }
+
+        private long bytes() {
+            return INBOX_OVERHEAD_BYTES + SLOT_BYTES * slots.length;
+        }
+    }
+
+    UiInboxStore(int inboxCapacity, long memoryBudgetBytes) {
+        this.inboxCapacity = Math.max(1, inboxCapacity);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Notifications of one inbox after an event id, oldest first. complete is false when some
+     * notifications after that id are no longer stored, or the id is not one of this instance.
+     */
+    static final class Replay {
+        private final long afterSequence;
+        private final List<Long> sequences;
+        private final List<Map<String, Object>> notifications;
+        private final boolean complete;
+
+        private Replay(long afterSequence, List<Long> sequences, List<Map<String, Object>> notifications, boolean complete) {
+            this.afterSequence = afterSequence;
+            this.sequences = sequences;
+            this.notifications = notifications;
+            this.complete = complete;
+        }
+
+        /** Sequence the replay starts after; 0 when the event id was not recognised. */
+        long afterSequence() { return afterSequence; }
+
+        List<Long> sequences() { return sequences; }
+
+        List<Map<String, Object>> notifications() { return notifications; }
+
+        boolean complete() { return complete; }
+    }
+
+    /**
+     * Stores a notification in its recipient's inbox, or replaces it if its id is stored
+     * already; returns the sequence number it is stored under.
+     */
+    synchronized long add(String id, String recipient, Map<String, Object> notification) {
+        long bytes = estimateBytes(notification);
+        long sequence = ++lastSequence;
+        Entry existing = byId.get(id);
+        if (existing != null) {
+            usedBytes += bytes - existing.bytes;
+            existing.notification = notification;
+            existing.bytes = bytes;
+            existing.sequence = sequence;
+            inboxes.get(existing.recipient);
+        } else {
+            Inbox inbox = inboxes.get(recipient);
+            if (inbox == null) {
+                inbox = new Inbox(Math.min(INITIAL_SLOTS, inboxCapacity), sequence - 1);
+                inboxes.put(recipient, inbox);
+                usedBytes += inbox.bytes();
+            } else if (inbox.size == inbox.slots.length && inbox.size < inboxCapacity) {
+                grow(inbox);
+            }
+            Entry overwritten = inbox.slots[inbox.next];
+            if (overwritten != null) {
+                byId.remove(overwritten.id);
+                usedBytes -= overwritten.bytes;
+                inbox.missingUpTo = Math.max(inbox.missingUpTo, overwritten.sequence);
+            }
+
+            Entry entry = new Entry(id, recipient);
+            entry.notification = notification;
+            entry.bytes = bytes;
+            entry.sequence = sequence;
+            inbox.slots[inbox.next] = entry;
+            inbox.next = (inbox.next + 1) % inbox.slots.length;
+            inbox.size = Math.min(inbox.size + 1, inbox.slots.length);
+            byId.put(id, entry);
+            usedBytes += bytes;
+        }
+        evictIdleRecipients(existing != null ? existing.recipient : recipient);
+        return sequence;
+    }
+
+    /**
+     * The recipient's notifications stored after the given event id.
+     */
+    synchronized Replay since(String recipient, String lastEventId) {
+        long afterSequence = sequenceOf(lastEventId);
+        if (afterSequence < 0) {
+            return new Replay(0, List.of(), List.of(), false);
+        }
+        Inbox inbox = inboxes.get(recipient);
+        if (inbox == null) {
+            return new Replay(afterSequence, List.of(), List.of(), afterSequence >= lastSequence);
+        }
+        List<Entry> after = new ArrayList<>();
+        for (int i = 0; i < inbox.size; i++) {
+            Entry entry = inbox.slots[i];
+            if (entry.sequence > afterSequence) {
+                after.add(entry);
+            }
+        }
+        after.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        List<Long> sequences = new ArrayList<>(after.size());
+        List<Map<String, Object>> notifications = new ArrayList<>(after.size());
+        for (Entry entry : after) {
+            sequences.add(entry.sequence);
+            notifications.add(entry.notification);
+        }
+        return new Replay(afterSequence, sequences, notifications, afterSequence >= inbox.missingUpTo);
+    }
+
+    /**
+     * SSE event id of a sequence number.
+     */
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // -1 for an id of another instance, a malformed one, or one past the last sequence
+    private long sequenceOf(String eventId) {
+        int dash = eventId.lastIndexOf('-');
+        if (dash <= 0 || !epoch.equals(eventId.substring(0, dash))) {
+            return -1;
+        }
+        try {
+            long sequence = Long.parseLong(eventId.substring(dash + 1));
+            return sequence >= 0 && sequence <= lastSequence ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    synchronized long lastSequence() { return lastSequence; }
+
+    /**
+     * The recipient's notifications, newest first.
+     */
+    synchronized List<Map<String, Object>> inbox(String recipient) {
+        Inbox inbox = inboxes.get(recipient);
+        if (inbox == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> notifications = new ArrayList<>(inbox.size);
+        for (int i = 1; i <= inbox.size; i++) {
+            int slot = Math.floorMod(inbox.next - i, inbox.slots.length);
+            notifications.add(inbox.slots[slot].notification);
+        }
+        return notifications;
+    }
+
+    synchronized Map<String, Object> get(String id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        inboxes.get(entry.recipient);
+        return entry.notification;
+    }
+
+    synchronized int recipientCount() { return inboxes.size(); }
+
+    synchronized int notificationCount() { return byId.size(); }
+
+    synchronized long usedBytes() { return usedBytes; }
+
+    synchronized long evictedRecipients() { return evictedRecipients; }
+
+    // Drops whole inboxes, idle longest first; the recipient just written is kept
+    private void evictIdleRecipients(String current) {
+        if (memoryBudgetBytes <= 0) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, Inbox>> it = inboxes.entrySet().iterator();
+             usedBytes > memoryBudgetBytes && it.hasNext(); ) {
+            Map.Entry<String, Inbox> idle = it.next();
+            if (Objects.equals(idle.getKey(), current)) {
+                continue;
+            }
+            for (Entry entry : idle.getValue().slots) {
+                if (entry != null) {
+                    byId.remove(entry.id);
+                    usedBytes -= entry.bytes;
+                }
+            }
+            usedBytes -= idle.getValue().bytes();
+            it.remove();
+            evictedRecipients++;
+        }
+    }
+
+    // Doubles a full ring, oldest entry first
+    private void grow(Inbox inbox) {
+        Entry[] grown = new Entry[Math.min(inboxCapacity, inbox.slots.length * 2)];
+        for (int i = 0; i < inbox.size; i++) {
+            grown[i] = inbox.slots[(inbox.next + i) % inbox.slots.length];
+        }
+        usedBytes -= inbox.bytes();
+        inbox.slots = grown;
+        inbox.next = inbox.size;
+        usedBytes += inbox.bytes();
+    }
+
+    private static long estimateBytes(Map<String, Object> notification) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (Object value : notification.values()) {
+            if (value instanceof String) {
+                bytes += 2L * ((String) value).length();
+            }
+        }
+        return bytes;
+    }
+}
@@ -2,21 +2,46 @@ package com.payment.platform.notification.service;
 
 import com.payment.platform.notification.model.NotificationEntity;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.annotation.PostConstruct;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * UI notifications, kept in a bounded per-recipient inbox (see UiInboxStore): each recipient
+ * keeps its last notification.ui.inbox-capacity notifications, and recipients idle longest are
+ * dropped when the store grows past notification.ui.memory-budget-mb. Connected clients are
+ * sent new notifications as they are stored (see UiPushService).
+ */
 @Service
 @Slf4j
 public class UiNotificationService {
     
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
+    @Value("${notification.ui.inbox-capacity:100}")
+    private int inboxCapacity;
+    
+    @Value("${notification.ui.memory-budget-mb:32}")
+    private long memoryBudgetMb;
+    
     // In-memory store for UI notifications (in production, use Redis or database)
-    private final Map<String, Map<String, Object>> uiNotifications = new ConcurrentHashMap<>();
+    private UiInboxStore uiNotifications;
+    
+    private final UiPushService uiPushService;
+    
+    public UiNotificationService(UiPushService uiPushService) {
+        this.uiPushService = uiPushService;
+    }
+    
+    @PostConstruct
+    public void init() {
+        uiNotifications = new UiInboxStore(inboxCapacity, memoryBudgetMb * 1024 * 1024);
+    }
     
     public boolean sendUiNotification(NotificationEntity notification) {
         try {
@@ -37,16 +62,18 @@ public class UiNotificationService {
             uiNotification.put("actionable", isActionable(notification.getEventType()));
             
             // Store notification for UI retrieval
-            uiNotifications.put(notification.getId(), uiNotification);
+            long sequence = uiNotifications.add(notification.getId(), notification.getRecipient(), uiNotification);
+            
+            // Push to the recipient's open streams
+            uiPushService.publish(notification.getRecipient(), sequence, uiNotifications.eventId(sequence),
+                notification.getId(), uiNotification);
             
             // Display in console (simulating UI display)
             displayUiNotification(uiNotification);
             
-            // In a real implementation, you would:
-            // 1. Send via WebSocket to connected clients
-            // 2. Store in Redis for real-time access
-            // 3. Push to mobile app via push notification service
-            // 4. Update UI components in real-time
+            // In a real implementation, you would also:
+            // 1. Store in Redis for real-time access
+            // 2. Push to mobile app via push notification service
             
             log.info("UI notification sent successfully for: {}", notification.getCorrelationId());
             return true;
@@ -60,15 +87,34 @@ public class UiNotificationService {
     
     public Map<String, Object> getUiNotifications(String recipient) {
         // In production, this would query Redis or database
-        return Map.of("notifications", uiNotifications.values().stream()
-            .filter(n -> n.get("recipient").equals(recipient))
-            .toList());
+        return Map.of("notifications", uiNotifications.inbox(recipient));
     }
     
     public Map<String, Object> getUiNotification(String notificationId) {
         return uiNotifications.get(notificationId);
     }
     
+    /**
+     * Stream of new UI notifications for a recipient (server-sent events); null when no more
+     * streams can be opened. With lastEventId, notifications after it are sent first.
+     */
+    public SseEmitter subscribe(String recipient, String lastEventId) {
+        return uiPushService.subscribe(recipient, lastEventId, uiNotifications::eventId,
+            () -> uiNotifications.since(recipient, lastEventId));
+    }
+    
+    /**
+     * Size of the in-memory inbox store and open push streams, for monitoring
+     */
+    public Map<String, Object> getInboxStatistics() {
+        return Map.of(
+            "recipients", uiNotifications.recipientCount(),
+            "notifications", uiNotifications.notificationCount(),
+            "estimatedBytes", uiNotifications.usedBytes(),
+            "evictedRecipients", uiNotifications.evictedRecipients(),
+            "push", uiPushService.getStatistics());
+    }
+    
     private void displayUiNotification(Map<String, Object> notification) {
         System.out.println("\n🖥️  UI NOTIFICATION DISPLAY");
         System.out.println("=".repeat(60));
@@ -0,0 +1,377 @@
+package com.payment.platform.notification.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Streams UI notifications to connected recipients as server-sent events.
+ *
+ * - A connection is an SseEmitter on an async request, so an idle one holds no thread; a
+ *   heartbeat comment every heartbeat-ms keeps proxies from closing it and finds dead ones
+ * - Each connection buffers at most buffer-size events. A notification already buffered is
+ *   replaced by its newer version instead of queued twice; when the buffer is full the oldest
+ *   event is dropped and the client is sent a "resync" event, so a slow client never holds
+ *   more than its buffer and never delays anyone else
+ * - Buffers are written by a shared pool of sender-threads threads (idle threads time out), at
+ *   most one task per connection at a time. SseEmitter writes block while a client's socket is
+ *   full and cannot be interrupted; the thread of a send blocked longer than send-timeout-ms
+ *   is written off: its connection is closed and the pool gets a replacement thread, so stalled
+ *   clients never leave the other connections without senders. The blocked thread returns to
+ *   the pool once the container's write timeout ends the send, and the emitter is then
+ *   completed with an error
+ * - Every event carries the notification's inbox event id (see UiInboxStore). A client
+ *   reconnecting with Last-Event-ID is first sent what its inbox holds after that id; if the
+ *   inbox no longer holds all of it, or the id is from before a restart, a "resync" event
+ *   tells the client to reload the inbox
+ *
+ * Used by: UiNotificationService
+ */
+@Service
+@Slf4j
+public class UiPushService {
+
+    static final String NOTIFICATION_EVENT = "notification";
+    static final String RESYNC_EVENT = "resync";
+
+    @Value("${notification.ui.sse.buffer-size:32}")
+    private int bufferSize;
+
+    @Value("${notification.ui.sse.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${notification.ui.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notification.ui.sse.sender-threads:64}")
+    private int senderThreads;
+
+    @Value("${notification.ui.sse.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    private final Map<String, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicLong stalledConnections = new AtomicLong();
+    // Sender threads blocked in a stalled send, on top of sender-threads
+    private final AtomicInteger writtenOffSenders = new AtomicInteger();
+
+    private ThreadPoolExecutor senders;
+
+    /**
+     * One buffered notification, or HEARTBEAT for a keepalive comment.
+     */
+    private static final class Event {
+        private final String eventId;
+        private final String notificationId;
+        private final Map<String, Object> notification;
+
+        private Event(String eventId, String notificationId, Map<String, Object> notification) {
+            this.eventId = eventId;
+            this.notificationId = notificationId;
+            this.notification = notification;
+        }
+    }
+
+    private static final Event HEARTBEAT = new Event(null, null, null);
+
+    /**
+     * One connected client; the buffer and flags are guarded by the connection's monitor.
+     */
+    private final class Connection {
+        private final String recipient;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+        private boolean draining;
+        private boolean resync;
+        private volatile boolean closed;
+        // Live events up to here were already sent as part of the replay
+        private long replayedUpTo;
+        // When the send in progress started, 0 when none is
+        private volatile long sendingSince;
+        // The send in progress was given up on and its thread replaced
+        private boolean writtenOff;
+
+        private Connection(String recipient, SseEmitter emitter) {
+            this.recipient = recipient;
+            this.emitter = emitter;
+        }
+
+        private synchronized void offer(long sequence, String eventId, String notificationId, Map<String, Object> notification) {
+            if (closed || sequence <= replayedUpTo) {
+                return;
+            }
+            for (Iterator<Event> it = buffer.iterator(); it.hasNext(); ) {
+                Event queued = it.next();
+                if (notificationId.equals(queued.notificationId)) {
+                    it.remove();
+                    coalescedEvents.incrementAndGet();
+                    break;
+                }
+            }
+            if (buffer.size() >= Math.max(1, bufferSize)) {
+                buffer.pollFirst();
+                droppedEvents.incrementAndGet();
+                resync = true;
+            }
+            buffer.addLast(new Event(eventId, notificationId, notification));
+            scheduleDrain();
+        }
+
+        private synchronized void heartbeat() {
+            if (!closed && !draining && buffer.isEmpty()) {
+                buffer.addLast(HEARTBEAT);
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (!draining) {
+                draining = true;
+                senders.execute(this::drain);
+            }
+        }
+
+        // Sends what is buffered until the buffer is empty; runs on one sender thread at a time
+        private void drain() {
+            while (true) {
+                List<Event> batch;
+                boolean sendResync;
+                synchronized (this) {
+                    if (closed || (buffer.isEmpty() && !resync)) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(buffer);
+                    buffer.clear();
+                    sendResync = resync;
+                    resync = false;
+                }
+                try {
+                    if (sendResync) {
+                        send(SseEmitter.event().name(RESYNC_EVENT).data("Some notifications were not delivered; reload the inbox"));
+                    }
+                    for (Event event : batch) {
+                        if (event == HEARTBEAT) {
+                            send(SseEmitter.event().comment("keepalive"));
+                        } else {
+                            send(SseEmitter.event()
+                                .id(event.eventId)
+                                .name(NOTIFICATION_EVENT)
+                                .data(event.notification));
+                            sentEvents.incrementAndGet();
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("UI push connection for {} lost: {}", recipient, e.toString());
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("Connection closed");
+            }
+            boolean replaced;
+            sendingSince = System.currentTimeMillis();
+            try {
+                emitter.send(event);
+            } finally {
+                synchronized (this) {
+                    sendingSince = 0;
+                    replaced = writtenOff;
+                    writtenOff = false;
+                }
+                if (replaced) {
+                    resizeSenders(-1);
+                }
+            }
+            if (replaced) {
+                // Closed as stalled while the send was blocked; the caller completes the emitter
+                throw new IOException("Send blocked for longer than " + sendTimeoutMs + " ms");
+            }
+        }
+
+        // The blocked write itself ends with the container's write timeout; meanwhile another
+        // thread takes its place and closing stops new events
+        private void closeIfStalled(long now) {
+            long since;
+            synchronized (this) {
+                since = sendingSince;
+                if (since == 0 || now - since <= sendTimeoutMs || writtenOff) {
+                    return;
+                }
+                writtenOff = true;
+            }
+            log.info("UI push connection for {} closed: a send has been blocked for {} ms", recipient, now - since);
+            stalledConnections.incrementAndGet();
+            resizeSenders(1);
+            close();
+        }
+
+        private void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                buffer.clear();
+            }
+            connections.computeIfPresent(recipient, (r, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            connectionCount.decrementAndGet();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        int threads = Math.max(1, senderThreads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "ui-push-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        // Threads are only started while connections have something to send
+        pool.allowCoreThreadTimeOut(true);
+        senders = pool;
+    }
+
+    private void resizeSenders(int delta) {
+        synchronized (senders) {
+            int size = Math.max(1, senderThreads) + writtenOffSenders.addAndGet(delta);
+            // The maximum may never drop below the core size
+            if (delta > 0) {
+                senders.setMaximumPoolSize(size);
+                senders.setCorePoolSize(size);
+            } else {
+                senders.setCorePoolSize(size);
+                senders.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        connections.values().forEach(set -> set.forEach(connection -> {
+            connection.close();
+            connection.emitter.complete();
+        }));
+        senders.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for a recipient, or returns null when max-connections are open. With a
+     * lastEventId, the notifications replay returns after it are sent first.
+     */
+    SseEmitter subscribe(String recipient, String lastEventId, LongFunction<String> eventIds,
+                         Supplier<UiInboxStore.Replay> replay) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            log.warn("UI push connection for {} refused: {} connections open", recipient, maxConnections);
+            return null;
+        }
+        SseEmitter emitter = createEmitter();
+        Connection connection = new Connection(recipient, emitter);
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(e -> connection.close());
+
+        // Registered before the replay is read, so nothing published in between is missed;
+        // the monitor keeps live events behind the replay
+        synchronized (connection) {
+            connections.compute(recipient, (r, set) -> {
+                Set<Connection> recipientConnections = set != null ? set : ConcurrentHashMap.newKeySet();
+                recipientConnections.add(connection);
+                return recipientConnections;
+            });
+            if (lastEventId != null) {
+                UiInboxStore.Replay missed = replay.get();
+                connection.replayedUpTo = missed.afterSequence();
+                List<Long> sequences = missed.sequences();
+                for (int i = 0; i < sequences.size(); i++) {
+                    Map<String, Object> notification = missed.notifications().get(i);
+                    connection.buffer.addLast(new Event(eventIds.apply(sequences.get(i)),
+                        String.valueOf(notification.get("id")), notification));
+                    connection.replayedUpTo = Math.max(connection.replayedUpTo, sequences.get(i));
+                }
+                connection.resync = !missed.complete();
+                if (!connection.buffer.isEmpty() || connection.resync) {
+                    connection.scheduleDrain();
+                }
+            }
+        }
+        log.debug("UI push connection opened for {} (last event id {})", recipient, lastEventId);
+        return emitter;
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /**
+     * Queues a stored notification on every open stream of its recipient.
+     */
+    void publish(String recipient, long sequence, String eventId, String notificationId, Map<String, Object> notification) {
+        Set<Connection> recipientConnections = recipient != null ? connections.get(recipient) : null;
+        if (recipientConnections == null) {
+            return;
+        }
+        for (Connection connection : recipientConnections) {
+            connection.offer(sequence, eventId, notificationId, notification);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.ui.sse.stall-check-ms:1000}")
+    public void closeStalledConnections() {
+        long now = System.currentTimeMillis();
+        connections.values().forEach(set -> set.forEach(connection -> connection.closeIfStalled(now)));
+    }
+
+    @Scheduled(fixedDelayString = "${notification.ui.sse.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        connections.values().forEach(set -> set.forEach(Connection::heartbeat));
+    }
+
+    /**
+     * Open streams and event counters, for monitoring.
+     */
+    public Map<String, Object> getStatistics() {
+        return Map.of(
+            "connections", connectionCount.get(),
+            "recipients", connections.size(),
+            "sentEvents", sentEvents.get(),
+            "coalescedEvents", coalescedEvents.get(),
+            "droppedEvents", droppedEvents.get(),
+            "stalledConnections", stalledConnections.get(),
+            "blockedSenders", writtenOffSenders.get());
+    }
+}
@@ -1,86 +1,270 @@
 package com.payment.platform.notification.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.payment.platform.notification.model.NotificationEntity;
+import com.payment.platform.notification.model.WebhookSubscription;
+import com.payment.platform.notification.webhook.WebhookDeliveryEngine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Sends WEBHOOK notifications to the configured endpoints through a WebhookDeliveryEngine.
+ *
+ * - Endpoints are listed in notification.webhook.endpoints and configured under
+ *   notification.webhook.endpoint.{name}.* (url, event-types, recipients, secret, batch-size,
+ *   batch-window-ms, max-attempts, timeout-ms, max-in-flight); settings left out use the
+ *   notification.webhook.* defaults
+ * - Endpoints can also be added, replaced or removed at runtime, but only by callers that
+ *   present notification.webhook.admin-token; without a configured token the endpoint list
+ *   comes from configuration alone. Runtime URLs can further be limited to
+ *   notification.webhook.allowed-hosts
+ * - sendWebhook only queues the payload and returns true once an endpoint has accepted it, so
+ *   the channel's worker never waits on a remote server; a notification the engine finally
+ *   gives up on is marked FAILED with the reason, and the endpoint is recorded in
+ *   notification_failed_endpoints, once per (notification, endpoint)
+ * - A retried notification with failed endpoints is sent to those endpoints only, so endpoints
+ *   that already received it do not get it twice
+ * - Without a matching endpoint the notification is printed to the console as before
+ *
+ * Used by: NotificationProcessor
+ */
 @Service
 @Slf4j
 public class WebhookService {
-    
-    private final RestTemplate restTemplate;
-    
-    public WebhookService() {
-        this.restTemplate = new RestTemplate();
+
+    private static final String MARK_FAILED_SQL =
+        "UPDATE notifications SET status = 'FAILED', error_message = ? WHERE id = ?";
+
+    // Keyed by (notification, endpoint), so an endpoint failing twice is recorded once
+    private static final String ADD_FAILED_ENDPOINT_SQL =
+        "MERGE INTO notification_failed_endpoints (notification_id, endpoint_name) " +
+        "KEY (notification_id, endpoint_name) VALUES (?, ?)";
+
+    private static final String FIND_FAILED_ENDPOINTS_SQL =
+        "SELECT endpoint_name FROM notification_failed_endpoints WHERE notification_id = ? ORDER BY endpoint_name";
+
+    // Before a retry is queued, so only failures of the retry itself are recorded again
+    private static final String CLEAR_FAILED_ENDPOINTS_SQL =
+        "DELETE FROM notification_failed_endpoints WHERE notification_id = ?";
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final Environment environment;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${notification.webhook.batch-size:1}")
+    private int batchSize;
+
+    @Value("${notification.webhook.batch-window-ms:1000}")
+    private long batchWindowMs;
+
+    @Value("${notification.webhook.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${notification.webhook.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @Value("${notification.webhook.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${notification.webhook.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${notification.webhook.max-queued:10000}")
+    private int maxQueued;
+
+    @Value("${notification.webhook.backoff-base-ms:500}")
+    private long backoffBaseMs;
+
+    @Value("${notification.webhook.backoff-max-ms:60000}")
+    private long backoffMaxMs;
+
+    @Value("${notification.webhook.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${notification.webhook.open-ms:30000}")
+    private long openMs;
+
+    @Value("${notification.webhook.client-threads:4}")
+    private int clientThreads;
+
+    @Value("${notification.webhook.admin-token:}")
+    private String adminToken;
+
+    @Value("${notification.webhook.allowed-hosts:}")
+    private String[] allowedHosts;
+
+    private WebhookDeliveryEngine engine;
+
+    public WebhookService(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate, Environment environment,
+                          PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.environment = environment;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
-    
+
+    @PostConstruct
+    public void start() {
+        engine = new WebhookDeliveryEngine(WebhookDeliveryEngine.Settings.builder()
+            .batchSize(batchSize)
+            .batchWindowMs(batchWindowMs)
+            .maxAttempts(maxAttempts)
+            .timeoutMs(timeoutMs)
+            .connectTimeoutMs(connectTimeoutMs)
+            .maxInFlight(maxInFlight)
+            .maxQueued(maxQueued)
+            .backoffBaseMs(backoffBaseMs)
+            .backoffMaxMs(backoffMaxMs)
+            .failureThreshold(failureThreshold)
+            .openMs(openMs)
+            .clientThreads(clientThreads)
+            .build(), this::markFailed);
+
+        for (String name : environment.getProperty("notification.webhook.endpoints", String[].class, new String[0])) {
+            if (!name.isBlank()) {
+                subscribe(configuredSubscription(name.trim()));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        engine.close();
+    }
+
     public boolean sendWebhook(NotificationEntity notification) {
         try {
-            log.info("Sending webhook notification for: {}", notification.getCorrelationId());
-            
-            // In a real implementation, you would:
-            // 1. Get webhook URL from configuration or database
-            // 2. Authenticate with the webhook endpoint
-            // 3. Send properly formatted JSON payload
-            // 4. Handle retries and failures
-            
-            String webhookUrl = getWebhookUrl(notification);
-            if (webhookUrl == null) {
-                log.warn("No webhook URL configured for notification: {}", notification.getId());
+            byte[] payload = objectMapper.writeValueAsBytes(createWebhookPayload(notification));
+            Set<String> retryEndpoints = failedEndpoints(notification.getId());
+            if (retryEndpoints != null) {
+                jdbcTemplate.update(CLEAR_FAILED_ENDPOINTS_SQL, notification.getId());
+            }
+            int endpoints = engine.submit(notification.getId(), notification.getEventType(),
+                notification.getRecipient(), notification.getCorrelationId(), payload, retryEndpoints);
+            if (endpoints == 0 && retryEndpoints != null) {
+                log.warn("Webhook endpoints {} of notification {} are no longer subscribed, nothing to retry",
+                    retryEndpoints, notification.getId());
+                return true;
+            }
+            if (endpoints == 0) {
+                log.warn("No webhook endpoint configured for notification: {}", notification.getId());
                 return sendWebhookFallback(notification);
             }
-            
-            Map<String, Object> webhookPayload = createWebhookPayload(notification);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("X-Event-Type", notification.getEventType());
-            headers.set("X-Correlation-ID", notification.getCorrelationId());
-            
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(webhookPayload, headers);
-            
-            // Send webhook
-            restTemplate.postForEntity(webhookUrl, entity, String.class);
-            
-            log.info("Webhook sent successfully to: {}", webhookUrl);
+            log.debug("Webhook notification {} queued for {} endpoints", notification.getId(), endpoints);
             return true;
-            
-        } catch (Exception e) {
-            log.error("Failed to send webhook for {}: {}", 
-                     notification.getCorrelationId(), e.getMessage(), e);
-            return sendWebhookFallback(notification);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize webhook for {}: {}", notification.getCorrelationId(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Adds or replaces an endpoint.
+     */
+    public void subscribe(WebhookSubscription subscription) {
+        engine.subscribe(subscription);
+    }
+
+    /**
+     * Whether a caller presenting this token may change endpoints at runtime. Always false when
+     * no admin token is configured.
+     */
+    public boolean isManagementAllowed(String token) {
+        if (adminToken == null || adminToken.isBlank() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Adds or replaces an endpoint registered through the API; when
+     * notification.webhook.allowed-hosts is set its URL must point at one of those hosts.
+     */
+    public void subscribeAtRuntime(WebhookSubscription subscription) {
+        URI uri = URI.create(subscription.getUrl());
+        if (allowedHosts.length > 0 && Arrays.stream(allowedHosts)
+                .map(String::trim)
+                .noneMatch(host -> host.equalsIgnoreCase(uri.getHost()))) {
+            throw new IllegalArgumentException("Webhook host not allowed: " + uri.getHost());
+        }
+        subscribe(subscription);
+    }
+
+    public boolean unsubscribe(String name) {
+        return engine.unsubscribe(name);
+    }
+
+    public List<WebhookDeliveryEngine.EndpointStatus> getEndpointStatuses() {
+        return engine.getEndpointStatuses();
+    }
+
+    private WebhookSubscription configuredSubscription(String name) {
+        String prefix = "notification.webhook.endpoint." + name + ".";
+        String url = environment.getProperty(prefix + "url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("No URL configured for webhook endpoint " + name + " (" + prefix + "url)");
         }
+        return WebhookSubscription.builder()
+            .name(name)
+            .url(url)
+            .eventTypes(Set.copyOf(List.of(environment.getProperty(prefix + "event-types", String[].class, new String[0]))))
+            .recipients(Set.copyOf(List.of(environment.getProperty(prefix + "recipients", String[].class, new String[0]))))
+            .secret(environment.getProperty(prefix + "secret"))
+            .batchSize(environment.getProperty(prefix + "batch-size", Integer.class))
+            .batchWindowMs(environment.getProperty(prefix + "batch-window-ms", Long.class))
+            .maxAttempts(environment.getProperty(prefix + "max-attempts", Integer.class))
+            .timeoutMs(environment.getProperty(prefix + "timeout-ms", Long.class))
+            .maxInFlight(environment.getProperty(prefix + "max-in-flight", Integer.class))
+            .build();
     }
-    
-    private String getWebhookUrl(NotificationEntity notification) {
-        // In a real implementation, this would:
-        // 1. Check configuration for default webhook URL
-        // 2. Look up webhook URL based on event type
-        // 3. Check metadata for custom webhook URL
-        
-        // For demo, return null to trigger fallback
-        return null;
+
+    // Null when the notification has no recorded failures and goes to every matching endpoint
+    private Set<String> failedEndpoints(String notificationId) {
+        List<String> failed = jdbcTemplate.queryForList(FIND_FAILED_ENDPOINTS_SQL, String.class, notificationId);
+        return failed.isEmpty() ? null : new LinkedHashSet<>(failed);
     }
-    
+
+    // Errors propagate to the engine, which reports them; the status and the endpoint are written together
+    private void markFailed(String notificationId, String endpoint, String reason) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(MARK_FAILED_SQL, reason, notificationId);
+            jdbcTemplate.update(ADD_FAILED_ENDPOINT_SQL, notificationId, endpoint);
+        });
+    }
+
+    // Null fields are kept as JSON nulls
     private Map<String, Object> createWebhookPayload(NotificationEntity notification) {
-        return Map.of(
-            "id", notification.getId(),
-            "eventType", notification.getEventType(),
-            "correlationId", notification.getCorrelationId(),
-            "recipient", notification.getRecipient(),
-            "subject", notification.getSubject(),
-            "content", notification.getContent(),
-            "timestamp", notification.getCreatedAt().toString(),
-            "metadata", notification.getMetadata()
-        );
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", notification.getId());
+        payload.put("eventType", notification.getEventType());
+        payload.put("correlationId", notification.getCorrelationId());
+        payload.put("recipient", notification.getRecipient());
+        payload.put("subject", notification.getSubject());
+        payload.put("content", notification.getContent());
+        payload.put("timestamp", notification.getCreatedAt() != null ? notification.getCreatedAt().toString() : null);
+        payload.put("metadata", notification.getMetadata());
+        return payload;
     }
-    
+
     private boolean sendWebhookFallback(NotificationEntity notification) {
         // Fallback to console output when webhook is not configured
         System.out.println("🔗 WEBHOOK NOTIFICATION");
@@ -91,12 +275,12 @@ public class WebhookService {
         System.out.println("Subject: " + notification.getSubject());
         System.out.println("Content: " + notification.getContent());
         System.out.println("Timestamp: " + notification.getCreatedAt());
-        
+
         if (notification.getMetadata() != null) {
             System.out.println("Metadata: " + notification.getMetadata());
         }
-        
+
         System.out.println("========================");
         return true;
     }
-}
\ No newline at end of file
+}
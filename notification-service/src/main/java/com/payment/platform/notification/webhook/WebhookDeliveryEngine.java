@@ -0,0 +1,574 @@
+package com.payment.platform.notification.webhook;
+
+import com.payment.platform.notification.model.WebhookSubscription;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers webhook events to subscribed endpoints without blocking the caller or any thread
+ * per request.
+ *
+ * - Requests go through one shared java.net.http.HttpClient: non-blocking, with pooled
+ *   keep-alive connections, a connect timeout and a per-request timeout
+ * - Each endpoint has a bounded queue and at most maxInFlight requests open; with batchSize
+ *   above 1 up to batchSize events are sent as one JSON array, waiting at most batchWindowMs
+ *   for a batch to fill
+ * - Connection errors, timeouts, 408, 429 and 5xx are retried up to maxAttempts with
+ *   exponential backoff and jitter (a Retry-After header is honoured); other 4xx responses
+ *   fail at once
+ * - Health: failureThreshold consecutive failures mark the endpoint UNAVAILABLE for openMs,
+ *   during which nothing is sent to it; then one request probes it, and a success makes it
+ *   HEALTHY again
+ * - Events that cannot be delivered (queue full, attempts exhausted, rejected) are reported to
+ *   the failure listener with the notification id and the endpoint that gave up, so a retry
+ *   can be limited to the endpoints that did not receive it
+ *
+ * Used by: WebhookService
+ */
+@Slf4j
+public class WebhookDeliveryEngine implements AutoCloseable {
+
+    public enum Health { HEALTHY, DEGRADED, UNAVAILABLE }
+
+    /**
+     * Told about every event an endpoint gives up on. An exception it throws is logged with
+     * the event and does not stop delivery of the endpoint's other events.
+     */
+    @FunctionalInterface
+    public interface FailureListener {
+        void onFailure(String notificationId, String endpoint, String reason);
+    }
+
+    /**
+     * Defaults for subscriptions that leave a setting unset, and engine-wide limits.
+     */
+    @Builder
+    public static final class Settings {
+        private final int batchSize;
+        private final long batchWindowMs;
+        private final int maxAttempts;
+        private final long timeoutMs;
+        private final long connectTimeoutMs;
+        private final int maxInFlight;
+        private final int maxQueued;
+        private final long backoffBaseMs;
+        private final long backoffMaxMs;
+        private final int failureThreshold;
+        private final long openMs;
+        private final int clientThreads;
+    }
+
+    /**
+     * Delivery state of one endpoint, for monitoring.
+     */
+    public static final class EndpointStatus {
+        private final String name;
+        private final String url;
+        private final Health health;
+        private final int queued;
+        private final int inFlight;
+        private final long delivered;
+        private final long retried;
+        private final long failed;
+        private final int consecutiveFailures;
+        private final String lastError;
+        private final Long lastSuccessAt;
+        private final Long lastFailureAt;
+
+        private EndpointStatus(Endpoint endpoint) {
+            this.name = endpoint.subscription.getName();
+            this.url = endpoint.subscription.getUrl();
+            this.health = endpoint.health(System.currentTimeMillis());
+            this.queued = endpoint.queue.size() + endpoint.retryReady.stream().mapToInt(batch -> batch.events.size()).sum();
+            this.inFlight = endpoint.inFlight;
+            this.delivered = endpoint.delivered;
+            this.retried = endpoint.retried;
+            this.failed = endpoint.failed;
+            this.consecutiveFailures = endpoint.consecutiveFailures;
+            this.lastError = endpoint.lastError;
+            this.lastSuccessAt = endpoint.lastSuccessAt;
+            this.lastFailureAt = endpoint.lastFailureAt;
+        }
+
+        public String getName() { return name; }
+        public String getUrl() { return url; }
+        public Health getHealth() { return health; }
+        public int getQueued() { return queued; }
+        public int getInFlight() { return inFlight; }
+        public long getDelivered() { return delivered; }
+        public long getRetried() { return retried; }
+        public long getFailed() { return failed; }
+        public int getConsecutiveFailures() { return consecutiveFailures; }
+        public String getLastError() { return lastError; }
+        public Long getLastSuccessAt() { return lastSuccessAt; }
+        public Long getLastFailureAt() { return lastFailureAt; }
+    }
+
+    private static final class Event {
+        private final String notificationId;
+        private final String eventType;
+        private final String correlationId;
+        private final byte[] json;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private Event(String notificationId, String eventType, String correlationId, byte[] json) {
+            this.notificationId = notificationId;
+            this.eventType = eventType;
+            this.correlationId = correlationId;
+            this.json = json;
+        }
+    }
+
+    private static final class Batch {
+        private final List<Event> events;
+        private int attempt;
+
+        private Batch(List<Event> events) {
+            this.events = events;
+        }
+    }
+
+    /**
+     * One subscribed endpoint; everything mutable is guarded by its monitor.
+     */
+    private final class Endpoint {
+        private final WebhookSubscription subscription;
+        private final URI uri;
+        private final int batchSize;
+        private final long batchWindowMs;
+        private final int maxAttempts;
+        private final Duration timeout;
+        private final int maxInFlight;
+
+        private final ArrayDeque<Event> queue = new ArrayDeque<>();
+        private final ArrayDeque<Batch> retryReady = new ArrayDeque<>();
+        private int inFlight;
+        private boolean flushScheduled;
+        private boolean removed;
+
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probing;
+        private long delivered;
+        private long retried;
+        private long failed;
+        private String lastError;
+        private Long lastSuccessAt;
+        private Long lastFailureAt;
+
+        private Endpoint(WebhookSubscription subscription) {
+            this.subscription = subscription;
+            this.uri = URI.create(subscription.getUrl());
+            if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+                throw new IllegalArgumentException("Webhook URL must be http or https: " + subscription.getUrl());
+            }
+            this.batchSize = Math.max(1, subscription.getBatchSize() != null ? subscription.getBatchSize() : settings.batchSize);
+            this.batchWindowMs = subscription.getBatchWindowMs() != null ? subscription.getBatchWindowMs() : settings.batchWindowMs;
+            this.maxAttempts = Math.max(1, subscription.getMaxAttempts() != null ? subscription.getMaxAttempts() : settings.maxAttempts);
+            this.timeout = Duration.ofMillis(subscription.getTimeoutMs() != null ? subscription.getTimeoutMs() : settings.timeoutMs);
+            this.maxInFlight = Math.max(1, subscription.getMaxInFlight() != null ? subscription.getMaxInFlight() : settings.maxInFlight);
+        }
+
+        private boolean matches(String eventType, String recipient) {
+            Set<String> eventTypes = subscription.getEventTypes();
+            Set<String> recipients = subscription.getRecipients();
+            return (eventTypes == null || eventTypes.isEmpty() || eventTypes.contains(eventType))
+                && (recipients == null || recipients.isEmpty() || recipients.contains(recipient));
+        }
+
+        private Health health(long now) {
+            if (openUntil > now || probing) {
+                return Health.UNAVAILABLE;
+            }
+            return consecutiveFailures > 0 ? Health.DEGRADED : Health.HEALTHY;
+        }
+
+        /**
+         * Picks the batches that may be sent now; the caller sends them outside the monitor.
+         */
+        private List<Batch> takeSendable() {
+            List<Batch> sendable = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            while (!removed && inFlight < maxInFlight && (!retryReady.isEmpty() || !queue.isEmpty())) {
+                if (openUntil > now) {
+                    scheduleFlush(openUntil - now);
+                    break;
+                }
+                if (probing) {
+                    break;
+                }
+                if (consecutiveFailures >= settings.failureThreshold) {
+                    // Open period over: one request decides whether the endpoint is back
+                    probing = true;
+                }
+
+                Batch batch = retryReady.pollFirst();
+                if (batch == null) {
+                    long waitMs = queue.peekFirst().queuedAt + batchWindowMs - now;
+                    if (queue.size() < batchSize && waitMs > 0) {
+                        if (probing) {
+                            probing = false;
+                        }
+                        scheduleFlush(waitMs);
+                        break;
+                    }
+                    List<Event> events = new ArrayList<>(Math.min(batchSize, queue.size()));
+                    while (events.size() < batchSize && !queue.isEmpty()) {
+                        events.add(queue.pollFirst());
+                    }
+                    batch = new Batch(events);
+                }
+                batch.attempt++;
+                inFlight++;
+                sendable.add(batch);
+            }
+            return sendable;
+        }
+
+        private void scheduleFlush(long delayMs) {
+            if (!flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(() -> {
+                    synchronized (this) {
+                        flushScheduled = false;
+                    }
+                    pump(this);
+                }, Math.max(1, delayMs), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private final Settings settings;
+    private final FailureListener failureListener;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private final ScheduledExecutorService timer;
+
+    public WebhookDeliveryEngine(Settings settings, FailureListener failureListener) {
+        this.settings = settings;
+        this.failureListener = failureListener;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(1, settings.clientThreads), runnable -> {
+            Thread thread = new Thread(runnable, "webhook-client-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(settings.connectTimeoutMs))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .executor(clientExecutor)
+            .build();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds or replaces a subscription; events already queued for a replaced one are moved over.
+     */
+    public void subscribe(WebhookSubscription subscription) {
+        Endpoint endpoint = new Endpoint(subscription);
+        Endpoint previous = endpoints.put(subscription.getName(), endpoint);
+        if (previous != null) {
+            synchronized (previous) {
+                previous.removed = true;
+                synchronized (endpoint) {
+                    endpoint.retryReady.addAll(previous.retryReady);
+                    endpoint.queue.addAll(previous.queue);
+                }
+                previous.retryReady.clear();
+                previous.queue.clear();
+            }
+            pump(endpoint);
+        }
+        log.info("Webhook endpoint {} subscribed: {} (event types {}, recipients {}, batch size {})",
+            subscription.getName(), subscription.getUrl(), subscription.getEventTypes(),
+            subscription.getRecipients(), endpoint.batchSize);
+    }
+
+    /**
+     * Removes a subscription; its queued events are reported as failed.
+     */
+    public boolean unsubscribe(String name) {
+        Endpoint endpoint = endpoints.remove(name);
+        if (endpoint == null) {
+            return false;
+        }
+        List<Event> abandoned = new ArrayList<>();
+        synchronized (endpoint) {
+            endpoint.removed = true;
+            endpoint.retryReady.forEach(batch -> abandoned.addAll(batch.events));
+            abandoned.addAll(endpoint.queue);
+            endpoint.retryReady.clear();
+            endpoint.queue.clear();
+        }
+        abandoned.forEach(event -> reportFailure(event.notificationId, name, "Webhook endpoint " + name + " unsubscribed"));
+        return true;
+    }
+
+    /**
+     * Queues an event for every subscription matching its type and recipient; returns how
+     * many matched. An endpoint whose queue is full reports the event as failed.
+     */
+    public int submit(String notificationId, String eventType, String recipient, String correlationId, byte[] json) {
+        return submit(notificationId, eventType, recipient, correlationId, json, null);
+    }
+
+    /**
+     * Like submit, limited to the named endpoints when onlyEndpoints is not null (a retry of
+     * the endpoints that failed).
+     */
+    public int submit(String notificationId, String eventType, String recipient, String correlationId, byte[] json,
+                      Set<String> onlyEndpoints) {
+        int matched = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            if (!endpoint.matches(eventType, recipient)
+                    || (onlyEndpoints != null && !onlyEndpoints.contains(endpoint.subscription.getName()))) {
+                continue;
+            }
+            matched++;
+            boolean queued;
+            synchronized (endpoint) {
+                queued = endpoint.queue.size() < settings.maxQueued;
+                if (queued) {
+                    endpoint.queue.addLast(new Event(notificationId, eventType, correlationId, json));
+                } else {
+                    endpoint.failed++;
+                }
+            }
+            if (queued) {
+                pump(endpoint);
+            } else {
+                log.warn("Webhook queue of {} full, notification {} not delivered", endpoint.subscription.getName(), notificationId);
+                reportFailure(notificationId, endpoint.subscription.getName(),
+                    "Webhook queue of " + endpoint.subscription.getName() + " full");
+            }
+        }
+        return matched;
+    }
+
+    public List<EndpointStatus> getEndpointStatuses() {
+        List<EndpointStatus> statuses = new ArrayList<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            synchronized (endpoint) {
+                statuses.add(new EndpointStatus(endpoint));
+            }
+        }
+        statuses.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return statuses;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        clientExecutor.shutdownNow();
+        int undelivered = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            synchronized (endpoint) {
+                undelivered += endpoint.queue.size() + endpoint.inFlight;
+            }
+        }
+        if (undelivered > 0) {
+            log.warn("Webhook delivery stopped with {} events undelivered", undelivered);
+        }
+    }
+
+    private void pump(Endpoint endpoint) {
+        List<Batch> sendable;
+        synchronized (endpoint) {
+            sendable = endpoint.takeSendable();
+        }
+        for (Batch batch : sendable) {
+            send(endpoint, batch);
+        }
+    }
+
+    private void send(Endpoint endpoint, Batch batch) {
+        HttpRequest request;
+        try {
+            request = buildRequest(endpoint, batch);
+        } catch (RuntimeException | GeneralSecurityException e) {
+            complete(endpoint, batch, -1, null, "Invalid request: " + e.getMessage(), false);
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                complete(endpoint, batch, -1, null, error.toString(), true);
+            } else {
+                int status = response.statusCode();
+                boolean retryable = status == 408 || status == 429 || status >= 500;
+                String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+                complete(endpoint, batch, status, retryAfter, "HTTP " + status, retryable);
+            }
+        });
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint, Batch batch) throws GeneralSecurityException {
+        // A batch moved over from a replaced subscription stays an array
+        boolean single = endpoint.batchSize == 1 && batch.events.size() == 1;
+        byte[] body;
+        if (single) {
+            body = batch.events.get(0).json;
+        } else {
+            ByteArrayOutputStream array = new ByteArrayOutputStream();
+            array.write('[');
+            for (int i = 0; i < batch.events.size(); i++) {
+                if (i > 0) {
+                    array.write(',');
+                }
+                array.writeBytes(batch.events.get(i).json);
+            }
+            array.write(']');
+            body = array.toByteArray();
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint.uri)
+            .timeout(endpoint.timeout)
+            .header("Content-Type", "application/json")
+            .header("X-Webhook-Attempt", String.valueOf(batch.attempt))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (single) {
+            Event event = batch.events.get(0);
+            builder.header("X-Notification-ID", event.notificationId);
+            if (event.eventType != null) {
+                builder.header("X-Event-Type", event.eventType);
+            }
+            if (event.correlationId != null) {
+                builder.header("X-Correlation-ID", event.correlationId);
+            }
+        } else {
+            builder.header("X-Webhook-Batch-Size", String.valueOf(batch.events.size()));
+        }
+        String secret = endpoint.subscription.getSecret();
+        if (secret != null && !secret.isEmpty()) {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            builder.header("X-Webhook-Signature", "sha256=" + HexFormat.of().formatHex(mac.doFinal(body)));
+        }
+        return builder.build();
+    }
+
+    private void complete(Endpoint endpoint, Batch batch, int status, String retryAfter, String error, boolean retryable) {
+        boolean success = status >= 200 && status < 300;
+        long now = System.currentTimeMillis();
+        boolean retry = false;
+        long delayMs = 0;
+        synchronized (endpoint) {
+            endpoint.inFlight--;
+            endpoint.probing = false;
+            if (success) {
+                endpoint.consecutiveFailures = 0;
+                endpoint.openUntil = 0;
+                endpoint.delivered += batch.events.size();
+                endpoint.lastSuccessAt = now;
+            } else {
+                endpoint.lastError = error;
+                endpoint.lastFailureAt = now;
+                if (retryable) {
+                    endpoint.consecutiveFailures++;
+                    if (endpoint.consecutiveFailures >= settings.failureThreshold) {
+                        endpoint.openUntil = now + settings.openMs;
+                    }
+                }
+                retry = retryable && batch.attempt < endpoint.maxAttempts && !endpoint.removed;
+                if (retry) {
+                    endpoint.retried += batch.events.size();
+                    delayMs = Math.max(backoffMs(batch.attempt), retryAfterMs(retryAfter));
+                } else {
+                    endpoint.failed += batch.events.size();
+                }
+            }
+        }
+
+        if (retry) {
+            log.debug("Webhook {} attempt {} failed ({}), retrying in {} ms",
+                endpoint.subscription.getName(), batch.attempt, error, delayMs);
+            String name = endpoint.subscription.getName();
+            timer.schedule(() -> retry(name, batch), delayMs, TimeUnit.MILLISECONDS);
+        } else if (!success) {
+            log.warn("Webhook {} failed after {} attempts: {} ({} notifications)",
+                endpoint.subscription.getName(), batch.attempt, error, batch.events.size());
+            for (Event event : batch.events) {
+                reportFailure(event.notificationId, endpoint.subscription.getName(),
+                    "Webhook " + endpoint.subscription.getName() + " failed after " + batch.attempt + " attempts: " + error);
+            }
+        }
+        pump(endpoint);
+    }
+
+    // Requeues on the endpoint's current subscription, which may have been replaced meanwhile
+    private void retry(String name, Batch batch) {
+        Endpoint endpoint = endpoints.get(name);
+        boolean requeued = false;
+        if (endpoint != null) {
+            synchronized (endpoint) {
+                if (!endpoint.removed) {
+                    endpoint.retryReady.addLast(batch);
+                    requeued = true;
+                }
+            }
+        }
+        if (requeued) {
+            pump(endpoint);
+            return;
+        }
+        for (Event event : batch.events) {
+            reportFailure(event.notificationId, name, "Webhook endpoint " + name + " unsubscribed");
+        }
+    }
+
+    // A listener error must not stop the remaining events or the endpoint's pump
+    private void reportFailure(String notificationId, String endpoint, String reason) {
+        try {
+            failureListener.onFailure(notificationId, endpoint, reason);
+        } catch (RuntimeException e) {
+            log.error("Could not record webhook failure of notification {} at {} ({})", notificationId, endpoint, reason, e);
+        }
+    }
+
+    // Exponential with equal jitter: half the step fixed, half random
+    private long backoffMs(int attempt) {
+        long step = Math.min(settings.backoffMaxMs, settings.backoffBaseMs << Math.min(30, attempt - 1));
+        return step / 2 + ThreadLocalRandom.current().nextLong(step / 2 + 1);
+    }
+
+    private long retryAfterMs(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.min(settings.backoffMaxMs, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
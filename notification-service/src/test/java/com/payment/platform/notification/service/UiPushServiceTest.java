@@ -0,0 +1,132 @@
+package com.payment.platform.notification.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs UiPushService with emitters whose sends either block until released, like a client
+ * whose socket is full, or record what they are sent.
+ */
+class UiPushServiceTest {
+
+    private static final long WAIT_MS = 5000;
+    private static final int SENDER_THREADS = 2;
+    private static final long SEND_TIMEOUT_MS = 100;
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private final BlockingQueue<SseEmitter.SseEventBuilder> delivered = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Throwable> completedWithError = new LinkedBlockingQueue<>();
+    private UiPushService service;
+    private volatile boolean nextEmitterStalls;
+
+    @BeforeEach
+    void startService() {
+        service = new UiPushService() {
+            @Override
+            SseEmitter createEmitter() {
+                return nextEmitterStalls ? new StalledEmitter() : new RecordingEmitter();
+            }
+        };
+        ReflectionTestUtils.setField(service, "bufferSize", 32);
+        ReflectionTestUtils.setField(service, "maxConnections", 100);
+        ReflectionTestUtils.setField(service, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "senderThreads", SENDER_THREADS);
+        ReflectionTestUtils.setField(service, "sendTimeoutMs", SEND_TIMEOUT_MS);
+        service.start();
+    }
+
+    @AfterEach
+    void stop() {
+        unblock.countDown();
+        service.stop();
+    }
+
+    @Test
+    void stalledClientsDoNotStarveOtherConnections() throws InterruptedException {
+        int stalledClients = SENDER_THREADS * 3;
+        nextEmitterStalls = true;
+        for (int i = 0; i < stalledClients; i++) {
+            assertNotNull(service.subscribe("stalled-" + i, null, null, null));
+            publish("stalled-" + i, i + 1, "n" + i);
+        }
+        nextEmitterStalls = false;
+        assertNotNull(service.subscribe("healthy", null, null, null));
+        publish("healthy", stalledClients + 1, "healthy-1");
+
+        // Every stall check writes off the blocked senders and starts replacements
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        SseEmitter.SseEventBuilder received = null;
+        while (received == null && System.currentTimeMillis() < deadline) {
+            service.closeStalledConnections();
+            received = delivered.poll(SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        assertNotNull(received, "healthy client got nothing within " + WAIT_MS + " ms");
+
+        awaitStatistic("stalledConnections", (long) stalledClients);
+        assertEquals(stalledClients, service.getStatistics().get("blockedSenders"));
+        assertEquals(1, service.getStatistics().get("connections"));
+
+        // Once their sends return, stalled emitters are completed and their threads handed back
+        unblock.countDown();
+        for (int i = 0; i < stalledClients; i++) {
+            assertNotNull(completedWithError.poll(WAIT_MS, TimeUnit.MILLISECONDS), "stalled emitter not completed");
+        }
+        awaitStatistic("blockedSenders", 0);
+
+        publish("healthy", stalledClients + 2, "healthy-2");
+        assertNotNull(delivered.poll(WAIT_MS, TimeUnit.MILLISECONDS), "healthy client got nothing after the stall");
+    }
+
+    private void publish(String recipient, long sequence, String notificationId) {
+        service.publish(recipient, sequence, String.valueOf(sequence), notificationId, Map.of("id", notificationId));
+    }
+
+    // Stalls are found by the periodic check and counters are updated by the sender threads,
+    // so keep checking until they settle
+    private void awaitStatistic(String name, Object expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!expected.equals(service.getStatistics().get(name)) && System.currentTimeMillis() < deadline) {
+            service.closeStalledConnections();
+            Thread.sleep(10);
+        }
+        assertEquals(expected, service.getStatistics().get(name), name);
+    }
+
+    private class StalledEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            try {
+                assertTrue(unblock.await(WAIT_MS * 2, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void completeWithError(Throwable error) {
+            completedWithError.add(error);
+        }
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder event) {
+            delivered.add(event);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.payment.platform.notification.webhook;
+
+import com.payment.platform.notification.model.WebhookSubscription;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs WebhookDeliveryEngine against an in-process HTTP server that answers with scripted
+ * replies and records every request it receives.
+ */
+class WebhookDeliveryEngineTest {
+
+    private static final long WAIT_MS = 5000;
+
+    private record Reply(int status, String retryAfter, long delayMs) {
+        static Reply of(int status) {
+            return new Reply(status, null, 0);
+        }
+    }
+
+    private record Received(String path, Headers headers, String body, long at) {
+        String header(String name) {
+            return headers.getFirst(name);
+        }
+    }
+
+    private record Failure(String notificationId, String endpoint, String reason) {
+    }
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Received> requests = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Failure> failures = new LinkedBlockingQueue<>();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private WebhookDeliveryEngine engine;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (engine != null) {
+            engine.close();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void sendsFullBatchAsOneArray() throws InterruptedException {
+        engine = engine(settings().batchSize(3).batchWindowMs(60_000));
+        engine.subscribe(subscription("ledger", "/hooks"));
+
+        submit("n1");
+        submit("n2");
+        submit("n3");
+
+        Received request = nextRequest();
+        assertEquals("/hooks", request.path());
+        assertEquals("[{\"id\":\"n1\"},{\"id\":\"n2\"},{\"id\":\"n3\"}]", request.body());
+        assertEquals("3", request.header("X-Webhook-Batch-Size"));
+        assertEquals("1", request.header("X-Webhook-Attempt"));
+        assertNull(request.header("X-Notification-ID"));
+        assertNoRequest(300);
+        awaitStatus(status -> status.getDelivered() == 3);
+    }
+
+    @Test
+    void sendsPartialBatchWhenWindowCloses() throws InterruptedException {
+        engine = engine(settings().batchSize(3).batchWindowMs(200));
+        engine.subscribe(subscription("ledger", "/hooks"));
+
+        long submittedAt = System.currentTimeMillis();
+        submit("n1");
+        submit("n2");
+
+        Received request = nextRequest();
+        assertTrue(request.at() - submittedAt >= 150, "batch sent before its window closed");
+        assertEquals("[{\"id\":\"n1\"},{\"id\":\"n2\"}]", request.body());
+        assertEquals("2", request.header("X-Webhook-Batch-Size"));
+    }
+
+    @Test
+    void sendsSingleEventWithItsHeaders() throws InterruptedException {
+        engine = engine(settings());
+        engine.subscribe(subscription("ledger", "/hooks"));
+
+        engine.submit("n1", "payment.settled", "merchant", "corr-1", json("n1"));
+
+        Received request = nextRequest();
+        assertEquals("{\"id\":\"n1\"}", request.body());
+        assertEquals("n1", request.header("X-Notification-ID"));
+        assertEquals("payment.settled", request.header("X-Event-Type"));
+        assertEquals("corr-1", request.header("X-Correlation-ID"));
+        assertNull(request.header("X-Webhook-Batch-Size"));
+    }
+
+    @Test
+    void waitsForRetryAfterBeforeRetrying() throws InterruptedException {
+        engine = engine(settings().backoffBaseMs(10).backoffMaxMs(5000));
+        engine.subscribe(subscription("ledger", "/hooks"));
+        replies.add(new Reply(503, "1", 0));
+
+        submit("n1");
+
+        Received first = nextRequest();
+        Received second = nextRequest();
+        assertEquals("1", first.header("X-Webhook-Attempt"));
+        assertEquals("2", second.header("X-Webhook-Attempt"));
+        assertTrue(second.at() - first.at() >= 1000,
+            "retried after " + (second.at() - first.at()) + " ms despite Retry-After: 1");
+        awaitStatus(status -> status.getDelivered() == 1 && status.getRetried() == 1);
+        assertNull(failures.poll());
+    }
+
+    @Test
+    void retriesWithBackoffUntilAttemptsAreExhausted() throws InterruptedException {
+        engine = engine(settings().maxAttempts(3).backoffBaseMs(10).backoffMaxMs(50));
+        engine.subscribe(subscription("ledger", "/hooks"));
+        for (int i = 0; i < 3; i++) {
+            replies.add(Reply.of(503));
+        }
+
+        submit("n1");
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            assertEquals(String.valueOf(attempt), nextRequest().header("X-Webhook-Attempt"));
+        }
+        Failure failure = nextFailure();
+        assertEquals("n1", failure.notificationId());
+        assertEquals("ledger", failure.endpoint());
+        assertTrue(failure.reason().contains("after 3 attempts"), failure.reason());
+        assertNoRequest(300);
+        awaitStatus(status -> status.getFailed() == 1 && status.getRetried() == 2);
+    }
+
+    @Test
+    void failsClientErrorsWithoutRetrying() throws InterruptedException {
+        engine = engine(settings().backoffBaseMs(10).backoffMaxMs(50));
+        engine.subscribe(subscription("ledger", "/hooks"));
+        replies.add(Reply.of(400));
+
+        submit("n1");
+
+        nextRequest();
+        Failure failure = nextFailure();
+        assertEquals("n1", failure.notificationId());
+        assertEquals("ledger", failure.endpoint());
+        assertTrue(failure.reason().contains("HTTP 400"), failure.reason());
+        assertNoRequest(300);
+        assertNull(failures.poll());
+
+        WebhookDeliveryEngine.EndpointStatus status = awaitStatus(s -> s.getFailed() == 1);
+        assertEquals(0, status.getRetried());
+        assertEquals(0, status.getConsecutiveFailures());
+        assertEquals(WebhookDeliveryEngine.Health.HEALTHY, status.getHealth());
+    }
+
+    @Test
+    void opensCircuitAfterThresholdAndProbesOnce() throws InterruptedException {
+        engine = engine(settings().maxAttempts(1).failureThreshold(2).openMs(500).maxInFlight(4));
+        engine.subscribe(subscription("ledger", "/hooks"));
+        replies.add(Reply.of(500));
+        replies.add(Reply.of(500));
+
+        submit("n1");
+        nextRequest();
+        nextFailure();
+        submit("n2");
+        nextRequest();
+        nextFailure();
+        long openedAt = System.currentTimeMillis();
+        assertEquals(WebhookDeliveryEngine.Health.UNAVAILABLE, status().getHealth());
+
+        // Slow replies, so a second request sent alongside the probe would overlap it
+        replies.add(new Reply(200, null, 200));
+        replies.add(new Reply(200, null, 200));
+        submit("n3");
+        submit("n4");
+        assertNoRequest(250);
+
+        Received probe = nextRequest();
+        assertTrue(probe.at() - openedAt >= 400, "probed " + (probe.at() - openedAt) + " ms after opening");
+        assertEquals("{\"id\":\"n3\"}", probe.body());
+        Received next = nextRequest();
+        assertEquals("{\"id\":\"n4\"}", next.body());
+        assertTrue(next.at() - probe.at() >= 200, "sent alongside the probe");
+
+        WebhookDeliveryEngine.EndpointStatus status = awaitStatus(s -> s.getDelivered() == 2);
+        assertEquals(1, maxConcurrent.get());
+        assertEquals(WebhookDeliveryEngine.Health.HEALTHY, status.getHealth());
+        assertEquals(0, status.getConsecutiveFailures());
+    }
+
+    @Test
+    void failedProbeKeepsCircuitOpen() throws InterruptedException {
+        engine = engine(settings().maxAttempts(1).failureThreshold(1).openMs(300));
+        engine.subscribe(subscription("ledger", "/hooks"));
+        replies.add(Reply.of(500));
+        replies.add(Reply.of(500));
+
+        submit("n1");
+        nextRequest();
+        nextFailure();
+        submit("n2");
+
+        nextRequest();
+        nextFailure();
+        assertEquals(WebhookDeliveryEngine.Health.UNAVAILABLE, status().getHealth());
+        submit("n3");
+        assertNoRequest(150);
+        assertEquals("{\"id\":\"n3\"}", nextRequest().body());
+        awaitStatus(s -> s.getHealth() == WebhookDeliveryEngine.Health.HEALTHY);
+    }
+
+    @Test
+    void keepsDeliveringWhenFailureListenerThrows() throws InterruptedException {
+        engine = new WebhookDeliveryEngine(settings().maxAttempts(1).build(), (notificationId, endpoint, reason) -> {
+            failures.add(new Failure(notificationId, endpoint, reason));
+            throw new IllegalStateException("database down");
+        });
+        engine.subscribe(subscription("ledger", "/hooks"));
+        replies.add(Reply.of(400));
+
+        submit("n1");
+        nextRequest();
+        assertEquals("n1", nextFailure().notificationId());
+
+        submit("n2");
+        assertTrue(nextRequest().body().contains("n2"));
+        awaitStatus(status -> status.getDelivered() == 1 && status.getFailed() == 1);
+    }
+
+    @Test
+    void submitsOnlyToNamedEndpoints() throws InterruptedException {
+        engine = engine(settings());
+        engine.subscribe(subscription("ledger", "/ledger"));
+        engine.subscribe(subscription("crm", "/crm"));
+
+        int matched = engine.submit("n1", "payment.settled", "merchant", null, json("n1"), Set.of("crm"));
+
+        assertEquals(1, matched);
+        assertEquals("/crm", nextRequest().path());
+        assertNoRequest(300);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int now = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(now, Math::max);
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(new Received(exchange.getRequestURI().getPath(), exchange.getRequestHeaders(), body,
+                System.currentTimeMillis()));
+            Reply reply = replies.poll();
+            if (reply == null) {
+                reply = Reply.of(200);
+            }
+            if (reply.delayMs() > 0) {
+                Thread.sleep(reply.delayMs());
+            }
+            if (reply.retryAfter() != null) {
+                exchange.getResponseHeaders().add("Retry-After", reply.retryAfter());
+            }
+            exchange.sendResponseHeaders(reply.status(), -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrent.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private WebhookDeliveryEngine.Settings.SettingsBuilder settings() {
+        return WebhookDeliveryEngine.Settings.builder()
+            .batchSize(1)
+            .batchWindowMs(0)
+            .maxAttempts(6)
+            .timeoutMs(5000)
+            .connectTimeoutMs(2000)
+            .maxInFlight(1)
+            .maxQueued(100)
+            .backoffBaseMs(10)
+            .backoffMaxMs(100)
+            .failureThreshold(5)
+            .openMs(30_000)
+            .clientThreads(2);
+    }
+
+    private WebhookDeliveryEngine engine(WebhookDeliveryEngine.Settings.SettingsBuilder settings) {
+        return new WebhookDeliveryEngine(settings.build(),
+            (notificationId, endpoint, reason) -> failures.add(new Failure(notificationId, endpoint, reason)));
+    }
+
+    private WebhookSubscription subscription(String name, String path) {
+        return WebhookSubscription.builder()
+            .name(name)
+            .url("http://localhost:" + server.getAddress().getPort() + path)
+            .build();
+    }
+
+    private void submit(String notificationId) {
+        assertEquals(1, engine.submit(notificationId, "payment.settled", "merchant", null, json(notificationId)));
+    }
+
+    private static byte[] json(String notificationId) {
+        return ("{\"id\":\"" + notificationId + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Received nextRequest() throws InterruptedException {
+        Received request = requests.poll(WAIT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(request, "no request within " + WAIT_MS + " ms");
+        return request;
+    }
+
+    private void assertNoRequest(long ms) throws InterruptedException {
+        Received request = requests.poll(ms, TimeUnit.MILLISECONDS);
+        assertNull(request, () -> "unexpected request " + request.body());
+    }
+
+    private Failure nextFailure() throws InterruptedException {
+        Failure failure = failures.poll(WAIT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(failure, "no failure reported within " + WAIT_MS + " ms");
+        return failure;
+    }
+
+    private WebhookDeliveryEngine.EndpointStatus status() {
+        return engine.getEndpointStatuses().get(0);
+    }
+
+    // Counters are updated after the server has answered, so poll until they settle
+    private WebhookDeliveryEngine.EndpointStatus awaitStatus(
+            Predicate<WebhookDeliveryEngine.EndpointStatus> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        WebhookDeliveryEngine.EndpointStatus status = status();
+        while (!condition.test(status) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = status();
+        }
+        assertTrue(condition.test(status), "endpoint status never reached the expected state");
+        return status;
+    }
+}
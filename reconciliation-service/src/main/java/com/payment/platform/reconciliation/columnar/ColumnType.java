@@ -0,0 +1,18 @@
+package com.payment.platform.reconciliation.columnar;
+
+/**
+ * Encodings of a column in a columnar file.
+ *
+ * - STRING: length-prefixed UTF-8 values, with min/max kept in the footer
+ * - DICTIONARY: distinct values in the footer, one small code per row; suited to statuses and types
+ * - TIMESTAMP: epoch milliseconds (UTC), delta-encoded between consecutive rows
+ * - DECIMAL: fixed-point amounts with two fraction digits, stored as minor units
+ *
+ * TIMESTAMP and DECIMAL keep min/max in the footer, so readers can skip whole files.
+ */
+public enum ColumnType {
+    STRING,
+    DICTIONARY,
+    TIMESTAMP,
+    DECIMAL
+}
@@ -0,0 +1,68 @@
+package com.payment.platform.reconciliation.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Shared constants and primitive encodings of the columnar file format.
+ *
+ * Layout: MAGIC, VERSION, one deflate-compressed block per column, footer, footer length, MAGIC.
+ * The footer holds the row count, metadata and, per column, its type, block position and stats.
+ */
+final class ColumnarEncoding {
+
+    static final byte[] MAGIC = {'R', 'C', 'O', 'L'};
+    static final byte VERSION = 1;
+    static final int AMOUNT_SCALE = 2;
+
+    private ColumnarEncoding() {}
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal toAmount(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, AMOUNT_SCALE);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,308 @@
+package com.payment.platform.reconciliation.columnar;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads columnar files written by ColumnarWriter.
+ *
+ * Opening a file reads only its footer: row count, metadata and per-column stats, which is
+ * enough to decide whether the file can match a predicate at all. Column blocks are read and
+ * decompressed one at a time, only for the columns a caller asks for.
+ *
+ * Numeric columns are returned as long arrays with NULL marking missing values; use
+ * toLocalDateTime and toAmount to convert them.
+ *
+ * Used by: LedgerArchiver, ReconciliationReportStore
+ */
+public class ColumnarReader implements AutoCloseable {
+
+    public static final long NULL = Long.MIN_VALUE;
+
+    private static final class ColumnInfo {
+        private ColumnType type;
+        private long offset;
+        private int length;
+        private int rawLength;
+        private boolean hasStats;
+        private long min;
+        private long max;
+        private String minString;
+        private String maxString;
+        private List<String> dictionary = Collections.emptyList();
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int rowCount;
+    private final Map<String, String> metadata = new LinkedHashMap<>();
+    private final Map<String, ColumnInfo> columns = new LinkedHashMap<>();
+
+    private ColumnarReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            int trailerLength = 4 + ColumnarEncoding.MAGIC.length;
+            if (size < ColumnarEncoding.MAGIC.length + 1 + trailerLength) {
+                throw new IOException("Not a columnar file: " + file);
+            }
+            ByteBuffer trailer = read(size - trailerLength, trailerLength);
+            int footerLength = trailer.getInt();
+            checkMagic(trailer);
+            checkMagic(read(0, ColumnarEncoding.MAGIC.length));
+
+            DataInputStream footer = new DataInputStream(new java.io.ByteArrayInputStream(
+                    read(size - trailerLength - footerLength, footerLength).array()));
+            rowCount = footer.readInt();
+            int metadataCount = footer.readInt();
+            for (int i = 0; i < metadataCount; i++) {
+                metadata.put(footer.readUTF(), footer.readUTF());
+            }
+            int columnCount = footer.readInt();
+            for (int i = 0; i < columnCount; i++) {
+                String name = footer.readUTF();
+                ColumnInfo info = new ColumnInfo();
+                info.type = ColumnType.values()[footer.readByte()];
+                info.offset = footer.readLong();
+                info.length = footer.readInt();
+                info.rawLength = footer.readInt();
+                switch (info.type) {
+                    case STRING -> {
+                        info.hasStats = footer.readBoolean();
+                        if (info.hasStats) {
+                            info.minString = footer.readUTF();
+                            info.maxString = footer.readUTF();
+                        }
+                    }
+                    case DICTIONARY -> {
+                        int dictionarySize = footer.readInt();
+                        List<String> values = new ArrayList<>(dictionarySize);
+                        for (int j = 0; j < dictionarySize; j++) {
+                            values.add(footer.readUTF());
+                        }
+                        info.dictionary = values;
+                        info.hasStats = true;
+                    }
+                    case TIMESTAMP, DECIMAL -> {
+                        info.hasStats = footer.readBoolean();
+                        if (info.hasStats) {
+                            info.min = footer.readLong();
+                            info.max = footer.readLong();
+                        }
+                    }
+                }
+                columns.put(name, info);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static ColumnarReader open(Path file) throws IOException {
+        return new ColumnarReader(file);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    public boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    /**
+     * Smallest non-null value of a TIMESTAMP or DECIMAL column, or NULL when it has none.
+     */
+    public long min(String name) {
+        ColumnInfo info = info(name);
+        return info.hasStats ? info.min : NULL;
+    }
+
+    public long max(String name) {
+        ColumnInfo info = info(name);
+        return info.hasStats ? info.max : NULL;
+    }
+
+    public String minString(String name) {
+        return info(name).minString;
+    }
+
+    public String maxString(String name) {
+        return info(name).maxString;
+    }
+
+    /**
+     * Distinct values of a DICTIONARY column, indexed by code.
+     */
+    public List<String> dictionary(String name) {
+        return info(name).dictionary;
+    }
+
+    /**
+     * Row codes of a DICTIONARY column; -1 for null.
+     */
+    public int[] readCodes(String name) throws IOException {
+        ColumnInfo info = expect(name, ColumnType.DICTIONARY);
+        ByteBuffer block = inflate(info);
+        int[] codes = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            codes[row] = (int) ColumnarEncoding.readVarLong(block) - 1;
+        }
+        return codes;
+    }
+
+    /**
+     * Values of a STRING or DICTIONARY column.
+     */
+    public String[] readStrings(String name) throws IOException {
+        ColumnInfo info = info(name);
+        String[] values = new String[rowCount];
+        if (info.type == ColumnType.DICTIONARY) {
+            int[] codes = readCodes(name);
+            for (int row = 0; row < rowCount; row++) {
+                values[row] = codes[row] < 0 ? null : info.dictionary.get(codes[row]);
+            }
+            return values;
+        }
+
+        expect(name, ColumnType.STRING);
+        ByteBuffer block = inflate(info);
+        for (int row = 0; row < rowCount; row++) {
+            int length = (int) ColumnarEncoding.readVarLong(block) - 1;
+            if (length >= 0) {
+                values[row] = new String(block.array(), block.position(), length, StandardCharsets.UTF_8);
+                block.position(block.position() + length);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Values of a TIMESTAMP (epoch millis, UTC) or DECIMAL (minor units) column; NULL for null.
+     */
+    public long[] readLongs(String name) throws IOException {
+        ColumnInfo info = info(name);
+        if (info.type != ColumnType.TIMESTAMP && info.type != ColumnType.DECIMAL) {
+            throw new IllegalArgumentException("Column " + name + " is " + info.type + " in " + file);
+        }
+        ByteBuffer block = inflate(info);
+        byte[] nullBits = new byte[(rowCount + 7) / 8];
+        block.get(nullBits);
+
+        boolean delta = info.type == ColumnType.TIMESTAMP;
+        long[] values = new long[rowCount];
+        long previous = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if ((nullBits[row >>> 3] & (1 << (row & 7))) != 0) {
+                values[row] = NULL;
+                continue;
+            }
+            long value = ColumnarEncoding.unZigZag(ColumnarEncoding.readVarLong(block));
+            values[row] = delta ? previous + value : value;
+            previous = values[row];
+        }
+        return values;
+    }
+
+    public static LocalDateTime toLocalDateTime(long millis) {
+        return millis == NULL ? null : ColumnarEncoding.toLocalDateTime(millis);
+    }
+
+    public static BigDecimal toAmount(long minorUnits) {
+        return minorUnits == NULL ? null : ColumnarEncoding.toAmount(minorUnits);
+    }
+
+    public static long toMillis(LocalDateTime time) {
+        return ColumnarEncoding.toMillis(time);
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return ColumnarEncoding.toMinorUnits(amount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ColumnInfo info(String name) {
+        ColumnInfo info = columns.get(name);
+        if (info == null) {
+            throw new IllegalArgumentException("No column " + name + " in " + file);
+        }
+        return info;
+    }
+
+    private ColumnInfo expect(String name, ColumnType type) {
+        ColumnInfo info = info(name);
+        if (info.type != type) {
+            throw new IllegalArgumentException("Column " + name + " is " + info.type + ", not " + type + " in " + file);
+        }
+        return info;
+    }
+
+    private ByteBuffer inflate(ColumnInfo info) throws IOException {
+        byte[] compressed = read(info.offset, info.length).array();
+        byte[] raw = new byte[info.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int filled = 0;
+            while (filled < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, filled, raw.length - filled);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                filled += n;
+            }
+            if (filled != raw.length) {
+                throw new IOException("Truncated column block in " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column block in " + file, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void checkMagic(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[ColumnarEncoding.MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, ColumnarEncoding.MAGIC)) {
+            throw new IOException("Not a columnar file: " + file);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.payment.platform.reconciliation.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Builds a columnar file in memory and writes it in one go.
+ *
+ * Columns are declared up front, rows are added with values in column order (String,
+ * LocalDateTime or BigDecimal, null allowed), and write() encodes and compresses each
+ * column separately so readers can load only the columns they need.
+ *
+ * Used by: LedgerArchiver, ReconciliationReportStore
+ */
+public class ColumnarWriter {
+
+    private final List<Column> columns = new ArrayList<>();
+    private final Map<String, String> metadata = new LinkedHashMap<>();
+    private int rowCount;
+
+    public ColumnarWriter column(String name, ColumnType type) {
+        if (rowCount > 0) {
+            throw new IllegalStateException("Columns must be declared before rows are added");
+        }
+        columns.add(new Column(name, type));
+        return this;
+    }
+
+    public ColumnarWriter metadata(String key, String value) {
+        if (value != null) {
+            metadata.put(key, value);
+        }
+        return this;
+    }
+
+    public void addRow(Object... values) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values, got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            columns.get(i).add(rowCount, values[i]);
+        }
+        rowCount++;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes the file next to the target and moves it into place, so readers never see a
+     * partial file.
+     */
+    public void write(Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.write(ColumnarEncoding.MAGIC);
+            out.writeByte(ColumnarEncoding.VERSION);
+            long position = ColumnarEncoding.MAGIC.length + 1;
+
+            List<long[]> blocks = new ArrayList<>(columns.size());
+            for (Column column : columns) {
+                byte[] raw = column.encode(rowCount);
+                byte[] compressed = deflate(raw);
+                out.write(compressed);
+                blocks.add(new long[] {position, compressed.length, raw.length});
+                position += compressed.length;
+            }
+
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(rowCount);
+            footer.writeInt(metadata.size());
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                footer.writeUTF(entry.getKey());
+                footer.writeUTF(entry.getValue());
+            }
+            footer.writeInt(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                footer.writeUTF(column.name);
+                footer.writeByte(column.type.ordinal());
+                footer.writeLong(blocks.get(i)[0]);
+                footer.writeInt((int) blocks.get(i)[1]);
+                footer.writeInt((int) blocks.get(i)[2]);
+                column.writeStats(footer);
+            }
+            footer.flush();
+
+            out.write(footerBytes.toByteArray());
+            out.writeInt(footerBytes.size());
+            out.write(ColumnarEncoding.MAGIC);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] deflate(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            out.write(raw);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Values of one column, kept in the shape they are encoded in.
+     */
+    private static final class Column {
+        private final String name;
+        private final ColumnType type;
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        private int[] codes = new int[0];
+        private long[] longs = new long[0];
+        private final BitSet nulls = new BitSet();
+        private String minString;
+        private String maxString;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        private Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        private void add(int row, Object value) {
+            switch (type) {
+                case STRING -> {
+                    String text = (String) value;
+                    strings.add(text);
+                    if (text != null) {
+                        if (minString == null || text.compareTo(minString) < 0) minString = text;
+                        if (maxString == null || text.compareTo(maxString) > 0) maxString = text;
+                    }
+                }
+                case DICTIONARY -> {
+                    if (row == codes.length) codes = Arrays.copyOf(codes, Math.max(16, row * 2));
+                    codes[row] = value == null ? -1 : dictionary.computeIfAbsent((String) value, k -> dictionary.size());
+                }
+                case TIMESTAMP, DECIMAL -> {
+                    if (row == longs.length) longs = Arrays.copyOf(longs, Math.max(16, row * 2));
+                    if (value == null) {
+                        nulls.set(row);
+                        return;
+                    }
+                    long number = type == ColumnType.TIMESTAMP
+                            ? ColumnarEncoding.toMillis((LocalDateTime) value)
+                            : ColumnarEncoding.toMinorUnits((BigDecimal) value);
+                    longs[row] = number;
+                    min = Math.min(min, number);
+                    max = Math.max(max, number);
+                }
+            }
+        }
+
+        private byte[] encode(int rows) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 4 + 16);
+            switch (type) {
+                case STRING -> {
+                    for (String text : strings) {
+                        if (text == null) {
+                            ColumnarEncoding.writeVarLong(out, 0);
+                        } else {
+                            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                            ColumnarEncoding.writeVarLong(out, bytes.length + 1L);
+                            out.write(bytes, 0, bytes.length);
+                        }
+                    }
+                }
+                case DICTIONARY -> {
+                    for (int row = 0; row < rows; row++) {
+                        ColumnarEncoding.writeVarLong(out, codes[row] + 1L);
+                    }
+                }
+                case TIMESTAMP, DECIMAL -> {
+                    byte[] nullBits = Arrays.copyOf(nulls.toByteArray(), (rows + 7) / 8);
+                    out.write(nullBits, 0, nullBits.length);
+                    // Timestamps are mostly ascending, so deltas stay small; amounts are stored as-is
+                    boolean delta = type == ColumnType.TIMESTAMP;
+                    long previous = 0;
+                    for (int row = 0; row < rows; row++) {
+                        if (!nulls.get(row)) {
+                            long value = longs[row];
+                            ColumnarEncoding.writeVarLong(out, ColumnarEncoding.zigZag(delta ? value - previous : value));
+                            previous = value;
+                        }
+                    }
+                }
+            }
+            return out.toByteArray();
+        }
+
+        private void writeStats(DataOutputStream footer) throws IOException {
+            switch (type) {
+                case STRING -> {
+                    footer.writeBoolean(minString != null);
+                    if (minString != null) {
+                        footer.writeUTF(minString);
+                        footer.writeUTF(maxString);
+                    }
+                }
+                case DICTIONARY -> {
+                    footer.writeInt(dictionary.size());
+                    for (String value : dictionary.keySet()) {
+                        footer.writeUTF(value);
+                    }
+                }
+                case TIMESTAMP, DECIMAL -> {
+                    footer.writeBoolean(min <= max);
+                    if (min <= max) {
+                        footer.writeLong(min);
+                        footer.writeLong(max);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,16 +1,34 @@
 package com.payment.platform.reconciliation.controller;
 
+import com.payment.platform.reconciliation.dto.MismatchHistoryResponse;
+import com.payment.platform.reconciliation.dto.ReconciliationJobStatus;
 import com.payment.platform.reconciliation.dto.ReconciliationRequest;
 import com.payment.platform.reconciliation.dto.ReconciliationResponse;
+import com.payment.platform.reconciliation.dto.ReconciliationRunSummary;
+import com.payment.platform.reconciliation.model.LedgerPartition;
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
 import com.payment.platform.reconciliation.model.ReconciliationResult;
+import com.payment.platform.reconciliation.report.MismatchQuery;
+import com.payment.platform.reconciliation.report.ReconciliationReportStore;
+import com.payment.platform.reconciliation.service.DateRangeReconciliationJobs;
+import com.payment.platform.reconciliation.service.LedgerArchiver;
+import com.payment.platform.reconciliation.service.ReconciliationCounters;
 import com.payment.platform.reconciliation.service.ReconciliationService;
+import com.payment.platform.reconciliation.settlementfile.SettlementFileFormat;
+import com.payment.platform.reconciliation.settlementfile.SettlementFileReconciler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
 /**
  * REST API controller for reconciliation operations.
  * 
@@ -18,7 +36,10 @@ import lombok.extern.slf4j.Slf4j;
  * - Manual reconciliation triggers
  * - Reconciliation reports and statistics
  * - Order-specific reconciliation
- * - Date range reconciliation
+ * - Date range reconciliation as background jobs with progress
+ * - External settlement file reconciliation
+ * - Archived ledger partitions
+ * - Stored run reports and mismatch history
  */
 @RestController
 @RequestMapping("/api/reconciliation")
@@ -28,6 +49,21 @@ public class ReconciliationController {
     @Autowired
     private ReconciliationService reconciliationService;
     
+    @Autowired
+    private ReconciliationCounters reconciliationCounters;
+    
+    @Autowired
+    private DateRangeReconciliationJobs dateRangeJobs;
+    
+    @Autowired
+    private SettlementFileReconciler settlementFileReconciler;
+    
+    @Autowired
+    private LedgerArchiver ledgerArchiver;
+    
+    @Autowired
+    private ReconciliationReportStore reportStore;
+    
     /**
      * Trigger full reconciliation of all pending transactions.
      */
@@ -65,7 +101,10 @@ public class ReconciliationController {
     }
     
     /**
-     * Trigger reconciliation for specific date range.
+     * Start a background reconciliation of a date range.
+     * 
+     * Returns 202 with the job id as reconciliationId; progress and partial results are read
+     * from /date-range/jobs/{jobId}.
      */
     @PostMapping("/date-range")
     public ResponseEntity<ReconciliationResponse> triggerDateRangeReconciliation(
@@ -75,30 +114,23 @@ public class ReconciliationController {
                 request.getStartDate(), request.getEndDate());
         
         try {
-            ReconciliationResult result = reconciliationService.performDateRangeReconciliation(
-                    request.getStartDate(), request.getEndDate());
-            
-            // ReconciliationResponse response = new ReconciliationResponse(
-            //             true,
-            //             result.getReconciliationId(),
-            //             result.getStatus(),
-            //             "Date range reconciliation completed successfully",
-            //             result.getStats(),
-            //             result.getMismatches()
-            //     );
-                      ReconciliationResponse response = new ReconciliationResponse(
+            ReconciliationJobStatus job = dateRangeJobs.start(request.getStartDate(), request.getEndDate());
+            
+            ReconciliationResponse response = new ReconciliationResponse(
                     true,
-                    result.getReconciliationId(),
-                    result.getStatus(),
-                    "Date range reconciliation completed successfully",
-                    result.getStats(),
-                    result.getMismatches(),
-                    result.getCorrelationId(),
+                    job.getJobId(),
+                    job.getStatus(),
+                    "Date range reconciliation started in " + job.getTotalSlices() + " slices",
+                    job.getStats(),
+                    job.getMismatches(),
+                    request.getCorrelationId(),
                     System.currentTimeMillis()
             );
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ReconciliationResponse(false, e.getMessage()));
         } catch (Exception e) {
             log.error("Date range reconciliation failed", e);
             
@@ -111,6 +143,19 @@ public class ReconciliationController {
         }
     }
     
+    /**
+     * Progress of a date range job, with the mismatches found so far from mismatchOffset on.
+     */
+    @GetMapping("/date-range/jobs/{jobId}")
+    public ResponseEntity<ReconciliationJobStatus> getDateRangeJob(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") int mismatchOffset,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return dateRangeJobs.getStatus(jobId, mismatchOffset, limit)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     /**
      * Trigger reconciliation for specific order.
      */
@@ -146,6 +191,122 @@ public class ReconciliationController {
         }
     }
     
+    /**
+     * Reconcile an external settlement file from the inbox directory against the ledger.
+     */
+    @PostMapping("/settlement-file")
+    public ResponseEntity<ReconciliationResponse> triggerSettlementFileReconciliation(
+            @RequestParam String fileName,
+            @RequestParam(defaultValue = "CSV") SettlementFileFormat format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        
+        log.info("Settlement file reconciliation triggered: file={}, format={}, businessDate={}",
+                fileName, format, businessDate);
+        
+        try {
+            ReconciliationResult result = settlementFileReconciler.reconcile(fileName, format, businessDate);
+            
+            ReconciliationResponse response = new ReconciliationResponse(
+                    true,
+                    result.getReconciliationId(),
+                    result.getStatus(),
+                    "Settlement file reconciliation completed successfully",
+                    result.getStats(),
+                    result.getMismatches(),
+                    result.getCorrelationId(),
+                    System.currentTimeMillis()
+            );
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            log.warn("Settlement file reconciliation rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ReconciliationResponse(false, e.getMessage()));
+            
+        } catch (Exception e) {
+            log.error("Settlement file reconciliation failed for file: {}", fileName, e);
+            
+            ReconciliationResponse response = new ReconciliationResponse(
+                    false,
+                    "Reconciliation failed: " + e.getMessage()
+            );
+            
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * Archived creation-day partitions of the ledger within a date range.
+     */
+    @GetMapping("/ledger/partitions")
+    public ResponseEntity<List<LedgerPartition>> getArchivedPartitions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ledgerArchiver.getPartitions(from, to));
+    }
+    
+    /**
+     * Entries of one archived ledger partition, read back from the cold archive.
+     */
+    @GetMapping("/ledger/partitions/{day}")
+    public ResponseEntity<List<PaymentLedgerEntry>> getArchivedEntries(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        try {
+            return ResponseEntity.ok(ledgerArchiver.readPartition(day));
+        } catch (Exception e) {
+            log.error("Failed to read archived ledger partition {}", day, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Stored reconciliation runs, newest first (default: the last 30 days).
+     */
+    @GetMapping("/reports")
+    public ResponseEntity<List<ReconciliationRunSummary>> getReports(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(30);
+        try {
+            return ResponseEntity.ok(reportStore.listRuns(start, end));
+        } catch (Exception e) {
+            log.error("Failed to list reconciliation reports from {} to {}", start, end, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Mismatches across stored reports, filtered by type, severity, run type, payment and
+     * minimum expected amount (default range: the last 30 days).
+     */
+    @GetMapping("/reports/mismatches")
+    public ResponseEntity<MismatchHistoryResponse> getMismatchHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String mismatchType,
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) String runType,
+            @RequestParam(required = false) String paymentId,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(defaultValue = "100") int limit) {
+        MismatchQuery query = new MismatchQuery();
+        query.setTo(to != null ? to : LocalDate.now());
+        query.setFrom(from != null ? from : query.getTo().minusDays(30));
+        query.setMismatchType(mismatchType);
+        query.setSeverity(severity);
+        query.setRunType(runType);
+        query.setPaymentId(paymentId);
+        query.setMinAmount(minAmount);
+        query.setLimit(limit);
+        try {
+            return ResponseEntity.ok(reportStore.queryMismatches(query));
+        } catch (Exception e) {
+            log.error("Failed to query mismatch history from {} to {}", query.getFrom(), query.getTo(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     /**
      * Get reconciliation statistics.
      */
@@ -163,6 +324,15 @@ public class ReconciliationController {
         }
     }
     
+    /**
+     * Ledger counts per reconciliation status, payment status and mismatch type.
+     * Served from in-memory counters, so it is cheap enough to poll.
+     */
+    @GetMapping("/stats/breakdown")
+    public ResponseEntity<Map<String, Object>> getReconciliationStatsBreakdown() {
+        return ResponseEntity.ok(reconciliationCounters.snapshot());
+    }
+    
     /**
      * Health check endpoint.
      */
@@ -0,0 +1,82 @@
+package com.payment.platform.reconciliation.dto;
+
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DTO for mismatch history queries over stored reconciliation reports.
+ * 
+ * Contains:
+ * - Matching mismatches, newest run first, up to the requested limit
+ * - Match counts per mismatch type and severity over all matches (not limited)
+ * - How many report files were scanned and how many were skipped from their footer alone
+ */
+public class MismatchHistoryResponse {
+    
+    private int filesScanned;
+    private int filesSkipped;
+    private long rowsScanned;
+    private long totalMatches;
+    private boolean truncated;
+    private Map<String, Long> countsByMismatchType = new TreeMap<>();
+    private Map<String, Long> countsBySeverity = new TreeMap<>();
+    private List<HistoricalMismatch> mismatches = new ArrayList<>();
+    
+    // Default constructor
+    public MismatchHistoryResponse() {}
+    
+    // Getters and Setters
+    public int getFilesScanned() { return filesScanned; }
+    public void setFilesScanned(int filesScanned) { this.filesScanned = filesScanned; }
+    
+    public int getFilesSkipped() { return filesSkipped; }
+    public void setFilesSkipped(int filesSkipped) { this.filesSkipped = filesSkipped; }
+    
+    public long getRowsScanned() { return rowsScanned; }
+    public void setRowsScanned(long rowsScanned) { this.rowsScanned = rowsScanned; }
+    
+    public long getTotalMatches() { return totalMatches; }
+    public void setTotalMatches(long totalMatches) { this.totalMatches = totalMatches; }
+    
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+    
+    public Map<String, Long> getCountsByMismatchType() { return countsByMismatchType; }
+    public void setCountsByMismatchType(Map<String, Long> countsByMismatchType) { this.countsByMismatchType = countsByMismatchType; }
+    
+    public Map<String, Long> getCountsBySeverity() { return countsBySeverity; }
+    public void setCountsBySeverity(Map<String, Long> countsBySeverity) { this.countsBySeverity = countsBySeverity; }
+    
+    public List<HistoricalMismatch> getMismatches() { return mismatches; }
+    public void setMismatches(List<HistoricalMismatch> mismatches) { this.mismatches = mismatches; }
+    
+    /**
+     * A stored mismatch together with the run that reported it.
+     */
+    public static class HistoricalMismatch {
+        private String reconciliationId;
+        private String runType;
+        private ReconciliationResult.ReconciliationMismatch mismatch;
+        
+        public HistoricalMismatch() {}
+        
+        public HistoricalMismatch(String reconciliationId, String runType,
+                                  ReconciliationResult.ReconciliationMismatch mismatch) {
+            this.reconciliationId = reconciliationId;
+            this.runType = runType;
+            this.mismatch = mismatch;
+        }
+        
+        public String getReconciliationId() { return reconciliationId; }
+        public void setReconciliationId(String reconciliationId) { this.reconciliationId = reconciliationId; }
+        
+        public String getRunType() { return runType; }
+        public void setRunType(String runType) { this.runType = runType; }
+        
+        public ReconciliationResult.ReconciliationMismatch getMismatch() { return mismatch; }
+        public void setMismatch(ReconciliationResult.ReconciliationMismatch mismatch) { this.mismatch = mismatch; }
+    }
+}
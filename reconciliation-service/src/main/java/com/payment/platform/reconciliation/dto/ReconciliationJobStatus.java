@@ -0,0 +1,76 @@
+package com.payment.platform.reconciliation.dto;
+
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for the progress of a background date range reconciliation.
+ *
+ * While the job runs, stats and mismatches cover the slices finished so far. Mismatches are
+ * returned from mismatchOffset on, so a client polling with the previous totalMismatches
+ * receives each mismatch once.
+ */
+public class ReconciliationJobStatus {
+
+    private String jobId;
+    private String status; // RUNNING, then COMPLETED, PARTIAL or FAILED
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+    private int totalSlices;
+    private int completedSlices;
+    private int failedSlices;
+    private String error;
+    private ReconciliationResult.ReconciliationStats stats;
+    private int totalMismatches;
+    private int mismatchOffset;
+    private List<ReconciliationResult.ReconciliationMismatch> mismatches;
+
+    // Default constructor
+    public ReconciliationJobStatus() {}
+
+    // Getters and Setters
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getStartDate() { return startDate; }
+    public void setStartDate(LocalDateTime startDate) { this.startDate = startDate; }
+
+    public LocalDateTime getEndDate() { return endDate; }
+    public void setEndDate(LocalDateTime endDate) { this.endDate = endDate; }
+
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public int getTotalSlices() { return totalSlices; }
+    public void setTotalSlices(int totalSlices) { this.totalSlices = totalSlices; }
+
+    public int getCompletedSlices() { return completedSlices; }
+    public void setCompletedSlices(int completedSlices) { this.completedSlices = completedSlices; }
+
+    public int getFailedSlices() { return failedSlices; }
+    public void setFailedSlices(int failedSlices) { this.failedSlices = failedSlices; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public ReconciliationResult.ReconciliationStats getStats() { return stats; }
+    public void setStats(ReconciliationResult.ReconciliationStats stats) { this.stats = stats; }
+
+    public int getTotalMismatches() { return totalMismatches; }
+    public void setTotalMismatches(int totalMismatches) { this.totalMismatches = totalMismatches; }
+
+    public int getMismatchOffset() { return mismatchOffset; }
+    public void setMismatchOffset(int mismatchOffset) { this.mismatchOffset = mismatchOffset; }
+
+    public List<ReconciliationResult.ReconciliationMismatch> getMismatches() { return mismatches; }
+    public void setMismatches(List<ReconciliationResult.ReconciliationMismatch> mismatches) { this.mismatches = mismatches; }
+}
@@ -0,0 +1,43 @@
+package com.payment.platform.reconciliation.dto;
+
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one stored reconciliation run, read from the report file footer only.
+ */
+public class ReconciliationRunSummary {
+    
+    private String reconciliationId;
+    private String runType; // FULL, SWEEP, DATE_RANGE, ORDER, SETTLEMENT_FILE
+    private LocalDateTime reconciliationDate;
+    private String status;
+    private String correlationId;
+    private int mismatchCount;
+    private ReconciliationResult.ReconciliationStats stats;
+    
+    // Default constructor
+    public ReconciliationRunSummary() {}
+    
+    // Getters and Setters
+    public String getReconciliationId() { return reconciliationId; }
+    public void setReconciliationId(String reconciliationId) { this.reconciliationId = reconciliationId; }
+    
+    public String getRunType() { return runType; }
+    public void setRunType(String runType) { this.runType = runType; }
+    
+    public LocalDateTime getReconciliationDate() { return reconciliationDate; }
+    public void setReconciliationDate(LocalDateTime reconciliationDate) { this.reconciliationDate = reconciliationDate; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getCorrelationId() { return correlationId; }
+    public void setCorrelationId(String correlationId) { this.correlationId = correlationId; }
+    
+    public int getMismatchCount() { return mismatchCount; }
+    public void setMismatchCount(int mismatchCount) { this.mismatchCount = mismatchCount; }
+    
+    public ReconciliationResult.ReconciliationStats getStats() { return stats; }
+    public void setStats(ReconciliationResult.ReconciliationStats stats) { this.stats = stats; }
+}
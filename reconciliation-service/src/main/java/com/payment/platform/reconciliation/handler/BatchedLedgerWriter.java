@@ -0,0 +1,293 @@
+package com.payment.platform.reconciliation.handler;
+
+import com.payment.platform.core.events.PaymentEvent;
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.repository.PaymentLedgerRowMapper;
+import com.payment.platform.reconciliation.service.LedgerArchiver;
+import com.payment.platform.reconciliation.service.ReconciliationCounters;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.messaging.unitofwork.BatchingUnitOfWork;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write-behind ledger access for ReconciliationEventHandler.
+ *
+ * Ledger entries touched by a unit of work are collected in one batch:
+ * - The first lookup loads the entries of every payment in the unit of work's event batch
+ *   with one IN query, so events after the first one need no read
+ * - Handlers change the in-memory entry; several events for the same paymentId merge into it
+ * - When the unit of work prepares to commit, new entries are inserted and changed ones
+ *   updated in two JDBC batches, and each is reported once to ReconciliationCounters; the
+ *   writer fills in the derived columns (updated_at, partition_bucket, created_day) itself
+ * - Updates only apply to the row_version that was read. Another writer (the pending-event
+ *   release, another node, the reconciliation job) that changed the row in between makes the
+ *   write fail with OptimisticLockingFailureException, which rolls the unit of work back so
+ *   its events are handled again against the current row
+ *
+ * Payments missing from payment_ledger are checked against LedgerArchiver's index in the same
+ * read, so a replayed event for an archived payment can be recognised and skipped.
+ *
+ * Entries are plain objects, not JPA-managed, so Hibernate never writes them a second time.
+ * Code that runs outside an Axon unit of work (the pending-event release) wraps its work in
+ * runInBatch.
+ *
+ * Used by: ReconciliationEventHandler
+ */
+@Component
+@Slf4j
+public class BatchedLedgerWriter {
+
+    private static final String RESOURCE_KEY = BatchedLedgerWriter.class.getName();
+
+    private static final int MAX_IN_LIST = 500;
+
+    private static final String SELECT_SQL = "SELECT " + PaymentLedgerRowMapper.COLUMNS + " FROM payment_ledger WHERE payment_id IN ";
+
+    private static final String INSERT_SQL = "INSERT INTO payment_ledger (" + PaymentLedgerRowMapper.COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String UPDATE_SQL = "UPDATE payment_ledger SET order_id = ?, payment_status = ?, " +
+            "settlement_id = ?, settlement_date = ?, amount = ?, authorization_code = ?, risk_score = ?, " +
+            "rejection_reason = ?, created_at = ?, updated_at = ?, reconciliation_status = ?, mismatch_type = ?, " +
+            "last_reconciled_at = ?, correlation_id = ?, partition_bucket = ?, created_day = ?, currency = ?, " +
+            "row_version = COALESCE(row_version, 0) + 1 " +
+            "WHERE payment_id = ? AND COALESCE(row_version, 0) = ?";
+
+    /**
+     * Entries read and changed by one unit of work.
+     */
+    private static final class Batch {
+        private final Set<String> prefetch;
+        private final Set<String> loaded = new HashSet<>();
+        private final Map<String, PaymentLedgerEntry> entries = new HashMap<>();
+        private final Map<String, ReconciliationCounters.State> before = new HashMap<>();
+        private final Map<String, Long> versions = new HashMap<>();
+        private final Set<String> archived = new HashSet<>();
+        private final Set<String> dirty = new LinkedHashSet<>();
+        private int events;
+
+        private Batch(Set<String> prefetch) {
+            this.prefetch = prefetch;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReconciliationCounters reconciliationCounters;
+
+    @Autowired
+    private LedgerArchiver ledgerArchiver;
+
+    private final ThreadLocal<Batch> standalone = new ThreadLocal<>();
+
+    /**
+     * The batch's copy of a ledger entry, or null when the payment has no entry yet.
+     */
+    public PaymentLedgerEntry find(String paymentId) {
+        Batch batch = currentBatch();
+        batch.events++;
+        if (!batch.loaded.contains(paymentId)) {
+            Set<String> ids = new LinkedHashSet<>();
+            ids.add(paymentId);
+            for (String id : batch.prefetch) {
+                if (!batch.loaded.contains(id)) {
+                    ids.add(id);
+                }
+            }
+            load(batch, ids);
+        }
+        return batch.entries.get(paymentId);
+    }
+
+    /**
+     * Whether a payment that find returned null for has been moved to the ledger archive.
+     * Archived entries are closed, so events for them (replays) must not recreate the entry.
+     */
+    public boolean isArchived(String paymentId) {
+        return currentBatch().archived.contains(paymentId);
+    }
+
+    /**
+     * Adds a new entry to the batch, replacing any existing entry for the same payment.
+     */
+    public void put(PaymentLedgerEntry entry) {
+        find(entry.getPaymentId());
+        Batch batch = currentBatch();
+        batch.entries.put(entry.getPaymentId(), entry);
+        batch.dirty.add(entry.getPaymentId());
+    }
+
+    /**
+     * Marks an entry returned by find as changed.
+     */
+    public void update(PaymentLedgerEntry entry) {
+        currentBatch().dirty.add(entry.getPaymentId());
+    }
+
+    /**
+     * Runs ledger work outside an Axon unit of work as one batch, written when the work returns.
+     * Call it inside the transaction that should contain the write.
+     */
+    public void runInBatch(Runnable work) {
+        if (standalone.get() != null || CurrentUnitOfWork.isStarted()) {
+            work.run();
+            return;
+        }
+        Batch batch = new Batch(Collections.emptySet());
+        standalone.set(batch);
+        try {
+            work.run();
+            flush(batch);
+        } finally {
+            standalone.remove();
+        }
+    }
+
+    private Batch currentBatch() {
+        Batch batch = standalone.get();
+        if (batch != null) {
+            return batch;
+        }
+        UnitOfWork<?> unitOfWork = currentUnitOfWork();
+        return unitOfWork.getOrComputeResource(RESOURCE_KEY, key -> {
+            Batch created = new Batch(paymentIdsOf(unitOfWork));
+            unitOfWork.onPrepareCommit(committing -> flush(created));
+            return created;
+        });
+    }
+
+    private static UnitOfWork<?> currentUnitOfWork() {
+        if (!CurrentUnitOfWork.isStarted()) {
+            throw new IllegalStateException("Ledger writes need a unit of work or BatchedLedgerWriter.runInBatch");
+        }
+        return CurrentUnitOfWork.get();
+    }
+
+    // Every paymentId in a batching unit of work, so the whole batch is read with one query
+    private static Set<String> paymentIdsOf(UnitOfWork<?> unitOfWork) {
+        if (!(unitOfWork instanceof BatchingUnitOfWork<?> batching)) {
+            return Collections.emptySet();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (Object message : batching.getMessages()) {
+            if (message instanceof EventMessage<?> event && event.getPayload() instanceof PaymentEvent payment
+                    && payment.getPaymentId() != null) {
+                ids.add(payment.getPaymentId());
+            }
+        }
+        return ids;
+    }
+
+    private void load(Batch batch, Set<String> paymentIds) {
+        List<String> ids = new ArrayList<>(paymentIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            List<String> slice = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+            String sql = SELECT_SQL + "(" + String.join(", ", Collections.nCopies(slice.size(), "?")) + ")";
+            for (PaymentLedgerEntry entry : jdbcTemplate.query(sql, PaymentLedgerRowMapper.INSTANCE, slice.toArray())) {
+                batch.entries.put(entry.getPaymentId(), entry);
+                batch.before.put(entry.getPaymentId(), ReconciliationCounters.State.of(entry));
+                batch.versions.put(entry.getPaymentId(), entry.getRowVersion());
+            }
+        }
+        batch.loaded.addAll(ids);
+
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            if (!batch.entries.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        batch.archived.addAll(ledgerArchiver.archivedPaymentIds(missing));
+    }
+
+    private void flush(Batch batch) {
+        if (batch.dirty.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        for (String paymentId : batch.dirty) {
+            PaymentLedgerEntry entry = batch.entries.get(paymentId);
+            if (entry.getCreatedAt() == null) {
+                entry.setCreatedAt(now);
+            }
+            if (entry.getReconciliationStatus() == null) {
+                entry.setReconciliationStatus("PENDING");
+            }
+            entry.setUpdatedAt(now);
+            Object[] values = {
+                    entry.getOrderId(), entry.getPaymentStatus(), entry.getSettlementId(),
+                    entry.getSettlementDate(), entry.getAmount(), entry.getAuthorizationCode(), entry.getRiskScore(),
+                    entry.getRejectionReason(), entry.getCreatedAt(), entry.getUpdatedAt(),
+                    entry.getReconciliationStatus(), entry.getMismatchType(), entry.getLastReconciledAt(),
+                    entry.getCorrelationId(), PaymentLedgerEntry.partitionBucketOf(entry.getPaymentId()),
+                    entry.getCreatedAt().toLocalDate(), entry.getCurrency()
+            };
+            if (batch.versions.containsKey(paymentId)) {
+                updates.add(append(values, paymentId, batch.versions.get(paymentId)));
+                updated.add(paymentId);
+            } else {
+                inserts.add(prepend(paymentId, values));
+            }
+        }
+        // A row inserted meanwhile by another writer fails on the primary key
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new OptimisticLockingFailureException("Ledger entry " + updated.get(i)
+                        + " was changed or removed by another writer since it was read");
+            }
+        }
+
+        for (String paymentId : batch.dirty) {
+            reconciliationCounters.onChange(batch.before.get(paymentId),
+                    ReconciliationCounters.State.of(batch.entries.get(paymentId)));
+        }
+        for (String paymentId : batch.dirty) {
+            long written = batch.versions.containsKey(paymentId) ? batch.versions.get(paymentId) + 1 : 0L;
+            batch.versions.put(paymentId, written);
+            batch.entries.get(paymentId).setRowVersion(written);
+        }
+        log.debug("Wrote {} new and {} changed ledger entries for {} events in one batch",
+                inserts.size(), updates.size(), batch.events);
+        batch.dirty.clear();
+    }
+
+    private static Object[] prepend(Object first, Object[] values) {
+        Object[] row = new Object[values.length + 1];
+        row[0] = first;
+        System.arraycopy(values, 0, row, 1, values.length);
+        return row;
+    }
+
+    private static Object[] append(Object[] values, Object... more) {
+        Object[] row = Arrays.copyOf(values, values.length + more.length);
+        System.arraycopy(more, 0, row, values.length, more.length);
+        return row;
+    }
+}
@@ -0,0 +1,147 @@
+package com.payment.platform.reconciliation.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.events.PaymentEvent;
+import com.payment.platform.core.events.PaymentRejectedEvent;
+import com.payment.platform.core.events.PaymentSettledEvent;
+import com.payment.platform.reconciliation.model.ParkedLedgerEvent;
+import com.payment.platform.reconciliation.repository.ParkedLedgerEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parks ledger events that arrive before their payment's PaymentInitiatedEvent.
+ *
+ * With several segments or nodes, an authorization, rejection or settlement can be processed
+ * before the ledger entry exists. Instead of dropping it, the event is written to the
+ * parked_ledger_events table in the handler's own transaction, so it is committed together
+ * with the tracking token and survives a restart.
+ *
+ * Parked events are handed back in lifecycle order (authorization before rejection or
+ * settlement) when the entry is created, or by the periodic release in
+ * ReconciliationEventHandler. The parking table is shared, so an entry created on another
+ * node still picks up events parked here. Events whose entry has not appeared after
+ * reconciliation.pending.max-age-hours are expired by the same periodic sweep.
+ *
+ * Used by: ReconciliationEventHandler
+ */
+@Component
+@Slf4j
+public class PendingLedgerEventBuffer {
+
+    private static final Map<String, Class<? extends PaymentEvent>> EVENT_TYPES = Map.of(
+            PaymentAuthorizedEvent.class.getSimpleName(), PaymentAuthorizedEvent.class,
+            PaymentRejectedEvent.class.getSimpleName(), PaymentRejectedEvent.class,
+            PaymentSettledEvent.class.getSimpleName(), PaymentSettledEvent.class);
+
+    // Authorization first; rejection and settlement both end the lifecycle
+    private static final Comparator<PaymentEvent> LIFECYCLE_ORDER = Comparator
+            .comparingInt(PendingLedgerEventBuffer::lifecycleRank)
+            .thenComparing(PaymentEvent::getTimestamp, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @Autowired
+    private ParkedLedgerEventRepository parkedLedgerEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${reconciliation.batch.size:100}")
+    private int batchSize;
+
+    @Value("${reconciliation.pending.max-age-hours:72}")
+    private long maxAgeHours;
+
+    /**
+     * Parks an event whose ledger entry does not exist yet. Must run in the transaction of the
+     * unit of work that handles the event.
+     */
+    public void park(PaymentEvent event) {
+        parkedLedgerEventRepository.save(new ParkedLedgerEvent(event.getPaymentId(),
+                event.getClass().getSimpleName(), toJson(event), LocalDateTime.now()));
+    }
+
+    /**
+     * Removes and returns the parked events of a payment in lifecycle order. Must run in the
+     * transaction that applies them, so a failure leaves them parked.
+     */
+    public List<PaymentEvent> takeParked(String paymentId) {
+        List<ParkedLedgerEvent> rows = parkedLedgerEventRepository.findByPaymentIdOrderByIdAsc(paymentId);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<PaymentEvent> events = new ArrayList<>(rows.size());
+        for (ParkedLedgerEvent row : rows) {
+            events.add(fromRow(row));
+        }
+        // By id, so rows parked meanwhile by another node are left for the next release
+        parkedLedgerEventRepository.deleteAllInBatch(rows);
+        events.sort(LIFECYCLE_ORDER);
+        return events;
+    }
+
+    /**
+     * Payments with parked events whose ledger entry now exists.
+     */
+    public List<String> dueForRelease() {
+        return parkedLedgerEventRepository.findPaymentIdsWithLedgerEntry(PageRequest.of(0, batchSize));
+    }
+
+    /**
+     * Deletes up to one batch of parked events older than the maximum age whose ledger entry
+     * still does not exist, logging each one so the lost event can be followed up.
+     */
+    public int expireParked() {
+        List<ParkedLedgerEvent> expired = parkedLedgerEventRepository.findExpired(
+                LocalDateTime.now().minusHours(maxAgeHours), PageRequest.of(0, batchSize));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        for (ParkedLedgerEvent row : expired) {
+            log.warn("Expiring parked {} for payment {} parked at {}, no PaymentInitiatedEvent arrived: {}",
+                    row.getEventType(), row.getPaymentId(), row.getParkedAt(), row.getPayload());
+        }
+        parkedLedgerEventRepository.deleteAllInBatch(expired);
+        return expired.size();
+    }
+
+    public long getParkedCount() {
+        return parkedLedgerEventRepository.count();
+    }
+
+    private String toJson(PaymentEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.getClass().getSimpleName(), e);
+        }
+    }
+
+    private PaymentEvent fromRow(ParkedLedgerEvent row) {
+        Class<? extends PaymentEvent> type = EVENT_TYPES.get(row.getEventType());
+        if (type == null) {
+            throw new IllegalStateException("Unknown parked event type: " + row.getEventType());
+        }
+        try {
+            return objectMapper.readValue(row.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read parked " + row.getEventType() + " " + row.getId(), e);
+        }
+    }
+
+    private static int lifecycleRank(PaymentEvent event) {
+        return event instanceof PaymentAuthorizedEvent ? 0 : 1;
+    }
+}
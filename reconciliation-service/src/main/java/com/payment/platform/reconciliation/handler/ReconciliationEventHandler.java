@@ -2,17 +2,26 @@ package com.payment.platform.reconciliation.handler;
 
 import com.payment.platform.core.events.*;
 import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
 import com.payment.platform.reconciliation.repository.PaymentLedgerRepository;
+import com.payment.platform.reconciliation.service.LedgerEntryAnalyzer;
+import com.payment.platform.reconciliation.service.StuckAuthorizationWatchdog;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -23,6 +32,14 @@ import java.util.UUID;
  * - Updates the payment ledger with current payment state
  * - Ensures data consistency for reconciliation operations
  * - Provides audit trail for payment lifecycle
+ * - Reconciles each entry as it changes when reconciliation.continuous.enabled=true,
+ *   so mismatches are flagged within seconds instead of at the nightly run
+ * - Starts and cancels the StuckAuthorizationWatchdog clock for authorized payments
+ * - Reads and writes the ledger through BatchedLedgerWriter: one read and one MERGE batch per
+ *   unit of work, with all events for the same payment merged into one row write
+ * - Parks authorization, rejection and settlement events that arrive before the payment's
+ *   PaymentInitiatedEvent through PendingLedgerEventBuffer, in the same transaction as the
+ *   tracking token, and applies them, in lifecycle order, once the entry exists
  */
 @Component
 @ProcessingGroup("reconciliation-group")
@@ -32,21 +49,55 @@ public class ReconciliationEventHandler {
     @Autowired
     private PaymentLedgerRepository paymentLedgerRepository;
     
+    @Autowired
+    private LedgerEntryAnalyzer ledgerEntryAnalyzer;
+    
+    @Autowired
+    private StuckAuthorizationWatchdog stuckAuthorizationWatchdog;
+    
+    @Autowired
+    private BatchedLedgerWriter ledgerWriter;
+    
+    @Autowired
+    private PendingLedgerEventBuffer pendingLedgerEvents;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${reconciliation.continuous.enabled:true}")
+    private boolean continuousReconciliation;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
     @EventHandler
     public void on(PaymentInitiatedEvent event) {
         log.info("Processing PaymentInitiatedEvent for ledger: paymentId={}, orderId={}", 
                 event.getPaymentId(), event.getOrderId());
         
+        if (isArchivedReplay(event)) {
+            return;
+        }
+        
         PaymentLedgerEntry entry = new PaymentLedgerEntry();
         entry.setPaymentId(event.getPaymentId());
         entry.setOrderId(event.getOrderId());
         entry.setPaymentStatus("INITIATED");
         entry.setAmount(new BigDecimal(event.getAmount()));
+        entry.setCurrency(event.getCurrency());
         entry.setCreatedAt(event.getTimestamp());
         entry.setCorrelationId(UUID.randomUUID().toString());
+        reconcile(entry);
         
-        paymentLedgerRepository.save(entry);
+        // A replayed event overwrites the existing entry rather than adding one
+        ledgerWriter.put(entry);
         log.info("Payment ledger entry created for initiated payment: {}", event.getPaymentId());
+        
+        applyPendingEvents(event.getPaymentId());
     }
     
     @EventHandler
@@ -54,19 +105,13 @@ public class ReconciliationEventHandler {
         log.info("Processing PaymentAuthorizedEvent for ledger: paymentId={}, authCode={}", 
                 event.getPaymentId(), event.getAuthorizationCode());
         
-        Optional<PaymentLedgerEntry> existingEntry = paymentLedgerRepository.findById(event.getPaymentId());
+        PaymentLedgerEntry existingEntry = ledgerWriter.find(event.getPaymentId());
         
-        if (existingEntry.isPresent()) {
-            PaymentLedgerEntry entry = existingEntry.get();
-            entry.setPaymentStatus("AUTHORIZED");
-            entry.setAuthorizationCode(event.getAuthorizationCode());
-            entry.setRiskScore(event.getRiskScore());
-            entry.setAmount(new BigDecimal(event.getAmount()));
-            
-            paymentLedgerRepository.save(entry);
-            log.info("Payment ledger updated for authorized payment: {}", event.getPaymentId());
-        } else {
-            log.warn("Payment ledger entry not found for authorized payment: {}", event.getPaymentId());
+        if (existingEntry != null) {
+            apply(existingEntry, event);
+        } else if (!isArchivedReplay(event)) {
+            log.info("Payment ledger entry not found yet, parking authorized event: {}", event.getPaymentId());
+            pendingLedgerEvents.park(event);
         }
     }
     
@@ -75,17 +120,14 @@ public class ReconciliationEventHandler {
         log.info("Processing PaymentRejectedEvent for ledger: paymentId={}, reason={}", 
                 event.getPaymentId(), event.getRejectionReason());
         
-        Optional<PaymentLedgerEntry> existingEntry = paymentLedgerRepository.findById(event.getPaymentId());
-        
-        if (existingEntry.isPresent()) {
-            PaymentLedgerEntry entry = existingEntry.get();
-            entry.setPaymentStatus("REJECTED");
-            entry.setRejectionReason(event.getRejectionReason());
-            
-            paymentLedgerRepository.save(entry);
-            log.info("Payment ledger updated for rejected payment: {}", event.getPaymentId());
-        } else {
-            log.warn("Payment ledger entry not found for rejected payment: {}", event.getPaymentId());
+        stuckAuthorizationWatchdog.cancel(event.getPaymentId());
+        PaymentLedgerEntry existingEntry = ledgerWriter.find(event.getPaymentId());
+        
+        if (existingEntry != null) {
+            apply(existingEntry, event);
+        } else if (!isArchivedReplay(event)) {
+            log.info("Payment ledger entry not found yet, parking rejected event: {}", event.getPaymentId());
+            pendingLedgerEvents.park(event);
         }
     }
     
@@ -94,18 +136,133 @@ public class ReconciliationEventHandler {
         log.info("Processing PaymentSettledEvent for ledger: paymentId={}, settlementId={}", 
                 event.getPaymentId(), event.getSettlementId());
         
-        Optional<PaymentLedgerEntry> existingEntry = paymentLedgerRepository.findById(event.getPaymentId());
-        
-        if (existingEntry.isPresent()) {
-            PaymentLedgerEntry entry = existingEntry.get();
-            entry.setPaymentStatus("SETTLED");
-            entry.setSettlementId(event.getSettlementId());
-            entry.setSettlementDate(event.getSettlementDate());
-            
-            paymentLedgerRepository.save(entry);
-            log.info("Payment ledger updated for settled payment: {}", event.getPaymentId());
-        } else {
-            log.warn("Payment ledger entry not found for settled payment: {}", event.getPaymentId());
+        stuckAuthorizationWatchdog.cancel(event.getPaymentId());
+        PaymentLedgerEntry existingEntry = ledgerWriter.find(event.getPaymentId());
+        
+        if (existingEntry != null) {
+            apply(existingEntry, event);
+        } else if (!isArchivedReplay(event)) {
+            log.info("Payment ledger entry not found yet, parking settled event: {}", event.getPaymentId());
+            pendingLedgerEvents.park(event);
+        }
+    }
+    
+    /**
+     * Applies parked events whose ledger entry was created since, e.g. on another node.
+     * Runs beside the tracking processor; the ledger writer's version check makes whichever
+     * of the two writes second roll back, and its events are applied again on the next try.
+     * Then expires parked events whose entry never appeared.
+     */
+    @Scheduled(fixedDelayString = "${reconciliation.pending.sweep-ms:5000}")
+    public void releasePendingEvents() {
+        for (String paymentId : pendingLedgerEvents.dueForRelease()) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        ledgerWriter.runInBatch(() -> applyPendingEvents(paymentId)));
+            } catch (Exception e) {
+                log.error("Failed to release parked ledger events for payment: {}", paymentId, e);
+            }
+        }
+        try {
+            pendingLedgerEvents.expireParked();
+        } catch (Exception e) {
+            log.error("Failed to expire parked ledger events", e);
+        }
+    }
+    
+    private void applyPendingEvents(String paymentId) {
+        List<PaymentEvent> pending = pendingLedgerEvents.takeParked(paymentId);
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        log.info("Applying {} parked ledger events for payment: {}", pending.size(), paymentId);
+        PaymentLedgerEntry entry = ledgerWriter.find(paymentId);
+        if (entry == null) {
+            throw new IllegalStateException("Payment ledger entry not found: " + paymentId);
+        }
+        for (PaymentEvent event : pending) {
+            if (event instanceof PaymentAuthorizedEvent authorized) {
+                apply(entry, authorized);
+            } else if (event instanceof PaymentRejectedEvent rejected) {
+                stuckAuthorizationWatchdog.cancel(paymentId);
+                apply(entry, rejected);
+            } else if (event instanceof PaymentSettledEvent settled) {
+                stuckAuthorizationWatchdog.cancel(paymentId);
+                apply(entry, settled);
+            }
+        }
+    }
+    
+    // Archived entries are closed; recreating one would count the payment in both the hot table and the archive
+    private boolean isArchivedReplay(PaymentEvent event) {
+        if (ledgerWriter.find(event.getPaymentId()) != null || !ledgerWriter.isArchived(event.getPaymentId())) {
+            return false;
+        }
+        log.info("Payment ledger entry already archived, ignoring {} for payment: {}",
+                event.getClass().getSimpleName(), event.getPaymentId());
+        return true;
+    }
+    
+    private void apply(PaymentLedgerEntry entry, PaymentAuthorizedEvent event) {
+        // A late authorization must not move a rejected or settled payment back to AUTHORIZED
+        boolean open = entry.getPaymentStatus() == null
+                || "INITIATED".equals(entry.getPaymentStatus())
+                || "AUTHORIZED".equals(entry.getPaymentStatus());
+        if (open) {
+            entry.setPaymentStatus("AUTHORIZED");
+        }
+        entry.setAuthorizationCode(event.getAuthorizationCode());
+        entry.setRiskScore(event.getRiskScore());
+        entry.setAmount(new BigDecimal(event.getAmount()));
+        if (event.getCurrency() != null) {
+            entry.setCurrency(event.getCurrency());
+        }
+        reconcile(entry);
+        
+        ledgerWriter.update(entry);
+        if (open) {
+            stuckAuthorizationWatchdog.register(entry.getPaymentId(), entry.getCreatedAt());
+        }
+        log.info("Payment ledger updated for authorized payment: {}", event.getPaymentId());
+    }
+    
+    private void apply(PaymentLedgerEntry entry, PaymentRejectedEvent event) {
+        entry.setPaymentStatus("REJECTED");
+        entry.setRejectionReason(event.getRejectionReason());
+        reconcile(entry);
+        
+        ledgerWriter.update(entry);
+        log.info("Payment ledger updated for rejected payment: {}", event.getPaymentId());
+    }
+    
+    private void apply(PaymentLedgerEntry entry, PaymentSettledEvent event) {
+        entry.setPaymentStatus("SETTLED");
+        entry.setSettlementId(event.getSettlementId());
+        entry.setSettlementDate(event.getSettlementDate());
+        reconcile(entry);
+        
+        ledgerWriter.update(entry);
+        log.info("Payment ledger updated for settled payment: {}", event.getPaymentId());
+    }
+    
+    /**
+     * Runs the reconciliation checks against the updated entry before it is saved.
+     * EXCLUDED entries are left as they are.
+     */
+    private void reconcile(PaymentLedgerEntry entry) {
+        if (!continuousReconciliation || "EXCLUDED".equals(entry.getReconciliationStatus())) {
+            return;
+        }
+        
+        ReconciliationResult.ReconciliationMismatch mismatch = ledgerEntryAnalyzer.analyze(entry);
+        entry.setReconciliationStatus(mismatch != null ? "MISMATCH" : "MATCHED");
+        entry.setMismatchType(mismatch != null ? mismatch.getMismatchType() : null);
+        entry.setLastReconciledAt(LocalDateTime.now());
+        
+        if (mismatch != null) {
+            log.warn("Mismatch - Payment: {}, Type: {}, Severity: {}",
+                    mismatch.getPaymentId(), mismatch.getMismatchType(), mismatch.getSeverity());
         }
     }
 }
@@ -0,0 +1,48 @@
+package com.payment.platform.reconciliation.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Index entry of one payment whose ledger entry was moved to the columnar archive.
+ *
+ * Written by LedgerArchiver in the transaction that deletes the entry from payment_ledger, so
+ * lookups by paymentId, orderId or correlationId can find the archived day without opening
+ * every archive file.
+ */
+@Entity
+@Table(name = "archived_payments", indexes = {
+        @Index(name = "idx_archived_order_id", columnList = "order_id"),
+        @Index(name = "idx_archived_correlation_id", columnList = "correlation_id")
+})
+public class ArchivedPayment {
+
+    @Id
+    @Column(name = "payment_id")
+    private String paymentId;
+
+    @Column(name = "order_id")
+    private String orderId;
+
+    @Column(name = "correlation_id")
+    private String correlationId;
+
+    @Column(name = "created_day", nullable = false)
+    private LocalDate createdDay;
+
+    // Default constructor
+    public ArchivedPayment() {}
+
+    // Getters and Setters
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+
+    public String getCorrelationId() { return correlationId; }
+    public void setCorrelationId(String correlationId) { this.correlationId = correlationId; }
+
+    public LocalDate getCreatedDay() { return createdDay; }
+    public void setCreatedDay(LocalDate createdDay) { this.createdDay = createdDay; }
+}
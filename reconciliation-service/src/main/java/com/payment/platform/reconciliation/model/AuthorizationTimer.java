@@ -0,0 +1,36 @@
+package com.payment.platform.reconciliation.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Outstanding stuck-authorization deadline for one payment.
+ *
+ * Only authorized payments that have not yet settled or been rejected have a row, and a row
+ * is just the paymentId and the deadline in epoch milliseconds, so the table stays small
+ * and is reloaded into the watchdog's timing wheel on startup.
+ */
+@Entity
+@Table(name = "authorization_timers")
+public class AuthorizationTimer {
+
+    @Id
+    private String paymentId;
+
+    @Column(name = "deadline_millis", nullable = false)
+    private long deadlineMillis;
+
+    // Default constructor
+    public AuthorizationTimer() {}
+
+    public AuthorizationTimer(String paymentId, long deadlineMillis) {
+        this.paymentId = paymentId;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    // Getters and Setters
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+
+    public long getDeadlineMillis() { return deadlineMillis; }
+    public void setDeadlineMillis(long deadlineMillis) { this.deadlineMillis = deadlineMillis; }
+}
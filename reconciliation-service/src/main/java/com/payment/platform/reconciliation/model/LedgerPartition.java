@@ -0,0 +1,65 @@
+package com.payment.platform.reconciliation.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Manifest entry of one archived creation-day partition of the payment ledger.
+ *
+ * A day is archived once it is older than the hot window and every entry in it is MATCHED
+ * and SETTLED or REJECTED. Its entries then live only in the columnar archive file, and the
+ * counts and amount here let date-range reconciliation and statistics account for them
+ * without opening the file.
+ */
+@Entity
+@Table(name = "ledger_partitions")
+public class LedgerPartition {
+
+    @Id
+    private LocalDate day;
+
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+
+    @Column(name = "settled_count", nullable = false)
+    private long settledCount;
+
+    @Column(name = "rejected_count", nullable = false)
+    private long rejectedCount;
+
+    @Column(name = "total_amount", precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "archive_file", nullable = false)
+    private String archiveFile;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    // Default constructor
+    public LedgerPartition() {}
+
+    // Getters and Setters
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public long getEntryCount() { return entryCount; }
+    public void setEntryCount(long entryCount) { this.entryCount = entryCount; }
+
+    public long getSettledCount() { return settledCount; }
+    public void setSettledCount(long settledCount) { this.settledCount = settledCount; }
+
+    public long getRejectedCount() { return rejectedCount; }
+    public void setRejectedCount(long rejectedCount) { this.rejectedCount = rejectedCount; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+    public String getArchiveFile() { return archiveFile; }
+    public void setArchiveFile(String archiveFile) { this.archiveFile = archiveFile; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
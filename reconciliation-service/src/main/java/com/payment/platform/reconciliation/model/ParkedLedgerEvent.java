@@ -0,0 +1,64 @@
+package com.payment.platform.reconciliation.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Ledger event that arrived before its payment's ledger entry.
+ *
+ * Rows are written by PendingLedgerEventBuffer as soon as such an event is handled, and are
+ * removed once the PaymentInitiatedEvent has been applied and the event replayed. Rows whose
+ * entry is still missing after reconciliation.pending.max-age-hours are expired: logged
+ * and deleted, so events for payments that never arrive do not accumulate.
+ * The event itself is stored as JSON together with its simple class name.
+ */
+@Entity
+@Table(name = "parked_ledger_events", indexes = {
+        @Index(name = "idx_parked_ledger_events_payment", columnList = "payment_id, id"),
+        @Index(name = "idx_parked_ledger_events_parked_at", columnList = "parked_at")
+})
+public class ParkedLedgerEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false)
+    private String paymentId;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(name = "parked_at", nullable = false)
+    private LocalDateTime parkedAt;
+
+    // Default constructor
+    public ParkedLedgerEvent() {}
+
+    public ParkedLedgerEvent(String paymentId, String eventType, String payload, LocalDateTime parkedAt) {
+        this.paymentId = paymentId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.parkedAt = parkedAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public LocalDateTime getParkedAt() { return parkedAt; }
+    public void setParkedAt(LocalDateTime parkedAt) { this.parkedAt = parkedAt; }
+}
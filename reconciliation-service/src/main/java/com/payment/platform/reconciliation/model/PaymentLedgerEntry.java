@@ -2,6 +2,7 @@ package com.payment.platform.reconciliation.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -12,11 +13,22 @@ import java.util.Objects;
  * - Payment information from PaymentService events
  * - Settlement information from SettlementService events
  * - Reconciliation status and metadata
+ * - Hash bucket of the paymentId, used to partition parallel reconciliation
+ * - Creation day, the partition key for date-range queries and cold archival
  */
 @Entity
-@Table(name = "payment_ledger")
+@Table(name = "payment_ledger", indexes = {
+        @Index(name = "idx_ledger_reconciliation_status", columnList = "reconciliation_status, payment_id"),
+        @Index(name = "idx_ledger_created_at", columnList = "created_at"),
+        @Index(name = "idx_ledger_updated_at", columnList = "updated_at, payment_id"),
+        @Index(name = "idx_ledger_partition_bucket", columnList = "partition_bucket, reconciliation_status"),
+        @Index(name = "idx_ledger_created_day", columnList = "created_day, payment_id")
+})
 public class PaymentLedgerEntry {
     
+    /** Number of paymentId hash buckets that parallel reconciliation partitions are cut from. */
+    public static final int PARTITION_BUCKETS = 1024;
+    
     @Id
     private String paymentId;
     
@@ -35,6 +47,9 @@ public class PaymentLedgerEntry {
     @Column(precision = 19, scale = 2)
     private BigDecimal amount;
     
+    @Column(name = "currency", length = 3)
+    private String currency; // ISO 4217 code; null for entries written before it was recorded
+    
     @Column(name = "authorization_code")
     private String authorizationCode;
     
@@ -53,12 +68,24 @@ public class PaymentLedgerEntry {
     @Column(name = "reconciliation_status")
     private String reconciliationStatus; // PENDING, MATCHED, MISMATCH, EXCLUDED
     
+    @Column(name = "mismatch_type")
+    private String mismatchType; // set while reconciliationStatus is MISMATCH
+    
     @Column(name = "last_reconciled_at")
     private LocalDateTime lastReconciledAt;
     
     @Column(name = "correlation_id")
     private String correlationId;
     
+    @Column(name = "partition_bucket")
+    private Integer partitionBucket;
+    
+    @Column(name = "created_day")
+    private LocalDate createdDay;
+    
+    @Column(name = "row_version")
+    private Long rowVersion; // bumped by every write; BatchedLedgerWriter only updates the version it read
+    
     // Default constructor
     public PaymentLedgerEntry() {}
     
@@ -103,6 +130,9 @@ public class PaymentLedgerEntry {
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
     
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+    
     public String getAuthorizationCode() { return authorizationCode; }
     public void setAuthorizationCode(String authorizationCode) { this.authorizationCode = authorizationCode; }
     
@@ -121,12 +151,30 @@ public class PaymentLedgerEntry {
     public String getReconciliationStatus() { return reconciliationStatus; }
     public void setReconciliationStatus(String reconciliationStatus) { this.reconciliationStatus = reconciliationStatus; }
     
+    public String getMismatchType() { return mismatchType; }
+    public void setMismatchType(String mismatchType) { this.mismatchType = mismatchType; }
+    
     public LocalDateTime getLastReconciledAt() { return lastReconciledAt; }
     public void setLastReconciledAt(LocalDateTime lastReconciledAt) { this.lastReconciledAt = lastReconciledAt; }
     
     public String getCorrelationId() { return correlationId; }
     public void setCorrelationId(String correlationId) { this.correlationId = correlationId; }
     
+    public Integer getPartitionBucket() { return partitionBucket; }
+    
+    public LocalDate getCreatedDay() { return createdDay; }
+    public void setCreatedDay(LocalDate createdDay) { this.createdDay = createdDay; }
+    
+    public Long getRowVersion() { return rowVersion; }
+    public void setRowVersion(Long rowVersion) { this.rowVersion = rowVersion; }
+    
+    /**
+     * Stable hash bucket of a paymentId in [0, PARTITION_BUCKETS).
+     */
+    public static int partitionBucketOf(String paymentId) {
+        return Math.floorMod(paymentId.hashCode(), PARTITION_BUCKETS);
+    }
+    
     // Lifecycle callbacks
     @PrePersist
     protected void onCreate() {
@@ -134,6 +182,9 @@ public class PaymentLedgerEntry {
         if (createdAt == null) createdAt = now;
         if (updatedAt == null) updatedAt = now;
         if (reconciliationStatus == null) reconciliationStatus = "PENDING";
+        if (partitionBucket == null && paymentId != null) partitionBucket = partitionBucketOf(paymentId);
+        if (createdDay == null) createdDay = createdAt.toLocalDate();
+        if (rowVersion == null) rowVersion = 0L;
     }
     
     @PreUpdate
@@ -0,0 +1,130 @@
+package com.payment.platform.reconciliation.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress marker of a chunked reconciliation job.
+ *
+ * The checkpoint is written in the same transaction as each chunk's status updates, so
+ * after a failure or restart the job resumes after the last committed paymentId with the
+ * totals accumulated so far.
+ *
+ * This entity stores:
+ * - Job name (one checkpoint per job, e.g. FULL) and the reconciliationId of the run
+ * - Keyset position: last paymentId whose status update was committed
+ * - Running totals of processed, matched and mismatched entries and amounts
+ * - Mismatches found so far are stored alongside in ReconciliationCheckpointMismatch
+ * - Status: RUNNING while chunks remain, COMPLETED once the ledger is exhausted
+ * - For incremental sweeps: the lower bound of updated_at the sweep covers
+ */
+@Entity
+@Table(name = "reconciliation_checkpoints")
+public class ReconciliationCheckpoint {
+
+    @Id
+    private String jobName;
+
+    @Column(name = "reconciliation_id", nullable = false)
+    private String reconciliationId;
+
+    @Column(nullable = false)
+    private String status; // RUNNING, COMPLETED
+
+    @Column(name = "last_payment_id", nullable = false)
+    private String lastPaymentId;
+
+    private long processed;
+
+    private long matched;
+
+    private long mismatched;
+
+    @Column(name = "total_amount", precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "matched_amount", precision = 19, scale = 2)
+    private BigDecimal matchedAmount;
+
+    @Column(name = "changed_since")
+    private LocalDateTime changedSince;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Default constructor
+    public ReconciliationCheckpoint() {}
+
+    /**
+     * Checkpoint of a new run, positioned before the first paymentId.
+     */
+    public static ReconciliationCheckpoint start(String jobName, String reconciliationId, LocalDateTime startedAt) {
+        ReconciliationCheckpoint checkpoint = new ReconciliationCheckpoint();
+        checkpoint.jobName = jobName;
+        checkpoint.reconciliationId = reconciliationId;
+        checkpoint.status = "RUNNING";
+        checkpoint.lastPaymentId = "";
+        checkpoint.totalAmount = BigDecimal.ZERO;
+        checkpoint.matchedAmount = BigDecimal.ZERO;
+        checkpoint.startedAt = startedAt;
+        checkpoint.updatedAt = startedAt;
+        return checkpoint;
+    }
+
+    public boolean isRunning() {
+        return "RUNNING".equals(status);
+    }
+
+    // Getters and Setters
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+
+    public String getReconciliationId() { return reconciliationId; }
+    public void setReconciliationId(String reconciliationId) { this.reconciliationId = reconciliationId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getLastPaymentId() { return lastPaymentId; }
+    public void setLastPaymentId(String lastPaymentId) { this.lastPaymentId = lastPaymentId; }
+
+    public long getProcessed() { return processed; }
+    public void setProcessed(long processed) { this.processed = processed; }
+
+    public long getMatched() { return matched; }
+    public void setMatched(long matched) { this.matched = matched; }
+
+    public long getMismatched() { return mismatched; }
+    public void setMismatched(long mismatched) { this.mismatched = mismatched; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+    public BigDecimal getMatchedAmount() { return matchedAmount; }
+    public void setMatchedAmount(BigDecimal matchedAmount) { this.matchedAmount = matchedAmount; }
+
+    public LocalDateTime getChangedSince() { return changedSince; }
+    public void setChangedSince(LocalDateTime changedSince) { this.changedSince = changedSince; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    // toString
+    @Override
+    public String toString() {
+        return "ReconciliationCheckpoint{" +
+                "jobName='" + jobName + '\'' +
+                ", reconciliationId='" + reconciliationId + '\'' +
+                ", status='" + status + '\'' +
+                ", lastPaymentId='" + lastPaymentId + '\'' +
+                ", processed=" + processed +
+                '}';
+    }
+}
@@ -0,0 +1,89 @@
+package com.payment.platform.reconciliation.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Mismatch found by a chunked reconciliation job, stored with the job's checkpoint.
+ *
+ * Rows are written in the same transaction as the chunk that found them, so a run resumed
+ * from its ReconciliationCheckpoint reports the mismatches of the chunks committed before the
+ * interruption as well as the new ones. Rows of earlier runs of the same job are removed
+ * when a new run starts.
+ */
+@Entity
+@Table(name = "reconciliation_checkpoint_mismatches", indexes = {
+        @Index(name = "idx_checkpoint_mismatches_run", columnList = "job_name, reconciliation_id")
+})
+public class ReconciliationCheckpointMismatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    @Column(name = "reconciliation_id", nullable = false)
+    private String reconciliationId;
+
+    @Column(name = "payment_id", nullable = false)
+    private String paymentId;
+
+    @Column(name = "settlement_id")
+    private String settlementId;
+
+    @Column(name = "order_id")
+    private String orderId;
+
+    @Column(name = "mismatch_type")
+    private String mismatchType;
+
+    @Column(name = "expected_amount")
+    private String expectedAmount;
+
+    @Column(name = "actual_amount")
+    private String actualAmount;
+
+    @Column(length = 1000)
+    private String description;
+
+    @Column(name = "detected_at")
+    private LocalDateTime detectedAt;
+
+    private String severity;
+
+    // Default constructor
+    public ReconciliationCheckpointMismatch() {}
+
+    public static ReconciliationCheckpointMismatch of(ReconciliationCheckpoint checkpoint,
+                                                      ReconciliationResult.ReconciliationMismatch mismatch) {
+        ReconciliationCheckpointMismatch row = new ReconciliationCheckpointMismatch();
+        row.jobName = checkpoint.getJobName();
+        row.reconciliationId = checkpoint.getReconciliationId();
+        row.paymentId = mismatch.getPaymentId();
+        row.settlementId = mismatch.getSettlementId();
+        row.orderId = mismatch.getOrderId();
+        row.mismatchType = mismatch.getMismatchType();
+        row.expectedAmount = mismatch.getExpectedAmount();
+        row.actualAmount = mismatch.getActualAmount();
+        row.description = mismatch.getDescription();
+        row.detectedAt = mismatch.getDetectedAt();
+        row.severity = mismatch.getSeverity();
+        return row;
+    }
+
+    public ReconciliationResult.ReconciliationMismatch toMismatch() {
+        return new ReconciliationResult.ReconciliationMismatch(paymentId, settlementId, orderId, mismatchType,
+                expectedAmount, actualAmount, description, detectedAt, severity);
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public String getJobName() { return jobName; }
+
+    public String getReconciliationId() { return reconciliationId; }
+
+    public String getPaymentId() { return paymentId; }
+}
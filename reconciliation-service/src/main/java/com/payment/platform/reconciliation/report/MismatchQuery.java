@@ -0,0 +1,52 @@
+package com.payment.platform.reconciliation.report;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Filter for mismatch history queries; null fields do not filter.
+ *
+ * - from/to: days of the reconciliation runs, inclusive
+ * - mismatchType, severity, runType: exact values
+ * - paymentId: exact paymentId
+ * - minAmount: expected amount at least this much
+ */
+public class MismatchQuery {
+
+    private LocalDate from;
+    private LocalDate to;
+    private String mismatchType;
+    private String severity;
+    private String runType;
+    private String paymentId;
+    private BigDecimal minAmount;
+    private int limit = 100;
+
+    // Default constructor
+    public MismatchQuery() {}
+
+    // Getters and Setters
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    public String getMismatchType() { return mismatchType; }
+    public void setMismatchType(String mismatchType) { this.mismatchType = mismatchType; }
+
+    public String getSeverity() { return severity; }
+    public void setSeverity(String severity) { this.severity = severity; }
+
+    public String getRunType() { return runType; }
+    public void setRunType(String runType) { this.runType = runType; }
+
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+
+    public BigDecimal getMinAmount() { return minAmount; }
+    public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
@@ -0,0 +1,306 @@
+package com.payment.platform.reconciliation.report;
+
+import com.payment.platform.reconciliation.columnar.ColumnType;
+import com.payment.platform.reconciliation.columnar.ColumnarReader;
+import com.payment.platform.reconciliation.columnar.ColumnarWriter;
+import com.payment.platform.reconciliation.dto.MismatchHistoryResponse;
+import com.payment.platform.reconciliation.dto.ReconciliationRunSummary;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every reconciliation run as a compact columnar report file and answers history queries.
+ *
+ * Each run is written to <reports dir>/<run day>/<reconciliationId>.rcol:
+ * - Run status and stats go in the footer metadata
+ * - One row per mismatch, with mismatchType, severity and description dictionary-encoded,
+ *   detectedAt delta-encoded and amounts stored as fixed-point minor units
+ *
+ * Queries push their predicates down as far as possible:
+ * - Days outside the range are never listed
+ * - A file is skipped from its footer when the run type differs, the requested mismatchType
+ *   or severity is not in its dictionary, the paymentId is outside its min/max, or its largest
+ *   expected amount is below minAmount
+ * - For the remaining files only the filtered columns are decoded, comparing dictionary codes
+ *   rather than strings; the other columns are read only for files with matches, up to the limit
+ *
+ * Used by: ReconciliationService, SettlementFileReconciler, ReconciliationController
+ */
+@Service
+@Slf4j
+public class ReconciliationReportStore {
+
+    private static final String FILE_SUFFIX = ".rcol";
+
+    @Value("${reconciliation.reports.dir:reconciliation-reports}")
+    private String reportsDir;
+
+    @Value("${reconciliation.reports.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reconciliation.reports.max-query-results:1000}")
+    private int maxQueryResults;
+
+    /**
+     * Stores a finished run. Failures are logged and never fail the reconciliation itself.
+     */
+    public void save(String runType, ReconciliationResult result) {
+        if (!enabled || result == null || result.getReconciliationId() == null) {
+            return;
+        }
+        LocalDateTime date = result.getReconciliationDate() != null ? result.getReconciliationDate() : LocalDateTime.now();
+        Path file = Paths.get(reportsDir).toAbsolutePath()
+                .resolve(date.toLocalDate().toString())
+                .resolve(result.getReconciliationId() + FILE_SUFFIX);
+
+        ColumnarWriter writer = new ColumnarWriter()
+                .column("payment_id", ColumnType.STRING)
+                .column("settlement_id", ColumnType.STRING)
+                .column("order_id", ColumnType.STRING)
+                .column("mismatch_type", ColumnType.DICTIONARY)
+                .column("severity", ColumnType.DICTIONARY)
+                .column("expected_amount", ColumnType.DECIMAL)
+                .column("actual_amount", ColumnType.DECIMAL)
+                .column("description", ColumnType.DICTIONARY)
+                .column("detected_at", ColumnType.TIMESTAMP)
+                .metadata("reconciliationId", result.getReconciliationId())
+                .metadata("runType", runType)
+                .metadata("reconciliationDate", date.toString())
+                .metadata("status", result.getStatus())
+                .metadata("correlationId", result.getCorrelationId());
+
+        ReconciliationResult.ReconciliationStats stats = result.getStats();
+        if (stats != null) {
+            writer.metadata("totalPayments", String.valueOf(stats.getTotalPayments()))
+                    .metadata("totalSettlements", String.valueOf(stats.getTotalSettlements()))
+                    .metadata("matchedTransactions", String.valueOf(stats.getMatchedTransactions()))
+                    .metadata("unmatchedPayments", String.valueOf(stats.getUnmatchedPayments()))
+                    .metadata("unmatchedSettlements", String.valueOf(stats.getUnmatchedSettlements()))
+                    .metadata("totalAmount", plain(stats.getTotalAmount()))
+                    .metadata("matchedAmount", plain(stats.getMatchedAmount()))
+                    .metadata("mismatchedAmount", plain(stats.getMismatchedAmount()));
+        }
+
+        if (result.getMismatches() != null) {
+            for (ReconciliationResult.ReconciliationMismatch mismatch : result.getMismatches()) {
+                writer.addRow(mismatch.getPaymentId(), mismatch.getSettlementId(), mismatch.getOrderId(),
+                        mismatch.getMismatchType(), mismatch.getSeverity(),
+                        amount(mismatch.getExpectedAmount()), amount(mismatch.getActualAmount()),
+                        mismatch.getDescription(), mismatch.getDetectedAt());
+            }
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+            writer.write(file);
+            log.debug("Stored reconciliation report {} ({} mismatches) at {}",
+                    result.getReconciliationId(), writer.getRowCount(), file);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to store reconciliation report {}", result.getReconciliationId(), e);
+        }
+    }
+
+    /**
+     * Stored runs between two days, newest first, read from file footers only.
+     */
+    public List<ReconciliationRunSummary> listRuns(LocalDate from, LocalDate to) throws IOException {
+        List<ReconciliationRunSummary> runs = new ArrayList<>();
+        for (Path file : reportFiles(from, to)) {
+            try (ColumnarReader reader = ColumnarReader.open(file)) {
+                runs.add(toSummary(reader.getMetadata(), reader.getRowCount()));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Scans the stored mismatches of the runs in the query's day range.
+     */
+    public MismatchHistoryResponse queryMismatches(MismatchQuery query) throws IOException {
+        int limit = Math.max(0, Math.min(query.getLimit(), maxQueryResults));
+        long minAmount = query.getMinAmount() != null ? ColumnarReader.toMinorUnits(query.getMinAmount()) : ColumnarReader.NULL;
+        MismatchHistoryResponse response = new MismatchHistoryResponse();
+
+        for (Path file : reportFiles(query.getFrom(), query.getTo())) {
+            try (ColumnarReader reader = ColumnarReader.open(file)) {
+                Map<String, String> metadata = reader.getMetadata();
+                int typeCode = query.getMismatchType() != null ? reader.dictionary("mismatch_type").indexOf(query.getMismatchType()) : -1;
+                int severityCode = query.getSeverity() != null ? reader.dictionary("severity").indexOf(query.getSeverity()) : -1;
+
+                boolean skip = reader.getRowCount() == 0
+                        || (query.getRunType() != null && !query.getRunType().equals(metadata.get("runType")))
+                        || (query.getMismatchType() != null && typeCode < 0)
+                        || (query.getSeverity() != null && severityCode < 0)
+                        || (query.getPaymentId() != null && outside(query.getPaymentId(),
+                                reader.minString("payment_id"), reader.maxString("payment_id")))
+                        || (minAmount != ColumnarReader.NULL && (reader.max("expected_amount") == ColumnarReader.NULL
+                                || reader.max("expected_amount") < minAmount));
+                if (skip) {
+                    response.setFilesSkipped(response.getFilesSkipped() + 1);
+                    continue;
+                }
+
+                scan(reader, metadata, query, typeCode, severityCode, minAmount, limit, response);
+                response.setFilesScanned(response.getFilesScanned() + 1);
+            }
+        }
+        response.setTruncated(response.getTotalMatches() > response.getMismatches().size());
+        return response;
+    }
+
+    private void scan(ColumnarReader reader, Map<String, String> metadata, MismatchQuery query,
+                      int typeCode, int severityCode, long minAmount, int limit,
+                      MismatchHistoryResponse response) throws IOException {
+        int rows = reader.getRowCount();
+        // Type and severity codes are always needed for the counts; the rest only when filtered on
+        int[] types = reader.readCodes("mismatch_type");
+        int[] severities = reader.readCodes("severity");
+        String[] paymentIds = query.getPaymentId() != null ? reader.readStrings("payment_id") : null;
+        long[] expected = minAmount != ColumnarReader.NULL ? reader.readLongs("expected_amount") : null;
+
+        List<String> typeNames = reader.dictionary("mismatch_type");
+        List<String> severityNames = reader.dictionary("severity");
+        long[] typeCounts = new long[typeNames.size()];
+        long[] severityCounts = new long[severityNames.size()];
+        List<Integer> selected = new ArrayList<>();
+
+        for (int row = 0; row < rows; row++) {
+            if ((typeCode >= 0 && types[row] != typeCode)
+                    || (severityCode >= 0 && severities[row] != severityCode)
+                    || (paymentIds != null && !query.getPaymentId().equals(paymentIds[row]))
+                    || (expected != null && (expected[row] == ColumnarReader.NULL || expected[row] < minAmount))) {
+                continue;
+            }
+            if (types[row] >= 0) typeCounts[types[row]]++;
+            if (severities[row] >= 0) severityCounts[severities[row]]++;
+            if (response.getMismatches().size() + selected.size() < limit) {
+                selected.add(row);
+            }
+            response.setTotalMatches(response.getTotalMatches() + 1);
+        }
+        response.setRowsScanned(response.getRowsScanned() + rows);
+        addCounts(response.getCountsByMismatchType(), typeNames, typeCounts);
+        addCounts(response.getCountsBySeverity(), severityNames, severityCounts);
+
+        if (selected.isEmpty()) {
+            return;
+        }
+        if (paymentIds == null) {
+            paymentIds = reader.readStrings("payment_id");
+        }
+        String[] settlementIds = reader.readStrings("settlement_id");
+        String[] orderIds = reader.readStrings("order_id");
+        String[] descriptions = reader.readStrings("description");
+        long[] expectedAmounts = expected != null ? expected : reader.readLongs("expected_amount");
+        long[] actualAmounts = reader.readLongs("actual_amount");
+        long[] detectedAt = reader.readLongs("detected_at");
+
+        for (int row : selected) {
+            ReconciliationResult.ReconciliationMismatch mismatch = new ReconciliationResult.ReconciliationMismatch(
+                    paymentIds[row], settlementIds[row], orderIds[row],
+                    types[row] >= 0 ? typeNames.get(types[row]) : null,
+                    text(expectedAmounts[row]), text(actualAmounts[row]), descriptions[row],
+                    ColumnarReader.toLocalDateTime(detectedAt[row]),
+                    severities[row] >= 0 ? severityNames.get(severities[row]) : null);
+            response.getMismatches().add(new MismatchHistoryResponse.HistoricalMismatch(
+                    metadata.get("reconciliationId"), metadata.get("runType"), mismatch));
+        }
+    }
+
+    // Report files of the day range, newest day first
+    private List<Path> reportFiles(LocalDate from, LocalDate to) throws IOException {
+        Path root = Paths.get(reportsDir).toAbsolutePath();
+        List<Path> files = new ArrayList<>();
+        for (LocalDate day = to; !day.isBefore(from); day = day.minusDays(1)) {
+            Path dayDir = root.resolve(day.toString());
+            if (!Files.isDirectory(dayDir)) {
+                continue;
+            }
+            try (Stream<Path> listing = Files.list(dayDir)) {
+                listing.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                        .sorted(Comparator.reverseOrder())
+                        .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    private static ReconciliationRunSummary toSummary(Map<String, String> metadata, int mismatchCount) {
+        ReconciliationRunSummary summary = new ReconciliationRunSummary();
+        summary.setReconciliationId(metadata.get("reconciliationId"));
+        summary.setRunType(metadata.get("runType"));
+        summary.setReconciliationDate(metadata.containsKey("reconciliationDate")
+                ? LocalDateTime.parse(metadata.get("reconciliationDate")) : null);
+        summary.setStatus(metadata.get("status"));
+        summary.setCorrelationId(metadata.get("correlationId"));
+        summary.setMismatchCount(mismatchCount);
+
+        if (metadata.containsKey("totalPayments")) {
+            ReconciliationResult.ReconciliationStats stats = new ReconciliationResult.ReconciliationStats();
+            stats.setTotalPayments(Integer.parseInt(metadata.get("totalPayments")));
+            stats.setTotalSettlements(Integer.parseInt(metadata.get("totalSettlements")));
+            stats.setMatchedTransactions(Integer.parseInt(metadata.get("matchedTransactions")));
+            stats.setUnmatchedPayments(Integer.parseInt(metadata.get("unmatchedPayments")));
+            stats.setUnmatchedSettlements(Integer.parseInt(metadata.get("unmatchedSettlements")));
+            stats.setTotalAmount(decimal(metadata.get("totalAmount")));
+            stats.setMatchedAmount(decimal(metadata.get("matchedAmount")));
+            stats.setMismatchedAmount(decimal(metadata.get("mismatchedAmount")));
+            summary.setStats(stats);
+        }
+        return summary;
+    }
+
+    private static void addCounts(Map<String, Long> counts, List<String> names, long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] > 0) {
+                counts.merge(names.get(i), values[i], Long::sum);
+            }
+        }
+    }
+
+    private static boolean outside(String value, String min, String max) {
+        return min == null || value.compareTo(min) < 0 || value.compareTo(max) > 0;
+    }
+
+    // Mismatch amounts are decimal strings; anything else is stored as null
+    private static BigDecimal amount(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String text(long minorUnits) {
+        BigDecimal amount = ColumnarReader.toAmount(minorUnits);
+        return amount != null ? amount.toPlainString() : null;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.ArchivedPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the index of archived payments, keyed by paymentId.
+ */
+@Repository
+public interface ArchivedPaymentRepository extends JpaRepository<ArchivedPayment, String> {
+
+    @Query("SELECT DISTINCT a.createdDay FROM ArchivedPayment a WHERE a.paymentId IN :paymentIds")
+    List<LocalDate> findDaysByPaymentIdIn(@Param("paymentIds") Collection<String> paymentIds);
+
+    @Query("SELECT a.paymentId FROM ArchivedPayment a WHERE a.paymentId IN :paymentIds")
+    List<String> findPaymentIdsIn(@Param("paymentIds") Collection<String> paymentIds);
+
+    @Query("SELECT DISTINCT a.createdDay FROM ArchivedPayment a WHERE a.orderId = :orderId")
+    List<LocalDate> findDaysByOrderId(@Param("orderId") String orderId);
+
+    @Query("SELECT DISTINCT a.createdDay FROM ArchivedPayment a WHERE a.correlationId = :correlationId")
+    List<LocalDate> findDaysByCorrelationId(@Param("correlationId") String correlationId);
+}
@@ -0,0 +1,22 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.AuthorizationTimer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository for AuthorizationTimer entities, keyed by paymentId.
+ */
+@Repository
+public interface AuthorizationTimerRepository extends JpaRepository<AuthorizationTimer, String> {
+
+    // Unlike deleteById, does not fail when the payment has no timer
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AuthorizationTimer t WHERE t.paymentId = :paymentId")
+    int deleteByPaymentId(@Param("paymentId") String paymentId);
+}
@@ -0,0 +1,23 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.LedgerPartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for the archived ledger partition manifest, keyed by creation day.
+ */
+@Repository
+public interface LedgerPartitionRepository extends JpaRepository<LedgerPartition, LocalDate> {
+
+    List<LedgerPartition> findByDayBetweenOrderByDay(LocalDate from, LocalDate to);
+
+    // [entries, settled, rejected] over all archived partitions, added to ReconciliationCounters on startup
+    @Query("SELECT COALESCE(SUM(p.entryCount), 0), COALESCE(SUM(p.settledCount), 0), COALESCE(SUM(p.rejectedCount), 0) " +
+           "FROM LedgerPartition p")
+    List<Object[]> sumArchivedCounts();
+}
@@ -0,0 +1,30 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.ParkedLedgerEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for ParkedLedgerEvent entities.
+ */
+@Repository
+public interface ParkedLedgerEventRepository extends JpaRepository<ParkedLedgerEvent, Long> {
+
+    List<ParkedLedgerEvent> findByPaymentIdOrderByIdAsc(String paymentId);
+
+    // Payments whose ledger entry now exists, so their parked events can be replayed
+    @Query("SELECT DISTINCT p.paymentId FROM ParkedLedgerEvent p WHERE EXISTS " +
+           "(SELECT 1 FROM PaymentLedgerEntry e WHERE e.paymentId = p.paymentId)")
+    List<String> findPaymentIdsWithLedgerEntry(Pageable pageable);
+
+    // Parked before the cutoff and still without a ledger entry
+    @Query("SELECT p FROM ParkedLedgerEvent p WHERE p.parkedAt < :cutoff AND NOT EXISTS " +
+           "(SELECT 1 FROM PaymentLedgerEntry e WHERE e.paymentId = p.paymentId) ORDER BY p.id")
+    List<ParkedLedgerEvent> findExpired(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+}
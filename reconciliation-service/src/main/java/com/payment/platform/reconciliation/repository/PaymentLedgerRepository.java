@@ -1,11 +1,15 @@
 package com.payment.platform.reconciliation.repository;
 
 import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -17,6 +21,7 @@ import java.util.Optional;
  * - Find entries by reconciliation status
  * - Find entries within date ranges
  * - Count mismatches by type
+ * - Keyset-paginated chunks (paymentId > last seen) for streaming reconciliation
  */
 @Repository
 public interface PaymentLedgerRepository extends JpaRepository<PaymentLedgerEntry, String> {
@@ -37,9 +42,84 @@ public interface PaymentLedgerRepository extends JpaRepository<PaymentLedgerEntr
     @Query("SELECT COUNT(p) FROM PaymentLedgerEntry p WHERE p.reconciliationStatus = :status")
     long countByReconciliationStatus(@Param("status") String status);
     
+    // [status, count] rows used to load ReconciliationCounters on startup
+
+    @Query("SELECT p.reconciliationStatus, COUNT(p) FROM PaymentLedgerEntry p GROUP BY p.reconciliationStatus")
+    List<Object[]> countGroupedByReconciliationStatus();
+
+    @Query("SELECT p.paymentStatus, COUNT(p) FROM PaymentLedgerEntry p GROUP BY p.paymentStatus")
+    List<Object[]> countGroupedByPaymentStatus();
+
+    @Query("SELECT p.mismatchType, COUNT(p) FROM PaymentLedgerEntry p WHERE p.reconciliationStatus = 'MISMATCH' " +
+           "GROUP BY p.mismatchType")
+    List<Object[]> countGroupedByMismatchType();
+    
+    // The order and correlationId lookups only see the hot table; ReconciliationService adds archived entries
     @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.orderId = :orderId")
     List<PaymentLedgerEntry> findByOrderId(@Param("orderId") String orderId);
     
     @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.correlationId = :correlationId")
     Optional<PaymentLedgerEntry> findByCorrelationId(@Param("correlationId") String correlationId);
+
+    // Keyset pagination: next chunk after the given paymentId, ordered by paymentId, size from the Pageable
+
+    @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.reconciliationStatus = :status " +
+           "AND p.paymentId > :afterPaymentId ORDER BY p.paymentId")
+    List<PaymentLedgerEntry> findChunkByReconciliationStatus(@Param("status") String status,
+                                                              @Param("afterPaymentId") String afterPaymentId,
+                                                              Pageable pageable);
+
+    @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.reconciliationStatus = :status " +
+           "AND p.partitionBucket >= :fromBucket AND p.partitionBucket < :toBucket " +
+           "AND p.paymentId > :afterPaymentId ORDER BY p.paymentId")
+    List<PaymentLedgerEntry> findChunkByReconciliationStatusAndBucketRange(@Param("status") String status,
+                                                                           @Param("fromBucket") int fromBucket,
+                                                                           @Param("toBucket") int toBucket,
+                                                                           @Param("afterPaymentId") String afterPaymentId,
+                                                                           Pageable pageable);
+
+    /**
+     * Sweep candidates changed since the last sweep, read through idx_ledger_updated_at.
+     * The sweep merges them with the PENDING chunk from findChunkByReconciliationStatus;
+     * stuck authorizations are raised by StuckAuthorizationWatchdog, not by the sweep.
+     */
+    @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.updatedAt >= :changedSince " +
+           "AND p.reconciliationStatus <> 'EXCLUDED' " +
+           "AND p.paymentId > :afterPaymentId ORDER BY p.paymentId")
+    List<PaymentLedgerEntry> findChunkChangedSince(@Param("changedSince") LocalDateTime changedSince,
+                                                   @Param("afterPaymentId") String afterPaymentId,
+                                                   Pageable pageable);
+
+    // One slice of a creation-day partition at a time, so each chunk is a range scan of idx_ledger_created_day.
+    // Slices are half-open [from, until); end is the inclusive end of the requested range.
+    @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.createdDay = :day " +
+           "AND p.createdAt >= :from AND p.createdAt < :until AND p.createdAt <= :end " +
+           "AND p.paymentId > :afterPaymentId ORDER BY p.paymentId")
+    List<PaymentLedgerEntry> findChunkByCreatedDay(@Param("day") LocalDate day,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("until") LocalDateTime until,
+                                                    @Param("end") LocalDateTime end,
+                                                    @Param("afterPaymentId") String afterPaymentId,
+                                                    Pageable pageable);
+
+    @Query("SELECT p FROM PaymentLedgerEntry p WHERE p.orderId = :orderId " +
+           "AND p.paymentId > :afterPaymentId ORDER BY p.paymentId")
+    List<PaymentLedgerEntry> findChunkByOrderId(@Param("orderId") String orderId,
+                                                 @Param("afterPaymentId") String afterPaymentId,
+                                                 Pageable pageable);
+
+    /**
+     * Flags a stuck authorization only while the row is still AUTHORIZED and in the
+     * reconciliation status it was checked in, so a concurrent settlement is never overwritten.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentLedgerEntry p SET p.reconciliationStatus = 'MISMATCH', p.mismatchType = :mismatchType, " +
+           "p.lastReconciledAt = :now, p.updatedAt = :now, p.rowVersion = COALESCE(p.rowVersion, 0) + 1 " +
+           "WHERE p.paymentId = :paymentId AND p.paymentStatus = 'AUTHORIZED' " +
+           "AND p.reconciliationStatus = :expectedStatus")
+    int flagStuckAuthorization(@Param("paymentId") String paymentId,
+                               @Param("expectedStatus") String expectedStatus,
+                               @Param("mismatchType") String mismatchType,
+                               @Param("now") LocalDateTime now);
 }
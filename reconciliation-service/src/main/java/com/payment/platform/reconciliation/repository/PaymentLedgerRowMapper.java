@@ -0,0 +1,50 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Maps payment_ledger rows read with plain JDBC to detached PaymentLedgerEntry objects.
+ *
+ * Used by: BatchedLedgerWriter, LedgerArchiver
+ */
+public class PaymentLedgerRowMapper implements RowMapper<PaymentLedgerEntry> {
+
+    public static final PaymentLedgerRowMapper INSTANCE = new PaymentLedgerRowMapper();
+
+    /** Every payment_ledger column, in the order the JDBC writers bind them. */
+    public static final String COLUMNS =
+            "payment_id, order_id, payment_status, settlement_id, settlement_date, amount, authorization_code, " +
+            "risk_score, rejection_reason, created_at, updated_at, reconciliation_status, mismatch_type, " +
+            "last_reconciled_at, correlation_id, partition_bucket, created_day, currency, row_version";
+
+    @Override
+    public PaymentLedgerEntry mapRow(ResultSet rs, int rowNum) throws SQLException {
+        PaymentLedgerEntry entry = new PaymentLedgerEntry();
+        entry.setPaymentId(rs.getString("payment_id"));
+        entry.setOrderId(rs.getString("order_id"));
+        entry.setPaymentStatus(rs.getString("payment_status"));
+        entry.setSettlementId(rs.getString("settlement_id"));
+        entry.setSettlementDate(rs.getObject("settlement_date", LocalDateTime.class));
+        entry.setAmount(rs.getBigDecimal("amount"));
+        entry.setAuthorizationCode(rs.getString("authorization_code"));
+        entry.setRiskScore(rs.getString("risk_score"));
+        entry.setRejectionReason(rs.getString("rejection_reason"));
+        entry.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        entry.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        entry.setReconciliationStatus(rs.getString("reconciliation_status"));
+        entry.setMismatchType(rs.getString("mismatch_type"));
+        entry.setLastReconciledAt(rs.getObject("last_reconciled_at", LocalDateTime.class));
+        entry.setCorrelationId(rs.getString("correlation_id"));
+        entry.setCreatedDay(rs.getObject("created_day", LocalDate.class));
+        entry.setCurrency(rs.getString("currency"));
+        // Rows written before versioning have none; writers treat that as version 0
+        entry.setRowVersion(rs.getLong("row_version"));
+        return entry;
+    }
+}
@@ -0,0 +1,28 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.ReconciliationCheckpointMismatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository for the mismatches stored with reconciliation checkpoints.
+ */
+@Repository
+public interface ReconciliationCheckpointMismatchRepository extends JpaRepository<ReconciliationCheckpointMismatch, Long> {
+
+    List<ReconciliationCheckpointMismatch> findByJobNameAndReconciliationIdOrderByPaymentIdAsc(String jobName,
+                                                                                                String reconciliationId);
+
+    // Mismatches of the job's earlier runs, when a new run starts
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ReconciliationCheckpointMismatch m " +
+           "WHERE m.jobName = :jobName AND m.reconciliationId <> :reconciliationId")
+    int deleteOtherRuns(@Param("jobName") String jobName, @Param("reconciliationId") String reconciliationId);
+}
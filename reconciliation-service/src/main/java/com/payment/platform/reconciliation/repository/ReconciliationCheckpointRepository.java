@@ -0,0 +1,12 @@
+package com.payment.platform.reconciliation.repository;
+
+import com.payment.platform.reconciliation.model.ReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for ReconciliationCheckpoint entities, keyed by job name.
+ */
+@Repository
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, String> {
+}
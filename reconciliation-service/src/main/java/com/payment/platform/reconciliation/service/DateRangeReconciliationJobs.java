@@ -0,0 +1,249 @@
+package com.payment.platform.reconciliation.service;
+
+import com.payment.platform.reconciliation.dto.ReconciliationJobStatus;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs date range reconciliations in the background, one slice per task.
+ *
+ * A range is split into non-overlapping slices (see DateRangeSlice) that are queued on a shared
+ * pool of reconciliation.date-range.max-concurrent-slices threads. Every slice holds one
+ * database connection while it runs, so the pool size is the limit on concurrent ledger scans
+ * across all jobs, however long the ranges are.
+ *
+ * Each finished slice is merged into its job right away, so progress and the mismatches found
+ * so far can be read while the job runs. The slice that finishes last adds the archived days,
+ * stores the result and marks the job done. A failed slice fails its job; slices of that job
+ * still queued are skipped.
+ *
+ * Finished jobs are kept for reconciliation.date-range.job-retention-minutes.
+ *
+ * Used by: ReconciliationController (/api/reconciliation/date-range)
+ */
+@Service
+@Slf4j
+public class DateRangeReconciliationJobs {
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Value("${reconciliation.date-range.max-concurrent-slices:4}")
+    private int maxConcurrentSlices;
+
+    @Value("${reconciliation.date-range.job-retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private ExecutorService slicePool;
+
+    /**
+     * State of one date range job; guarded by its own monitor.
+     */
+    private static final class Job {
+        private final String jobId;
+        private final LocalDateTime startDate;
+        private final LocalDateTime endDate;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final int totalSlices;
+        private final ReconciliationTally tally = new ReconciliationTally();
+        // Mismatches in the order slices finished; offsets into it stay valid while the job runs
+        private final List<ReconciliationResult.ReconciliationMismatch> found = new ArrayList<>();
+        private int completedSlices;
+        private int failedSlices;
+        private int skippedSlices;
+        private String status = "RUNNING";
+        private String error;
+        private ReconciliationResult.ReconciliationStats finalStats;
+        private LocalDateTime finishedAt;
+
+        private Job(String jobId, LocalDateTime startDate, LocalDateTime endDate, int totalSlices) {
+            this.jobId = jobId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.totalSlices = totalSlices;
+        }
+
+        private boolean allSlicesDone() {
+            return completedSlices + failedSlices + skippedSlices == totalSlices;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, maxConcurrentSlices);
+        AtomicInteger threadNumber = new AtomicInteger();
+        slicePool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "date-range-slice-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("Date range reconciliation: at most {} slices in parallel", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        slicePool.shutdownNow();
+    }
+
+    /**
+     * Queues the slices of a date range and returns the new job's initial status.
+     */
+    public ReconciliationJobStatus start(LocalDateTime startDate, LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date " + endDate + " is before start date " + startDate);
+        }
+        evictFinished();
+
+        List<DateRangeSlice> slices = reconciliationService.sliceDateRange(startDate, endDate);
+        Job job = new Job(UUID.randomUUID().toString(), startDate, endDate, slices.size());
+        jobs.put(job.jobId, job);
+        log.info("Date range reconciliation job {} from {} to {} queued in {} slices",
+                job.jobId, startDate, endDate, slices.size());
+
+        if (slices.isEmpty()) {
+            complete(job);
+        }
+        for (DateRangeSlice slice : slices) {
+            slicePool.execute(() -> runSlice(job, slice));
+        }
+        return snapshot(job, 0, 0);
+    }
+
+    /**
+     * Progress of a job with up to limit of its mismatches from mismatchOffset on, or empty
+     * for an unknown or evicted job.
+     */
+    public Optional<ReconciliationJobStatus> getStatus(String jobId, int mismatchOffset, int limit) {
+        Job job = jobs.get(jobId);
+        return job != null ? Optional.of(snapshot(job, mismatchOffset, limit)) : Optional.empty();
+    }
+
+    private void runSlice(Job job, DateRangeSlice slice) {
+        synchronized (job) {
+            if (!"RUNNING".equals(job.status)) {
+                job.skippedSlices++;
+                if (job.allSlicesDone()) {
+                    job.finishedAt = LocalDateTime.now();
+                }
+                return;
+            }
+        }
+
+        ReconciliationTally sliceTally;
+        try {
+            sliceTally = reconciliationService.reconcileSlice(job.jobId, slice, job.endDate);
+        } catch (RuntimeException e) {
+            log.error("Date range reconciliation job {} failed on slice {}", job.jobId, slice, e);
+            synchronized (job) {
+                job.failedSlices++;
+                if ("RUNNING".equals(job.status)) {
+                    job.status = "FAILED";
+                    job.error = "Slice " + slice + " failed: " + e.getMessage();
+                }
+                if (job.allSlicesDone()) {
+                    job.finishedAt = LocalDateTime.now();
+                }
+            }
+            return;
+        }
+
+        boolean last;
+        synchronized (job) {
+            job.tally.merge(sliceTally);
+            job.found.addAll(sliceTally.getMismatches());
+            job.completedSlices++;
+            last = job.allSlicesDone() && "RUNNING".equals(job.status);
+            if (job.allSlicesDone() && !last) {
+                job.finishedAt = LocalDateTime.now();
+            }
+        }
+        log.debug("Date range reconciliation job {}: slice {} done ({} entries)", job.jobId, slice, sliceTally.getProcessed());
+
+        if (last) {
+            complete(job);
+        }
+    }
+
+    // Runs once, after every slice has been merged; works on a copy so snapshots stay consistent
+    private void complete(Job job) {
+        ReconciliationTally total = new ReconciliationTally();
+        synchronized (job) {
+            total.merge(job.tally);
+        }
+        try {
+            ReconciliationResult result = reconciliationService.completeDateRange(
+                    job.jobId, job.submittedAt, job.startDate, job.endDate, total);
+            synchronized (job) {
+                job.finalStats = result.getStats();
+                job.status = result.getStatus();
+                job.finishedAt = LocalDateTime.now();
+            }
+            log.info("Date range reconciliation job {} completed. Status: {}, Checked: {}, Mismatches: {}",
+                    job.jobId, result.getStatus(), result.getStats().getTotalPayments(), result.getMismatches().size());
+        } catch (RuntimeException e) {
+            log.error("Date range reconciliation job {} failed to complete", job.jobId, e);
+            synchronized (job) {
+                job.status = "FAILED";
+                job.error = e.getMessage();
+                job.finishedAt = LocalDateTime.now();
+            }
+        }
+    }
+
+    private static ReconciliationJobStatus snapshot(Job job, int mismatchOffset, int limit) {
+        synchronized (job) {
+            ReconciliationJobStatus status = new ReconciliationJobStatus();
+            status.setJobId(job.jobId);
+            status.setStatus(job.status);
+            status.setStartDate(job.startDate);
+            status.setEndDate(job.endDate);
+            status.setSubmittedAt(job.submittedAt);
+            status.setFinishedAt(job.finishedAt);
+            status.setTotalSlices(job.totalSlices);
+            status.setCompletedSlices(job.completedSlices);
+            status.setFailedSlices(job.failedSlices);
+            status.setError(job.error);
+            status.setStats(job.finalStats != null ? job.finalStats : job.tally.toStats());
+
+            int from = Math.max(0, Math.min(mismatchOffset, job.found.size()));
+            int to = Math.min(job.found.size(), from + Math.max(0, limit));
+            status.setTotalMismatches(job.found.size());
+            status.setMismatchOffset(from);
+            status.setMismatches(new ArrayList<>(job.found.subList(from, to)));
+            return status;
+        }
+    }
+
+    private void evictFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                return job.finishedAt != null && job.finishedAt.isBefore(cutoff);
+            }
+        });
+    }
+}
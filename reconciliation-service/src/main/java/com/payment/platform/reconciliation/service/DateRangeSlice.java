@@ -0,0 +1,55 @@
+package com.payment.platform.reconciliation.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Part of one creation-day partition covered by a date range reconciliation: entries created
+ * in [from, until) on day. Slices of a range never overlap, so they can be reconciled in any
+ * order and their tallies merged.
+ */
+final class DateRangeSlice {
+
+    private final LocalDate day;
+    private final LocalDateTime from;
+    private final LocalDateTime until;
+
+    private DateRangeSlice(LocalDate day, LocalDateTime from, LocalDateTime until) {
+        this.day = day;
+        this.from = from;
+        this.until = until;
+    }
+
+    /**
+     * Splits [startDate, endDate] into slices of sliceHours aligned to midnight; a slice never
+     * crosses a day boundary, so each one reads a single partition.
+     */
+    static List<DateRangeSlice> split(LocalDateTime startDate, LocalDateTime endDate, int sliceHours) {
+        int hours = Math.max(1, Math.min(24, sliceHours));
+        List<DateRangeSlice> slices = new ArrayList<>();
+        for (LocalDate day = startDate.toLocalDate(); !day.isAfter(endDate.toLocalDate()); day = day.plusDays(1)) {
+            LocalDateTime midnight = day.plusDays(1).atStartOfDay();
+            for (LocalDateTime start = day.atStartOfDay(); start.isBefore(midnight); start = start.plusHours(hours)) {
+                LocalDateTime until = start.plusHours(hours).isBefore(midnight) ? start.plusHours(hours) : midnight;
+                if (!until.isAfter(startDate) || start.isAfter(endDate)) {
+                    continue;
+                }
+                slices.add(new DateRangeSlice(day, start.isBefore(startDate) ? startDate : start, until));
+            }
+        }
+        return slices;
+    }
+
+    LocalDate getDay() { return day; }
+
+    LocalDateTime getFrom() { return from; }
+
+    LocalDateTime getUntil() { return until; }
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + until + ")";
+    }
+}
@@ -0,0 +1,146 @@
+package com.payment.platform.reconciliation.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel of keyed deadlines.
+ *
+ * Four levels of 64 slots; a slot on level L spans 64^L ticks. A timer is placed on the lowest
+ * level whose current rotation contains its deadline, and is cascaded one level down when the
+ * wheel reaches its slot, so schedule, cancel and expiry are all O(1) per timer.
+ *
+ * Cancellation is lazy: the key is dropped from the index and its slot entry is discarded when
+ * the wheel next passes over it. Rescheduling a key replaces its previous timer.
+ *
+ * Not thread-safe on its own; callers synchronize.
+ *
+ * Used by: StuckAuthorizationWatchdog
+ */
+class HierarchicalTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private static final class Timer {
+        final String key;
+        final long deadlineTick;
+
+        Timer(String key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMs;
+    private final List<List<Timer>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private final Map<String, Timer> timers = new HashMap<>();
+    private List<Timer> overdue = new ArrayList<>();
+    private long currentTick;
+
+    HierarchicalTimingWheel(long tickMs, long startMs) {
+        this.tickMs = tickMs;
+        this.currentTick = startMs / tickMs;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    void schedule(String key, long deadlineMs) {
+        Timer timer = new Timer(key, Math.floorDiv(deadlineMs + tickMs - 1, tickMs));
+        timers.put(key, timer);
+        place(timer);
+    }
+
+    boolean cancel(String key) {
+        return timers.remove(key) != null;
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and returns the keys whose deadline has passed.
+     */
+    List<String> advanceTo(long nowMs) {
+        List<String> expired = new ArrayList<>();
+        drainOverdue(expired);
+
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = SLOT_BITS * level;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    List<Timer> slot = takeSlot(level, (int) ((currentTick >>> shift) & SLOT_MASK));
+                    for (Timer timer : slot) {
+                        if (timers.get(timer.key) == timer) {
+                            place(timer);
+                        }
+                    }
+                }
+            }
+            for (Timer timer : takeSlot(0, (int) (currentTick & SLOT_MASK))) {
+                if (timers.get(timer.key) == timer) {
+                    if (timer.deadlineTick <= currentTick) {
+                        timers.remove(timer.key);
+                        expired.add(timer.key);
+                    } else {
+                        place(timer);
+                    }
+                }
+            }
+            drainOverdue(expired);
+        }
+        return expired;
+    }
+
+    private void place(Timer timer) {
+        if (timer.deadlineTick <= currentTick) {
+            overdue.add(timer);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if ((timer.deadlineTick >>> shift) - (currentTick >>> shift) < SLOTS) {
+                slotAt(level, (int) ((timer.deadlineTick >>> shift) & SLOT_MASK)).add(timer);
+                return;
+            }
+        }
+        // Beyond the wheel's span: park in the top-level slot visited last; it is re-placed on cascade
+        int shift = SLOT_BITS * (LEVELS - 1);
+        slotAt(LEVELS - 1, (int) (((currentTick >>> shift) - 1) & SLOT_MASK)).add(timer);
+    }
+
+    private void drainOverdue(List<String> expired) {
+        if (overdue.isEmpty()) {
+            return;
+        }
+        List<Timer> due = overdue;
+        overdue = new ArrayList<>();
+        for (Timer timer : due) {
+            if (timers.get(timer.key) == timer) {
+                timers.remove(timer.key);
+                expired.add(timer.key);
+            }
+        }
+    }
+
+    private List<Timer> slotAt(int level, int index) {
+        return slots.get(level * SLOTS + index);
+    }
+
+    private List<Timer> takeSlot(int level, int index) {
+        List<Timer> slot = slotAt(level, index);
+        if (slot.isEmpty()) {
+            return slot;
+        }
+        slots.set(level * SLOTS + index, new ArrayList<>());
+        return slot;
+    }
+}
@@ -0,0 +1,456 @@
+package com.payment.platform.reconciliation.service;
+
+import com.payment.platform.reconciliation.columnar.ColumnType;
+import com.payment.platform.reconciliation.columnar.ColumnarReader;
+import com.payment.platform.reconciliation.columnar.ColumnarWriter;
+import com.payment.platform.reconciliation.model.LedgerPartition;
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.repository.ArchivedPaymentRepository;
+import com.payment.platform.reconciliation.repository.LedgerPartitionRepository;
+import com.payment.platform.reconciliation.repository.PaymentLedgerRowMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Moves closed creation-day partitions of the payment ledger to a columnar cold archive.
+ *
+ * A day is closed once it is older than reconciliation.archive.hot-days and all of its entries
+ * are MATCHED and SETTLED or REJECTED, so nothing about them can change any more. Archiving a day,
+ * in one transaction:
+ * - Deletes its entries from payment_ledger, giving up if any changed since they were read
+ * - Writes them to a new ledger-<day>-<millis>.rcol file in reconciliation.archive.dir (one
+ *   compressed block per column); a file already in the manifest is never overwritten
+ * - Records the LedgerPartition manifest row and an ArchivedPayment index row per entry
+ * After commit the day's previous file is deleted; after a rollback the new one is, so the
+ * manifest, the files and the hot rows always agree.
+ *
+ * The hot table then only holds recent or unresolved entries, so date-range reconciliation
+ * and the startup counter queries do not grow with the age of the ledger. Archived days are
+ * accounted for from the manifest; a file is only opened for a day cut by a range boundary,
+ * and lookups by paymentId, orderId or correlationId open only the days the index names.
+ *
+ * Used by: ReconciliationService (date-range, order and correlation lookups), ReconciliationCounters,
+ *          ReconciliationController, SettlementFileReconciler, BatchedLedgerWriter
+ */
+@Service
+@Slf4j
+public class LedgerArchiver {
+
+    private static final String CLOSED_CONDITION =
+            "reconciliation_status = 'MATCHED' AND payment_status IN ('SETTLED', 'REJECTED')";
+
+    private static final String CLOSED_DAYS_SQL =
+            "SELECT created_day FROM payment_ledger WHERE created_day < ? GROUP BY created_day " +
+            "HAVING COUNT(*) = SUM(CASE WHEN " + CLOSED_CONDITION + " THEN 1 ELSE 0 END) ORDER BY created_day";
+
+    private static final String SELECT_DAY_SQL =
+            "SELECT " + PaymentLedgerRowMapper.COLUMNS + " FROM payment_ledger WHERE created_day = ? ORDER BY payment_id";
+
+    private static final String DELETE_DAY_SQL =
+            "DELETE FROM payment_ledger WHERE created_day = ? AND " + CLOSED_CONDITION;
+
+    private static final String INDEX_PAYMENT_SQL =
+            "MERGE INTO archived_payments (payment_id, order_id, correlation_id, created_day) KEY (payment_id) " +
+            "VALUES (?, ?, ?, ?)";
+
+    /**
+     * Entries and amount of the archived ledger within a time range.
+     */
+    public static final class ArchivedTotals {
+        private long count;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        public long getCount() { return count; }
+
+        public BigDecimal getAmount() { return amount; }
+
+        private void add(long entries, BigDecimal total) {
+            count += entries;
+            amount = amount.add(total != null ? total : BigDecimal.ZERO);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LedgerPartitionRepository partitionRepository;
+
+    @Autowired
+    private ArchivedPaymentRepository archivedPaymentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${reconciliation.archive.dir:ledger-archive}")
+    private String archiveDir;
+
+    @Value("${reconciliation.archive.hot-days:30}")
+    private int hotDays;
+
+    /**
+     * Archives every closed day older than the hot window.
+     */
+    @Scheduled(cron = "${reconciliation.archive.cron:0 30 3 * * ?}")
+    public int archiveClosedPartitions() {
+        LocalDate before = LocalDate.now().minusDays(hotDays);
+        List<LocalDate> days = jdbcTemplate.queryForList(CLOSED_DAYS_SQL, LocalDate.class, before);
+
+        int archived = 0;
+        for (LocalDate day : days) {
+            try {
+                if (archiveDay(day)) {
+                    archived++;
+                }
+            } catch (Exception e) {
+                log.error("Failed to archive ledger partition {}", day, e);
+            }
+        }
+        if (!days.isEmpty()) {
+            log.info("Archived {} of {} closed ledger partitions before {}", archived, days.size(), before);
+        }
+        return archived;
+    }
+
+    /**
+     * Archives one day if it is still closed. A day that was archived before and has gained
+     * entries since (e.g. from a replay) is rewritten with the old and new entries merged.
+     */
+    public boolean archiveDay(LocalDate day) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return Boolean.TRUE.equals(transaction.execute(status -> {
+            List<PaymentLedgerEntry> hot = jdbcTemplate.query(SELECT_DAY_SQL, PaymentLedgerRowMapper.INSTANCE, day);
+            if (hot.isEmpty() || !hot.stream().allMatch(LedgerArchiver::isClosed)) {
+                return false;
+            }
+
+            LedgerPartition partition = partitionRepository.findById(day).orElseGet(LedgerPartition::new);
+            List<PaymentLedgerEntry> entries = hot;
+            if (partition.getArchiveFile() != null) {
+                Map<String, PaymentLedgerEntry> merged = new LinkedHashMap<>();
+                readPartition(partition).forEach(entry -> merged.put(entry.getPaymentId(), entry));
+                hot.forEach(entry -> merged.put(entry.getPaymentId(), entry));
+                entries = new ArrayList<>(merged.values());
+                entries.sort(Comparator.comparing(PaymentLedgerEntry::getPaymentId));
+            }
+
+            int deleted = jdbcTemplate.update(DELETE_DAY_SQL, day);
+            if (deleted != hot.size()) {
+                // An entry changed between the read and the delete; the next run retries the day
+                throw new IllegalStateException("Ledger partition " + day + " changed while archiving");
+            }
+
+            Path file = archiveFile(day);
+            String previousFile = partition.getArchiveFile();
+            afterCompletion(committed -> deleteQuietly(committed ? previousFile : file.toString()));
+            try {
+                writePartition(entries, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write ledger archive " + file, e);
+            }
+
+            List<Object[]> index = new ArrayList<>(hot.size());
+            for (PaymentLedgerEntry entry : hot) {
+                index.add(new Object[] {entry.getPaymentId(), entry.getOrderId(), entry.getCorrelationId(), day});
+            }
+            jdbcTemplate.batchUpdate(INDEX_PAYMENT_SQL, index);
+
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            long settled = 0;
+            for (PaymentLedgerEntry entry : entries) {
+                if (entry.getAmount() != null) {
+                    totalAmount = totalAmount.add(entry.getAmount());
+                }
+                if ("SETTLED".equals(entry.getPaymentStatus())) {
+                    settled++;
+                }
+            }
+            partition.setDay(day);
+            partition.setEntryCount(entries.size());
+            partition.setSettledCount(settled);
+            partition.setRejectedCount(entries.size() - settled);
+            partition.setTotalAmount(totalAmount);
+            partition.setArchiveFile(file.toString());
+            partition.setArchivedAt(LocalDateTime.now());
+            partitionRepository.save(partition);
+
+            log.info("Archived ledger partition {}: {} entries to {}", day, entries.size(), file);
+            return true;
+        }));
+    }
+
+    /**
+     * Count and amount of archived entries created within [start, end].
+     */
+    public ArchivedTotals archivedTotals(LocalDateTime start, LocalDateTime end) {
+        ArchivedTotals totals = new ArchivedTotals();
+        for (LedgerPartition partition : partitionRepository.findByDayBetweenOrderByDay(start.toLocalDate(), end.toLocalDate())) {
+            LocalDateTime dayStart = partition.getDay().atStartOfDay();
+            LocalDateTime dayEnd = partition.getDay().plusDays(1).atStartOfDay().minusNanos(1);
+            if (!dayStart.isBefore(start) && !dayEnd.isAfter(end)) {
+                totals.add(partition.getEntryCount(), partition.getTotalAmount());
+            } else {
+                addBoundaryDay(totals, partition, start, end);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * All archived entries of one day, in paymentId order; empty if the day is not archived.
+     */
+    public List<PaymentLedgerEntry> readPartition(LocalDate day) {
+        return partitionRepository.findById(day).map(this::readPartition).orElse(List.of());
+    }
+
+    /**
+     * Archived entries of the given payments; payments that are not archived are left out.
+     */
+    public List<PaymentLedgerEntry> findArchived(Collection<String> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return List.of();
+        }
+        Set<String> wanted = new HashSet<>(paymentIds);
+        List<PaymentLedgerEntry> found = new ArrayList<>();
+        for (LocalDate day : archivedPaymentRepository.findDaysByPaymentIdIn(wanted)) {
+            for (PaymentLedgerEntry entry : readPartition(day)) {
+                if (wanted.contains(entry.getPaymentId())) {
+                    found.add(entry);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Which of the given payments have been archived, read from the index only.
+     */
+    public Set<String> archivedPaymentIds(Collection<String> paymentIds) {
+        return paymentIds.isEmpty() ? Set.of() : new HashSet<>(archivedPaymentRepository.findPaymentIdsIn(paymentIds));
+    }
+
+    public List<PaymentLedgerEntry> findArchivedByOrderId(String orderId) {
+        List<PaymentLedgerEntry> found = new ArrayList<>();
+        for (LocalDate day : archivedPaymentRepository.findDaysByOrderId(orderId)) {
+            for (PaymentLedgerEntry entry : readPartition(day)) {
+                if (orderId.equals(entry.getOrderId())) {
+                    found.add(entry);
+                }
+            }
+        }
+        found.sort(Comparator.comparing(PaymentLedgerEntry::getPaymentId));
+        return found;
+    }
+
+    public Optional<PaymentLedgerEntry> findArchivedByCorrelationId(String correlationId) {
+        for (LocalDate day : archivedPaymentRepository.findDaysByCorrelationId(correlationId)) {
+            for (PaymentLedgerEntry entry : readPartition(day)) {
+                if (correlationId.equals(entry.getCorrelationId())) {
+                    return Optional.of(entry);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Archived days whose file can hold entries settled within [from, to), judged from the
+     * settlement_date range in each file's footer. Null bounds select every archived day.
+     */
+    public List<LedgerPartition> partitionsSettledBetween(LocalDateTime from, LocalDateTime to) {
+        List<LedgerPartition> partitions = new ArrayList<>();
+        for (LedgerPartition partition : partitionRepository.findAll()) {
+            if (from == null && to == null) {
+                partitions.add(partition);
+                continue;
+            }
+            if (to != null && !partition.getDay().isBefore(to.toLocalDate().plusDays(1))) {
+                continue;
+            }
+            try (ColumnarReader reader = ColumnarReader.open(Paths.get(partition.getArchiveFile()))) {
+                long min = reader.min("settlement_date");
+                long max = reader.max("settlement_date");
+                if (min != ColumnarReader.NULL
+                        && (from == null || max >= ColumnarReader.toMillis(from))
+                        && (to == null || min < ColumnarReader.toMillis(to))) {
+                    partitions.add(partition);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read ledger archive " + partition.getArchiveFile(), e);
+            }
+        }
+        partitions.sort(Comparator.comparing(LedgerPartition::getDay));
+        return partitions;
+    }
+
+    /**
+     * All entries of an archived day, in paymentId order.
+     */
+    public List<PaymentLedgerEntry> readPartition(LedgerPartition partition) {
+        LocalDate day = partition.getDay();
+        try (ColumnarReader reader = ColumnarReader.open(Paths.get(partition.getArchiveFile()))) {
+            int rows = reader.getRowCount();
+            String[] paymentIds = reader.readStrings("payment_id");
+            String[] orderIds = reader.readStrings("order_id");
+            String[] paymentStatuses = reader.readStrings("payment_status");
+            String[] settlementIds = reader.readStrings("settlement_id");
+            long[] settlementDates = reader.readLongs("settlement_date");
+            long[] amounts = reader.readLongs("amount");
+            String[] authorizationCodes = reader.readStrings("authorization_code");
+            String[] riskScores = reader.readStrings("risk_score");
+            String[] rejectionReasons = reader.readStrings("rejection_reason");
+            long[] createdAts = reader.readLongs("created_at");
+            long[] updatedAts = reader.readLongs("updated_at");
+            String[] reconciliationStatuses = reader.readStrings("reconciliation_status");
+            String[] mismatchTypes = reader.readStrings("mismatch_type");
+            long[] lastReconciledAts = reader.readLongs("last_reconciled_at");
+            String[] correlationIds = reader.readStrings("correlation_id");
+            // Files archived before the currency column was added have none
+            String[] currencies = reader.hasColumn("currency") ? reader.readStrings("currency") : new String[rows];
+
+            List<PaymentLedgerEntry> entries = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                PaymentLedgerEntry entry = new PaymentLedgerEntry();
+                entry.setPaymentId(paymentIds[row]);
+                entry.setOrderId(orderIds[row]);
+                entry.setPaymentStatus(paymentStatuses[row]);
+                entry.setSettlementId(settlementIds[row]);
+                entry.setSettlementDate(ColumnarReader.toLocalDateTime(settlementDates[row]));
+                entry.setAmount(ColumnarReader.toAmount(amounts[row]));
+                entry.setAuthorizationCode(authorizationCodes[row]);
+                entry.setRiskScore(riskScores[row]);
+                entry.setRejectionReason(rejectionReasons[row]);
+                entry.setCreatedAt(ColumnarReader.toLocalDateTime(createdAts[row]));
+                entry.setUpdatedAt(ColumnarReader.toLocalDateTime(updatedAts[row]));
+                entry.setReconciliationStatus(reconciliationStatuses[row]);
+                entry.setMismatchType(mismatchTypes[row]);
+                entry.setLastReconciledAt(ColumnarReader.toLocalDateTime(lastReconciledAts[row]));
+                entry.setCorrelationId(correlationIds[row]);
+                entry.setCurrency(currencies[row]);
+                entry.setCreatedDay(day);
+                entries.add(entry);
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ledger archive " + partition.getArchiveFile(), e);
+        }
+    }
+
+    public List<LedgerPartition> getPartitions(LocalDate from, LocalDate to) {
+        return partitionRepository.findByDayBetweenOrderByDay(from, to);
+    }
+
+    // Only the created_at and amount columns are read for a day cut by the range
+    private void addBoundaryDay(ArchivedTotals totals, LedgerPartition partition, LocalDateTime start, LocalDateTime end) {
+        try (ColumnarReader reader = ColumnarReader.open(Paths.get(partition.getArchiveFile()))) {
+            long from = ColumnarReader.toMillis(start);
+            long to = ColumnarReader.toMillis(end);
+            if (reader.max("created_at") < from || reader.min("created_at") > to) {
+                return;
+            }
+            long[] createdAts = reader.readLongs("created_at");
+            long[] amounts = reader.readLongs("amount");
+            long count = 0;
+            long minorUnits = 0;
+            for (int row = 0; row < createdAts.length; row++) {
+                if (createdAts[row] >= from && createdAts[row] <= to) {
+                    count++;
+                    if (amounts[row] != ColumnarReader.NULL) {
+                        minorUnits += amounts[row];
+                    }
+                }
+            }
+            totals.add(count, ColumnarReader.toAmount(minorUnits));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ledger archive " + partition.getArchiveFile(), e);
+        }
+    }
+
+    private void writePartition(List<PaymentLedgerEntry> entries, Path file) throws IOException {
+        ColumnarWriter writer = new ColumnarWriter()
+                .column("payment_id", ColumnType.STRING)
+                .column("order_id", ColumnType.STRING)
+                .column("payment_status", ColumnType.DICTIONARY)
+                .column("settlement_id", ColumnType.STRING)
+                .column("settlement_date", ColumnType.TIMESTAMP)
+                .column("amount", ColumnType.DECIMAL)
+                .column("authorization_code", ColumnType.STRING)
+                .column("risk_score", ColumnType.DICTIONARY)
+                .column("rejection_reason", ColumnType.DICTIONARY)
+                .column("created_at", ColumnType.TIMESTAMP)
+                .column("updated_at", ColumnType.TIMESTAMP)
+                .column("reconciliation_status", ColumnType.DICTIONARY)
+                .column("mismatch_type", ColumnType.DICTIONARY)
+                .column("last_reconciled_at", ColumnType.TIMESTAMP)
+                .column("correlation_id", ColumnType.STRING)
+                .column("currency", ColumnType.DICTIONARY);
+        for (PaymentLedgerEntry entry : entries) {
+            writer.addRow(entry.getPaymentId(), entry.getOrderId(), entry.getPaymentStatus(), entry.getSettlementId(),
+                    entry.getSettlementDate(), entry.getAmount(), entry.getAuthorizationCode(), entry.getRiskScore(),
+                    entry.getRejectionReason(), entry.getCreatedAt(), entry.getUpdatedAt(),
+                    entry.getReconciliationStatus(), entry.getMismatchType(), entry.getLastReconciledAt(),
+                    entry.getCorrelationId(), entry.getCurrency());
+        }
+        Files.createDirectories(file.getParent());
+        writer.write(file);
+    }
+
+    // A new name per write, so the file a committed manifest row points at is never replaced
+    private Path archiveFile(LocalDate day) {
+        return Paths.get(archiveDir).toAbsolutePath().resolve("ledger-" + day + "-" + System.currentTimeMillis() + ".rcol");
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static void deleteQuietly(String file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(file));
+        } catch (IOException e) {
+            log.warn("Failed to delete ledger archive file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static boolean isClosed(PaymentLedgerEntry entry) {
+        return "MATCHED".equals(entry.getReconciliationStatus())
+                && ("SETTLED".equals(entry.getPaymentStatus()) || "REJECTED".equals(entry.getPaymentStatus()));
+    }
+}
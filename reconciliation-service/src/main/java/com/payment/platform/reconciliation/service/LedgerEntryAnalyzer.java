@@ -0,0 +1,78 @@
+package com.payment.platform.reconciliation.service;
+
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Consistency checks applied to a single payment ledger entry.
+ *
+ * Checks (first failing check wins):
+ * - MISSING_SETTLEMENT_ID (HIGH): SETTLED without a settlement ID
+ * - STATUS_MISMATCH (MEDIUM): settlement ID present but not SETTLED
+ * - STUCK_AUTHORIZATION (MEDIUM): AUTHORIZED for more than STUCK_AUTHORIZATION_HOURS
+ *
+ * Used by: ReconciliationService (batch runs and sweeps), ReconciliationEventHandler (inline)
+ */
+@Component
+public class LedgerEntryAnalyzer {
+
+    public static final int STUCK_AUTHORIZATION_HOURS = 24;
+
+    /**
+     * Analyzes a single ledger entry for reconciliation issues; null when the entry is consistent.
+     */
+    public ReconciliationResult.ReconciliationMismatch analyze(PaymentLedgerEntry entry) {
+        
+        // Check 1: SETTLED status without settlement ID
+        if ("SETTLED".equals(entry.getPaymentStatus()) && entry.getSettlementId() == null) {
+            return new ReconciliationResult.ReconciliationMismatch(
+                    entry.getPaymentId(),
+                    null,
+                    entry.getOrderId(),
+                    "MISSING_SETTLEMENT_ID",
+                    null,
+                    null,
+                    "Payment marked as SETTLED but missing settlement ID",
+                    LocalDateTime.now(),
+                    "HIGH"
+            );
+        }
+        
+        // Check 2: Settlement ID present but not SETTLED status
+        if (entry.getSettlementId() != null && !"SETTLED".equals(entry.getPaymentStatus())) {
+            return new ReconciliationResult.ReconciliationMismatch(
+                    entry.getPaymentId(),
+                    entry.getSettlementId(),
+                    entry.getOrderId(),
+                    "STATUS_MISMATCH",
+                    null,
+                    null,
+                    "Settlement ID present but payment not marked as SETTLED",
+                    LocalDateTime.now(),
+                    "MEDIUM"
+            );
+        }
+        
+        // Check 3: AUTHORIZED status for too long (potential stuck payment)
+        if ("AUTHORIZED".equals(entry.getPaymentStatus()) && 
+            entry.getCreatedAt().isBefore(LocalDateTime.now().minusHours(STUCK_AUTHORIZATION_HOURS))) {
+            return new ReconciliationResult.ReconciliationMismatch(
+                    entry.getPaymentId(),
+                    null,
+                    entry.getOrderId(),
+                    "STUCK_AUTHORIZATION",
+                    null,
+                    null,
+                    "Payment stuck in AUTHORIZED status for over 24 hours",
+                    LocalDateTime.now(),
+                    "MEDIUM"
+            );
+        }
+        
+        // No mismatches found
+        return null;
+    }
+}
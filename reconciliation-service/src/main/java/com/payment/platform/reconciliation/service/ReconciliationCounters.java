@@ -0,0 +1,235 @@
+package com.payment.platform.reconciliation.service;
+
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.repository.LedgerPartitionRepository;
+import com.payment.platform.reconciliation.repository.PaymentLedgerRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.axonframework.lifecycle.Phase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Materialized ledger counters, so reconciliation statistics are read without COUNT queries.
+ *
+ * Counts are kept per reconciliation status, per payment status and per mismatch type (of
+ * entries currently in MISMATCH), plus the total number of entries. Every writer of the ledger
+ * reports the entry's state before and after its change; inside a transaction the delta is
+ * applied only after commit, so rolled-back changes are never counted.
+ *
+ * On startup the counters are loaded from the database with three GROUP BY queries over the
+ * hot ledger, plus the archived partition totals from the LedgerArchiver manifest. The load
+ * runs in the lifecycle phase just before Axon starts its event processors, so no handler
+ * can apply a delta that the loaded counts already include (or that the load then resets).
+ *
+ * Used by: ReconciliationService (stats, batch updates), BatchedLedgerWriter,
+ *          StuckAuthorizationWatchdog
+ */
+@Component
+@Slf4j
+public class ReconciliationCounters implements SmartLifecycle {
+
+    /**
+     * The counted fields of one ledger entry.
+     */
+    public static final class State {
+        private final String paymentStatus;
+        private final String reconciliationStatus;
+        private final String mismatchType;
+
+        public State(String paymentStatus, String reconciliationStatus, String mismatchType) {
+            this.paymentStatus = paymentStatus;
+            this.reconciliationStatus = reconciliationStatus;
+            this.mismatchType = mismatchType;
+        }
+
+        public static State of(PaymentLedgerEntry entry) {
+            return new State(entry.getPaymentStatus(), entry.getReconciliationStatus(), entry.getMismatchType());
+        }
+
+        public State withReconciliation(String reconciliationStatus, String mismatchType) {
+            return new State(paymentStatus, reconciliationStatus, mismatchType);
+        }
+
+        boolean sameAs(State other) {
+            return other != null
+                    && Objects.equals(paymentStatus, other.paymentStatus)
+                    && Objects.equals(reconciliationStatus, other.reconciliationStatus)
+                    && Objects.equals(mismatchType, other.mismatchType);
+        }
+    }
+
+    @Autowired
+    private PaymentLedgerRepository paymentLedgerRepository;
+    
+    @Autowired
+    private LedgerPartitionRepository partitionRepository;
+
+    private final AtomicLong total = new AtomicLong();
+    private final Map<String, LongAdder> byReconciliationStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byPaymentStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byMismatchType = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        loadFromDatabase();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Event processors start in INBOUND_EVENT_CONNECTORS; lower phases start first
+    @Override
+    public int getPhase() {
+        return Phase.INBOUND_EVENT_CONNECTORS - 1;
+    }
+
+    /**
+     * Replaces the counters with the current database counts.
+     */
+    public void loadFromDatabase() {
+        long count = paymentLedgerRepository.count();
+        Map<String, Long> reconciliation = toMap(paymentLedgerRepository.countGroupedByReconciliationStatus());
+        Map<String, Long> payment = toMap(paymentLedgerRepository.countGroupedByPaymentStatus());
+        Map<String, Long> mismatch = toMap(paymentLedgerRepository.countGroupedByMismatchType());
+        
+        // Archived partitions are no longer in payment_ledger; all of their entries are MATCHED
+        Object[] archived = partitionRepository.sumArchivedCounts().get(0);
+        long archivedEntries = ((Number) archived[0]).longValue();
+        if (archivedEntries > 0) {
+            count += archivedEntries;
+            reconciliation.merge("MATCHED", archivedEntries, Long::sum);
+            payment.merge("SETTLED", ((Number) archived[1]).longValue(), Long::sum);
+            payment.merge("REJECTED", ((Number) archived[2]).longValue(), Long::sum);
+        }
+
+        total.set(count);
+        reset(byReconciliationStatus, reconciliation);
+        reset(byPaymentStatus, payment);
+        reset(byMismatchType, mismatch);
+        log.info("Reconciliation counters loaded: total={}, reconciliation={}, payment={}, mismatches={}",
+                count, reconciliation, payment, mismatch);
+    }
+
+    /**
+     * Records a ledger change; before is null for a newly created entry.
+     */
+    public void onChange(State before, State after) {
+        if (after.sameAs(before)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(before, after);
+                }
+            });
+        } else {
+            apply(before, after);
+        }
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long countByReconciliationStatus(String reconciliationStatus) {
+        return valueOf(byReconciliationStatus, reconciliationStatus);
+    }
+
+    public long countByPaymentStatus(String paymentStatus) {
+        return valueOf(byPaymentStatus, paymentStatus);
+    }
+
+    public long countByMismatchType(String mismatchType) {
+        return valueOf(byMismatchType, mismatchType);
+    }
+
+    /**
+     * All counters, for the stats breakdown endpoint.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        snapshot.put("total", total.get());
+        snapshot.put("reconciliationStatus", toSortedMap(byReconciliationStatus));
+        snapshot.put("paymentStatus", toSortedMap(byPaymentStatus));
+        snapshot.put("mismatchType", toSortedMap(byMismatchType));
+        return snapshot;
+    }
+
+    private void apply(State before, State after) {
+        if (before == null) {
+            total.incrementAndGet();
+        } else {
+            add(byReconciliationStatus, before.reconciliationStatus, -1);
+            add(byPaymentStatus, before.paymentStatus, -1);
+            if ("MISMATCH".equals(before.reconciliationStatus)) {
+                add(byMismatchType, before.mismatchType, -1);
+            }
+        }
+        add(byReconciliationStatus, after.reconciliationStatus, 1);
+        add(byPaymentStatus, after.paymentStatus, 1);
+        if ("MISMATCH".equals(after.reconciliationStatus)) {
+            add(byMismatchType, after.mismatchType, 1);
+        }
+    }
+
+    private static void add(Map<String, LongAdder> counters, String key, long delta) {
+        if (key != null) {
+            counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static long valueOf(Map<String, LongAdder> counters, String key) {
+        LongAdder counter = key != null ? counters.get(key) : null;
+        return counter != null ? counter.sum() : 0L;
+    }
+
+    private static void reset(Map<String, LongAdder> counters, Map<String, Long> values) {
+        counters.keySet().retainAll(values.keySet());
+        values.forEach((key, value) -> {
+            LongAdder counter = counters.computeIfAbsent(key, k -> new LongAdder());
+            counter.reset();
+            counter.add(value);
+        });
+    }
+
+    private static Map<String, Long> toMap(List<Object[]> rows) {
+        Map<String, Long> values = new TreeMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                values.put((String) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, Long> toSortedMap(Map<String, LongAdder> counters) {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((key, counter) -> values.put(key, counter.sum()));
+        return values;
+    }
+}
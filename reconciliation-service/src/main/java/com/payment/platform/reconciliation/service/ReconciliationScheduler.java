@@ -36,8 +36,14 @@ public class ReconciliationScheduler {
     @Value("${reconciliation.retry.delay-ms:5000}")
     private long retryDelayMs;
     
+    @Value("${reconciliation.continuous.enabled:true}")
+    private boolean continuousReconciliation;
+    
     /**
      * Daily reconciliation job scheduled to run at 2 AM by default.
+     * 
+     * With continuous reconciliation the ledger is already reconciled as events arrive, so the
+     * job only sweeps entries changed since the previous sweep instead of the full ledger.
      */
     @Scheduled(cron = "${reconciliation.schedule.cron:0 0 2 * * ?}")
     public void performDailyReconciliation() {
@@ -51,7 +57,9 @@ public class ReconciliationScheduler {
             try {
                 log.info("Reconciliation attempt {} of {}", attempt, maxRetryAttempts);
                 
-                ReconciliationResult result = reconciliationService.performFullReconciliation();
+                ReconciliationResult result = continuousReconciliation
+                        ? reconciliationService.performIncrementalSweep()
+                        : reconciliationService.performFullReconciliation();
                 
                 logReconciliationResult(result);
                 
@@ -1,8 +1,13 @@
 package com.payment.platform.reconciliation.service;
 
 import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.model.ReconciliationCheckpoint;
+import com.payment.platform.reconciliation.model.ReconciliationCheckpointMismatch;
 import com.payment.platform.reconciliation.model.ReconciliationResult;
 import com.payment.platform.reconciliation.repository.PaymentLedgerRepository;
+import com.payment.platform.reconciliation.repository.ReconciliationCheckpointMismatchRepository;
+import com.payment.platform.reconciliation.repository.ReconciliationCheckpointRepository;
+import com.payment.platform.reconciliation.report.ReconciliationReportStore;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -10,13 +15,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Core reconciliation service that compares payments against settlements.
@@ -26,6 +41,14 @@ import java.util.UUID;
  * - Identifies mismatches between payments and settlements
  * - Generates detailed reconciliation reports
  * - Updates ledger entries with reconciliation status
+ * - Streams the ledger in keyset-paginated chunks of reconciliation.batch.size,
+ *   one JDBC batch and one commit per chunk, with a resumable checkpoint for full runs
+ * - Runs full reconciliation in parallel over paymentId hash ranges on a bounded ForkJoinPool
+ * - Sweeps only entries changed since the previous sweep when continuous reconciliation is on
+ * - Routes date-range reconciliation to the creation-day partitions in range, split into
+ *   slices of reconciliation.date-range.slice-hours, counting archived days from the
+ *   LedgerArchiver manifest
+ * - Includes archived entries in order reconciliation and correlationId lookups
  */
 @Service
 @Slf4j
@@ -36,25 +59,121 @@ public class ReconciliationService {
     @Autowired
     private PaymentLedgerRepository paymentLedgerRepository;
     
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+    
+    @Autowired
+    private ReconciliationCheckpointMismatchRepository checkpointMismatchRepository;
+    
+    @Autowired
+    private LedgerEntryAnalyzer ledgerEntryAnalyzer;
+    
+    @Autowired
+    private ReconciliationCounters reconciliationCounters;
+    
+    @Autowired
+    private LedgerArchiver ledgerArchiver;
+    
+    @Autowired
+    private ReconciliationReportStore reportStore;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     @Value("${reconciliation.batch.size:100}")
     private int batchSize;
     
+    @Value("${reconciliation.parallel.threads:0}")
+    private int parallelThreads;
+    
+    @Value("${reconciliation.date-range.slice-hours:24}")
+    private int sliceHours;
+    
+    static final String FULL_RECONCILIATION_JOB = "FULL";
+    
+    static final String SWEEP_JOB = "SWEEP";
+    
+    private ForkJoinPool reconciliationPool;
+    
+    // updated_at is left alone: it tracks payment changes, which is what incremental sweeps select on.
+    // row_version is bumped so a BatchedLedgerWriter that read the row earlier does not overwrite the status,
+    // and checked so the status is not written over a payment change made after the entry was read
+    private static final String UPDATE_RECONCILIATION_STATUS_SQL =
+            "UPDATE payment_ledger SET reconciliation_status = ?, mismatch_type = ?, last_reconciled_at = ?, " +
+            "row_version = COALESCE(row_version, 0) + 1 WHERE payment_id = ? AND COALESCE(row_version, 0) = ?";
+    
+    /**
+     * Next keyset chunk of ledger entries after the given paymentId.
+     */
+    @FunctionalInterface
+    private interface ChunkQuery {
+        List<PaymentLedgerEntry> next(String afterPaymentId, Pageable chunk);
+    }
+    
+    @PostConstruct
+    public void init() {
+        int parallelism = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+        reconciliationPool = new ForkJoinPool(parallelism);
+        log.info("Reconciliation parallelism: {} partitions over {} hash buckets",
+                parallelism, PaymentLedgerEntry.PARTITION_BUCKETS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        reconciliationPool.shutdownNow();
+    }
+    
     /**
      * Performs full reconciliation of all pending transactions.
+     * 
+     * PENDING entries are streamed in chunks of reconciliation.batch.size; each chunk's status
+     * updates and its checkpoint commit together. With more than one thread the ledger is split
+     * into paymentId hash ranges that are reconciled concurrently, each with its own checkpoint.
+     * A run that stopped part way is resumed under its original reconciliationId.
      */
     public ReconciliationResult performFullReconciliation() {
         log.info("Starting full reconciliation process");
         
-        String reconciliationId = UUID.randomUUID().toString();
-        LocalDateTime startTime = LocalDateTime.now();
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(FULL_RECONCILIATION_JOB)
+                .filter(ReconciliationCheckpoint::isRunning)
+                .orElse(null);
+        
+        String reconciliationId;
+        LocalDateTime startTime;
+        if (checkpoint != null) {
+            reconciliationId = checkpoint.getReconciliationId();
+            startTime = checkpoint.getStartedAt();
+            log.info("Resuming reconciliation {} after paymentId {} ({} entries already processed)",
+                    reconciliationId, checkpoint.getLastPaymentId(), checkpoint.getProcessed());
+        } else {
+            reconciliationId = UUID.randomUUID().toString();
+            startTime = LocalDateTime.now();
+            checkpoint = startCheckpoint(ReconciliationCheckpoint.start(FULL_RECONCILIATION_JOB, reconciliationId, startTime));
+        }
         
         try {
-            List<PaymentLedgerEntry> pendingEntries = paymentLedgerRepository
-                    .findByReconciliationStatus("PENDING");
-            
-            log.info("Found {} pending entries for reconciliation", pendingEntries.size());
-            
-            ReconciliationResult result = reconcileEntries(pendingEntries, reconciliationId, startTime);
+            ReconciliationTally total;
+            if (reconciliationPool.getParallelism() > 1) {
+                int leafBuckets = Math.max(1, PaymentLedgerEntry.PARTITION_BUCKETS / reconciliationPool.getParallelism());
+                total = reconciliationPool.invoke(
+                        new PartitionTask(reconciliationId, 0, PaymentLedgerEntry.PARTITION_BUCKETS, leafBuckets));
+                // Partitions finish in any order; restore the serial (paymentId) order
+                total.sortMismatches();
+                
+                total.copyTo(checkpoint);
+                checkpoint.setStatus("COMPLETED");
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            } else {
+                total = reconcileInChunks(
+                        (after, chunk) -> paymentLedgerRepository.findChunkByReconciliationStatus("PENDING", after, chunk),
+                        checkpoint, reconciliationId);
+            }
+            ReconciliationResult result = toResult(reconciliationId, startTime, total);
+            reportStore.save("FULL", result);
             
             log.info("Reconciliation completed. Status: {}, Matched: {}, Mismatches: {}", 
                     result.getStatus(), 
@@ -79,7 +198,60 @@ public class ReconciliationService {
     }
     
     /**
-     * Performs reconciliation for a specific date range.
+     * Incremental sweep for continuous reconciliation.
+     * 
+     * ReconciliationEventHandler already reconciles entries as events arrive, so the sweep only
+     * re-checks entries changed since the previous sweep started (catching anything an inline
+     * check missed) and entries still PENDING. Authorizations that become stuck without any
+     * further event are flagged by StuckAuthorizationWatchdog. The lower bound is kept in the SWEEP checkpoint so an interrupted
+     * sweep resumes with the same window.
+     */
+    public ReconciliationResult performIncrementalSweep() {
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(SWEEP_JOB).orElse(null);
+        
+        if (checkpoint == null || !checkpoint.isRunning()) {
+            LocalDateTime changedSince = checkpoint != null ? checkpoint.getStartedAt() : LocalDateTime.of(1970, 1, 1, 0, 0);
+            checkpoint = ReconciliationCheckpoint.start(SWEEP_JOB, UUID.randomUUID().toString(), LocalDateTime.now());
+            checkpoint.setChangedSince(changedSince);
+            checkpoint = startCheckpoint(checkpoint);
+        }
+        
+        String reconciliationId = checkpoint.getReconciliationId();
+        LocalDateTime changedSince = checkpoint.getChangedSince();
+        log.info("Starting incremental reconciliation sweep {} for entries changed since {}", reconciliationId, changedSince);
+        
+        try {
+            ReconciliationResult result = toResult(reconciliationId, checkpoint.getStartedAt(), reconcileInChunks(
+                    (after, chunk) -> findChunkForSweep(changedSince, after, chunk),
+                    checkpoint, reconciliationId));
+            reportStore.save("SWEEP", result);
+            
+            log.info("Reconciliation sweep completed. Status: {}, Checked: {}, Mismatches: {}",
+                    result.getStatus(),
+                    result.getStats().getTotalPayments(),
+                    result.getMismatches().size());
+            
+            return result;
+            
+        } catch (Exception e) {
+            log.error("Reconciliation sweep failed for reconciliationId: {}", reconciliationId, e);
+            
+            return new ReconciliationResult(
+                    reconciliationId,
+                    checkpoint.getStartedAt(),
+                    "FAILED",
+                    new ReconciliationResult.ReconciliationStats(),
+                    new ArrayList<>(),
+                    UUID.randomUUID().toString()
+            );
+        }
+    }
+    
+    /**
+     * Performs reconciliation for a specific date range on the calling thread.
+     * 
+     * The REST API runs date ranges through DateRangeReconciliationJobs instead, which
+     * reconciles the same slices concurrently in the background.
      */
     public ReconciliationResult performDateRangeReconciliation(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("Starting date range reconciliation from {} to {}", startDate, endDate);
@@ -87,10 +259,43 @@ public class ReconciliationService {
         String reconciliationId = UUID.randomUUID().toString();
         LocalDateTime startTime = LocalDateTime.now();
         
-        List<PaymentLedgerEntry> entries = paymentLedgerRepository
-                .findByCreatedAtBetween(startDate, endDate);
+        ReconciliationTally total = new ReconciliationTally();
+        for (DateRangeSlice slice : sliceDateRange(startDate, endDate)) {
+            total.merge(reconcileSlice(reconciliationId, slice, endDate));
+        }
+        return completeDateRange(reconciliationId, startTime, startDate, endDate, total);
+    }
+    
+    /**
+     * Hot-ledger slices of a date range, reconciliation.date-range.slice-hours long.
+     */
+    List<DateRangeSlice> sliceDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return DateRangeSlice.split(startDate, endDate, sliceHours);
+    }
+    
+    /**
+     * Reconciles the hot entries of one slice; slices never overlap, so they can run concurrently.
+     */
+    ReconciliationTally reconcileSlice(String reconciliationId, DateRangeSlice slice, LocalDateTime endDate) {
+        return reconcileInChunks(
+                (after, chunk) -> paymentLedgerRepository.findChunkByCreatedDay(
+                        slice.getDay(), slice.getFrom(), slice.getUntil(), endDate, after, chunk),
+                null, reconciliationId);
+    }
+    
+    /**
+     * Adds the archived days of the range (all MATCHED) to the merged slice tallies and stores
+     * the result.
+     */
+    ReconciliationResult completeDateRange(String reconciliationId, LocalDateTime startTime,
+                                           LocalDateTime startDate, LocalDateTime endDate, ReconciliationTally total) {
+        LedgerArchiver.ArchivedTotals archived = ledgerArchiver.archivedTotals(startDate, endDate);
+        total.addMatched(archived.getCount(), archived.getAmount());
+        total.sortMismatches();
         
-        return reconcileEntries(entries, reconciliationId, startTime);
+        ReconciliationResult result = toResult(reconciliationId, startTime, total);
+        reportStore.save("DATE_RANGE", result);
+        return result;
     }
     
     /**
@@ -102,140 +307,248 @@ public class ReconciliationService {
         String reconciliationId = UUID.randomUUID().toString();
         LocalDateTime startTime = LocalDateTime.now();
         
-        List<PaymentLedgerEntry> entries = paymentLedgerRepository.findByOrderId(orderId);
-        
-        return reconcileEntries(entries, reconciliationId, startTime);
+        ReconciliationTally total = reconcileInChunks(
+                (after, chunk) -> paymentLedgerRepository.findChunkByOrderId(orderId, after, chunk),
+                null, reconciliationId);
+        // Archived entries are closed and read-only: they are checked and counted, not updated
+        for (PaymentLedgerEntry entry : ledgerArchiver.findArchivedByOrderId(orderId)) {
+            total.add(entry, ledgerEntryAnalyzer.analyze(entry));
+        }
+        ReconciliationResult result = toResult(reconciliationId, startTime, total);
+        reportStore.save("ORDER", result);
+        return result;
+    }
+    
+    /**
+     * Ledger entry with the given correlationId, from the hot table or the archive.
+     */
+    public Optional<PaymentLedgerEntry> findByCorrelationId(String correlationId) {
+        Optional<PaymentLedgerEntry> hot = paymentLedgerRepository.findByCorrelationId(correlationId);
+        return hot.isPresent() ? hot : ledgerArchiver.findArchivedByCorrelationId(correlationId);
     }
     
     /**
-     * Core reconciliation logic.
+     * Splits a paymentId hash-bucket range in halves until it is at most leafBuckets wide;
+     * each leaf streams its own range and the tallies are merged on the way back up.
      */
-    private ReconciliationResult reconcileEntries(List<PaymentLedgerEntry> entries, 
-                                               String reconciliationId, 
-                                               LocalDateTime startTime) {
+    private class PartitionTask extends RecursiveTask<ReconciliationTally> {
         
-        List<ReconciliationResult.ReconciliationMismatch> mismatches = new ArrayList<>();
-        int matchedTransactions = 0;
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        BigDecimal matchedAmount = BigDecimal.ZERO;
+        private final String reconciliationId;
+        private final int fromBucket;
+        private final int toBucket;
+        private final int leafBuckets;
         
-        for (PaymentLedgerEntry entry : entries) {
-            totalAmount = totalAmount.add(entry.getAmount() != null ? entry.getAmount() : BigDecimal.ZERO);
-            
-            ReconciliationResult.ReconciliationMismatch mismatch = analyzeEntry(entry);
-            
-            if (mismatch != null) {
-                mismatches.add(mismatch);
-                entry.setReconciliationStatus("MISMATCH");
-                entry.setLastReconciledAt(LocalDateTime.now());
-            } else {
-                matchedTransactions++;
-                matchedAmount = matchedAmount.add(entry.getAmount() != null ? entry.getAmount() : BigDecimal.ZERO);
-                entry.setReconciliationStatus("MATCHED");
-                entry.setLastReconciledAt(LocalDateTime.now());
-            }
-            
-            paymentLedgerRepository.save(entry);
+        PartitionTask(String reconciliationId, int fromBucket, int toBucket, int leafBuckets) {
+            this.reconciliationId = reconciliationId;
+            this.fromBucket = fromBucket;
+            this.toBucket = toBucket;
+            this.leafBuckets = leafBuckets;
         }
         
-        // Build statistics
-        ReconciliationResult.ReconciliationStats stats = new ReconciliationResult.ReconciliationStats();
-        stats.setTotalPayments(entries.size());
-        stats.setMatchedTransactions(matchedTransactions);
-        stats.setUnmatchedPayments(mismatches.size());
-        stats.setTotalAmount(totalAmount);
-        stats.setMatchedAmount(matchedAmount);
-        stats.setMismatchedAmount(totalAmount.subtract(matchedAmount));
-        
-        // Determine status
-        String status = mismatches.isEmpty() ? "COMPLETED" : 
-                       (matchedTransactions > 0 ? "PARTIAL" : "FAILED");
-        
-        return new ReconciliationResult(
-                reconciliationId,
-                startTime,
-                status,
-                stats,
-                mismatches,
-                UUID.randomUUID().toString()
-        );
+        @Override
+        protected ReconciliationTally compute() {
+            if (toBucket - fromBucket <= leafBuckets) {
+                return reconcilePartition(reconciliationId, fromBucket, toBucket);
+            }
+            int middle = (fromBucket + toBucket) >>> 1;
+            PartitionTask lower = new PartitionTask(reconciliationId, fromBucket, middle, leafBuckets);
+            lower.fork();
+            ReconciliationTally upper = new PartitionTask(reconciliationId, middle, toBucket, leafBuckets).compute();
+            ReconciliationTally merged = lower.join();
+            merged.merge(upper);
+            return merged;
+        }
     }
     
     /**
-     * Analyzes a single ledger entry for reconciliation issues.
+     * Reconciles PENDING entries whose hash bucket is in [fromBucket, toBucket). The partition
+     * keeps its own checkpoint; one already completed for this run contributes its saved totals.
      */
-    private ReconciliationResult.ReconciliationMismatch analyzeEntry(PaymentLedgerEntry entry) {
+    private ReconciliationTally reconcilePartition(String reconciliationId, int fromBucket, int toBucket) {
+        String jobName = FULL_RECONCILIATION_JOB + ":" + fromBucket + "-" + toBucket;
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(jobName)
+                .filter(existing -> reconciliationId.equals(existing.getReconciliationId()))
+                .orElseGet(() -> startCheckpoint(
+                        ReconciliationCheckpoint.start(jobName, reconciliationId, LocalDateTime.now())));
         
-        // Check 1: SETTLED status without settlement ID
-        if ("SETTLED".equals(entry.getPaymentStatus()) && entry.getSettlementId() == null) {
-            return new ReconciliationResult.ReconciliationMismatch(
-                    entry.getPaymentId(),
-                    null,
-                    entry.getOrderId(),
-                    "MISSING_SETTLEMENT_ID",
-                    null,
-                    null,
-                    "Payment marked as SETTLED but missing settlement ID",
-                    LocalDateTime.now(),
-                    "HIGH"
-            );
-
-
-            // this.paymentId = paymentId;
-            // this.settlementId = settlementId;
-            // this.orderId = orderId;
-            // this.mismatchType = mismatchType;
-            // this.expectedAmount = expectedAmount;
-            // this.actualAmount = actualAmount;
-            // this.description = description;
-            // this.detectedAt = detectedAt;
-            // this.severity = severity;
-       
+        if (!checkpoint.isRunning()) {
+            return resume(checkpoint);
         }
+        return reconcileInChunks(
+                (after, chunk) -> paymentLedgerRepository.findChunkByReconciliationStatusAndBucketRange(
+                        "PENDING", fromBucket, toBucket, after, chunk),
+                checkpoint, reconciliationId);
+    }
+    
+    /**
+     * Next sweep chunk: entries changed since the last sweep and entries never reconciled.
+     * 
+     * Each set is read with its own keyset query so both stay on an index (updated_at and
+     * reconciliation_status respectively) instead of one OR over the whole ledger. Both are
+     * ordered by paymentId, so merging them and keeping the first chunk-size entries yields
+     * the same keyset position as a single query would.
+     */
+    private List<PaymentLedgerEntry> findChunkForSweep(LocalDateTime changedSince, String afterPaymentId, Pageable chunk) {
+        List<PaymentLedgerEntry> changed = paymentLedgerRepository.findChunkChangedSince(changedSince, afterPaymentId, chunk);
+        List<PaymentLedgerEntry> pending = paymentLedgerRepository.findChunkByReconciliationStatus("PENDING", afterPaymentId, chunk);
         
-        // Check 2: Settlement ID present but not SETTLED status
-        if (entry.getSettlementId() != null && !"SETTLED".equals(entry.getPaymentStatus())) {
-            return new ReconciliationResult.ReconciliationMismatch(
-                    entry.getPaymentId(),
-                    entry.getSettlementId(),
-                    entry.getOrderId(),
-                    "STATUS_MISMATCH",
-                    null,
-                    null,
-                    "Settlement ID present but payment not marked as SETTLED",
-                    LocalDateTime.now(),
-                    "MEDIUM"
-            );
+        List<PaymentLedgerEntry> merged = new ArrayList<>(chunk.getPageSize());
+        int i = 0;
+        int j = 0;
+        while (merged.size() < chunk.getPageSize() && (i < changed.size() || j < pending.size())) {
+            if (j == pending.size()) {
+                merged.add(changed.get(i++));
+            } else if (i == changed.size()) {
+                merged.add(pending.get(j++));
+            } else {
+                int order = changed.get(i).getPaymentId().compareTo(pending.get(j).getPaymentId());
+                if (order == 0) {
+                    // PENDING and changed since the last sweep: one entry
+                    merged.add(changed.get(i++));
+                    j++;
+                } else {
+                    merged.add(order < 0 ? changed.get(i++) : pending.get(j++));
+                }
+            }
         }
+        return merged;
+    }
+    
+    /**
+     * Saves a newly started checkpoint, dropping the mismatches stored by the job's earlier runs.
+     */
+    private ReconciliationCheckpoint startCheckpoint(ReconciliationCheckpoint checkpoint) {
+        checkpointMismatchRepository.deleteOtherRuns(checkpoint.getJobName(), checkpoint.getReconciliationId());
+        return checkpointRepository.save(checkpoint);
+    }
+    
+    /**
+     * Totals and mismatches already committed under the checkpoint.
+     */
+    private ReconciliationTally resume(ReconciliationCheckpoint checkpoint) {
+        List<ReconciliationResult.ReconciliationMismatch> mismatches = new ArrayList<>();
+        for (ReconciliationCheckpointMismatch row : checkpointMismatchRepository
+                .findByJobNameAndReconciliationIdOrderByPaymentIdAsc(checkpoint.getJobName(), checkpoint.getReconciliationId())) {
+            mismatches.add(row.toMismatch());
+        }
+        return ReconciliationTally.resumeFrom(checkpoint, mismatches);
+    }
+    
+    /**
+     * Core reconciliation loop.
+     * 
+     * Only one chunk of entities is loaded at a time: the chunk is read, analyzed, written back
+     * with a single JDBC batch and committed (together with the checkpoint, if any) before the
+     * next chunk is fetched, so heap use does not grow with the number of entries.
+     * 
+     * The status is written only if the entry's row_version is still the one that was read. An
+     * entry changed in the meantime is left out of the tally and the counters; it keeps the
+     * status its change gave it and is picked up again by the next sweep.
+     * Mismatches are stored with the checkpoint so a resumed run reports all of them.
+     */
+    private ReconciliationTally reconcileInChunks(ChunkQuery query,
+                                                  ReconciliationCheckpoint checkpoint,
+                                                  String reconciliationId) {
         
-        // Check 3: AUTHORIZED status for too long (potential stuck payment)
-        if ("AUTHORIZED".equals(entry.getPaymentStatus()) && 
-            entry.getCreatedAt().isBefore(LocalDateTime.now().minusHours(24))) {
-            return new ReconciliationResult.ReconciliationMismatch(
-                    entry.getPaymentId(),
-                    null,
-                    entry.getOrderId(),
-                    "STUCK_AUTHORIZATION",
-                    null,
-                    null,
-                    "Payment stuck in AUTHORIZED status for over 24 hours",
-                    LocalDateTime.now(),
-                    "MEDIUM"
-            );
+        ReconciliationTally total = checkpoint != null ? resume(checkpoint) : new ReconciliationTally();
+        String afterPaymentId = checkpoint != null ? checkpoint.getLastPaymentId() : "";
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Pageable chunkSize = PageRequest.of(0, Math.max(1, batchSize));
+        
+        while (true) {
+            String after = afterPaymentId;
+            ReconciliationTally chunkTally = new ReconciliationTally();
+            
+            String lastPaymentId = transaction.execute(status -> {
+                List<PaymentLedgerEntry> chunk = query.next(after, chunkSize);
+                if (chunk.isEmpty()) {
+                    return null;
+                }
+                
+                LocalDateTime now = LocalDateTime.now();
+                List<ReconciliationResult.ReconciliationMismatch> analyzed = new ArrayList<>(chunk.size());
+                List<Object[]> updates = new ArrayList<>(chunk.size());
+                for (PaymentLedgerEntry entry : chunk) {
+                    ReconciliationResult.ReconciliationMismatch mismatch = ledgerEntryAnalyzer.analyze(entry);
+                    analyzed.add(mismatch);
+                    
+                    String reconciliationStatus = mismatch != null ? "MISMATCH" : "MATCHED";
+                    String mismatchType = mismatch != null ? mismatch.getMismatchType() : null;
+                    long rowVersion = entry.getRowVersion() != null ? entry.getRowVersion() : 0L;
+                    updates.add(new Object[] {reconciliationStatus, mismatchType, now, entry.getPaymentId(), rowVersion});
+                }
+                int[] updated = jdbcTemplate.batchUpdate(UPDATE_RECONCILIATION_STATUS_SQL, updates);
+                
+                List<ReconciliationCheckpointMismatch> stored = new ArrayList<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    PaymentLedgerEntry entry = chunk.get(i);
+                    // 0 rows: changed since it was read; SUCCESS_NO_INFO (-2) counts as written
+                    if (updated[i] == 0) {
+                        log.debug("Ledger entry {} changed while being reconciled, leaving it for the next sweep",
+                                entry.getPaymentId());
+                        continue;
+                    }
+                    ReconciliationResult.ReconciliationMismatch mismatch = analyzed.get(i);
+                    chunkTally.add(entry, mismatch);
+                    
+                    String reconciliationStatus = mismatch != null ? "MISMATCH" : "MATCHED";
+                    String mismatchType = mismatch != null ? mismatch.getMismatchType() : null;
+                    ReconciliationCounters.State before = ReconciliationCounters.State.of(entry);
+                    reconciliationCounters.onChange(before, before.withReconciliation(reconciliationStatus, mismatchType));
+                    
+                    if (checkpoint != null && mismatch != null) {
+                        stored.add(ReconciliationCheckpointMismatch.of(checkpoint, mismatch));
+                    }
+                }
+                
+                String last = chunk.get(chunk.size() - 1).getPaymentId();
+                if (checkpoint != null) {
+                    checkpointMismatchRepository.saveAll(stored);
+                    chunkTally.addCountsTo(checkpoint);
+                    checkpoint.setLastPaymentId(last);
+                    checkpoint.setUpdatedAt(now);
+                    checkpointRepository.save(checkpoint);
+                }
+                return last;
+            });
+            
+            if (lastPaymentId == null) {
+                break;
+            }
+            total.merge(chunkTally);
+            afterPaymentId = lastPaymentId;
+            log.debug("Reconciliation {} committed chunk up to paymentId {} ({} entries so far)",
+                    reconciliationId, lastPaymentId, total.getProcessed());
         }
         
-        // No mismatches found
-        return null;
+        if (checkpoint != null) {
+            checkpoint.setStatus("COMPLETED");
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        }
+        return total;
+    }
+    
+    private static ReconciliationResult toResult(String reconciliationId, LocalDateTime startTime,
+                                                 ReconciliationTally total) {
+        return new ReconciliationResult(
+                reconciliationId,
+                startTime,
+                total.status(),
+                total.toStats(),
+                total.getMismatches(),
+                UUID.randomUUID().toString()
+        );
     }
     
     /**
-     * Gets reconciliation summary statistics.
+     * Gets reconciliation summary statistics from the materialized counters (no queries).
      */
     public ReconciliationResult.ReconciliationStats getReconciliationStats() {
-        long total = paymentLedgerRepository.count();
-        long matched = paymentLedgerRepository.countByReconciliationStatus("MATCHED");
-        long mismatched = paymentLedgerRepository.countByReconciliationStatus("MISMATCH");
-        long pending = paymentLedgerRepository.countByReconciliationStatus("PENDING");
+        long total = reconciliationCounters.getTotal();
+        long matched = reconciliationCounters.countByReconciliationStatus("MATCHED");
+        long mismatched = reconciliationCounters.countByReconciliationStatus("MISMATCH");
+        long pending = reconciliationCounters.countByReconciliationStatus("PENDING");
         
         ReconciliationResult.ReconciliationStats stats = new ReconciliationResult.ReconciliationStats();
         stats.setTotalPayments((int) total);
@@ -0,0 +1,127 @@
+package com.payment.platform.reconciliation.service;
+
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.model.ReconciliationCheckpoint;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Running totals of a reconciliation run.
+ *
+ * Each chunk is tallied separately and merged into the run total only after the chunk has
+ * committed, so the totals always agree with what is durable in the ledger and checkpoint.
+ * Partitions of a parallel run are merged the same way; amounts are exact BigDecimal sums,
+ * so the merged totals do not depend on the order partitions finish in.
+ */
+class ReconciliationTally {
+
+    private long processed;
+    private long matched;
+    private long mismatched;
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    private BigDecimal matchedAmount = BigDecimal.ZERO;
+    private final List<ReconciliationResult.ReconciliationMismatch> mismatches = new ArrayList<>();
+
+    /**
+     * Restores the totals saved in the checkpoint together with the mismatches stored with it.
+     */
+    static ReconciliationTally resumeFrom(ReconciliationCheckpoint checkpoint,
+                                          List<ReconciliationResult.ReconciliationMismatch> mismatches) {
+        ReconciliationTally tally = countsOf(checkpoint);
+        tally.mismatches.addAll(mismatches);
+        return tally;
+    }
+
+    private static ReconciliationTally countsOf(ReconciliationCheckpoint checkpoint) {
+        ReconciliationTally tally = new ReconciliationTally();
+        tally.processed = checkpoint.getProcessed();
+        tally.matched = checkpoint.getMatched();
+        tally.mismatched = checkpoint.getMismatched();
+        tally.totalAmount = checkpoint.getTotalAmount() != null ? checkpoint.getTotalAmount() : BigDecimal.ZERO;
+        tally.matchedAmount = checkpoint.getMatchedAmount() != null ? checkpoint.getMatchedAmount() : BigDecimal.ZERO;
+        return tally;
+    }
+
+    void add(PaymentLedgerEntry entry, ReconciliationResult.ReconciliationMismatch mismatch) {
+        BigDecimal amount = entry.getAmount() != null ? entry.getAmount() : BigDecimal.ZERO;
+        processed++;
+        totalAmount = totalAmount.add(amount);
+
+        if (mismatch != null) {
+            mismatched++;
+            mismatches.add(mismatch);
+        } else {
+            matched++;
+            matchedAmount = matchedAmount.add(amount);
+        }
+    }
+
+    /**
+     * Counts entries known to be MATCHED without analyzing them, e.g. archived ledger partitions.
+     */
+    void addMatched(long count, BigDecimal amount) {
+        processed += count;
+        matched += count;
+        totalAmount = totalAmount.add(amount);
+        matchedAmount = matchedAmount.add(amount);
+    }
+
+    void merge(ReconciliationTally other) {
+        processed += other.processed;
+        matched += other.matched;
+        mismatched += other.mismatched;
+        totalAmount = totalAmount.add(other.totalAmount);
+        matchedAmount = matchedAmount.add(other.matchedAmount);
+        mismatches.addAll(other.mismatches);
+    }
+
+    /**
+     * Adds this tally's totals to those saved in the checkpoint; mismatches are stored separately.
+     */
+    void addCountsTo(ReconciliationCheckpoint checkpoint) {
+        ReconciliationTally committed = countsOf(checkpoint);
+        committed.merge(this);
+        committed.copyTo(checkpoint);
+    }
+
+    void copyTo(ReconciliationCheckpoint checkpoint) {
+        checkpoint.setProcessed(processed);
+        checkpoint.setMatched(matched);
+        checkpoint.setMismatched(mismatched);
+        checkpoint.setTotalAmount(totalAmount);
+        checkpoint.setMatchedAmount(matchedAmount);
+    }
+
+    /**
+     * Orders mismatches by paymentId, the order in which a serial run detects them.
+     */
+    void sortMismatches() {
+        mismatches.sort(Comparator.comparing(ReconciliationResult.ReconciliationMismatch::getPaymentId));
+    }
+
+    long getProcessed() { return processed; }
+
+    List<ReconciliationResult.ReconciliationMismatch> getMismatches() { return mismatches; }
+
+    ReconciliationResult.ReconciliationStats toStats() {
+        ReconciliationResult.ReconciliationStats stats = new ReconciliationResult.ReconciliationStats();
+        stats.setTotalPayments((int) processed);
+        stats.setMatchedTransactions((int) matched);
+        stats.setUnmatchedPayments((int) mismatched);
+        stats.setTotalAmount(totalAmount);
+        stats.setMatchedAmount(matchedAmount);
+        stats.setMismatchedAmount(totalAmount.subtract(matchedAmount));
+        return stats;
+    }
+
+    /**
+     * COMPLETED without mismatches, PARTIAL with some, FAILED when nothing matched.
+     */
+    String status() {
+        return mismatched == 0 ? "COMPLETED" : (matched > 0 ? "PARTIAL" : "FAILED");
+    }
+}
@@ -0,0 +1,200 @@
+package com.payment.platform.reconciliation.service;
+
+import com.payment.platform.reconciliation.model.AuthorizationTimer;
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+import com.payment.platform.reconciliation.repository.AuthorizationTimerRepository;
+import com.payment.platform.reconciliation.repository.PaymentLedgerRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects stuck authorizations with a timing wheel instead of ledger scans.
+ *
+ * This watchdog:
+ * - Registers a deadline (created at + STUCK_AUTHORIZATION_HOURS) when a payment is authorized
+ * - Cancels it when the payment settles or is rejected
+ * - Flags the ledger entry as MISMATCH when the deadline passes, after re-checking the entry,
+ *   with a conditional update that only applies while the entry is still AUTHORIZED
+ * - Persists outstanding deadlines in authorization_timers and reloads them on startup
+ *
+ * The wheel advances every reconciliation.stuck.tick-ms, so detection happens within one tick
+ * of the deadline and costs O(1) per payment.
+ *
+ * Used by: ReconciliationEventHandler
+ */
+@Service
+@Slf4j
+public class StuckAuthorizationWatchdog {
+
+    @Autowired
+    private AuthorizationTimerRepository timerRepository;
+
+    @Autowired
+    private PaymentLedgerRepository paymentLedgerRepository;
+
+    @Autowired
+    private LedgerEntryAnalyzer ledgerEntryAnalyzer;
+
+    @Autowired
+    private ReconciliationCounters reconciliationCounters;
+
+    private final long tickMs;
+
+    private final HierarchicalTimingWheel wheel;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stuck-authorization-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StuckAuthorizationWatchdog(@Value("${reconciliation.stuck.tick-ms:60000}") long tickMs) {
+        this.tickMs = tickMs;
+        this.wheel = new HierarchicalTimingWheel(tickMs, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<AuthorizationTimer> outstanding = timerRepository.findAll();
+        synchronized (wheel) {
+            for (AuthorizationTimer timer : outstanding) {
+                wheel.schedule(timer.getPaymentId(), timer.getDeadlineMillis());
+            }
+        }
+        ticker.scheduleWithFixedDelay(this::expire, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("Stuck authorization watchdog started with {} outstanding authorizations, tick {}ms",
+                outstanding.size(), tickMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Outstanding deadlines are persisted and reloaded on next startup
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Starts the stuck-authorization clock for a payment created at the given time. The timer
+     * row is written in the caller's transaction; the wheel is only armed once it commits, and
+     * only if the row is still there, i.e. the payment was not cancelled in the same batch.
+     */
+    public void register(String paymentId, LocalDateTime createdAt) {
+        LocalDateTime since = createdAt != null ? createdAt : LocalDateTime.now();
+        long deadlineMillis = since.plusHours(LedgerEntryAnalyzer.STUCK_AUTHORIZATION_HOURS)
+                .atZone(zone).toInstant().toEpochMilli();
+
+        timerRepository.save(new AuthorizationTimer(paymentId, deadlineMillis));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleIfOutstanding(paymentId, deadlineMillis);
+                }
+            });
+        } else {
+            schedule(paymentId, deadlineMillis);
+        }
+    }
+
+    private void schedule(String paymentId, long deadlineMillis) {
+        synchronized (wheel) {
+            wheel.schedule(paymentId, deadlineMillis);
+        }
+    }
+
+    private void scheduleIfOutstanding(String paymentId, long deadlineMillis) {
+        synchronized (wheel) {
+            if (timerRepository.existsById(paymentId)) {
+                wheel.schedule(paymentId, deadlineMillis);
+            }
+        }
+    }
+
+    /**
+     * Stops the clock for a payment that left AUTHORIZED.
+     *
+     * The timer row is always deleted: the wheel may not hold the payment yet when its
+     * registration is still uncommitted. A cancel made in a transaction clears the wheel
+     * again once it commits, in case a registration committed in between armed it.
+     */
+    public void cancel(String paymentId) {
+        synchronized (wheel) {
+            wheel.cancel(paymentId);
+        }
+        timerRepository.deleteByPaymentId(paymentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    synchronized (wheel) {
+                        wheel.cancel(paymentId);
+                    }
+                }
+            });
+        }
+    }
+
+    public int getOutstandingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void expire() {
+        List<String> expired;
+        synchronized (wheel) {
+            expired = wheel.advanceTo(System.currentTimeMillis());
+        }
+
+        for (String paymentId : expired) {
+            try {
+                flagIfStuck(paymentId);
+                timerRepository.deleteByPaymentId(paymentId);
+            } catch (Exception e) {
+                // The timer row is kept, so the payment is checked again after the next restart
+                log.error("Stuck authorization check failed for payment: {}", paymentId, e);
+            }
+        }
+    }
+
+    private void flagIfStuck(String paymentId) {
+        PaymentLedgerEntry entry = paymentLedgerRepository.findById(paymentId).orElse(null);
+        if (entry == null || "EXCLUDED".equals(entry.getReconciliationStatus())) {
+            return;
+        }
+
+        ReconciliationResult.ReconciliationMismatch mismatch = ledgerEntryAnalyzer.analyze(entry);
+        if (mismatch == null || !"STUCK_AUTHORIZATION".equals(mismatch.getMismatchType())) {
+            return;
+        }
+
+        // The ledger writer may have moved the entry on since it was read; the update is then a no-op
+        ReconciliationCounters.State before = ReconciliationCounters.State.of(entry);
+        if (paymentLedgerRepository.flagStuckAuthorization(paymentId, entry.getReconciliationStatus(),
+                mismatch.getMismatchType(), LocalDateTime.now()) == 0) {
+            return;
+        }
+        reconciliationCounters.onChange(before, before.withReconciliation("MISMATCH", mismatch.getMismatchType()));
+
+        log.warn("Mismatch - Payment: {}, Type: {}, Severity: {}",
+                mismatch.getPaymentId(), mismatch.getMismatchType(), mismatch.getSeverity());
+    }
+}
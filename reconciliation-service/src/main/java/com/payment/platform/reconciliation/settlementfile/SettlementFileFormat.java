@@ -0,0 +1,15 @@
+package com.payment.platform.reconciliation.settlementfile;
+
+/**
+ * Layouts accepted for external settlement files.
+ *
+ * - CSV: paymentId,settlementId,amount,currency per line; amount as a decimal with at most
+ *   the currency's minor unit digits (two for unknown currencies); an optional header line
+ *   starting with "paymentId" is skipped
+ * - CLEARING: the fixed-width clearing file produced by settlement-service; only D (detail)
+ *   lines are read, H and T lines are skipped
+ */
+public enum SettlementFileFormat {
+    CSV,
+    CLEARING
+}
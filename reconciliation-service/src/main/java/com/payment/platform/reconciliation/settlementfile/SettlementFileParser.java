@@ -0,0 +1,262 @@
+package com.payment.platform.reconciliation.settlementfile;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Currency;
+
+/**
+ * Streams records out of a settlement file through read-only memory-mapped regions.
+ *
+ * The file is mapped REGION_SIZE bytes at a time and lines are parsed in place: amounts are
+ * read directly from the mapped bytes into the currency's minor units (see minorUnitDigits)
+ * and only the id and currency fields are decoded
+ * into Strings. A line cut by the end of a region is re-read at the start of the next one.
+ *
+ * Malformed lines are skipped and counted rather than failing the whole file.
+ *
+ * Used by: SettlementFileReconciler
+ */
+public class SettlementFileParser {
+
+    static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    // Offsets of the settlement-service clearing file D line (see ClearingFileExporter)
+    private static final int CLEARING_SETTLEMENT_ID = 1;
+    private static final int CLEARING_PAYMENT_ID = 41;
+    private static final int CLEARING_ORDER_ID = 81;
+    private static final int CLEARING_CURRENCY = 153;
+    private static final int CLEARING_AMOUNT = 156;
+    private static final int CLEARING_AMOUNT_END = 171;
+
+    /**
+     * Receives each parsed record; settlementId may be null.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(String paymentId, String settlementId, long amountMinor, String currency) throws IOException;
+    }
+
+    private final SettlementFileFormat format;
+    private final RecordHandler handler;
+    private final byte[] scratch = new byte[256];
+    private final int[] commas = new int[3];
+
+    private long records;
+    private long malformed;
+
+    private SettlementFileParser(SettlementFileFormat format, RecordHandler handler) {
+        this.format = format;
+        this.handler = handler;
+    }
+
+    /**
+     * Parses the whole file, passing every record to the handler. Returns the parser for its counts.
+     */
+    public static SettlementFileParser parse(Path file, SettlementFileFormat format, RecordHandler handler) throws IOException {
+        SettlementFileParser parser = new SettlementFileParser(format, handler);
+        parser.run(file);
+        return parser;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getMalformed() {
+        return malformed;
+    }
+
+    private void run(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                int length = (int) Math.min(REGION_SIZE, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (region.get(i) == '\n') {
+                        parseLine(region, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (last) {
+                    if (lineStart < length) {
+                        parseLine(region, lineStart, length);
+                    }
+                    position = size;
+                } else {
+                    if (lineStart == 0) {
+                        throw new IOException("Settlement file line longer than " + REGION_SIZE + " bytes at offset " + position);
+                    }
+                    position += lineStart;
+                }
+            }
+        }
+    }
+
+    private void parseLine(MappedByteBuffer region, int start, int end) throws IOException {
+        if (end > start && region.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end <= start) {
+            return;
+        }
+
+        try {
+            if (format == SettlementFileFormat.CLEARING) {
+                parseClearingLine(region, start, end);
+            } else {
+                parseCsvLine(region, start, end);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | ArithmeticException e) {
+            malformed++;
+        }
+    }
+
+    private void parseCsvLine(MappedByteBuffer region, int start, int end) throws IOException {
+        int found = 0;
+        for (int i = start; i < end && found < 3; i++) {
+            if (region.get(i) == ',') {
+                commas[found++] = i;
+            }
+        }
+        if (found < 3) {
+            throw new IllegalArgumentException("Expected 4 fields");
+        }
+
+        String paymentId = text(region, start, commas[0]);
+        if (records == 0 && malformed == 0 && "paymentId".equalsIgnoreCase(paymentId)) {
+            return; // header
+        }
+        if (paymentId == null) {
+            throw new IllegalArgumentException("Missing paymentId");
+        }
+
+        String settlementId = text(region, commas[0] + 1, commas[1]);
+        String currency = text(region, commas[2] + 1, end);
+        long amountMinor = parseMinorUnits(region, commas[1] + 1, commas[2], minorUnitDigits(currency));
+
+        records++;
+        handler.onRecord(paymentId, settlementId, amountMinor, currency);
+    }
+
+    private void parseClearingLine(MappedByteBuffer region, int start, int end) throws IOException {
+        if (region.get(start) != 'D') {
+            return; // header and trailer lines
+        }
+        if (end - start < CLEARING_AMOUNT_END) {
+            throw new IllegalArgumentException("Short clearing detail line");
+        }
+
+        String paymentId = text(region, start + CLEARING_PAYMENT_ID, start + CLEARING_ORDER_ID);
+        if (paymentId == null) {
+            throw new IllegalArgumentException("Missing paymentId");
+        }
+        String settlementId = text(region, start + CLEARING_SETTLEMENT_ID, start + CLEARING_PAYMENT_ID);
+        String currency = text(region, start + CLEARING_CURRENCY, start + CLEARING_AMOUNT);
+        long amountMinor = parseLong(region, start + CLEARING_AMOUNT, start + CLEARING_AMOUNT_END);
+
+        records++;
+        handler.onRecord(paymentId, settlementId, amountMinor, currency);
+    }
+
+    /**
+     * ASCII field with surrounding spaces and quotes removed; null when empty.
+     */
+    private String text(MappedByteBuffer region, int from, int to) {
+        while (from < to && (region.get(from) == ' ' || region.get(from) == '"')) {
+            from++;
+        }
+        while (to > from && (region.get(to - 1) == ' ' || region.get(to - 1) == '"')) {
+            to--;
+        }
+        int length = to - from;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = region.get(from + i);
+        }
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * ISO 4217 minor unit digits of the currency (0 for JPY, 3 for KWD); 2 when unknown.
+     */
+    public static int minorUnitDigits(String currency) {
+        if (currency == null || currency.isBlank()) {
+            return 2;
+        }
+        try {
+            int digits = Currency.getInstance(currency.trim().toUpperCase()).getDefaultFractionDigits();
+            return digits >= 0 ? digits : 2;
+        } catch (IllegalArgumentException e) {
+            return 2;
+        }
+    }
+
+    /**
+     * Decimal amount with up to digits fraction digits, as minor units (e.g. "12.5" -> 1250 for 2).
+     */
+    static long parseMinorUnits(MappedByteBuffer region, int from, int to, int digits) {
+        while (from < to && region.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && region.get(to - 1) == ' ') {
+            to--;
+        }
+        boolean negative = from < to && region.get(from) == '-';
+        if (negative) {
+            from++;
+        }
+        if (from >= to) {
+            throw new IllegalArgumentException("Empty amount");
+        }
+
+        long value = 0;
+        int fractionDigits = -1;
+        for (int i = from; i < to; i++) {
+            byte b = region.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("Invalid amount");
+            }
+            if (fractionDigits >= 0 && ++fractionDigits > digits) {
+                throw new IllegalArgumentException("More than " + digits + " fraction digits");
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), b - '0');
+        }
+        for (int i = Math.max(fractionDigits, 0); i < digits; i++) {
+            value = Math.multiplyExact(value, 10);
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseLong(MappedByteBuffer region, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = region.get(i);
+            if (b == ' ') {
+                continue;
+            }
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("Invalid amount");
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), b - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,454 @@
+package com.payment.platform.reconciliation.settlementfile;
+
+import com.payment.platform.reconciliation.model.LedgerPartition;
+import com.payment.platform.reconciliation.model.PaymentLedgerEntry;
+import com.payment.platform.reconciliation.model.ReconciliationResult;
+import com.payment.platform.reconciliation.report.ReconciliationReportStore;
+import com.payment.platform.reconciliation.service.LedgerArchiver;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles an external (provider / acquirer) settlement file against the payment ledger.
+ *
+ * The file is the build side of a hash join on paymentId and the ledger's settled entries
+ * are the probe side, read in one streaming JDBC query followed by the LedgerArchiver days
+ * that can hold settlements in range. For each pair:
+ * - DUPLICATE_SETTLEMENT (HIGH): paymentId appears more than once in the file
+ * - CURRENCY_MISMATCH (HIGH): file currency differs from the ledger currency
+ * - AMOUNT_MISMATCH (HIGH): file amount differs from the ledger amount
+ * - SETTLEMENT_ID_MISMATCH (MEDIUM): both sides carry a settlementId and they differ
+ * - MISSING_SETTLEMENT (HIGH): settled in the ledger but absent from the file
+ * - UNMATCHED_SETTLEMENT (HIGH): in the file but not settled in the ledger
+ *
+ * Amounts are compared in the minor units of their currency. Ledger entries recorded before
+ * the ledger kept a currency are read in the currency of their file record.
+ *
+ * When the estimated size of the build side exceeds the memory budget, both sides are first
+ * spilled to disk in paymentId hash partitions and joined one partition at a time (grace
+ * hash join), so memory use is bounded by the budget instead of the file size.
+ *
+ * The ledger is only read; the outcome is returned as a ReconciliationResult and stored by
+ * ReconciliationReportStore.
+ *
+ * Used by: ReconciliationController (/api/reconciliation/settlement-file)
+ */
+@Service
+@Slf4j
+public class SettlementFileReconciler {
+
+    private static final int MAX_PARTITIONS = 256;
+    private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+    private static final String SETTLED_LEDGER_SQL =
+            "SELECT payment_id, order_id, settlement_id, amount, currency FROM payment_ledger " +
+            "WHERE (settlement_id IS NOT NULL OR payment_status = 'SETTLED')";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReconciliationReportStore reportStore;
+
+    @Autowired
+    private LedgerArchiver ledgerArchiver;
+
+    @Value("${reconciliation.settlement-file.inbox-dir:settlement-inbox}")
+    private String inboxDir;
+
+    @Value("${reconciliation.settlement-file.spill-dir:${java.io.tmpdir}}")
+    private String spillDir;
+
+    @Value("${reconciliation.settlement-file.memory-budget-mb:256}")
+    private long memoryBudgetMb;
+
+    @Value("${reconciliation.settlement-file.max-mismatches:10000}")
+    private int maxMismatches;
+
+    /** Build-side entry of the hash join. */
+    private static final class FileSide {
+        final String settlementId;
+        final long amountMinor;
+        final String currency;
+        boolean matched;
+
+        FileSide(String settlementId, long amountMinor, String currency) {
+            this.settlementId = settlementId;
+            this.amountMinor = amountMinor;
+            this.currency = currency;
+        }
+    }
+
+    /**
+     * Reconciles the named file from the inbox directory. With a business date, only ledger
+     * entries settled on that date are expected in the file.
+     */
+    public ReconciliationResult reconcile(String fileName, SettlementFileFormat format, LocalDate businessDate)
+            throws IOException {
+        Path file = resolveInboxFile(fileName);
+        String reconciliationId = UUID.randomUUID().toString();
+        LocalDateTime startTime = LocalDateTime.now();
+
+        long budgetBytes = Math.max(1L, memoryBudgetMb) * 1024 * 1024;
+        long estimatedBytes = Files.size(file) * (format == SettlementFileFormat.CSV ? 3 : 2);
+        int partitions = (int) Math.min(MAX_PARTITIONS, Math.max(1L, (estimatedBytes + budgetBytes - 1) / budgetBytes));
+
+        log.info("Starting settlement file reconciliation {}: file={}, format={}, businessDate={}, partitions={}",
+                reconciliationId, file, format, businessDate, partitions);
+
+        JoinRun run = new JoinRun();
+        SettlementFileParser parser = partitions == 1
+                ? joinInMemory(file, format, businessDate, run)
+                : joinPartitioned(file, format, businessDate, partitions, run);
+
+        if (parser.getMalformed() > 0) {
+            log.warn("Settlement file {} had {} malformed lines that were skipped", file, parser.getMalformed());
+        }
+        ReconciliationResult result = run.toResult(reconciliationId, startTime);
+        reportStore.save("SETTLEMENT_FILE", result);
+        log.info("Settlement file reconciliation {} completed. Status: {}, File records: {}, Ledger entries: {}, Mismatches: {}",
+                reconciliationId, result.getStatus(), run.fileRecords, run.ledgerEntries, run.mismatchCount);
+        return result;
+    }
+
+    private SettlementFileParser joinInMemory(Path file, SettlementFileFormat format, LocalDate businessDate,
+                                              JoinRun run) throws IOException {
+        Map<String, FileSide> build = new HashMap<>();
+        SettlementFileParser parser = SettlementFileParser.parse(file, format,
+                (paymentId, settlementId, amountMinor, currency) -> run.build(build, paymentId, settlementId, amountMinor, currency));
+
+        streamSettledLedger(businessDate, (paymentId, orderId, settlementId, amount, currency) ->
+                run.probe(build, paymentId, orderId, settlementId, amount, currency));
+        run.finishPartition(build);
+        return parser;
+    }
+
+    private SettlementFileParser joinPartitioned(Path file, SettlementFileFormat format, LocalDate businessDate,
+                                                 int partitions, JoinRun run) throws IOException {
+        Path base = Paths.get(spillDir);
+        Files.createDirectories(base);
+        Path dir = Files.createTempDirectory(base, "settlement-join-");
+
+        try {
+            DataOutputStream[] fileOut = openPartitions(dir, "file", partitions);
+            DataOutputStream[] ledgerOut = openPartitions(dir, "ledger", partitions);
+            long[] fileCounts = new long[partitions];
+            long[] ledgerCounts = new long[partitions];
+            SettlementFileParser parser;
+            try {
+                parser = SettlementFileParser.parse(file, format, (paymentId, settlementId, amountMinor, currency) -> {
+                    int partition = partitionOf(paymentId, partitions);
+                    fileCounts[partition]++;
+                    DataOutputStream out = fileOut[partition];
+                    out.writeUTF(paymentId);
+                    out.writeUTF(settlementId != null ? settlementId : "");
+                    out.writeLong(amountMinor);
+                    out.writeUTF(currency != null ? currency : "");
+                });
+                streamSettledLedger(businessDate, (paymentId, orderId, settlementId, amount, currency) -> {
+                    int partition = partitionOf(paymentId, partitions);
+                    ledgerCounts[partition]++;
+                    DataOutputStream out = ledgerOut[partition];
+                    out.writeUTF(paymentId);
+                    out.writeUTF(orderId != null ? orderId : "");
+                    out.writeUTF(settlementId != null ? settlementId : "");
+                    out.writeUTF(amount != null ? amount.toPlainString() : "");
+                    out.writeUTF(currency != null ? currency : "");
+                });
+            } finally {
+                closeAll(fileOut);
+                closeAll(ledgerOut);
+            }
+
+            for (int partition = 0; partition < partitions; partition++) {
+                Map<String, FileSide> build = new HashMap<>();
+                try (DataInputStream in = openPartition(dir, "file", partition)) {
+                    for (long i = 0; i < fileCounts[partition]; i++) {
+                        String paymentId = in.readUTF();
+                        String settlementId = emptyToNull(in.readUTF());
+                        long amountMinor = in.readLong();
+                        run.build(build, paymentId, settlementId, amountMinor, emptyToNull(in.readUTF()));
+                    }
+                }
+                try (DataInputStream in = openPartition(dir, "ledger", partition)) {
+                    for (long i = 0; i < ledgerCounts[partition]; i++) {
+                        String paymentId = in.readUTF();
+                        String orderId = emptyToNull(in.readUTF());
+                        String settlementId = emptyToNull(in.readUTF());
+                        String amount = emptyToNull(in.readUTF());
+                        run.probe(build, paymentId, orderId, settlementId,
+                                amount != null ? new BigDecimal(amount) : null, emptyToNull(in.readUTF()));
+                    }
+                }
+                run.finishPartition(build);
+            }
+            return parser;
+
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LedgerRowHandler {
+        void onRow(String paymentId, String orderId, String settlementId, BigDecimal amount, String currency) throws IOException;
+    }
+
+    private void streamSettledLedger(LocalDate businessDate, LedgerRowHandler handler) throws IOException {
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(1000);
+
+        RowCallbackHandler rows = resultSet -> {
+            try {
+                handler.onRow(resultSet.getString("payment_id"), resultSet.getString("order_id"),
+                        resultSet.getString("settlement_id"), resultSet.getBigDecimal("amount"),
+                        resultSet.getString("currency"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        LocalDateTime from = businessDate != null ? businessDate.atStartOfDay() : null;
+        LocalDateTime to = businessDate != null ? businessDate.plusDays(1).atStartOfDay() : null;
+        LocalDateTime hotReadStart = LocalDateTime.now();
+        try {
+            if (businessDate == null) {
+                streaming.query(SETTLED_LEDGER_SQL, rows);
+            } else {
+                streaming.query(SETTLED_LEDGER_SQL + " AND settlement_date >= ? AND settlement_date < ?", rows,
+                        Timestamp.valueOf(from), Timestamp.valueOf(to));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        for (LedgerPartition partition : ledgerArchiver.partitionsSettledBetween(from, to)) {
+            // Archived while the hot table was read: its entries already came from the query
+            if (partition.getArchivedAt() != null && !partition.getArchivedAt().isBefore(hotReadStart)) {
+                continue;
+            }
+            for (PaymentLedgerEntry entry : ledgerArchiver.readPartition(partition)) {
+                boolean settled = entry.getSettlementId() != null || "SETTLED".equals(entry.getPaymentStatus());
+                boolean inRange = from == null || (entry.getSettlementDate() != null
+                        && !entry.getSettlementDate().isBefore(from) && entry.getSettlementDate().isBefore(to));
+                if (settled && inRange) {
+                    handler.onRow(entry.getPaymentId(), entry.getOrderId(), entry.getSettlementId(),
+                            entry.getAmount(), entry.getCurrency());
+                }
+            }
+        }
+    }
+
+    /**
+     * Join accumulators shared by all partitions of a run.
+     */
+    private final class JoinRun {
+        long fileRecords;
+        long ledgerEntries;
+        long matched;
+        long missingInFile;
+        long missingInLedger;
+        BigDecimal ledgerAmount = BigDecimal.ZERO;
+        BigDecimal matchedAmount = BigDecimal.ZERO;
+        long mismatchCount;
+        final List<ReconciliationResult.ReconciliationMismatch> mismatches = new ArrayList<>();
+
+        void build(Map<String, FileSide> build, String paymentId, String settlementId, long amountMinor, String currency) {
+            fileRecords++;
+            FileSide existing = build.putIfAbsent(paymentId, new FileSide(settlementId, amountMinor, currency));
+            if (existing != null) {
+                mismatch(paymentId, settlementId, null, "DUPLICATE_SETTLEMENT",
+                        amount(existing.amountMinor, existing.currency), amount(amountMinor, currency),
+                        "Payment appears more than once in the settlement file", "HIGH");
+            }
+        }
+
+        void probe(Map<String, FileSide> build, String paymentId, String orderId, String settlementId,
+                   BigDecimal amount, String currency) {
+            ledgerEntries++;
+            if (amount != null) {
+                ledgerAmount = ledgerAmount.add(amount);
+            }
+
+            FileSide fileSide = build.get(paymentId);
+            if (fileSide == null) {
+                missingInFile++;
+                mismatch(paymentId, settlementId, orderId, "MISSING_SETTLEMENT",
+                        amount(toMinorUnits(amount, currency), currency), null,
+                        "Payment settled in the ledger but missing from the settlement file", "HIGH");
+                return;
+            }
+            fileSide.matched = true;
+
+            if (currency != null && fileSide.currency != null && !currency.equalsIgnoreCase(fileSide.currency)) {
+                mismatch(paymentId, settlementId, orderId, "CURRENCY_MISMATCH",
+                        amount(toMinorUnits(amount, currency), currency) + " " + currency,
+                        amount(fileSide.amountMinor, fileSide.currency) + " " + fileSide.currency,
+                        "Settlement file currency " + fileSide.currency + " differs from the ledger currency " + currency,
+                        "HIGH");
+                return;
+            }
+
+            String effectiveCurrency = currency != null ? currency : fileSide.currency;
+            long amountMinor = toMinorUnits(amount, effectiveCurrency);
+            if (fileSide.amountMinor != amountMinor) {
+                mismatch(paymentId, settlementId, orderId, "AMOUNT_MISMATCH", amount(amountMinor, effectiveCurrency),
+                        amount(fileSide.amountMinor, effectiveCurrency), "Settlement file amount differs from the ledger amount", "HIGH");
+            } else if (settlementId != null && fileSide.settlementId != null && !settlementId.equals(fileSide.settlementId)) {
+                mismatch(paymentId, settlementId, orderId, "SETTLEMENT_ID_MISMATCH", null, null,
+                        "Settlement file reports settlement ID " + fileSide.settlementId, "MEDIUM");
+            } else {
+                matched++;
+                if (amount != null) {
+                    matchedAmount = matchedAmount.add(amount);
+                }
+            }
+        }
+
+        void finishPartition(Map<String, FileSide> build) {
+            build.forEach((paymentId, fileSide) -> {
+                if (!fileSide.matched) {
+                    missingInLedger++;
+                    mismatch(paymentId, fileSide.settlementId, null, "UNMATCHED_SETTLEMENT", null,
+                            amount(fileSide.amountMinor, fileSide.currency), "Settlement file entry has no settled payment in the ledger", "HIGH");
+                }
+            });
+            build.clear();
+        }
+
+        private void mismatch(String paymentId, String settlementId, String orderId, String type,
+                              String expectedAmount, String actualAmount, String description, String severity) {
+            mismatchCount++;
+            if (mismatches.size() < maxMismatches) {
+                mismatches.add(new ReconciliationResult.ReconciliationMismatch(paymentId, settlementId, orderId, type,
+                        expectedAmount, actualAmount, description, LocalDateTime.now(), severity));
+            }
+        }
+
+        ReconciliationResult toResult(String reconciliationId, LocalDateTime startTime) {
+            if (mismatchCount > mismatches.size()) {
+                log.warn("Settlement file reconciliation {} found {} mismatches, returning the first {}",
+                        reconciliationId, mismatchCount, mismatches.size());
+            }
+
+            ReconciliationResult.ReconciliationStats stats = new ReconciliationResult.ReconciliationStats();
+            stats.setTotalPayments((int) ledgerEntries);
+            stats.setTotalSettlements((int) fileRecords);
+            stats.setMatchedTransactions((int) matched);
+            stats.setUnmatchedPayments((int) missingInFile);
+            stats.setUnmatchedSettlements((int) missingInLedger);
+            stats.setTotalAmount(ledgerAmount);
+            stats.setMatchedAmount(matchedAmount);
+            stats.setMismatchedAmount(ledgerAmount.subtract(matchedAmount));
+
+            String status = mismatchCount == 0 ? "COMPLETED" : (matched > 0 ? "PARTIAL" : "FAILED");
+            return new ReconciliationResult(reconciliationId, startTime, status, stats, mismatches,
+                    UUID.randomUUID().toString());
+        }
+    }
+
+    private Path resolveInboxFile(String fileName) {
+        Path inbox = Paths.get(inboxDir).toAbsolutePath().normalize();
+        Path file = inbox.resolve(fileName).normalize();
+        if (!file.startsWith(inbox)) {
+            throw new IllegalArgumentException("Settlement file must be inside the inbox directory");
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Settlement file not found: " + fileName);
+        }
+        return file;
+    }
+
+    private static int partitionOf(String paymentId, int partitions) {
+        return Math.floorMod(paymentId.hashCode(), partitions);
+    }
+
+    private static DataOutputStream[] openPartitions(Path dir, String side, int partitions) throws IOException {
+        DataOutputStream[] streams = new DataOutputStream[partitions];
+        for (int i = 0; i < partitions; i++) {
+            streams[i] = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(dir.resolve(side + "-" + i + ".bin")), SPILL_BUFFER_SIZE));
+        }
+        return streams;
+    }
+
+    private static DataInputStream openPartition(Path dir, String side, int partition) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(dir.resolve(side + "-" + partition + ".bin")), SPILL_BUFFER_SIZE));
+    }
+
+    private static void closeAll(DataOutputStream[] streams) throws IOException {
+        IOException failure = null;
+        for (DataOutputStream stream : streams) {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Could not delete spill file {}", path);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not clean up spill directory {}", dir, e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static long toMinorUnits(BigDecimal amount, String currency) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.movePointRight(SettlementFileParser.minorUnitDigits(currency))
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static String amount(long minorUnits, String currency) {
+        return BigDecimal.valueOf(minorUnits, SettlementFileParser.minorUnitDigits(currency)).toPlainString();
+    }
+}
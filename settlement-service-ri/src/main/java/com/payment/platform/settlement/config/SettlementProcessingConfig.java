@@ -0,0 +1,51 @@
+package com.payment.platform.settlement.config;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.events.PaymentEvent;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.async.SequencingPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Partitions the "settlement" processing group across segments (worker lanes).
+ *
+ * Events published with EventBus.publish carry no aggregate id, so Axon's default
+ * per-aggregate policy would process them fully concurrently. This policy instead keys
+ * each event by paymentId (default) or merchantId (settlement.partitioning.key=merchantId):
+ * - Events with the same key always hash to the same segment and are handled in order
+ * - Different keys spread across segments and are handled in parallel
+ *
+ * The number of lanes is axon.eventhandling.processors.settlement.initial-segment-count;
+ * SettlementLaneBalancer spreads those segments across running instances.
+ */
+@Configuration
+public class SettlementProcessingConfig {
+
+    public static final String PROCESSING_GROUP = "settlement";
+
+    @Value("${settlement.partitioning.key:paymentId}")
+    private String partitioningKey;
+
+    @Autowired
+    public void configure(EventProcessingConfigurer configurer) {
+        configurer.registerSequencingPolicy(PROCESSING_GROUP, configuration -> settlementSequencingPolicy());
+    }
+
+    private SequencingPolicy<EventMessage<?>> settlementSequencingPolicy() {
+        boolean byMerchant = "merchantId".equalsIgnoreCase(partitioningKey);
+        return event -> {
+            Object payload = event.getPayload();
+            if (byMerchant && payload instanceof PaymentAuthorizedEvent
+                    && ((PaymentAuthorizedEvent) payload).getMerchantId() != null) {
+                return ((PaymentAuthorizedEvent) payload).getMerchantId();
+            }
+            if (payload instanceof PaymentEvent && ((PaymentEvent) payload).getPaymentId() != null) {
+                return ((PaymentEvent) payload).getPaymentId();
+            }
+            return event.getIdentifier();
+        };
+    }
+}
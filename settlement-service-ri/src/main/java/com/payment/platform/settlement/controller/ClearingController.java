@@ -0,0 +1,37 @@
+package com.payment.platform.settlement.controller;
+
+import com.payment.platform.settlement.journal.ClearingFileExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Triggers the end-of-day clearing export from the settlement journal.
+ * 
+ * POST /api/settlement/clearing?date=yyyy-MM-dd (defaults to today)
+ */
+@RestController
+@RequestMapping("/api/settlement/clearing")
+public class ClearingController {
+    
+    @Autowired
+    private ClearingFileExporter clearingFileExporter;
+    
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            return ResponseEntity.ok(clearingFileExporter.export(date != null ? date : LocalDate.now()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
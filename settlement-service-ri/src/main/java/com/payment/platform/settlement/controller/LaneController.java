@@ -0,0 +1,25 @@
+package com.payment.platform.settlement.controller;
+
+import com.payment.platform.settlement.service.SettlementLaneBalancer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Exposes the settlement lanes held by this instance and their lag behind the event store head.
+ */
+@RestController
+@RequestMapping("/api/settlement/lanes")
+public class LaneController {
+    
+    @Autowired
+    private SettlementLaneBalancer laneBalancer;
+    
+    @GetMapping
+    public Map<String, Object> lanes() {
+        return laneBalancer.getLaneStatus();
+    }
+}
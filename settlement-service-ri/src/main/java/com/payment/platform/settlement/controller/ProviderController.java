@@ -0,0 +1,27 @@
+package com.payment.platform.settlement.controller;
+
+import com.payment.platform.settlement.provider.SettlementProviderGateway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Exposes settlement provider call metrics, circuit breaker state and bulkhead usage.
+ * 
+ * Intended for load tests and dashboards while running against the stand-in provider.
+ */
+@RestController
+@RequestMapping("/api/settlement/provider")
+public class ProviderController {
+    
+    @Autowired
+    private SettlementProviderGateway providerGateway;
+    
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return providerGateway.getMetrics();
+    }
+}
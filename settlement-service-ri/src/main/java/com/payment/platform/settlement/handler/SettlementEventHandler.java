@@ -1,28 +1,26 @@
 package com.payment.platform.settlement.handler;
 
-import com.payment.platform.settlement.service.SettlementProcessor;
-import com.payment.platform.settlement.service.SettlementResult;
+import com.payment.platform.settlement.service.SettlementBatcher;
+import com.payment.platform.settlement.service.SettlementRetryScheduler;
 import com.payment.platform.core.events.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventhandling.GenericEventMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-
 /**
  * Event handler responsible for processing payment authorization events and publishing
  * settlement results (settled/failed) to the payment platform.
  * 
  * This handler integrates with the CQRS event-driven architecture:
- * - Receives PaymentAuthorizedEvent via Axon Framework
- * - Delegates to SettlementProcessor for payment processing
- * - Publishes PaymentSettledEvent or handles settlement failures
- * - Handles exceptions and implements retry logic
+ * - Receives PaymentAuthorizedEvent via Axon Framework ("settlement" group, partitioned by paymentId)
+ * - Hands the payment to SettlementRetryScheduler (or SettlementBatcher in batching mode)
+ * - Settlement attempts, retries and PaymentSettledEvent publishing run on the scheduler
  * 
  * Key Responsibilities:
  * - Payment settlement workflow orchestration
@@ -35,6 +33,7 @@ import java.time.LocalDateTime;
  * Output: PaymentSettledEvent for OrderService (on success)
  */
 @Component
+@ProcessingGroup("settlement")
 public class SettlementEventHandler {
     
     private static final Logger log = LoggerFactory.getLogger(SettlementEventHandler.class);
@@ -44,7 +43,10 @@ public class SettlementEventHandler {
     }
     
     @Autowired
-    private SettlementProcessor settlementProcessor;
+    private SettlementRetryScheduler settlementRetryScheduler;
+    
+    @Autowired
+    private SettlementBatcher settlementBatcher;
     
     @Autowired
     private CommandGateway commandGateway;
@@ -60,32 +62,12 @@ public class SettlementEventHandler {
                 event.getPaymentId(), event.getOrderId(), event.getAuthorizationCode(), event.getRiskScore(), event.getAmount());
         
         try {
-            log.info("2. Delegating to SettlementProcessor for payment: {}", event.getPaymentId());
-            SettlementResult result = settlementProcessor.processSettlement(event);
-            
-            if (result.isSettled()) {
-                // Create and publish PaymentSettledEvent
-                PaymentSettledEvent settledEvent = new PaymentSettledEvent(
-                    event.getPaymentId(),
-                    event.getOrderId(),
-                    result.getSettlementId(),
-                    LocalDateTime.now()
-                );
-                
-                eventBus.publish(GenericEventMessage.asEventMessage(settledEvent));
-                log.info("4. Payment settlement completed: {}, settlementId: {}", 
-                        event.getPaymentId(), result.getSettlementId());
-                
+            if (settlementBatcher.isEnabled()) {
+                log.info("2. Adding payment to settlement batch: {}", event.getPaymentId());
+                settlementBatcher.add(event);
             } else {
-                // Settlement failed - log and potentially trigger compensation
-                log.error("4. Payment settlement failed for paymentId: {}, attempts: {}, reasons: {}", 
-                        event.getPaymentId(), result.getRetryCount(), result.getFailureReasons());
-                
-                // In a real system, you might:
-                // 1. Send notification to customer service
-                // 2. Update payment status in database
-                // 3. Trigger manual review process
-                // 4. Send PaymentFailedEvent to OrderService for compensation
+                log.info("2. Handing off payment to SettlementRetryScheduler: {}", event.getPaymentId());
+                settlementRetryScheduler.submit(event);
             }
             
         } catch (Exception e) {
@@ -0,0 +1,159 @@
+package com.payment.platform.settlement.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Produces the end-of-day clearing file from the settlement journal.
+ *
+ * The export is a sequential scan of the day's mapped journal segments (no database access);
+ * settled records are written as fixed-width lines to clearing-yyyyMMdd.txt:
+ * - H | business date (8) | created at yyyyMMddHHmmss (14)
+ * - D | settlementId (40) | paymentId (40) | orderId (40) | merchantId (32) | currency (3)
+ *     | amount in minor units, zero padded (15) | settled at yyyyMMddHHmmss (14)
+ * - T | currency (3) | record count (9) | total amount in minor units (18)   (one per currency)
+ *
+ * All lines are space-padded to LINE_WIDTH characters.
+ *
+ * Used by: ClearingController
+ */
+@Component
+public class ClearingFileExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClearingFileExporter.class);
+
+    static final int LINE_WIDTH = 186;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private SettlementJournal journal;
+
+    @Value("${settlement.clearing.dir:settlement-clearing}")
+    private String clearingDir;
+
+    /**
+     * Writes the clearing file for the given business date and returns a summary of it.
+     */
+    public Map<String, Object> export(LocalDate date) throws IOException {
+        journal.commit();
+
+        Path output = Paths.get(clearingDir, "clearing-" + DATE.format(date) + ".txt");
+        Files.createDirectories(output.getParent());
+
+        ZoneId zone = ZoneId.systemDefault();
+        Map<String, long[]> totalsByCurrency = new TreeMap<>();
+        long records = 0;
+        long failed = 0;
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer lines = ByteBuffer.allocate(1024 * (LINE_WIDTH + 1));
+
+            writeLine(out, lines, "H" + DATE.format(date) + TIMESTAMP.format(LocalDateTime.now()));
+
+            for (Path file : journal.filesFor(date)) {
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer segment = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                    long end = SettlementJournal.recoverWritePosition(segment, in.size());
+                    segment.position(SettlementJournal.HEADER_SIZE);
+
+                    while (segment.position() + JournalRecord.SIZE <= end) {
+                        JournalRecord record = JournalRecord.readFrom(segment);
+                        if (!record.isSettled()) {
+                            failed++;
+                            continue;
+                        }
+                        records++;
+                        long[] totals = totalsByCurrency.computeIfAbsent(record.getCurrency(), c -> new long[2]);
+                        totals[0]++;
+                        totals[1] += record.getAmountMinor();
+
+                        writeLine(out, lines, "D"
+                                + pad(record.getSettlementId(), 40)
+                                + pad(record.getPaymentId(), 40)
+                                + pad(record.getOrderId(), 40)
+                                + pad(record.getMerchantId(), 32)
+                                + pad(record.getCurrency(), 3)
+                                + zeroPad(record.getAmountMinor(), 15)
+                                + TIMESTAMP.format(LocalDateTime.ofInstant(
+                                        Instant.ofEpochMilli(record.getTimestampMillis()), zone)));
+                    }
+                }
+            }
+
+            for (Map.Entry<String, long[]> total : totalsByCurrency.entrySet()) {
+                writeLine(out, lines, "T" + pad(total.getKey(), 3)
+                        + zeroPad(total.getValue()[0], 9) + zeroPad(total.getValue()[1], 18));
+            }
+            flush(out, lines);
+            out.force(true);
+        }
+
+        log.info("Clearing file {} written: {} settled records, {} failed records skipped", output, records, failed);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("file", output.toAbsolutePath().toString());
+        summary.put("businessDate", date.toString());
+        summary.put("settledRecords", records);
+        summary.put("failedRecords", failed);
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totalsByCurrency.forEach((currency, t) -> totals.put(currency, Map.of("count", t[0], "amountMinor", t[1])));
+        summary.put("totals", totals);
+        return summary;
+    }
+
+    private static void writeLine(FileChannel out, ByteBuffer lines, String line) throws IOException {
+        if (lines.remaining() < LINE_WIDTH + 1) {
+            flush(out, lines);
+        }
+        lines.put(pad(line, LINE_WIDTH).getBytes(StandardCharsets.US_ASCII));
+        lines.put((byte) '\n');
+    }
+
+    private static void flush(FileChannel out, ByteBuffer lines) throws IOException {
+        lines.flip();
+        while (lines.hasRemaining()) {
+            out.write(lines);
+        }
+        lines.clear();
+    }
+
+    private static String pad(String value, int width) {
+        String text = value == null ? "" : value;
+        if (text.length() >= width) {
+            return text.substring(0, width);
+        }
+        StringBuilder padded = new StringBuilder(width).append(text);
+        while (padded.length() < width) {
+            padded.append(' ');
+        }
+        return padded.toString();
+    }
+
+    private static String zeroPad(long value, int width) {
+        return String.format("%0" + width + "d", value);
+    }
+}
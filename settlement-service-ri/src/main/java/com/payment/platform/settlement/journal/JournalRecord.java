@@ -0,0 +1,162 @@
+package com.payment.platform.settlement.journal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+
+/**
+ * Fixed-layout (192 byte) settlement journal record.
+ * 
+ * Layout (offsets in bytes, text fields are space-padded US-ASCII):
+ * -   0: status (1)          'S' settled, 'F' failed
+ * -   1: version (1)
+ * -   2: reserved (2)
+ * -   4: timestampMillis (8)
+ * -  12: amountMinor (8)      amount in the currency's minor units (cents; yen for JPY, fils for KWD)
+ * -  20: currency (3) + pad (1)
+ * -  24: paymentId (40)
+ * -  64: orderId (40)
+ * - 104: settlementId (40)
+ * - 144: merchantId (32)
+ * - 176: failureCode (16)
+ * 
+ * Used by: SettlementJournal (append) and ClearingFileExporter (sequential read)
+ */
+public class JournalRecord {
+    
+    public static final int SIZE = 192;
+    public static final byte SETTLED = 'S';
+    public static final byte FAILED = 'F';
+    
+    private static final byte VERSION = 1;
+    
+    private final byte status;
+    private final long timestampMillis;
+    private final long amountMinor;
+    private final String currency;
+    private final String paymentId;
+    private final String orderId;
+    private final String settlementId;
+    private final String merchantId;
+    private final String failureCode;
+    
+    public JournalRecord(byte status, long timestampMillis, long amountMinor, String currency,
+                         String paymentId, String orderId, String settlementId,
+                         String merchantId, String failureCode) {
+        this.status = status;
+        this.timestampMillis = timestampMillis;
+        this.amountMinor = amountMinor;
+        this.currency = currency;
+        this.paymentId = paymentId;
+        this.orderId = orderId;
+        this.settlementId = settlementId;
+        this.merchantId = merchantId;
+        this.failureCode = failureCode;
+    }
+    
+    public static JournalRecord settled(String paymentId, String orderId, String settlementId,
+                                        String merchantId, String currency, String amount) {
+        return new JournalRecord(SETTLED, System.currentTimeMillis(), toMinorUnits(amount, currency), currency,
+                paymentId, orderId, settlementId, merchantId, null);
+    }
+    
+    public static JournalRecord failed(String paymentId, String orderId, String merchantId,
+                                       String currency, String amount, String failureCode) {
+        return new JournalRecord(FAILED, System.currentTimeMillis(), toMinorUnits(amount, currency), currency,
+                paymentId, orderId, null, merchantId, failureCode);
+    }
+    
+    /**
+     * Converts using the currency's ISO 4217 minor unit digits (0 for JPY, 3 for KWD);
+     * unknown currencies use 2.
+     */
+    public static long toMinorUnits(String amount, String currency) {
+        if (amount == null || amount.isEmpty()) {
+            return 0L;
+        }
+        int digits = minorUnitDigits(currency);
+        return new BigDecimal(amount).setScale(digits, RoundingMode.HALF_UP).movePointRight(digits).longValueExact();
+    }
+    
+    public static int minorUnitDigits(String currency) {
+        if (currency == null || currency.isBlank()) {
+            return 2;
+        }
+        try {
+            int digits = Currency.getInstance(currency.trim().toUpperCase()).getDefaultFractionDigits();
+            return digits >= 0 ? digits : 2;
+        } catch (IllegalArgumentException e) {
+            return 2;
+        }
+    }
+    
+    /**
+     * Writes the record at the buffer's current position and advances it by SIZE.
+     * The status byte is written last, so a non-zero status marks a complete record.
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.put((byte) 0);
+        buffer.put(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(timestampMillis);
+        buffer.putLong(amountMinor);
+        putText(buffer, currency, 3);
+        buffer.put((byte) ' ');
+        putText(buffer, paymentId, 40);
+        putText(buffer, orderId, 40);
+        putText(buffer, settlementId, 40);
+        putText(buffer, merchantId, 32);
+        putText(buffer, failureCode, 16);
+        buffer.put(start, status);
+    }
+    
+    /**
+     * Reads a record at the buffer's current position and advances it by SIZE.
+     */
+    public static JournalRecord readFrom(ByteBuffer buffer) {
+        byte status = buffer.get();
+        buffer.get();
+        buffer.getShort();
+        long timestampMillis = buffer.getLong();
+        long amountMinor = buffer.getLong();
+        String currency = getText(buffer, 3);
+        buffer.get();
+        String paymentId = getText(buffer, 40);
+        String orderId = getText(buffer, 40);
+        String settlementId = getText(buffer, 40);
+        String merchantId = getText(buffer, 32);
+        String failureCode = getText(buffer, 16);
+        return new JournalRecord(status, timestampMillis, amountMinor, currency,
+                paymentId, orderId, settlementId, merchantId, failureCode);
+    }
+    
+    private static void putText(ByteBuffer buffer, String value, int width) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.US_ASCII);
+        int length = Math.min(bytes.length, width);
+        buffer.put(bytes, 0, length);
+        for (int i = length; i < width; i++) {
+            buffer.put((byte) ' ');
+        }
+    }
+    
+    private static String getText(ByteBuffer buffer, int width) {
+        byte[] bytes = new byte[width];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII).trim();
+    }
+    
+    // Manual getters
+    public byte getStatus() { return status; }
+    public boolean isSettled() { return status == SETTLED; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public long getAmountMinor() { return amountMinor; }
+    public String getCurrency() { return currency; }
+    public String getPaymentId() { return paymentId; }
+    public String getOrderId() { return orderId; }
+    public String getSettlementId() { return settlementId; }
+    public String getMerchantId() { return merchantId; }
+    public String getFailureCode() { return failureCode; }
+}
@@ -0,0 +1,282 @@
+package com.payment.platform.settlement.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only journal of settlement outcomes in memory-mapped, date-rotated files.
+ *
+ * File layout: settlements-yyyy-MM-dd-N.journal, each a pre-sized mapped segment:
+ * - Header (64 bytes): magic "SJNL", version, committed position (end of durable records)
+ * - Records: JournalRecord.SIZE bytes each, laid out back to back from offset 64
+ *
+ * Appends copy the record into the mapped segment under a short lock. A committer thread
+ * forces dirty pages every settlement.journal.commit-interval-ms (group commit), so one
+ * fsync covers every record appended since the last one. With settlement.journal.sync-commit
+ * enabled, appenders additionally wait until their record is durable.
+ *
+ * A new file is started when the day changes or the segment is full. On startup the
+ * current day's last segment is reopened and appends resume after the last valid record.
+ *
+ * Used by: SettlementRetryScheduler and SettlementBatcher (append), ClearingFileExporter (read)
+ */
+@Component
+public class SettlementJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementJournal.class);
+
+    static final int MAGIC = 0x534A4E4C; // "SJNL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int COMMITTED_POSITION_OFFSET = 8;
+
+    private static final String FILE_PREFIX = "settlements-";
+    private static final String FILE_SUFFIX = ".journal";
+
+    @Value("${settlement.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${settlement.journal.dir:settlement-journal}")
+    private String journalDir;
+
+    @Value("${settlement.journal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${settlement.journal.commit-interval-ms:10}")
+    private long commitIntervalMs;
+
+    @Value("${settlement.journal.sync-commit:false}")
+    private boolean syncCommit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private LocalDate currentDate;
+    private int currentSequence;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentSize;
+    private long writePosition;
+    private long committedPosition;
+    /** Incremented on every rotation so waiters on an old segment are released. */
+    private long segmentGeneration;
+
+    private final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "settlement-journal-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        segmentSize = (long) segmentSizeMb * 1024 * 1024;
+        Files.createDirectories(Paths.get(journalDir));
+        lock.lock();
+        try {
+            openSegment(LocalDate.now(zone));
+        } finally {
+            lock.unlock();
+        }
+        committer.scheduleWithFixedDelay(this::commit, commitIntervalMs, commitIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Settlement journal started in {} (segment {} MB, group commit every {}ms)",
+                journalDir, segmentSizeMb, commitIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        committer.shutdownNow();
+        lock.lock();
+        try {
+            closeSegment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void append(JournalRecord record) {
+        if (!enabled) {
+            return;
+        }
+        long endPosition;
+        long generation;
+        lock.lock();
+        try {
+            LocalDate today = LocalDate.now(zone);
+            if (!today.equals(currentDate) || writePosition + JournalRecord.SIZE > segmentSize) {
+                rotate(today);
+            }
+
+            ByteBuffer slice = segment.duplicate();
+            slice.position((int) writePosition);
+            record.writeTo(slice);
+            writePosition += JournalRecord.SIZE;
+            endPosition = writePosition;
+            generation = segmentGeneration;
+
+            if (syncCommit) {
+                while (committedPosition < endPosition && segmentGeneration == generation) {
+                    committed.await(commitIntervalMs * 10, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Settlement journal append failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk and publishes the new committed position.
+     */
+    public void commit() {
+        MappedByteBuffer toForce;
+        long position;
+        lock.lock();
+        try {
+            if (segment == null || writePosition == committedPosition) {
+                return;
+            }
+            toForce = segment;
+            position = writePosition;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            toForce.force();
+        } catch (Exception e) {
+            log.error("Settlement journal fsync failed", e);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (toForce == segment && position > committedPosition) {
+                segment.putLong(COMMITTED_POSITION_OFFSET, position);
+                committedPosition = position;
+                committed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Journal files for the given day, in append order.
+     */
+    public List<Path> filesFor(LocalDate date) {
+        List<Path> files = new ArrayList<>();
+        for (int sequence = 0; ; sequence++) {
+            Path file = fileFor(date, sequence);
+            if (!Files.exists(file)) {
+                return files;
+            }
+            files.add(file);
+        }
+    }
+
+    private void rotate(LocalDate date) throws IOException {
+        closeSegment();
+        openSegment(date);
+    }
+
+    private void openSegment(LocalDate date) throws IOException {
+        int sequence = date.equals(currentDate) ? currentSequence + 1 : lastSequence(date);
+        Path file = fileFor(date, sequence);
+        boolean existing = Files.exists(file);
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        currentDate = date;
+        currentSequence = sequence;
+        segmentGeneration++;
+
+        if (existing && segment.getInt(0) == MAGIC) {
+            writePosition = recoverWritePosition(segment, segmentSize);
+            log.info("Reopened settlement journal {} at position {}", file, writePosition);
+        } else {
+            segment.putInt(0, MAGIC);
+            segment.putInt(4, VERSION);
+            writePosition = HEADER_SIZE;
+        }
+        segment.putLong(COMMITTED_POSITION_OFFSET, writePosition);
+        committedPosition = writePosition;
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        segment.putLong(COMMITTED_POSITION_OFFSET, writePosition);
+        segment.force();
+        committedPosition = writePosition;
+        committed.signalAll();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close settlement journal segment", e);
+        }
+        segment = null;
+        channel = null;
+    }
+
+    /**
+     * Starts from the committed position in the header and skips forward over any complete
+     * records written after it (records are zero until written, status is never zero).
+     */
+    static long recoverWritePosition(ByteBuffer segment, long segmentSize) {
+        long position = Math.max(HEADER_SIZE, segment.getLong(COMMITTED_POSITION_OFFSET));
+        while (position + JournalRecord.SIZE <= segmentSize && segment.get((int) position) != 0) {
+            position += JournalRecord.SIZE;
+        }
+        return position;
+    }
+
+    private int lastSequence(LocalDate date) {
+        int sequence = 0;
+        while (Files.exists(fileFor(date, sequence + 1))) {
+            sequence++;
+        }
+        return sequence;
+    }
+
+    private Path fileFor(LocalDate date, int sequence) {
+        return Paths.get(journalDir, FILE_PREFIX + date + "-" + sequence + FILE_SUFFIX);
+    }
+}
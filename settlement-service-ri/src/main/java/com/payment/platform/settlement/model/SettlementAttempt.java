@@ -0,0 +1,189 @@
+package com.payment.platform.settlement.model;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Persistent state of a settlement for one authorized payment.
+ * 
+ * This entity stores:
+ * - The authorized payment details needed to (re)submit to the provider
+ * - The current SettlementState and attempt counter
+ * - When the next attempt is due, so pending retries can be resumed after a restart
+ * - Which instance has claimed the attempt and until when, so only one instance runs it
+ * - The settlement batch it belongs to while BATCHED
+ * - The settlement id and time on success, or the last failure reason
+ */
+@Entity
+@Table(name = "settlement_attempts")
+public class SettlementAttempt {
+    
+    @Id
+    private String paymentId;
+    
+    @Column(name = "order_id")
+    private String orderId;
+    
+    @Column(name = "authorization_code")
+    private String authorizationCode;
+    
+    @Column(name = "risk_score")
+    private String riskScore;
+    
+    private String amount;
+    
+    @Column(name = "merchant_id")
+    private String merchantId;
+    
+    private String currency;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SettlementState state;
+    
+    @Column(name = "attempt_count", nullable = false)
+    private int attemptCount;
+    
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "batch_id")
+    private String batchId;
+    
+    @Column(name = "claimed_by")
+    private String claimedBy;
+    
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+    
+    @Column(name = "settlement_id")
+    private String settlementId;
+    
+    // When the provider settled it; the PaymentSettledEvent carries it, also when re-published
+    @Column(name = "settled_at")
+    private LocalDateTime settledAt;
+    
+    @Column(name = "last_failure", length = 1000)
+    private String lastFailure;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public SettlementAttempt() {}
+    
+    public static SettlementAttempt from(PaymentAuthorizedEvent event) {
+        SettlementAttempt attempt = new SettlementAttempt();
+        attempt.setPaymentId(event.getPaymentId());
+        attempt.setOrderId(event.getOrderId());
+        attempt.setAuthorizationCode(event.getAuthorizationCode());
+        attempt.setRiskScore(event.getRiskScore());
+        attempt.setAmount(event.getAmount());
+        attempt.setMerchantId(event.getMerchantId());
+        attempt.setCurrency(event.getCurrency());
+        attempt.setState(SettlementState.PENDING);
+        attempt.setNextAttemptAt(LocalDateTime.now());
+        return attempt;
+    }
+    
+    /**
+     * Rebuilds the authorized event so the processor can be invoked with the persisted state.
+     */
+    public PaymentAuthorizedEvent toAuthorizedEvent() {
+        return new PaymentAuthorizedEvent(paymentId, orderId, authorizationCode, riskScore, amount, merchantId, currency);
+    }
+    
+    // Getters and Setters
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+    
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+    
+    public String getAuthorizationCode() { return authorizationCode; }
+    public void setAuthorizationCode(String authorizationCode) { this.authorizationCode = authorizationCode; }
+    
+    public String getRiskScore() { return riskScore; }
+    public void setRiskScore(String riskScore) { this.riskScore = riskScore; }
+    
+    public String getAmount() { return amount; }
+    public void setAmount(String amount) { this.amount = amount; }
+    
+    public String getMerchantId() { return merchantId; }
+    public void setMerchantId(String merchantId) { this.merchantId = merchantId; }
+    
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+    
+    public SettlementState getState() { return state; }
+    public void setState(SettlementState state) { this.state = state; }
+    
+    public int getAttemptCount() { return attemptCount; }
+    public void setAttemptCount(int attemptCount) { this.attemptCount = attemptCount; }
+    
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    
+    public String getBatchId() { return batchId; }
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+    
+    public String getClaimedBy() { return claimedBy; }
+    public void setClaimedBy(String claimedBy) { this.claimedBy = claimedBy; }
+    
+    public LocalDateTime getClaimedUntil() { return claimedUntil; }
+    public void setClaimedUntil(LocalDateTime claimedUntil) { this.claimedUntil = claimedUntil; }
+    
+    public String getSettlementId() { return settlementId; }
+    public void setSettlementId(String settlementId) { this.settlementId = settlementId; }
+    
+    public LocalDateTime getSettledAt() { return settledAt; }
+    public void setSettledAt(LocalDateTime settledAt) { this.settledAt = settledAt; }
+    
+    public String getLastFailure() { return lastFailure; }
+    public void setLastFailure(String lastFailure) { this.lastFailure = lastFailure; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Lifecycle callbacks
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        if (createdAt == null) createdAt = now;
+        updatedAt = now;
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SettlementAttempt that = (SettlementAttempt) o;
+        return Objects.equals(paymentId, that.paymentId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(paymentId);
+    }
+    
+    @Override
+    public String toString() {
+        return "SettlementAttempt{" +
+                "paymentId='" + paymentId + '\'' +
+                ", state=" + state +
+                ", attemptCount=" + attemptCount +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+package com.payment.platform.settlement.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Heartbeat of a running settlement instance, used to size each instance's share of lanes.
+ * 
+ * This entity stores:
+ * - nodeId: Instance identity (pid@hostname, as used for Axon token ownership)
+ * - lastHeartbeat: Last time the instance's SettlementLaneBalancer ran
+ */
+@Entity
+@Table(name = "settlement_lane_nodes")
+public class SettlementLaneNode {
+    
+    @Id
+    private String nodeId;
+    
+    @Column(name = "last_heartbeat", nullable = false)
+    private LocalDateTime lastHeartbeat;
+    
+    public SettlementLaneNode() {}
+    
+    public SettlementLaneNode(String nodeId, LocalDateTime lastHeartbeat) {
+        this.nodeId = nodeId;
+        this.lastHeartbeat = lastHeartbeat;
+    }
+    
+    // Getters and Setters
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    
+    public LocalDateTime getLastHeartbeat() { return lastHeartbeat; }
+    public void setLastHeartbeat(LocalDateTime lastHeartbeat) { this.lastHeartbeat = lastHeartbeat; }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SettlementLaneNode that = (SettlementLaneNode) o;
+        return Objects.equals(nodeId, that.nodeId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodeId);
+    }
+}
@@ -0,0 +1,26 @@
+package com.payment.platform.settlement.model;
+
+/**
+ * States of the settlement attempt state machine.
+ * 
+ * PENDING -> PUBLISH_PENDING -> SETTLED
+ * PENDING -> RETRY_SCHEDULED -> PENDING (on the scheduler) -> ...
+ * PENDING -> FAILED (retries exhausted)
+ * BATCHED -> PUBLISH_PENDING (with its batch) | PENDING (batch failed, settled on its own)
+ *
+ * PUBLISH_PENDING: the provider has settled the payment but its PaymentSettledEvent has not
+ * been published yet. The row becomes SETTLED only after a successful publish; until then
+ * SettlementRetryScheduler keeps re-publishing it (without calling the provider again).
+ */
+public enum SettlementState {
+    PENDING,
+    BATCHED,
+    RETRY_SCHEDULED,
+    PUBLISH_PENDING,
+    SETTLED,
+    FAILED;
+    
+    public boolean isTerminal() {
+        return this == SETTLED || this == FAILED;
+    }
+}
@@ -0,0 +1,138 @@
+package com.payment.platform.settlement.provider;
+
+/**
+ * Count-based circuit breaker protecting the settlement provider.
+ *
+ * - CLOSED: Calls pass; outcomes are recorded in a ring of the last windowSize calls.
+ *   Once minimumCalls are recorded and the failure rate reaches the threshold, the breaker opens.
+ * - OPEN: Calls are rejected immediately until openDurationMs has elapsed.
+ * - HALF_OPEN: Up to halfOpenCalls trial calls pass; any failure re-opens the breaker,
+ *   all trials succeeding closes it again.
+ *
+ * Only technical failures count; provider declines are successful calls.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenCalls;
+
+    private final boolean[] outcomes;
+    private int recorded = 0;
+    private int position = 0;
+    private int failures = 0;
+
+    private State state = State.CLOSED;
+    private long openedAt = 0L;
+    private int halfOpenPermitted = 0;
+    private int halfOpenSucceeded = 0;
+    private long timesOpened = 0L;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMs, int halfOpenCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenCalls = halfOpenCalls;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * Returns true if a call may proceed. A permitted call must be followed by
+     * exactly one onSuccess, onFailure or releasePermission.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * Gives back a permission for a call that never reached the provider, without recording an outcome.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Milliseconds until an open breaker lets trial calls through; 0 when it is not open.
+     */
+    public synchronized long remainingOpenMs() {
+        if (state != State.OPEN) {
+            return 0L;
+        }
+        return Math.max(0L, openDurationMs - (System.currentTimeMillis() - openedAt));
+    }
+
+    public synchronized State getState() { return state; }
+
+    public synchronized long getTimesOpened() { return timesOpened; }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[position]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) failures++;
+        position = (position + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        timesOpened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recorded = 0;
+        position = 0;
+        failures = 0;
+    }
+}
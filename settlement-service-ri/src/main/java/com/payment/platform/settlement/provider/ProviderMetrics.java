@@ -0,0 +1,53 @@
+package com.payment.platform.settlement.provider;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for settlement provider calls made through SettlementProviderGateway.
+ * 
+ * LongAdder counters keep recording cheap under concurrency; the snapshot is
+ * served by ProviderController for dashboards and load tests.
+ */
+public class ProviderMetrics {
+    
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder approved = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rejectedByCircuitBreaker = new LongAdder();
+    private final LongAdder rejectedByBulkhead = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    
+    public void recordCall(long latencyMs) {
+        calls.increment();
+        totalLatencyMs.add(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+    }
+    
+    public void recordApproved() { approved.increment(); }
+    public void recordDeclined() { declined.increment(); }
+    public void recordFailed() { failed.increment(); }
+    public void recordTimedOut() { timedOut.increment(); }
+    public void recordRejectedByCircuitBreaker() { rejectedByCircuitBreaker.increment(); }
+    public void recordRejectedByBulkhead() { rejectedByBulkhead.increment(); }
+    
+    public Map<String, Object> snapshot() {
+        long callCount = calls.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("calls", callCount);
+        snapshot.put("approved", approved.sum());
+        snapshot.put("declined", declined.sum());
+        snapshot.put("failed", failed.sum());
+        snapshot.put("timedOut", timedOut.sum());
+        snapshot.put("rejectedByCircuitBreaker", rejectedByCircuitBreaker.sum());
+        snapshot.put("rejectedByBulkhead", rejectedByBulkhead.sum());
+        snapshot.put("avgLatencyMs", callCount == 0 ? 0 : totalLatencyMs.sum() / callCount);
+        snapshot.put("maxLatencyMs", maxLatencyMs.get());
+        return snapshot;
+    }
+}
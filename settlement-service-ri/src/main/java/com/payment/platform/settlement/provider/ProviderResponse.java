@@ -0,0 +1,34 @@
+package com.payment.platform.settlement.provider;
+
+/**
+ * Business outcome returned by a SettlementProvider.
+ * 
+ * - approved: The provider accepted the settlement
+ * - declineCode / declineReason: Set when the provider declined (e.g. INSUFFICIENT_FUNDS)
+ * 
+ * Technical failures are not responses; they surface as SettlementProviderException.
+ */
+public class ProviderResponse {
+    private final boolean approved;
+    private final String declineCode;
+    private final String declineReason;
+    
+    private ProviderResponse(boolean approved, String declineCode, String declineReason) {
+        this.approved = approved;
+        this.declineCode = declineCode;
+        this.declineReason = declineReason;
+    }
+    
+    public static ProviderResponse approved() {
+        return new ProviderResponse(true, null, null);
+    }
+    
+    public static ProviderResponse declined(String declineCode, String declineReason) {
+        return new ProviderResponse(false, declineCode, declineReason);
+    }
+    
+    // Manual getters
+    public boolean isApproved() { return approved; }
+    public String getDeclineCode() { return declineCode; }
+    public String getDeclineReason() { return declineReason; }
+}
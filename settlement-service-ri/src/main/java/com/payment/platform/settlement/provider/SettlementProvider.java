@@ -0,0 +1,20 @@
+package com.payment.platform.settlement.provider;
+
+/**
+ * SPI for the external payment provider (acquirer, bank or gateway) that settles funds.
+ * 
+ * Implementations perform one blocking call per request and either return a
+ * ProviderResponse (approved or declined by the provider) or throw
+ * SettlementProviderException for technical failures (errors, outages, timeouts).
+ * 
+ * Calls are never made directly: SettlementProviderGateway wraps the active provider
+ * with a circuit breaker, a bounded bulkhead and call metrics.
+ * 
+ * Implementations: StandInSettlementProvider (local, configurable latency/failure profile)
+ */
+public interface SettlementProvider {
+    
+    ProviderResponse settle(SettlementRequest request);
+    
+    String getName();
+}
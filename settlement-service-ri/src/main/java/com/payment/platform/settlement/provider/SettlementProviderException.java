@@ -0,0 +1,48 @@
+package com.payment.platform.settlement.provider;
+
+/**
+ * Technical failure while talking to the settlement provider.
+ * 
+ * Error Codes:
+ * - PROVIDER_ERROR: Provider returned an error
+ * - PROVIDER_UNAVAILABLE: Provider is in an outage window
+ * - PROVIDER_TIMEOUT: Call exceeded settlement.provider.call-timeout-ms
+ * - BULKHEAD_FULL: Too many concurrent calls, request rejected without calling the provider
+ * - CIRCUIT_OPEN: Circuit breaker is open, request rejected without calling the provider
+ * 
+ * BULKHEAD_FULL and CIRCUIT_OPEN are local rejections: the provider was never called, and
+ * retryAfterMs says when a new call may be let through.
+ */
+public class SettlementProviderException extends RuntimeException {
+    
+    private final String code;
+    private final long retryAfterMs;
+    
+    public SettlementProviderException(String code, String message) {
+        this(code, message, 0L);
+    }
+    
+    public SettlementProviderException(String code, String message, long retryAfterMs) {
+        super(message);
+        this.code = code;
+        this.retryAfterMs = retryAfterMs;
+    }
+    
+    public SettlementProviderException(String code, String message, Throwable cause) {
+        this(code, message, 0L, cause);
+    }
+    
+    public SettlementProviderException(String code, String message, long retryAfterMs, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+        this.retryAfterMs = retryAfterMs;
+    }
+    
+    public String getCode() { return code; }
+    
+    public long getRetryAfterMs() { return retryAfterMs; }
+    
+    public boolean isRejected() {
+        return "BULKHEAD_FULL".equals(code) || "CIRCUIT_OPEN".equals(code);
+    }
+}
@@ -0,0 +1,163 @@
+package com.payment.platform.settlement.provider;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single entry point for settlement provider calls, wrapping the active SettlementProvider with:
+ * - Circuit breaker: Rejects calls with CIRCUIT_OPEN while the provider keeps failing
+ * - Bulkhead: A fixed pool of provider threads with a bounded queue; overflow is rejected
+ *   with BULKHEAD_FULL instead of piling up callers
+ * - Call timeout: A call not answered within settlement.provider.call-timeout-ms completes
+ *   with PROVIDER_TIMEOUT and its provider thread is interrupted
+ * - Metrics: See ProviderMetrics, exposed by ProviderController
+ *
+ * Calls are asynchronous: settle returns a CompletableFuture, so callers never wait on the
+ * provider and up to max-concurrent-calls settlements can be in flight at once. Provider
+ * slowness is bounded to the bulkhead threads.
+ *
+ * Used by: SettlementProcessor for single and batch settlements
+ */
+@Component
+public class SettlementProviderGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementProviderGateway.class);
+
+    private final SettlementProvider provider;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadPoolExecutor bulkhead;
+    private final ScheduledExecutorService timeouts;
+    private final long callTimeoutMs;
+    private final ProviderMetrics metrics = new ProviderMetrics();
+
+    public SettlementProviderGateway(SettlementProvider provider,
+            @Value("${settlement.provider.bulkhead.max-concurrent-calls:16}") int maxConcurrentCalls,
+            @Value("${settlement.provider.bulkhead.max-queued-calls:64}") int maxQueuedCalls,
+            @Value("${settlement.provider.call-timeout-ms:5000}") long callTimeoutMs,
+            @Value("${settlement.provider.circuit-breaker.window-size:50}") int windowSize,
+            @Value("${settlement.provider.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${settlement.provider.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${settlement.provider.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+            @Value("${settlement.provider.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        this.provider = provider;
+        this.callTimeoutMs = callTimeoutMs;
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                openDurationMs, halfOpenCalls);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.bulkhead = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedCalls),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "settlement-provider-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "settlement-provider-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("Settlement provider gateway using provider '{}' - bulkhead: {} threads/{} queued, timeout: {}ms",
+                provider.getName(), maxConcurrentCalls, maxQueuedCalls, callTimeoutMs);
+    }
+
+    /**
+     * Starts a provider call and returns without waiting for it. The future completes with the
+     * provider's response, or exceptionally with a SettlementProviderException; local rejections
+     * (CIRCUIT_OPEN, BULKHEAD_FULL) complete it immediately.
+     */
+    public CompletableFuture<ProviderResponse> settle(SettlementRequest request) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            metrics.recordRejectedByCircuitBreaker();
+            return CompletableFuture.failedFuture(new SettlementProviderException("CIRCUIT_OPEN",
+                    "Settlement provider circuit breaker is open", circuitBreaker.remainingOpenMs()));
+        }
+
+        CompletableFuture<ProviderResponse> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        Future<?> task;
+        try {
+            task = bulkhead.submit(() -> call(request, result, start));
+        } catch (RejectedExecutionException e) {
+            // The call never reached the provider, so it does not count against the breaker
+            circuitBreaker.releasePermission();
+            metrics.recordRejectedByBulkhead();
+            return CompletableFuture.failedFuture(new SettlementProviderException("BULKHEAD_FULL",
+                    "Settlement provider bulkhead is full", callTimeoutMs, e));
+        }
+
+        ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+            // Whichever completes the future first records the outcome
+            if (result.completeExceptionally(new SettlementProviderException("PROVIDER_TIMEOUT",
+                    "Settlement provider did not respond within " + callTimeoutMs + "ms"))) {
+                task.cancel(true);
+                circuitBreaker.onFailure();
+                metrics.recordTimedOut();
+                metrics.recordCall(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }, callTimeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((response, error) -> timeout.cancel(false));
+        return result;
+    }
+
+    private void call(SettlementRequest request, CompletableFuture<ProviderResponse> result, long start) {
+        try {
+            ProviderResponse response = provider.settle(request);
+            if (result.complete(response)) {
+                circuitBreaker.onSuccess();
+                if (response.isApproved()) {
+                    metrics.recordApproved();
+                } else {
+                    metrics.recordDeclined();
+                }
+                metrics.recordCall(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (Exception e) {
+            SettlementProviderException failure = e instanceof SettlementProviderException
+                    ? (SettlementProviderException) e
+                    : new SettlementProviderException("PROVIDER_ERROR", "Settlement provider call failed: " + e.getMessage(), e);
+            if (result.completeExceptionally(failure)) {
+                circuitBreaker.onFailure();
+                metrics.recordFailed();
+                metrics.recordCall(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("provider", provider.getName());
+        snapshot.put("circuitBreakerState", circuitBreaker.getState().name());
+        snapshot.put("circuitBreakerFailureRate", circuitBreaker.getFailureRate());
+        snapshot.put("circuitBreakerTimesOpened", circuitBreaker.getTimesOpened());
+        snapshot.put("bulkheadActiveCalls", bulkhead.getActiveCount());
+        snapshot.put("bulkheadQueuedCalls", bulkhead.getQueue().size());
+        snapshot.putAll(metrics.snapshot());
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timeouts.shutdownNow();
+        bulkhead.shutdownNow();
+    }
+}
@@ -0,0 +1,47 @@
+package com.payment.platform.settlement.provider;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.settlement.service.SettlementBatch;
+
+import java.math.BigDecimal;
+
+/**
+ * Request sent to a SettlementProvider for a single payment or a merchant batch.
+ * 
+ * - reference: paymentId for single settlements, batchId for batches
+ * - merchantId / currency: Settlement account and currency (may be null for single payments)
+ * - amount: Gross amount for a payment, net amount for a batch
+ * - paymentCount: Number of payments covered by the request
+ */
+public class SettlementRequest {
+    private final String reference;
+    private final String merchantId;
+    private final String currency;
+    private final BigDecimal amount;
+    private final int paymentCount;
+    
+    public SettlementRequest(String reference, String merchantId, String currency, BigDecimal amount, int paymentCount) {
+        this.reference = reference;
+        this.merchantId = merchantId;
+        this.currency = currency;
+        this.amount = amount;
+        this.paymentCount = paymentCount;
+    }
+    
+    public static SettlementRequest forPayment(PaymentAuthorizedEvent event) {
+        BigDecimal amount = event.getAmount() != null ? new BigDecimal(event.getAmount()) : BigDecimal.ZERO;
+        return new SettlementRequest(event.getPaymentId(), event.getMerchantId(), event.getCurrency(), amount, 1);
+    }
+    
+    public static SettlementRequest forBatch(SettlementBatch batch) {
+        return new SettlementRequest(batch.getBatchId(), batch.getMerchantId(), batch.getCurrency(),
+                batch.getNetAmount(), batch.size());
+    }
+    
+    // Manual getters
+    public String getReference() { return reference; }
+    public String getMerchantId() { return merchantId; }
+    public String getCurrency() { return currency; }
+    public BigDecimal getAmount() { return amount; }
+    public int getPaymentCount() { return paymentCount; }
+}
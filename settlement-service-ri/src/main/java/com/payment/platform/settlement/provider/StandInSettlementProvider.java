@@ -0,0 +1,135 @@
+package com.payment.platform.settlement.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the external settlement provider, used for development and load tests.
+ *
+ * The provider's behaviour is driven entirely by configuration so settlement can be
+ * exercised under degradation on a laptop:
+ * - Latency: FIXED (median), UNIFORM (min..max) or LOG_NORMAL (median, p99) distribution
+ * - error-rate: Fraction of calls failing with PROVIDER_ERROR
+ * - decline-rate: Fraction of calls declined with a business reason
+ * - Outage windows: For outage-duration-ms out of every outage-every-ms, every call fails
+ *   with PROVIDER_UNAVAILABLE after the configured latency
+ *
+ * Defaults (zero latency, no errors, no outages) keep the previous always-succeeds mock behaviour.
+ * A real provider replaces this bean by registering its own @Primary SettlementProvider.
+ */
+@Component
+public class StandInSettlementProvider implements SettlementProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(StandInSettlementProvider.class);
+
+    /** z-score of the 99th percentile of the standard normal distribution. */
+    private static final double Z_99 = 2.326;
+
+    public enum LatencyDistribution { FIXED, UNIFORM, LOG_NORMAL }
+
+    @Value("${settlement.provider.stand-in.latency.distribution:FIXED}")
+    private LatencyDistribution latencyDistribution;
+
+    @Value("${settlement.provider.stand-in.latency.median-ms:0}")
+    private long medianLatencyMs;
+
+    @Value("${settlement.provider.stand-in.latency.min-ms:0}")
+    private long minLatencyMs;
+
+    @Value("${settlement.provider.stand-in.latency.max-ms:0}")
+    private long maxLatencyMs;
+
+    @Value("${settlement.provider.stand-in.latency.p99-ms:0}")
+    private long p99LatencyMs;
+
+    @Value("${settlement.provider.stand-in.error-rate:0.0}")
+    private double errorRate;
+
+    @Value("${settlement.provider.stand-in.decline-rate:0.0}")
+    private double declineRate;
+
+    @Value("${settlement.provider.stand-in.outage-every-ms:0}")
+    private long outageEveryMs;
+
+    @Value("${settlement.provider.stand-in.outage-duration-ms:0}")
+    private long outageDurationMs;
+
+    @Override
+    public ProviderResponse settle(SettlementRequest request) {
+        simulateLatency();
+
+        if (inOutageWindow(System.currentTimeMillis())) {
+            throw new SettlementProviderException("PROVIDER_UNAVAILABLE", "Payment provider outage");
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < errorRate) {
+            throw new SettlementProviderException("PROVIDER_ERROR", "Payment provider network error");
+        }
+
+        if (random.nextDouble() < declineRate) {
+            return declineWithRandomReason(random);
+        }
+
+        log.debug("Stand-in provider approved settlement: {}", request.getReference());
+        return ProviderResponse.approved();
+    }
+
+    @Override
+    public String getName() {
+        return "stand-in";
+    }
+
+    boolean inOutageWindow(long nowMillis) {
+        return outageEveryMs > 0 && outageDurationMs > 0 && (nowMillis % outageEveryMs) < outageDurationMs;
+    }
+
+    private void simulateLatency() {
+        long latencyMs = sampleLatencyMs();
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SettlementProviderException("PROVIDER_TIMEOUT", "Provider call interrupted", e);
+        }
+    }
+
+    private long sampleLatencyMs() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (latencyDistribution) {
+            case UNIFORM:
+                return maxLatencyMs > minLatencyMs ? random.nextLong(minLatencyMs, maxLatencyMs + 1) : minLatencyMs;
+            case LOG_NORMAL:
+                if (medianLatencyMs <= 0) {
+                    return 0L;
+                }
+                double sigma = p99LatencyMs > medianLatencyMs
+                        ? Math.log((double) p99LatencyMs / medianLatencyMs) / Z_99
+                        : 0.0;
+                return Math.round(medianLatencyMs * Math.exp(sigma * random.nextGaussian()));
+            case FIXED:
+            default:
+                return medianLatencyMs;
+        }
+    }
+
+    private ProviderResponse declineWithRandomReason(ThreadLocalRandom random) {
+        double rand = random.nextDouble();
+
+        if (rand < 0.4) {
+            return ProviderResponse.declined("INSUFFICIENT_FUNDS", "Insufficient funds in account");
+        } else if (rand < 0.8) {
+            return ProviderResponse.declined("INVALID_CARD", "Invalid card details");
+        } else {
+            return ProviderResponse.declined("PROVIDER_ERROR", "Transaction declined by risk assessment");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.payment.platform.settlement.repository;
+
+import com.payment.platform.settlement.model.SettlementAttempt;
+import com.payment.platform.settlement.model.SettlementState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for SettlementAttempt entities.
+ * 
+ * Used by SettlementRetryScheduler to persist the settlement state machine,
+ * to claim attempts for one instance and to find attempts that are due, and by
+ * SettlementBatcher to record and claim batch membership.
+ */
+@Repository
+public interface SettlementAttemptRepository extends JpaRepository<SettlementAttempt, String> {
+    
+    List<SettlementAttempt> findByStateIn(Collection<SettlementState> states);
+    
+    long countByState(SettlementState state);
+    
+    /**
+     * Claims a due attempt for one instance until the given time. Returns 0 when the attempt is
+     * not in one of the states, not due yet, or claimed by another instance whose claim holds.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SettlementAttempt a SET a.claimedBy = :owner, a.claimedUntil = :until " +
+           "WHERE a.paymentId = :paymentId AND a.state IN :states " +
+           "AND (a.nextAttemptAt IS NULL OR a.nextAttemptAt <= :now) " +
+           "AND (a.claimedUntil IS NULL OR a.claimedUntil < :now OR a.claimedBy = :owner)")
+    int claim(@Param("paymentId") String paymentId, @Param("states") Collection<SettlementState> states,
+              @Param("owner") String owner, @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+    
+    /**
+     * Attempts in the given states that are due and not claimed by a live instance.
+     */
+    @Query("SELECT a FROM SettlementAttempt a WHERE a.state IN :states " +
+           "AND (a.nextAttemptAt IS NULL OR a.nextAttemptAt <= :now) " +
+           "AND (a.claimedUntil IS NULL OR a.claimedUntil < :now)")
+    List<SettlementAttempt> findUnclaimedDue(@Param("states") Collection<SettlementState> states, @Param("now") LocalDateTime now);
+    
+    List<SettlementAttempt> findByBatchIdAndStateAndClaimedBy(String batchId, SettlementState state, String claimedBy);
+    
+    /**
+     * Extends the claim of one instance on the attempts of a batch, before the batch is settled.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SettlementAttempt a SET a.claimedUntil = :until " +
+           "WHERE a.batchId = :batchId AND a.state = :state AND a.claimedBy = :owner")
+    int extendBatchClaim(@Param("batchId") String batchId, @Param("state") SettlementState state,
+                         @Param("owner") String owner, @Param("until") LocalDateTime until);
+    
+    /**
+     * Attempts in the state that the instance holds or may claim.
+     */
+    @Query("SELECT a.paymentId FROM SettlementAttempt a WHERE a.state = :state " +
+           "AND (a.claimedUntil IS NULL OR a.claimedUntil < :now OR a.claimedBy = :owner)")
+    List<String> findClaimable(@Param("state") SettlementState state, @Param("owner") String owner,
+                               @Param("now") LocalDateTime now);
+}
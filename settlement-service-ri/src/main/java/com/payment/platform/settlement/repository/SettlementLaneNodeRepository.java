@@ -0,0 +1,25 @@
+package com.payment.platform.settlement.repository;
+
+import com.payment.platform.settlement.model.SettlementLaneNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository for SettlementLaneNode heartbeats.
+ */
+@Repository
+public interface SettlementLaneNodeRepository extends JpaRepository<SettlementLaneNode, String> {
+    
+    long countByLastHeartbeatAfter(LocalDateTime since);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SettlementLaneNode n WHERE n.lastHeartbeat < :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,52 @@
+package com.payment.platform.settlement.service;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of authorized payments for one merchant and currency, settled with a single provider call.
+ * 
+ * This class accumulates payments until SettlementBatcher closes it by size or age:
+ * - batchId: Internal identifier used for logging and provider correlation
+ * - merchantId / currency: Batch key (acquirers settle per merchant account and currency)
+ * - netAmount: Sum of the batch's payment amounts; reversals would be netted here as negatives
+ * 
+ * Used by: SettlementBatcher and SettlementProcessor.attemptBatchSettlement
+ */
+public class SettlementBatch {
+    private final String batchId;
+    private final String merchantId;
+    private final String currency;
+    private final LocalDateTime openedAt;
+    private final List<PaymentAuthorizedEvent> payments = new ArrayList<>();
+    private BigDecimal netAmount = BigDecimal.ZERO;
+    
+    public SettlementBatch(String batchId, String merchantId, String currency) {
+        this.batchId = batchId;
+        this.merchantId = merchantId;
+        this.currency = currency;
+        this.openedAt = LocalDateTime.now();
+    }
+    
+    public void add(PaymentAuthorizedEvent payment) {
+        payments.add(payment);
+        if (payment.getAmount() != null) {
+            netAmount = netAmount.add(new BigDecimal(payment.getAmount()));
+        }
+    }
+    
+    public int size() { return payments.size(); }
+    
+    // Manual getters
+    public String getBatchId() { return batchId; }
+    public String getMerchantId() { return merchantId; }
+    public String getCurrency() { return currency; }
+    public LocalDateTime getOpenedAt() { return openedAt; }
+    public List<PaymentAuthorizedEvent> getPayments() { return Collections.unmodifiableList(payments); }
+    public BigDecimal getNetAmount() { return netAmount; }
+}
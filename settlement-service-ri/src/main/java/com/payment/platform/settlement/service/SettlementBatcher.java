@@ -0,0 +1,365 @@
+package com.payment.platform.settlement.service;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.id.SnowflakeIdGenerator;
+import com.payment.platform.settlement.journal.JournalRecord;
+import com.payment.platform.settlement.journal.SettlementJournal;
+import com.payment.platform.settlement.model.SettlementAttempt;
+import com.payment.platform.settlement.model.SettlementState;
+import com.payment.platform.settlement.repository.SettlementAttemptRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates authorized payments into per-merchant, per-currency settlement batches.
+ *
+ * Enabled with settlement.batch.enabled=true. Instead of one provider call per payment:
+ * - Each payment is first recorded in settlement_attempts as BATCHED with its batch id, in the
+ *   event handler's transaction, so a redelivered event is recognised and ignored
+ * - Payments join the open batch for (merchantId, currency) once that transaction has committed
+ * - A batch is closed when it reaches settlement.batch.max-size, or when it is older than
+ *   settlement.batch.max-wait-ms, and is settled from the single flush thread
+ * - A closed batch is settled with one provider call for the net amount of its BATCHED rows.
+ *   The flush thread only starts the call and handles its outcome when it completes, so a slow
+ *   provider call never holds up the other batches
+ * - The outcome fans out as one PaymentSettledEvent per payment (settlementId = batch id + index).
+ *   The payments are saved as PUBLISH_PENDING first and each becomes SETTLED once its event is
+ *   published; an event that fails to publish is handed to SettlementRetryScheduler, which
+ *   re-publishes it
+ * - If the batch call fails, its payments fall back to SettlementRetryScheduler individually
+ *
+ * Open batches are held in memory only as an index of the persisted rows. BATCHED rows that
+ * are in no open batch - after a restart, when their instance stopped, or when a payment
+ * missed its batch - are claimed every settlement.retry.sweep-ms and put into a new batch.
+ *
+ * Used by: SettlementEventHandler when batching mode is enabled
+ */
+@Service
+public class SettlementBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementBatcher.class);
+
+    private static final String UNKNOWN_MERCHANT = "UNKNOWN";
+    private static final String DEFAULT_CURRENCY = "USD";
+
+    private static final Set<SettlementState> BATCHED = EnumSet.of(SettlementState.BATCHED);
+
+    @Autowired
+    private SettlementProcessor settlementProcessor;
+
+    @Autowired
+    private SettlementRetryScheduler settlementRetryScheduler;
+
+    @Autowired
+    private SettlementAttemptRepository attemptRepository;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
+    @Autowired
+    private SettlementJournal settlementJournal;
+
+    @Value("${settlement.batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${settlement.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${settlement.batch.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    @Value("${settlement.retry.claim-ms:60000}")
+    private long claimMs;
+
+    @Value("${settlement.retry.sweep-ms:30000}")
+    private long sweepMs;
+
+    private final Map<String, SettlementBatch> openBatches = new HashMap<>();
+
+    // Ids of the batches that are open or being settled on this instance
+    private final Set<String> liveBatchIds = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "settlement-batch-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        long checkIntervalMs = Math.max(100L, maxWaitMs / 4);
+        flusher.scheduleWithFixedDelay(this::flushExpired, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::adoptUnbatched, 0L, sweepMs, TimeUnit.MILLISECONDS);
+        log.info("Settlement batching enabled - max size: {}, max wait: {}ms", maxBatchSize, maxWaitMs);
+    }
+
+    /**
+     * Records the payment as BATCHED in its merchant/currency batch. The payment joins the
+     * batch in memory once the caller's transaction has committed; a batch it fills is
+     * handed to the flush thread.
+     */
+    public void add(PaymentAuthorizedEvent event) {
+        if (attemptRepository.existsById(event.getPaymentId())) {
+            log.info("Settlement already tracked for payment: {}, ignoring duplicate event", event.getPaymentId());
+            return;
+        }
+        String batchId;
+        synchronized (openBatches) {
+            batchId = openBatch(event).getBatchId();
+        }
+
+        SettlementAttempt attempt = SettlementAttempt.from(event);
+        attempt.setState(SettlementState.BATCHED);
+        attempt.setBatchId(batchId);
+        attempt.setNextAttemptAt(null);
+        attempt.setClaimedBy(settlementRetryScheduler.getNodeId());
+        attempt.setClaimedUntil(LocalDateTime.now().plus(Duration.ofMillis(maxWaitMs + claimMs)));
+        attemptRepository.save(attempt);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    join(batchId, event);
+                }
+            });
+        } else {
+            join(batchId, event);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Open batches are persisted as BATCHED rows; their claims expire and a sweep settles them
+        flusher.shutdownNow();
+    }
+
+    private SettlementBatch openBatch(PaymentAuthorizedEvent event) {
+        return openBatches.computeIfAbsent(batchKey(event), key -> {
+            SettlementBatch batch = new SettlementBatch("BATCH_" + idGenerator.nextIdString(),
+                    merchantOf(event), currencyOf(event));
+            liveBatchIds.add(batch.getBatchId());
+            return batch;
+        });
+    }
+
+    // A payment whose batch was closed before it joined stays BATCHED and is adopted by the next sweep
+    private void join(String batchId, PaymentAuthorizedEvent event) {
+        SettlementBatch closed = null;
+
+        synchronized (openBatches) {
+            String key = batchKey(event);
+            SettlementBatch batch = openBatches.get(key);
+            if (batch == null || !batch.getBatchId().equals(batchId)) {
+                return;
+            }
+            batch.add(event);
+
+            if (batch.size() >= maxBatchSize) {
+                closed = openBatches.remove(key);
+            }
+        }
+
+        if (closed != null) {
+            SettlementBatch full = closed;
+            flusher.execute(() -> settleSafely(full));
+        }
+    }
+
+    private void flushExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(maxWaitMs * 1_000_000L);
+        List<SettlementBatch> closed = new ArrayList<>();
+
+        synchronized (openBatches) {
+            openBatches.values().removeIf(batch -> {
+                if (batch.getOpenedAt().isBefore(cutoff)) {
+                    closed.add(batch);
+                    return true;
+                }
+                return false;
+            });
+        }
+        closed.forEach(this::settleSafely);
+    }
+
+    /**
+     * Claims BATCHED rows that are in no live batch of this instance and puts them into open batches.
+     */
+    void adoptUnbatched() {
+        try {
+            String nodeId = settlementRetryScheduler.getNodeId();
+            LocalDateTime now = LocalDateTime.now();
+            int adopted = 0;
+            for (String paymentId : attemptRepository.findClaimable(SettlementState.BATCHED, nodeId, now)) {
+                SettlementAttempt attempt = attemptRepository.findById(paymentId).orElse(null);
+                if (attempt == null || (nodeId.equals(attempt.getClaimedBy()) && liveBatchIds.contains(attempt.getBatchId()))) {
+                    continue;
+                }
+                LocalDateTime until = now.plus(Duration.ofMillis(maxWaitMs + claimMs));
+                if (attemptRepository.claim(paymentId, BATCHED, nodeId, until, now) == 0) {
+                    continue;
+                }
+                PaymentAuthorizedEvent event = attempt.toAuthorizedEvent();
+                String batchId;
+                synchronized (openBatches) {
+                    batchId = openBatch(event).getBatchId();
+                }
+                attempt.setBatchId(batchId);
+                attempt.setClaimedBy(nodeId);
+                attempt.setClaimedUntil(until);
+                attemptRepository.save(attempt);
+                join(batchId, event);
+                adopted++;
+            }
+            if (adopted > 0) {
+                log.info("Adopted {} batched payments without a live batch", adopted);
+            }
+        } catch (Exception e) {
+            log.error("Settlement batch sweep failed", e);
+        }
+    }
+
+    // The batch stays live until its provider call has completed and its outcome is recorded
+    private void settleSafely(SettlementBatch batch) {
+        try {
+            settle(batch);
+        } catch (Exception e) {
+            // The rows stay BATCHED under this instance's claim and are adopted again once it expires
+            log.error("Settlement batch {} could not be settled", batch.getBatchId(), e);
+            liveBatchIds.remove(batch.getBatchId());
+        }
+    }
+
+    private void settle(SettlementBatch closed) {
+        String nodeId = settlementRetryScheduler.getNodeId();
+        attemptRepository.extendBatchClaim(closed.getBatchId(), SettlementState.BATCHED, nodeId,
+                LocalDateTime.now().plus(Duration.ofMillis(claimMs)));
+
+        // The persisted rows are the batch; a payment taken over by another instance is left out
+        List<SettlementAttempt> attempts = attemptRepository.findByBatchIdAndStateAndClaimedBy(
+                closed.getBatchId(), SettlementState.BATCHED, nodeId);
+        if (attempts.isEmpty()) {
+            liveBatchIds.remove(closed.getBatchId());
+            return;
+        }
+        SettlementBatch batch = new SettlementBatch(closed.getBatchId(), closed.getMerchantId(), closed.getCurrency());
+        attempts.forEach(attempt -> batch.add(attempt.toAuthorizedEvent()));
+
+        // Outcomes are recorded on the flush thread, between flushes of other batches
+        settlementProcessor.attemptBatchSettlement(batch).whenCompleteAsync((result, error) -> {
+            try {
+                if (error == null) {
+                    complete(batch, attempts, result);
+                } else {
+                    log.error("Settlement batch {} could not be completed", batch.getBatchId(), error);
+                }
+            } catch (Exception e) {
+                // Rows not yet moved on stay under this instance's claim and are picked up once it expires
+                log.error("Settlement batch {} could not be completed", batch.getBatchId(), e);
+            } finally {
+                liveBatchIds.remove(batch.getBatchId());
+            }
+        }, flusher);
+    }
+
+    private void complete(SettlementBatch batch, List<SettlementAttempt> attempts, SettlementResult result) {
+        if (!result.isSettled()) {
+            log.warn("Settlement batch {} failed ({}), falling back to per-payment settlement for {} payments",
+                    batch.getBatchId(), result.getFailureReasons(), batch.size());
+            // A rejected call never reached the provider; the payments wait until it takes calls again
+            long delayMs = result.isRejected() ? result.getRetryAfterMs() : 0L;
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plus(Duration.ofMillis(delayMs));
+            for (SettlementAttempt attempt : attempts) {
+                attempt.setState(SettlementState.PENDING);
+                attempt.setNextAttemptAt(nextAttemptAt);
+                attempt.setClaimedUntil(nextAttemptAt.plus(Duration.ofMillis(claimMs)));
+                attempt.setLastFailure(String.join("; ", result.getFailureReasons()));
+            }
+            attemptRepository.saveAll(attempts);
+            attempts.forEach(attempt -> settlementRetryScheduler.resume(attempt, delayMs));
+            return;
+        }
+
+        // Recorded before publishing, so events that fail to publish are re-published, not lost
+        LocalDateTime settlementDate = LocalDateTime.now();
+        LocalDateTime claimedUntil = settlementDate.plus(Duration.ofMillis(claimMs));
+        for (int i = 0; i < attempts.size(); i++) {
+            SettlementAttempt attempt = attempts.get(i);
+            attempt.setState(SettlementState.PUBLISH_PENDING);
+            attempt.setSettlementId(result.getSettlementId() + "_" + i);
+            attempt.setSettledAt(settlementDate);
+            attempt.setNextAttemptAt(null);
+            attempt.setClaimedUntil(claimedUntil);
+        }
+        attemptRepository.saveAll(attempts);
+
+        List<SettlementAttempt> published = new ArrayList<>(attempts.size());
+        for (SettlementAttempt attempt : attempts) {
+            try {
+                settlementRetryScheduler.publishSettled(attempt);
+                published.add(attempt);
+            } catch (Exception e) {
+                long delayMs = settlementRetryScheduler.backoffDelayMs(1);
+                log.error("Failed to publish settlement of payment: {}, publishing again in {}ms",
+                        attempt.getPaymentId(), delayMs, e);
+                settlementRetryScheduler.resume(attempt, delayMs);
+            }
+        }
+        published.forEach(SettlementRetryScheduler::markSettled);
+        attemptRepository.saveAll(published);
+
+        // Journaled after the events are out, so a journal failure cannot suppress any of them
+        for (SettlementAttempt attempt : published) {
+            try {
+                settlementJournal.append(JournalRecord.settled(attempt.getPaymentId(), attempt.getOrderId(),
+                        attempt.getSettlementId(), batch.getMerchantId(), batch.getCurrency(), attempt.getAmount()));
+            } catch (Exception e) {
+                log.error("Failed to journal settlement outcome for payment: {}", attempt.getPaymentId(), e);
+            }
+        }
+
+        log.info("4. Settlement batch {} completed: {} payments ({} published), net {} {}, settlementId: {}",
+                batch.getBatchId(), batch.size(), published.size(), batch.getNetAmount(), batch.getCurrency(),
+                result.getSettlementId());
+    }
+
+    private static String batchKey(PaymentAuthorizedEvent event) {
+        return merchantOf(event) + "|" + currencyOf(event);
+    }
+
+    private static String merchantOf(PaymentAuthorizedEvent event) {
+        return event.getMerchantId() != null ? event.getMerchantId() : UNKNOWN_MERCHANT;
+    }
+
+    private static String currencyOf(PaymentAuthorizedEvent event) {
+        return event.getCurrency() != null ? event.getCurrency() : DEFAULT_CURRENCY;
+    }
+}
@@ -0,0 +1,186 @@
+package com.payment.platform.settlement.service;
+
+import com.payment.platform.settlement.config.SettlementProcessingConfig;
+import com.payment.platform.settlement.model.SettlementLaneNode;
+import com.payment.platform.settlement.repository.SettlementLaneNodeRepository;
+import jakarta.annotation.PreDestroy;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.StreamingEventProcessor;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventhandling.tokenstore.TokenStore;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps settlement lanes (segments of the "settlement" streaming processor) evenly spread
+ * across running instances and reports per-lane lag.
+ *
+ * Every settlement.lanes.rebalance-interval-ms each instance:
+ * - Writes a heartbeat to settlement_lane_nodes and counts instances seen within the timeout
+ * - Computes its fair share, ceil(segments / instances)
+ * - Releases segments it holds above that share, so joining instances can claim them
+ *   (instances that leave stop heartbeating and their segments are claimed by the rest)
+ *
+ * Lag per lane is the distance between the event store head and the lane's token position.
+ *
+ * Balancing needs every instance to share one database: the token store (segment claims) and
+ * settlement_lane_nodes must be the same tables for all of them. With a per-instance database,
+ * such as the default in-memory H2, each instance sees only itself and claims every segment;
+ * a warning is logged at startup in that case.
+ *
+ * Used by: LaneController (/api/settlement/lanes)
+ */
+@Service
+public class SettlementLaneBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementLaneBalancer.class);
+
+    @Autowired
+    private EventProcessingConfiguration eventProcessingConfiguration;
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Autowired
+    private SettlementLaneNodeRepository laneNodeRepository;
+
+    @Value("${settlement.lanes.rebalance-interval-ms:10000}")
+    private long rebalanceIntervalMs;
+
+    @Value("${settlement.lanes.node-timeout-ms:30000}")
+    private long nodeTimeoutMs;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final ScheduledExecutorService balancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "settlement-lane-balancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        balancer.scheduleWithFixedDelay(this::rebalance, rebalanceIntervalMs, rebalanceIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Settlement lane balancer started for node: {}", nodeId);
+        if (datasourceUrl.startsWith("jdbc:h2:mem:")) {
+            log.warn("Settlement lanes use a per-instance in-memory database ({}); instances cannot see each "
+                    + "other's segment claims, so each one processes all lanes. Point spring.datasource.url "
+                    + "at a database shared by all settlement instances to balance lanes", datasourceUrl);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        balancer.shutdownNow();
+        laneNodeRepository.deleteById(nodeId);
+    }
+
+    void rebalance() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            laneNodeRepository.save(new SettlementLaneNode(nodeId, now));
+            laneNodeRepository.deleteStale(now.minusNanos(nodeTimeoutMs * 1_000_000L));
+
+            Optional<StreamingEventProcessor> processor = settlementProcessor();
+            if (processor.isEmpty()) {
+                return;
+            }
+
+            long activeNodes = Math.max(1L, laneNodeRepository.countByLastHeartbeatAfter(
+                    now.minusNanos(nodeTimeoutMs * 1_000_000L)));
+            int totalSegments = tokenStore.fetchSegments(processor.get().getName()).length;
+            int fairShare = (int) Math.ceil((double) totalSegments / activeNodes);
+
+            List<Integer> owned = new ArrayList<>(processor.get().processingStatus().keySet());
+            if (owned.size() <= fairShare) {
+                return;
+            }
+
+            owned.sort(null);
+            List<Integer> toRelease = owned.subList(fairShare, owned.size());
+            log.info("Releasing settlement lanes {} ({} nodes, {} lanes, fair share {})",
+                    toRelease, activeNodes, totalSegments, fairShare);
+            for (Integer segmentId : toRelease) {
+                processor.get().releaseSegment(segmentId, rebalanceIntervalMs * 2, TimeUnit.MILLISECONDS);
+            }
+
+        } catch (Exception e) {
+            log.error("Settlement lane rebalance failed", e);
+        }
+    }
+
+    /**
+     * Snapshot of the lanes held by this instance with their lag in events.
+     */
+    public Map<String, Object> getLaneStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("nodeId", nodeId);
+
+        Optional<StreamingEventProcessor> processor = settlementProcessor();
+        if (processor.isEmpty()) {
+            status.put("lanes", Map.of());
+            return status;
+        }
+
+        OptionalLong head = headPosition();
+        Map<Integer, Object> lanes = new LinkedHashMap<>();
+        for (Map.Entry<Integer, EventTrackerStatus> entry : processor.get().processingStatus().entrySet()) {
+            EventTrackerStatus tracker = entry.getValue();
+            OptionalLong position = tracker.getCurrentPosition();
+
+            Map<String, Object> lane = new LinkedHashMap<>();
+            lane.put("caughtUp", tracker.isCaughtUp());
+            lane.put("replaying", tracker.isReplaying());
+            lane.put("position", position.isPresent() ? position.getAsLong() : null);
+            lane.put("lag", head.isPresent() && position.isPresent()
+                    ? Math.max(0L, head.getAsLong() - position.getAsLong()) : null);
+            lanes.put(entry.getKey(), lane);
+        }
+
+        status.put("processor", processor.get().getName());
+        status.put("activeNodes", laneNodeRepository.countByLastHeartbeatAfter(
+                LocalDateTime.now().minusNanos(nodeTimeoutMs * 1_000_000L)));
+        status.put("lanes", lanes);
+        return status;
+    }
+
+    private Optional<StreamingEventProcessor> settlementProcessor() {
+        return eventProcessingConfiguration.eventProcessor(
+                SettlementProcessingConfig.PROCESSING_GROUP, StreamingEventProcessor.class);
+    }
+
+    private OptionalLong headPosition() {
+        try {
+            TrackingToken head = eventStore.createHeadToken();
+            return head == null ? OptionalLong.empty() : head.position();
+        } catch (Exception e) {
+            log.debug("Could not read event store head position", e);
+            return OptionalLong.empty();
+        }
+    }
+}
@@ -1,135 +1,138 @@
 package com.payment.platform.settlement.service;
 
 import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.id.SnowflakeIdGenerator;
+import com.payment.platform.settlement.provider.ProviderResponse;
+import com.payment.platform.settlement.provider.SettlementProviderException;
+import com.payment.platform.settlement.provider.SettlementProviderGateway;
+import com.payment.platform.settlement.provider.SettlementRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service responsible for processing payment settlements with external payment providers.
- * 
+ *
  * This processor handles the actual payment settlement workflow:
- * - Payment provider integration (mock for development)
- * - Retry logic for failed settlements
+ * - Payment provider integration through SettlementProviderGateway (SettlementProvider SPI)
+ * - Single settlement attempts (retries are scheduled by SettlementRetryScheduler), without
+ *   waiting on the provider
+ * - Provider declines are reported as declined (final), circuit breaker and bulkhead
+ *   rejections as rejected (the provider was never called)
  * - Settlement status tracking and logging
  * - Error handling and classification
- * 
+ *
  * Key Features:
- * - Configurable retry attempts and delays
- * - Mock payment provider for testing
+ * - Stand-in payment provider with configurable latency/failure profiles for testing
+ * - Circuit breaker and bulkhead around every provider call
  * - Detailed error classification
  * - Settlement audit logging
- * 
+ *
  * Used by: SettlementEventHandler to process PaymentAuthorizedEvent
  * Output: SettlementResult with detailed settlement status
- * 
+ *
  * Architecture Role: Business logic layer in settlement microservice
  */
 @Service
 public class SettlementProcessor {
-    
+
     private static final Logger log = LoggerFactory.getLogger(SettlementProcessor.class);
-    
-    @Value("${settlement.retry.max-attempts:3}")
-    private int maxRetryAttempts;
-    
-    @Value("${settlement.retry.delay-ms:1000}")
-    private long retryDelayMs;
-    
-    @Value("${settlement.payment.provider.mock:true}")
-    private boolean useMockProvider;
-    
-    private final Random random = new Random();
-    
-    public SettlementResult processSettlement(PaymentAuthorizedEvent event) {
+
+    @Autowired
+    private SettlementProviderGateway providerGateway;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
+    /**
+     * Starts a single settlement attempt against the payment provider and returns without
+     * waiting for it; the future completes with the result (never exceptionally).
+     *
+     * Retries are not handled here: SettlementRetryScheduler owns the attempt
+     * state machine and schedules the next attempt with backoff, so no thread
+     * is ever parked between attempts.
+     */
+    public CompletableFuture<SettlementResult> attemptSettlement(PaymentAuthorizedEvent event, int attempt) {
         log.info("2. Processing settlement for authorized payment: {}", event.getPaymentId());
-        log.info("Payment details - Amount: {}, Auth Code: {}, Risk Score: {}", 
+        log.info("Payment details - Amount: {}, Auth Code: {}, Risk Score: {}",
                 event.getAmount(), event.getAuthorizationCode(), event.getRiskScore());
-        
-        SettlementResult result = new SettlementResult();
-        
-        for (int attempt = 1; attempt <= maxRetryAttempts; attempt++) {
-            result.incrementRetryCount();
-            
-            try {
-                log.info("Attempt {} to settle payment: {}", attempt, event.getPaymentId());
-                
-                // Simulate payment provider processing
-                boolean settlementSuccess = processWithProvider(event);
-                
-                if (settlementSuccess) {
-                    String settlementId = generateSettlementId();
-                    result.markAsSettled(settlementId);
-                    log.info("3. Payment settled successfully: {}, settlementId: {}", 
-                            event.getPaymentId(), settlementId);
-                    return result;
-                } else {
-                    String failureReason = determineFailureReason(event);
-                    result.addFailure("PROVIDER_ERROR", failureReason);
-                    log.warn("Settlement attempt {} failed for payment: {}, reason: {}", 
-                            attempt, event.getPaymentId(), failureReason);
-                    
-                    if (attempt < maxRetryAttempts) {
-                        log.info("Waiting {}ms before retry...", retryDelayMs);
-                        TimeUnit.MILLISECONDS.sleep(retryDelayMs);
-                    }
-                }
-                
-            } catch (Exception e) {
-                result.addFailure("SYSTEM_ERROR", "Settlement processing failed: " + e.getMessage());
-                log.error("Settlement processing error for payment: {}", event.getPaymentId(), e);
-                
-                if (attempt < maxRetryAttempts) {
-                    try {
-                        TimeUnit.MILLISECONDS.sleep(retryDelayMs);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
+        log.info("Attempt {} to settle payment: {}", attempt, event.getPaymentId());
+
+        return settleWithProvider(SettlementRequest.forPayment(event)).thenApply(result -> {
+            result.setRetryCount(attempt);
+
+            if (result.isSettled()) {
+                log.info("3. Payment settled successfully: {}, settlementId: {}",
+                        event.getPaymentId(), result.getSettlementId());
+            } else {
+                log.warn("Settlement attempt {} failed for payment: {}, reasons: {}",
+                        attempt, event.getPaymentId(), result.getFailureReasons());
             }
-        }
-        
-        log.error("4. Settlement failed after {} attempts for payment: {}", 
-                maxRetryAttempts, event.getPaymentId());
-        result.addFailure("MAX_RETRIES_EXCEEDED", "Maximum retry attempts exceeded");
-        
-        return result;
+            return result;
+        });
     }
-    
-    private boolean processWithProvider(PaymentAuthorizedEvent event) {
-        if (useMockProvider) {
-            // Mock payment provider - 100% success rate for testing
-            return random.nextDouble() < 1.0;
-        }
-        
-        // Real payment provider integration would go here
-        // For now, simulate success
-        return true;
+
+    /**
+     * Starts the settlement of a whole merchant/currency batch with a single provider call for
+     * its net amount and returns without waiting for it; the future completes with the result
+     * (never exceptionally).
+     *
+     * On success the result carries the provider's batch settlement id; the caller derives
+     * per-payment settlement ids from it when fanning out PaymentSettledEvents.
+     */
+    public CompletableFuture<SettlementResult> attemptBatchSettlement(SettlementBatch batch) {
+        log.info("Processing settlement batch {} - Merchant: {}, Currency: {}, Payments: {}, Net Amount: {}",
+                batch.getBatchId(), batch.getMerchantId(), batch.getCurrency(), batch.size(), batch.getNetAmount());
+
+        return settleWithProvider(SettlementRequest.forBatch(batch)).thenApply(result -> {
+            result.setRetryCount(1);
+
+            if (result.isSettled()) {
+                log.info("Settlement batch {} settled, settlementId: {}", batch.getBatchId(), result.getSettlementId());
+            } else {
+                log.warn("Settlement batch {} failed, reasons: {}", batch.getBatchId(), result.getFailureReasons());
+            }
+            return result;
+        });
     }
-    
-    private String determineFailureReason(PaymentAuthorizedEvent event) {
-        // Simulate different failure reasons based on random selection
-        double rand = random.nextDouble();
-        
-        if (rand < 0.3) {
-            return "Insufficient funds in account";
-        } else if (rand < 0.6) {
-            return "Invalid card details";
-        } else if (rand < 0.8) {
-            return "Payment provider network error";
-        } else {
-            return "Transaction declined by risk assessment";
+
+    private CompletableFuture<SettlementResult> settleWithProvider(SettlementRequest request) {
+        CompletableFuture<ProviderResponse> call;
+        try {
+            call = providerGateway.settle(request);
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
         }
+
+        return call.handle((response, error) -> {
+            SettlementResult result = new SettlementResult();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+            if (cause == null) {
+                if (response.isApproved()) {
+                    result.markAsSettled(generateSettlementId());
+                } else {
+                    result.markAsDeclined(response.getDeclineCode(), response.getDeclineReason());
+                }
+            } else if (cause instanceof SettlementProviderException e) {
+                if (e.isRejected()) {
+                    result.markAsRejected(e.getCode(), e.getMessage(), e.getRetryAfterMs());
+                } else {
+                    result.addFailure(e.getCode(), e.getMessage());
+                }
+            } else {
+                result.addFailure("SYSTEM_ERROR", "Settlement processing failed: " + cause.getMessage());
+                log.error("Settlement processing error for reference: {}", request.getReference(), cause);
+            }
+            return result;
+        });
     }
-    
+
     private String generateSettlementId() {
-        return "SETTLE_" + System.currentTimeMillis() + "_" + 
-               String.format("%04d", random.nextInt(10000));
+        return "SETTLE_" + idGenerator.nextIdString();
     }
 }
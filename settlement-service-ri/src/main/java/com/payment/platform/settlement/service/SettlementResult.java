@@ -11,8 +11,11 @@ import java.util.List;
  * - settlementId: Unique identifier from payment provider
  * - failureReasons: List of reasons for settlement failure
  * - retryCount: Number of retry attempts made
+ * - declined: The provider declined the settlement; a business outcome that retrying does not change
+ * - rejected / retryAfterMs: The call was rejected locally without reaching the provider, and
+ *   may be tried again after retryAfterMs; it does not use up an attempt
  * 
- * Used by: SettlementEventHandler to determine which event to publish
+ * Used by: SettlementRetryScheduler and SettlementBatcher to decide between settled, retry and failed
  * Purpose: Provides structured settlement outcome for downstream processing
  * 
  * Error Codes:
@@ -21,18 +24,34 @@ import java.util.List;
  * - INVALID_CARD: Card details are invalid
  * - NETWORK_ERROR: Network connectivity issues
  * - MAX_RETRIES_EXCEEDED: Retry limit reached
+ * - PROVIDER_UNAVAILABLE / PROVIDER_TIMEOUT: Provider outage or slow response
+ * - CIRCUIT_OPEN / BULKHEAD_FULL: Call rejected locally to protect the provider and our threads
  */
 public class SettlementResult {
     private boolean settled = false;
     private String settlementId;
     private List<String> failureReasons = new ArrayList<>();
     private int retryCount = 0;
+    private boolean declined = false;
+    private boolean rejected = false;
+    private long retryAfterMs = 0L;
     
     public void addFailure(String code, String reason) {
         settled = false;
         failureReasons.add(code + ": " + reason);
     }
     
+    public void markAsDeclined(String code, String reason) {
+        addFailure(code, reason);
+        this.declined = true;
+    }
+    
+    public void markAsRejected(String code, String reason, long retryAfterMs) {
+        addFailure(code, reason);
+        this.rejected = true;
+        this.retryAfterMs = retryAfterMs;
+    }
+    
     public void markAsSettled(String settlementId) {
         this.settled = true;
         this.settlementId = settlementId;
@@ -55,4 +74,10 @@ public class SettlementResult {
     
     public int getRetryCount() { return retryCount; }
     public void setRetryCount(int retryCount) { this.retryCount = retryCount; }
+    
+    public boolean isDeclined() { return declined; }
+    
+    public boolean isRejected() { return rejected; }
+    
+    public long getRetryAfterMs() { return retryAfterMs; }
 }
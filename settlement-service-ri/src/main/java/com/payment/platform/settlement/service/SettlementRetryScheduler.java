@@ -0,0 +1,424 @@
+package com.payment.platform.settlement.service;
+
+import com.payment.platform.core.events.PaymentAuthorizedEvent;
+import com.payment.platform.core.events.PaymentSettledEvent;
+import com.payment.platform.settlement.journal.JournalRecord;
+import com.payment.platform.settlement.journal.SettlementJournal;
+import com.payment.platform.settlement.model.SettlementAttempt;
+import com.payment.platform.settlement.model.SettlementState;
+import com.payment.platform.settlement.repository.SettlementAttemptRepository;
+import jakarta.annotation.PreDestroy;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventhandling.GenericEventMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs settlement attempts as a persisted state machine on settlement lanes.
+ *
+ * Instead of sleeping between retries on the event handler thread, each attempt is a
+ * short task on a lane: a single-threaded scheduled executor chosen by the payment's
+ * partition key (paymentId, or merchantId with settlement.partitioning.key=merchantId, as
+ * for the "settlement" processor's segments). A failed attempt records its state and schedules the
+ * next one with exponential backoff and jitter, so the event handler returns immediately
+ * and a slow or failing payment never holds up the settlements behind it.
+ *
+ * Key Features:
+ * - States: PENDING -> SETTLED | RETRY_SCHEDULED -> ... -> FAILED (see SettlementState)
+ * - Backoff: base * 2^(attempt-1), capped, with configurable jitter
+ * - Provider declines fail the payment at once; circuit breaker and bulkhead rejections are
+ *   retried once the provider takes calls again and do not use up an attempt
+ * - Lanes (settlement.retry.lanes): all attempts of a key are started and recorded in order on
+ *   one lane thread, and different keys settle in parallel
+ * - Provider calls are asynchronous: lane threads only start attempts and record their
+ *   outcomes, so the number of calls in flight is bounded by the provider bulkhead
+ * - Claims: an instance runs an attempt only after claiming its row with a conditional update
+ *   (settlement.retry.claim-ms), so instances sharing the database never settle a payment twice
+ * - Restart safety: every settlement.retry.sweep-ms, due attempts whose claim has expired
+ *   (their instance stopped or died) are picked up from settlement_attempts
+ * - An attempt that cannot be executed (e.g. the database is unavailable) is retried with
+ *   backoff; it keeps its claim, or is picked up by another instance once the claim expires
+ * - Idempotent: a second PaymentAuthorizedEvent for the same payment is ignored
+ * - Publish safety: a settled attempt is saved as PUBLISH_PENDING first and becomes SETTLED only
+ *   once its PaymentSettledEvent is published. A failed publish is retried with backoff like an
+ *   execution error, and the sweep picks up PUBLISH_PENDING rows of stopped instances, so the
+ *   event is published at least once and never lost after the provider settled the payment
+ * - Final outcomes (settled / failed) are appended to the SettlementJournal after the
+ *   PaymentSettledEvent is published; a journal failure is logged and never suppresses the event
+ *
+ * Used by: SettlementEventHandler to hand off PaymentAuthorizedEvent, SettlementBatcher for the
+ * payments of a failed batch
+ * Output: PaymentSettledEvent on the EventBus when an attempt succeeds
+ */
+@Service
+public class SettlementRetryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(SettlementRetryScheduler.class);
+
+    @Autowired
+    private SettlementProcessor settlementProcessor;
+
+    @Autowired
+    private SettlementAttemptRepository attemptRepository;
+
+    @Autowired
+    private EventBus eventBus;
+
+    @Autowired
+    private SettlementJournal settlementJournal;
+
+    @Value("${settlement.retry.max-attempts:3}")
+    private int maxRetryAttempts;
+
+    @Value("${settlement.retry.delay-ms:1000}")
+    private long baseDelayMs;
+
+    @Value("${settlement.retry.max-delay-ms:60000}")
+    private long maxDelayMs;
+
+    @Value("${settlement.retry.jitter:0.5}")
+    private double jitter;
+
+    @Value("${settlement.retry.claim-ms:60000}")
+    private long claimMs;
+
+    @Value("${settlement.retry.sweep-ms:30000}")
+    private long sweepMs;
+
+    @Value("${settlement.partitioning.key:paymentId}")
+    private String partitioningKey;
+
+    // States a lane runs: a provider attempt, or publishing the event of a settled attempt
+    private static final Set<SettlementState> ACTIVE =
+            EnumSet.of(SettlementState.PENDING, SettlementState.RETRY_SCHEDULED, SettlementState.PUBLISH_PENDING);
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    // Payments with a run scheduled on this instance (to their lane key), so the sweep does not schedule them twice
+    private final Map<String, String> scheduled = new ConcurrentHashMap<>();
+
+    // Consecutive attempts that could not be executed, for the backoff of the next try
+    private final Map<String, Integer> executionErrors = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService[] lanes;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "settlement-retry-sweep");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SettlementRetryScheduler(@Value("${settlement.retry.lanes:8}") int laneCount) {
+        this.lanes = new ScheduledExecutorService[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "settlement-lane-" + i;
+            lanes[i] = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Registers the authorized payment and schedules its first attempt once the registering
+     * transaction has committed. Returns immediately.
+     */
+    public void submit(PaymentAuthorizedEvent event) {
+        if (attemptRepository.existsById(event.getPaymentId())) {
+            log.info("Settlement already tracked for payment: {}, ignoring duplicate event", event.getPaymentId());
+            return;
+        }
+        SettlementAttempt attempt = SettlementAttempt.from(event);
+        attempt.setClaimedBy(nodeId);
+        attempt.setClaimedUntil(LocalDateTime.now().plus(Duration.ofMillis(claimMs)));
+        attemptRepository.save(attempt);
+        scheduleAfterCommit(event.getPaymentId(), laneKey(attempt));
+    }
+
+    /**
+     * Schedules a run of an attempt that is already persisted and claimed by this instance.
+     */
+    public void resume(SettlementAttempt attempt, long delayMs) {
+        schedule(attempt.getPaymentId(), laneKey(attempt), delayMs);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Starts the sweep that picks up due attempts nobody holds a claim on: attempts of this
+     * instance's previous run, and of instances that stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSweep() {
+        sweeper.scheduleWithFixedDelay(this::sweepUnclaimedAttempts, 0L, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    void sweepUnclaimedAttempts() {
+        try {
+            List<SettlementAttempt> due = attemptRepository.findUnclaimedDue(ACTIVE, LocalDateTime.now());
+            int resumed = 0;
+            for (SettlementAttempt attempt : due) {
+                if (schedule(attempt.getPaymentId(), laneKey(attempt), 0L)) {
+                    resumed++;
+                }
+            }
+            if (resumed > 0) {
+                log.info("Resuming {} unclaimed settlement attempts", resumed);
+            }
+        } catch (Exception e) {
+            log.error("Settlement attempt sweep failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Pending retries are persisted; their claims expire and the next sweep picks them up
+        sweeper.shutdownNow();
+        for (ScheduledExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    private void scheduleAfterCommit(String paymentId, String laneKey) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(paymentId, laneKey, 0L);
+                }
+            });
+        } else {
+            schedule(paymentId, laneKey, 0L);
+        }
+    }
+
+    // Returns false when a run of the payment is already scheduled on this instance
+    private boolean schedule(String paymentId, String laneKey, long delayMs) {
+        if (scheduled.putIfAbsent(paymentId, laneKey) != null) {
+            return false;
+        }
+        ScheduledExecutorService lane = lane(laneKey);
+        lane.schedule(() -> runAttempt(paymentId, lane), delayMs, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private ScheduledExecutorService lane(String laneKey) {
+        return lanes[Math.floorMod(laneKey.hashCode(), lanes.length)];
+    }
+
+    private String laneKey(SettlementAttempt attempt) {
+        if ("merchantId".equalsIgnoreCase(partitioningKey) && attempt.getMerchantId() != null) {
+            return attempt.getMerchantId();
+        }
+        return attempt.getPaymentId();
+    }
+
+    // The payment stays in scheduled while its provider call is in flight
+    private void runAttempt(String paymentId, ScheduledExecutorService lane) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (attemptRepository.claim(paymentId, ACTIVE, nodeId, now.plus(Duration.ofMillis(claimMs)), now) == 0) {
+                // Settled, not due yet, or another instance holds it
+                finish(paymentId);
+                return;
+            }
+            SettlementAttempt attempt = attemptRepository.findById(paymentId).orElse(null);
+            if (attempt == null) {
+                finish(paymentId);
+                return;
+            }
+            if (attempt.getState() == SettlementState.PUBLISH_PENDING) {
+                // Settled by the provider, the event is still owed
+                publishAndMarkSettled(attempt);
+                finish(paymentId);
+                return;
+            }
+
+            int attemptNumber = attempt.getAttemptCount() + 1;
+            settlementProcessor.attemptSettlement(attempt.toAuthorizedEvent(), attemptNumber)
+                    .whenCompleteAsync((result, error) -> {
+                        if (error != null) {
+                            executionFailed(paymentId, error);
+                        } else {
+                            complete(attempt, attemptNumber, result);
+                        }
+                    }, lane);
+
+        } catch (Exception e) {
+            executionFailed(paymentId, e);
+        }
+    }
+
+    private void complete(SettlementAttempt attempt, int attemptNumber, SettlementResult result) {
+        String paymentId = attempt.getPaymentId();
+        scheduled.remove(paymentId);
+        try {
+            if (result.isRejected()) {
+                // The provider was never called, so the attempt is not used up; try again once
+                // the breaker lets calls through or the bulkhead has room
+                long delayMs = Math.max(result.getRetryAfterMs(), backoffDelayMs(1));
+                scheduleRetry(attempt, result, delayMs);
+                log.info("Settlement for payment: {} rejected locally ({}), trying again in {}ms",
+                        paymentId, result.getFailureReasons(), delayMs);
+                executionErrors.remove(paymentId);
+                return;
+            }
+
+            attempt.setAttemptCount(attemptNumber);
+
+            if (result.isSettled()) {
+                // Recorded before publishing, so a failed publish is retried without settling again
+                attempt.setState(SettlementState.PUBLISH_PENDING);
+                attempt.setSettlementId(result.getSettlementId());
+                attempt.setSettledAt(LocalDateTime.now());
+                attempt.setNextAttemptAt(null);
+                attemptRepository.save(attempt);
+                publishAndMarkSettled(attempt);
+            } else if (result.isDeclined() || attemptNumber >= maxRetryAttempts) {
+                attempt.setState(SettlementState.FAILED);
+                attempt.setLastFailure(String.join("; ", result.getFailureReasons()));
+                attempt.setNextAttemptAt(null);
+                release(attempt);
+                attemptRepository.save(attempt);
+                appendToJournal(attempt, () -> JournalRecord.failed(attempt.getPaymentId(), attempt.getOrderId(),
+                        attempt.getMerchantId(), attempt.getCurrency(), attempt.getAmount(), failureCode(result)));
+                if (result.isDeclined()) {
+                    log.error("4. Settlement declined by provider for payment: {}, reasons: {}",
+                            paymentId, result.getFailureReasons());
+                } else {
+                    log.error("4. Settlement failed after {} attempts for payment: {}, reasons: {}",
+                            attemptNumber, paymentId, result.getFailureReasons());
+                }
+            } else {
+                long delayMs = backoffDelayMs(attemptNumber);
+                scheduleRetry(attempt, result, delayMs);
+                log.info("Retrying settlement for payment: {} in {}ms (attempt {} of {})",
+                        paymentId, delayMs, attemptNumber + 1, maxRetryAttempts);
+            }
+
+            executionErrors.remove(paymentId);
+
+        } catch (Exception e) {
+            executionFailed(paymentId, e);
+        }
+    }
+
+    private void scheduleRetry(SettlementAttempt attempt, SettlementResult result, long delayMs) {
+        attempt.setState(SettlementState.RETRY_SCHEDULED);
+        attempt.setLastFailure(String.join("; ", result.getFailureReasons()));
+        attempt.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delayMs)));
+        // Kept past the retry, so the next attempt stays on this instance while it runs
+        attempt.setClaimedUntil(attempt.getNextAttemptAt().plus(Duration.ofMillis(claimMs)));
+        attemptRepository.save(attempt);
+        schedule(attempt.getPaymentId(), laneKey(attempt), delayMs);
+    }
+
+    // The row keeps its state and this instance's claim; try again with backoff. If this
+    // instance stops, the sweep of another instance takes over once the claim expires.
+    private void executionFailed(String paymentId, Throwable error) {
+        String laneKey = scheduled.remove(paymentId);
+        int errors = executionErrors.merge(paymentId, 1, Integer::sum);
+        long delayMs = backoffDelayMs(errors);
+        log.error("Settlement attempt could not be executed for payment: {}, trying again in {}ms",
+                paymentId, delayMs, error);
+        schedule(paymentId, laneKey != null ? laneKey : paymentId, delayMs);
+    }
+
+    private void finish(String paymentId) {
+        scheduled.remove(paymentId);
+        executionErrors.remove(paymentId);
+    }
+
+    // Runs after the outcome is saved and published; a journal failure must not undo or suppress either
+    private void appendToJournal(SettlementAttempt attempt, Supplier<JournalRecord> record) {
+        try {
+            settlementJournal.append(record.get());
+        } catch (Exception e) {
+            log.error("Failed to journal settlement outcome for payment: {}", attempt.getPaymentId(), e);
+        }
+    }
+
+    /**
+     * Publishes the PaymentSettledEvent of a PUBLISH_PENDING attempt; throws when the publish fails.
+     */
+    void publishSettled(SettlementAttempt attempt) {
+        PaymentSettledEvent settledEvent = new PaymentSettledEvent(
+            attempt.getPaymentId(),
+            attempt.getOrderId(),
+            attempt.getSettlementId(),
+            attempt.getSettledAt() != null ? attempt.getSettledAt() : LocalDateTime.now()
+        );
+        eventBus.publish(GenericEventMessage.asEventMessage(settledEvent));
+    }
+
+    static void markSettled(SettlementAttempt attempt) {
+        attempt.setState(SettlementState.SETTLED);
+        release(attempt);
+    }
+
+    private static void release(SettlementAttempt attempt) {
+        attempt.setClaimedBy(null);
+        attempt.setClaimedUntil(null);
+    }
+
+    /**
+     * Publishes the PaymentSettledEvent of a PUBLISH_PENDING attempt, then marks it SETTLED and
+     * journals it. Throws when the publish fails; the attempt then stays PUBLISH_PENDING under
+     * this instance's claim and must be resumed.
+     */
+    void publishAndMarkSettled(SettlementAttempt attempt) {
+        publishSettled(attempt);
+
+        // A failure from here on re-publishes the event: at least once, never lost
+        markSettled(attempt);
+        attemptRepository.save(attempt);
+        log.info("4. Payment settlement completed: {}, settlementId: {}",
+                attempt.getPaymentId(), attempt.getSettlementId());
+        appendToJournal(attempt, () -> JournalRecord.settled(attempt.getPaymentId(), attempt.getOrderId(),
+                attempt.getSettlementId(), attempt.getMerchantId(), attempt.getCurrency(), attempt.getAmount()));
+    }
+
+    private static String failureCode(SettlementResult result) {
+        if (result.getFailureReasons().isEmpty()) {
+            return "UNKNOWN";
+        }
+        String reason = result.getFailureReasons().get(result.getFailureReasons().size() - 1);
+        int separator = reason.indexOf(':');
+        return separator > 0 ? reason.substring(0, separator) : reason;
+    }
+
+    /**
+     * Exponential backoff capped at maxDelayMs; jitter removes up to that fraction of the delay
+     * so payments that failed together do not retry in lockstep.
+     */
+    long backoffDelayMs(int attemptNumber) {
+        int exponent = Math.min(attemptNumber - 1, 30);
+        long delay = Math.min(maxDelayMs, baseDelayMs * (1L << exponent));
+        double factor = 1.0 - jitter * ThreadLocalRandom.current().nextDouble();
+        return Math.max(0L, (long) (delay * factor));
+    }
+}